@@ -1,7 +1,9 @@
 package com.medcheckapi.chat.config;
 
+import com.medcheckapi.user.security.StompJwtChannelInterceptor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -11,6 +13,13 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // JWT no CONNECT e controle de acesso aos tópicos do painel ao vivo
+    private final StompJwtChannelInterceptor stompJwtChannelInterceptor;
+
+    public WebSocketConfig(StompJwtChannelInterceptor stompJwtChannelInterceptor) {
+        this.stompJwtChannelInterceptor = stompJwtChannelInterceptor;
+    }
+
     @Override
     public void configureMessageBroker(@NonNull MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");
@@ -21,4 +30,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").withSockJS();
     }
+
+    @Override
+    public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+        registration.interceptors(stompJwtChannelInterceptor);
+    }
 }
@@ -0,0 +1,31 @@
+package com.medcheckapi.user.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Contagem de comandos SQL por requisição: o Hibernate chama {@link QueryCountInspector} a cada statement e o
+ * {@link StatementCountFilter} publica o total ao fim da requisição. Timers dos caminhos quentes ficam em
+ * {@link com.medcheckapi.user.service.HotPathMetrics}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountInspectorCustomizer() {
+        return props -> props.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountInspector());
+    }
+
+    @Bean
+    public FilterRegistrationBean<StatementCountFilter> statementCountFilter(MeterRegistry registry) {
+        FilterRegistrationBean<StatementCountFilter> reg = new FilterRegistrationBean<>(new StatementCountFilter(registry));
+        // Antes da cadeia do Spring Security: consultas do filtro JWT (principal fora do cache) também contam
+        reg.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return reg;
+    }
+}
@@ -0,0 +1,27 @@
+package com.medcheckapi.user.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Conta os comandos SQL que o Hibernate prepara na thread atual (repositórios JPA e JPQL nativo). Consultas via
+ * JdbcTemplate não passam por aqui. O contador é zerado por {@link StatementCountFilter} no início de cada
+ * requisição; threads de jobs acumulam sem zerar, mas ninguém lê o valor delas.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static int count() {
+        return COUNT.get()[0];
+    }
+}
@@ -0,0 +1,62 @@
+package com.medcheckapi.user.config;
+
+import java.util.Locale;
+
+/**
+ * Tempos de uma requisição /api (thread da requisição): autenticação (filtro JWT + busca do principal), banco
+ * (execuções JDBC e quantidade de comandos), serialização JSON e total. Só existe com app.server-timing.enabled;
+ * desligado, {@link #current()} devolve null e os pontos de coleta não fazem nada.
+ */
+public final class RequestTiming {
+
+    public static final String HEADER = "Server-Timing";
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private long authNanos;
+    private long dbNanos;
+    private int queries;
+    private long serializeNanos;
+
+    static RequestTiming begin() {
+        RequestTiming t = new RequestTiming();
+        CURRENT.set(t);
+        return t;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    public void addAuth(long nanos) { authNanos += nanos; }
+
+    void addQuery(long nanos) { dbNanos += nanos; queries++; }
+
+    void addSerialize(long nanos) { serializeNanos += nanos; }
+
+    int queries() { return queries; }
+
+    /** Valor do header Server-Timing (durações em ms); total vai até o momento da chamada. */
+    String header() {
+        return "auth;dur=" + ms(authNanos)
+                + ", db;dur=" + ms(dbNanos) + ";desc=\"" + queries + " queries\""
+                + ", serialize;dur=" + ms(serializeNanos)
+                + ", total;dur=" + ms(System.nanoTime() - startNanos);
+    }
+
+    /** Linha chave=valor para o log amostrado. */
+    String logLine(String method, String uri, int status) {
+        return "method=" + method + " uri=" + uri + " status=" + status
+                + " total_ms=" + ms(System.nanoTime() - startNanos) + " auth_ms=" + ms(authNanos)
+                + " db_ms=" + ms(dbNanos) + " queries=" + queries + " serialize_ms=" + ms(serializeNanos);
+    }
+
+    private static String ms(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+}
@@ -1,6 +1,7 @@
 package com.medcheckapi.user.config;
 
 import com.medcheckapi.user.security.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -13,6 +14,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.http.HttpMethod;
@@ -38,14 +40,28 @@ public class SecurityConfig {
         return configuration.getAuthenticationManager();
     }
     
+    // Scrape sem credencial só quando chega pela porta de gestão (management.server.port) e ela é separada da API
+    static RequestMatcher prometheusOnManagementPort(Integer managementPort, int serverPort) {
+        return request -> managementPort != null && managementPort != serverPort
+                && request.getLocalPort() == managementPort
+                && "/actuator/prometheus".equals(request.getRequestURI());
+    }
+
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           @Value("${management.server.port:#{null}}") Integer managementPort,
+                                           @Value("${server.port:8080}") int serverPort) throws Exception {
         http.csrf(csrf -> csrf.disable());
         http.sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
         http.authorizeHttpRequests(auth -> auth
                 // Allow unauthenticated access to auth endpoints, health/ping, H2 console, CORS preflight, and error dispatches
                 .requestMatchers("/api/auth/**", "/ws/**", "/api/ping", "/h2-console/**", "/error").permitAll()
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                // Healthcheck público (também /livez e /readyz na porta da API); Prometheus aberto só na porta de
+                // gestão interna; demais endpoints do actuator: ADMIN
+                .requestMatchers("/actuator/health", "/livez", "/readyz").permitAll()
+                .requestMatchers(prometheusOnManagementPort(managementPort, serverPort)).permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .anyRequest().authenticated());
         http.headers(headers -> headers.frameOptions(frame -> frame.disable())); // allow H2 console frames
 
@@ -63,6 +79,8 @@ public class SecurityConfig {
             configuration.setAllowedMethods(java.util.List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
             configuration.setAllowedHeaders(java.util.List.of("*"));
             configuration.setAllowCredentials(true);
+            // Lido pelo front para diagnosticar lentidão (só presente com app.server-timing.enabled)
+            configuration.setExposedHeaders(java.util.List.of("Server-Timing"));
             return configuration;
         }));
 
@@ -0,0 +1,49 @@
+package com.medcheckapi.user.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medcheckapi.user.config.props.AppProperties;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import javax.sql.DataSource;
+
+/**
+ * Server-Timing (auth, db com nº de comandos, serialize, total) nas respostas /api. Desligado por padrão: sem
+ * app.server-timing.enabled nenhum destes beans existe (DataSource e conversor JSON originais, sem filtro) e o
+ * único custo que sobra é a leitura de um ThreadLocal vazio no filtro JWT. Expõe tempos internos: ligue em
+ * homologação ou durante a investigação, não de forma permanente em produção.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.server-timing", name = "enabled", havingValue = "true")
+public class ServerTimingConfig {
+
+    // static: BeanPostProcessor precisa existir antes dos beans de configuração comuns
+    @Bean
+    public static BeanPostProcessor timingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ds && !(bean instanceof TimingDataSource) ? new TimingDataSource(ds) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(AppProperties props) {
+        FilterRegistrationBean<ServerTimingFilter> reg = new FilterRegistrationBean<>(new ServerTimingFilter(props.getServerTiming().getLogSampleRate()));
+        // Primeiro filtro: o total inclui a cadeia do Spring Security
+        reg.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return reg;
+    }
+
+    // Substitui o conversor Jackson do Spring Boot (@ConditionalOnMissingBean), mantendo o ObjectMapper configurado
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new TimingJsonConverter(objectMapper);
+    }
+}
@@ -0,0 +1,54 @@
+package com.medcheckapi.user.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Abre o {@link RequestTiming} da requisição e, se ninguém escreveu corpo JSON (204, 304, erro sem corpo), grava o
+ * Server-Timing no fim. Respostas JSON recebem o header do {@link TimingJsonConverter}; em exportações assíncronas o
+ * total cobre só o handler. Uma fração (app.server-timing.log-sample-rate) vira linha de log [TIMING].
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    private final double logSampleRate;
+
+    public ServerTimingFilter(double logSampleRate) {
+        this.logSampleRate = logSampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        // Front em outra origem (ng serve/app móvel): sem isso o navegador esconde os tempos no DevTools
+        String origin = request.getHeader("Origin");
+        if (origin != null) response.setHeader("Timing-Allow-Origin", origin);
+        RequestTiming t = RequestTiming.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestTiming.end();
+            if (!response.isCommitted()) response.setHeader(RequestTiming.HEADER, t.header());
+            if (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                log.info("[TIMING] {}", t.logLine(request.getMethod(), pattern == null ? request.getRequestURI() : pattern.toString(), response.getStatus()));
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+}
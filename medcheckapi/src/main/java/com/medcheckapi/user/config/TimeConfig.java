@@ -0,0 +1,23 @@
+package com.medcheckapi.user.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.ZoneId;
+
+/**
+ * Fonte de tempo da aplicação: relógio do sistema no fuso do Acre (America/Rio_Branco, UTC-5 sem horário de
+ * verão). Regras que dependem de "agora" (status do calendário, check-in/out) leem deste bean, então testes e
+ * replays podem registrar um {@link Clock#fixed} no lugar.
+ */
+@Configuration
+public class TimeConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public Clock clock() {
+        return Clock.system(ZoneId.of("America/Rio_Branco"));
+    }
+}
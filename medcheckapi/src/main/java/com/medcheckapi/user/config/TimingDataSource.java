@@ -0,0 +1,69 @@
+package com.medcheckapi.user.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Proxy JDBC do Server-Timing: cronometra cada execute* de Statement/PreparedStatement na thread da requisição.
+ * Fica abaixo do Hibernate e do JdbcTemplate, então cobre repositórios JPA, lazy loading e as consultas diretas
+ * (roster, calendário, busca). Leitura do ResultSet depois do execute não entra na conta.
+ */
+public class TimingDataSource extends DelegatingDataSource {
+
+    public TimingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private static Connection wrap(Connection target) {
+        return (Connection) Proxy.newProxyInstance(TimingDataSource.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Statement st) {
+                        Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                                : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                        return Proxy.newProxyInstance(TimingDataSource.class.getClassLoader(), new Class<?>[]{type}, timed(st));
+                    }
+                    return result;
+                });
+    }
+
+    private static InvocationHandler timed(Statement target) {
+        return (proxy, method, args) -> {
+            RequestTiming t = method.getName().startsWith("execute") ? RequestTiming.current() : null;
+            if (t == null) return invoke(target, method, args);
+            long start = System.nanoTime();
+            try {
+                return invoke(target, method, args);
+            } finally {
+                t.addQuery(System.nanoTime() - start);
+            }
+        };
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.medcheckapi.user.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Conversor JSON do Server-Timing: serializa para um buffer, mede, grava o header (antes do corpo, que faz o
+ * commit da resposta) e só então copia o corpo. O buffer só existe com o Server-Timing ligado.
+ */
+public class TimingJsonConverter extends MappingJackson2HttpMessageConverter {
+
+    public TimingJsonConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(@NonNull Object object, @Nullable Type type, @NonNull HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        RequestTiming t = RequestTiming.current();
+        if (t == null) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        long start = System.nanoTime();
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(4096);
+        super.writeInternal(object, type, new HttpOutputMessage() {
+            @Override public @NonNull OutputStream getBody() { return buf; }
+            @Override public @NonNull HttpHeaders getHeaders() { return outputMessage.getHeaders(); }
+        });
+        t.addSerialize(System.nanoTime() - start);
+        outputMessage.getHeaders().set(RequestTiming.HEADER, t.header());
+        buf.writeTo(outputMessage.getBody());
+    }
+}
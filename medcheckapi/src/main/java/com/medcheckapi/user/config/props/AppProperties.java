@@ -14,6 +14,13 @@ public class AppProperties {
     @Name("jwt-expiration-in-ms")
     private long jwtExpirationInMs;
     private Reset reset = new Reset();
+    private Auth auth = new Auth();
+    private CheckCode checkCode = new CheckCode();
+    private CheckIn checkIn = new CheckIn();
+    private Calendar calendar = new Calendar();
+    private MailOutbox mailOutbox = new MailOutbox();
+    private ServerTiming serverTiming = new ServerTiming();
+    private Export export = new Export();
 
     public static class Reset {
         @Name("expiration-minutes")
@@ -28,10 +35,127 @@ public class AppProperties {
         public void setLogLink(boolean logLink) { this.logLink = logLink; }
     }
 
+    public static class Auth {
+        // Tempo de vida (segundos) de um principal em cache no filtro JWT
+        private long principalCacheTtlSeconds = 300;
+        // Quantidade máxima de principals mantidos em memória
+        private int principalCacheMaxEntries = 10_000;
+        // Quantidade de tokens já verificados (assinatura + claims) mantidos em LRU; 0 desliga
+        private int tokenCacheSize = 4_096;
+        public long getPrincipalCacheTtlSeconds() { return principalCacheTtlSeconds; }
+        public void setPrincipalCacheTtlSeconds(long principalCacheTtlSeconds) { this.principalCacheTtlSeconds = principalCacheTtlSeconds; }
+        public int getPrincipalCacheMaxEntries() { return principalCacheMaxEntries; }
+        public void setPrincipalCacheMaxEntries(int principalCacheMaxEntries) { this.principalCacheMaxEntries = principalCacheMaxEntries; }
+        public int getTokenCacheSize() { return tokenCacheSize; }
+        public void setTokenCacheSize(int tokenCacheSize) { this.tokenCacheSize = tokenCacheSize; }
+    }
+
+    public static class CheckCode {
+        // database | memory | totp (ver CheckCodeEngine)
+        private String mode = "database";
+        // Segredo mestre do modo totp; vazio = derivado de app.jwt-secret
+        private String secret;
+        // Intervalo (ms) de gravação em lote do histórico de códigos no modo memory
+        private long flushIntervalMs = 5000;
+        public String getMode() { return mode; }
+        public void setMode(String mode) { this.mode = mode; }
+        public String getSecret() { return secret; }
+        public void setSecret(String secret) { this.secret = secret; }
+        public long getFlushIntervalMs() { return flushIntervalMs; }
+        public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+    }
+
+    public static class CheckIn {
+        // Grava check-ins em lote (CheckInGroupCommitter); false = uma transação por check-in
+        private boolean groupCommit = false;
+        // Tamanho máximo do lote e espera (ms) para juntar a rajada
+        private int maxBatch = 200;
+        private long maxWaitMs = 5;
+        // Tempo máximo que a requisição aguarda a gravação do seu lote
+        private long timeoutMs = 5000;
+        // Acima disso o check-in é recusado com "tente novamente"
+        private int queueCapacity = 10_000;
+        public boolean isGroupCommit() { return groupCommit; }
+        public void setGroupCommit(boolean groupCommit) { this.groupCommit = groupCommit; }
+        public int getMaxBatch() { return maxBatch; }
+        public void setMaxBatch(int maxBatch) { this.maxBatch = maxBatch; }
+        public long getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+        public long getTimeoutMs() { return timeoutMs; }
+        public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+    }
+
+    public static class Calendar {
+        // Meses do calendário em cache (aluno/mês/disciplina); LRU acima disso
+        private int monthCacheMaxEntries = 2_000;
+        // Mês corrente/futuro muda com o relógio: TTL curto (0 = não guarda)
+        private long currentMonthTtlSeconds = 60;
+        public int getMonthCacheMaxEntries() { return monthCacheMaxEntries; }
+        public void setMonthCacheMaxEntries(int monthCacheMaxEntries) { this.monthCacheMaxEntries = monthCacheMaxEntries; }
+        public long getCurrentMonthTtlSeconds() { return currentMonthTtlSeconds; }
+        public void setCurrentMonthTtlSeconds(long currentMonthTtlSeconds) { this.currentMonthTtlSeconds = currentMonthTtlSeconds; }
+    }
+
+    public static class MailOutbox {
+        // Intervalo (ms) entre varreduras da fila de e-mails
+        private long pollIntervalMs = 2000;
+        // E-mails por lote (uma conexão SMTP por lote)
+        private int batchSize = 50;
+        // Tentativas antes de marcar FAILED
+        private int maxAttempts = 8;
+        // Espera antes da 1ª nova tentativa; dobra a cada falha até maxBackoffSeconds
+        private long initialBackoffSeconds = 30;
+        private long maxBackoffSeconds = 3600;
+        public long getPollIntervalMs() { return pollIntervalMs; }
+        public void setPollIntervalMs(long pollIntervalMs) { this.pollIntervalMs = pollIntervalMs; }
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+        public int getMaxAttempts() { return maxAttempts; }
+        public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+        public long getInitialBackoffSeconds() { return initialBackoffSeconds; }
+        public void setInitialBackoffSeconds(long initialBackoffSeconds) { this.initialBackoffSeconds = initialBackoffSeconds; }
+        public long getMaxBackoffSeconds() { return maxBackoffSeconds; }
+        public void setMaxBackoffSeconds(long maxBackoffSeconds) { this.maxBackoffSeconds = maxBackoffSeconds; }
+    }
+
+    public static class ServerTiming {
+        // Header Server-Timing (auth, db, serialize, total) nas respostas /api
+        private boolean enabled = false;
+        // Fração das requisições (0..1) que também gera linha de log [TIMING]
+        private double logSampleRate = 0.0;
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public double getLogSampleRate() { return logSampleRate; }
+        public void setLogSampleRate(double logSampleRate) { this.logSampleRate = logSampleRate; }
+    }
+
+    public static class Export {
+        // Timeout assíncrono (min) só da exportação de sessões; as demais requisições ficam no padrão do container
+        private long timeoutMinutes = 30;
+        public long getTimeoutMinutes() { return timeoutMinutes; }
+        public void setTimeoutMinutes(long timeoutMinutes) { this.timeoutMinutes = timeoutMinutes; }
+    }
+
     public String getJwtSecret() { return jwtSecret; }
     public void setJwtSecret(String jwtSecret) { this.jwtSecret = jwtSecret; }
     public long getJwtExpirationInMs() { return jwtExpirationInMs; }
     public void setJwtExpirationInMs(long jwtExpirationInMs) { this.jwtExpirationInMs = jwtExpirationInMs; }
     public Reset getReset() { return reset; }
     public void setReset(Reset reset) { this.reset = reset; }
+    public Auth getAuth() { return auth; }
+    public void setAuth(Auth auth) { this.auth = auth; }
+    public CheckCode getCheckCode() { return checkCode; }
+    public void setCheckCode(CheckCode checkCode) { this.checkCode = checkCode; }
+    public CheckIn getCheckIn() { return checkIn; }
+    public void setCheckIn(CheckIn checkIn) { this.checkIn = checkIn; }
+    public Calendar getCalendar() { return calendar; }
+    public void setCalendar(Calendar calendar) { this.calendar = calendar; }
+    public MailOutbox getMailOutbox() { return mailOutbox; }
+    public void setMailOutbox(MailOutbox mailOutbox) { this.mailOutbox = mailOutbox; }
+    public ServerTiming getServerTiming() { return serverTiming; }
+    public void setServerTiming(ServerTiming serverTiming) { this.serverTiming = serverTiming; }
+    public Export getExport() { return export; }
+    public void setExport(Export export) { this.export = export; }
 }
@@ -4,11 +4,18 @@ import com.medcheckapi.user.model.Role;
 import com.medcheckapi.user.model.User;
 import com.medcheckapi.user.repository.UserRepository;
 import com.medcheckapi.user.repository.DisciplineRepository;
-import com.medcheckapi.user.repository.CheckSessionRepository;
+import com.medcheckapi.user.security.CustomUserDetailsService;
+import com.medcheckapi.user.security.PrincipalCache;
+import com.medcheckapi.user.security.AuthenticatedUser;
+import com.medcheckapi.user.service.HotPathMetrics;
+import com.medcheckapi.user.service.StudentListQueryService;
+import com.medcheckapi.user.service.UserSearchIndex;
+import com.medcheckapi.user.service.UserSearchService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Clock;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -18,23 +25,33 @@ import java.util.stream.Collectors;
 public class AdminController {
     private final UserRepository userRepository;
     private final DisciplineRepository disciplineRepository;
-    private final CheckSessionRepository checkSessionRepository;
+    private final PrincipalCache principalCache;
+    private final CustomUserDetailsService userDetailsService;
+    private final UserSearchService userSearchService;
+    private final StudentListQueryService studentList;
+    private final HotPathMetrics metrics;
+    private final Clock clock;
 
-    public AdminController(UserRepository userRepository, DisciplineRepository disciplineRepository, CheckSessionRepository checkSessionRepository) {
+    public AdminController(UserRepository userRepository, DisciplineRepository disciplineRepository, PrincipalCache principalCache, CustomUserDetailsService userDetailsService, UserSearchService userSearchService, StudentListQueryService studentList, HotPathMetrics metrics, Clock clock) {
+        this.clock = clock;
         this.userRepository = userRepository;
         this.disciplineRepository = disciplineRepository;
-        this.checkSessionRepository = checkSessionRepository;
+        this.principalCache = principalCache;
+        this.userDetailsService = userDetailsService;
+        this.userSearchService = userSearchService;
+        this.studentList = studentList;
+        this.metrics = metrics;
     }
 
-    private void ensureAdmin(org.springframework.security.core.userdetails.User principal) {
-        User u = userRepository.findByCpf(principal.getUsername()).orElseThrow();
-        if (u.getRole() != Role.ADMIN) {
+    // Papel vem do principal (claims do token / cache), sem reconsultar users
+    private void ensureAdmin(AuthenticatedUser principal) {
+        if (principal.getRole() != Role.ADMIN) {
             throw new org.springframework.security.access.AccessDeniedException("Forbidden");
         }
     }
 
     @GetMapping("/users")
-    public ResponseEntity<?> listUsers(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> listUsers(@AuthenticationPrincipal AuthenticatedUser principal,
                                        @RequestParam(value = "disciplineId", required = false) Long disciplineId,
                                        @RequestParam(value = "q", required = false) String q,
                                        @RequestParam(value = "page", defaultValue = "0") int page,
@@ -42,87 +59,30 @@ public class AdminController {
                                        @RequestParam(value = "fName", required = false, defaultValue = "true") boolean fName,
                                        @RequestParam(value = "fPhone", required = false, defaultValue = "true") boolean fPhone,
                                        @RequestParam(value = "fEmail", required = false, defaultValue = "true") boolean fEmail,
-                                       @RequestParam(value = "fCpf", required = false, defaultValue = "true") boolean fCpf) {
+                                       @RequestParam(value = "fCpf", required = false, defaultValue = "true") boolean fCpf,
+                                       @RequestParam(value = "afterId", required = false) Long afterId) {
         ensureAdmin(principal);
         if (page < 0) page = 0; if (size < 1) size = 1; if (size > 200) size = 200;
         String qNorm = q != null ? q.trim().toLowerCase() : null;
-        // Carrega todos (dataset geralmente pequeno). Se crescer muito, migrar para consulta paginada.
-        List<User> base = userRepository.findAll();
-        // Filtro por disciplina (considera currentDiscipline do aluno e coleções de vinculo para preceptor/coordenador)
-        if (disciplineId != null) {
-            final Long dId = disciplineId;
-            // Carrega disciplina alvo (para evitar N+1 acesso, simples pois 1 disciplina)
-            var discOpt = disciplineRepository.findById(dId);
-            if (discOpt.isPresent()) {
-                var disc = discOpt.get();
-                var preceptorIds = disc.getPreceptors().stream().map(User::getId).collect(Collectors.toSet());
-                var coordIds = disc.getCoordinators().stream().map(User::getId).collect(Collectors.toSet());
-                base = base.stream().filter(u -> {
-                    if (u.getCurrentDiscipline() != null && u.getCurrentDiscipline().getId().equals(dId)) return true; // aluno atual
-                    if (preceptorIds.contains(u.getId())) return true;
-                    if (coordIds.contains(u.getId())) return true;
-                    return false;
-                }).collect(Collectors.toList());
-            } else {
-                // disciplina inexistente => lista vazia
-                base = java.util.Collections.emptyList();
-            }
-        }
-        // Filtro de busca (campos selecionáveis: nome, email, cpf, phone)
-        if (qNorm != null && !qNorm.isEmpty()) {
-            String qDigits = qNorm.replaceAll("\\D", "");
-            boolean anyField = fName || fPhone || fEmail || fCpf; // se cliente antigo não enviar flags, todos true
-            boolean selName = anyField ? fName : true;
-            boolean selPhone = anyField ? fPhone : true;
-            boolean selEmail = anyField ? fEmail : true;
-            boolean selCpf = anyField ? fCpf : true;
-            base = base.stream().filter(u -> {
-                boolean match = false;
-                if (selName && u.getName() != null && u.getName().toLowerCase().contains(qNorm)) match = true;
-                if (!match && selEmail && u.getInstitutionalEmail() != null && u.getInstitutionalEmail().toLowerCase().contains(qNorm)) match = true;
-                if (!match && selCpf) {
-                    String cpfDigits = u.getCpf() != null ? u.getCpf().replaceAll("\\D", "") : "";
-                    if (!qDigits.isEmpty() && cpfDigits.contains(qDigits)) match = true;
-                }
-                if (!match && selPhone) {
-                    String phoneDigits = u.getPhone() != null ? u.getPhone().replaceAll("\\D", "") : "";
-                    if (!qDigits.isEmpty() && phoneDigits.contains(qDigits)) match = true;
-                }
-                return match;
-            }).collect(Collectors.toList());
-        }
-        int total = base.size();
-        int from = Math.min(page * size, total);
-        int to = Math.min(from + size, total);
-        List<Map<String, Object>> items = base.subList(from, to).stream().map(u -> {
-            java.util.Map<String, Object> m = new java.util.HashMap<>();
-            m.put("id", u.getId());
-            m.put("name", u.getName());
-            m.put("cpf", u.getCpf());
-            m.put("email", u.getInstitutionalEmail());
-            m.put("phone", u.getPhone());
-            m.put("matricula", u.getMatricula());
-            m.put("role", u.getRole().name());
-            if (u.getCurrentDiscipline() != null) {
-                m.put("currentDiscipline", Map.of(
-                        "id", u.getCurrentDiscipline().getId(),
-                        "code", u.getCurrentDiscipline().getCode(),
-                        "name", u.getCurrentDiscipline().getName()
-                ));
-            }
-            return m;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(Map.of(
-                "items", items,
-                "page", page,
-                "size", size,
-                "totalItems", total,
-                "totalPages", (int) Math.ceil(total / (double) size)
-        ));
+        boolean anyField = fName || fPhone || fEmail || fCpf; // se cliente antigo não enviar flags, todos true
+        // Filtros, paginação e projeção no banco (UserSearchService); afterId = paginação por chave
+        var result = userSearchService.search(new UserSearchService.UserFilter(disciplineId, qNorm,
+                anyField ? fName : true, anyField ? fEmail : true, anyField ? fCpf : true, anyField ? fPhone : true),
+                afterId, page, size);
+        long total = result.totalItems();
+        metrics.rows("admin.users", result.items().size());
+        Map<String, Object> resp = new java.util.HashMap<>();
+        resp.put("items", result.items().stream().map(UserSearchService.UserSummary::toMap).collect(Collectors.toList()));
+        resp.put("page", page);
+        resp.put("size", size);
+        resp.put("totalItems", total);
+        resp.put("totalPages", (int) Math.ceil(total / (double) size));
+        resp.put("nextCursor", result.nextCursor());
+        return ResponseEntity.ok(resp);
     }
 
     @PutMapping("/users/{id}/role")
-    public ResponseEntity<?> updateRole(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> updateRole(@AuthenticationPrincipal AuthenticatedUser principal,
                                         @PathVariable Long id,
                                         @RequestBody Map<String, String> body) {
         ensureAdmin(principal);
@@ -131,26 +91,31 @@ public class AdminController {
         try { newRole = Role.valueOf(roleStr); } catch (Exception ex) { return ResponseEntity.badRequest().body(Map.of("error", "Role inválida")); }
         User u = userRepository.findById(id).orElseThrow();
         u.setRole(newRole);
-        userRepository.save(u);
+        // Tokens já emitidos carregam o papel antigo: nova versão faz o filtro ignorar essas claims
+        userDetailsService.invalidateClaims(u);
         return ResponseEntity.ok(Map.of("ok", true));
     }
 
     @DeleteMapping("/users/{id}")
-    public ResponseEntity<?> deleteUser(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> deleteUser(@AuthenticationPrincipal AuthenticatedUser principal,
                                         @PathVariable Long id) {
         ensureAdmin(principal);
-        if (!userRepository.existsById(id)) return ResponseEntity.notFound().build();
-        userRepository.deleteById(id);
+        User u = userRepository.findById(id).orElse(null);
+        if (u == null) return ResponseEntity.notFound().build();
+        userRepository.delete(u);
+        principalCache.evict(u.getCpf());
         return ResponseEntity.ok(Map.of("ok", true));
     }
 
     @PutMapping("/users/{id}")
-    public ResponseEntity<?> updateUser(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> updateUser(@AuthenticationPrincipal AuthenticatedUser principal,
                                         @PathVariable Long id,
                                         @RequestBody Map<String, Object> body) {
         ensureAdmin(principal);
         User u = userRepository.findById(id).orElse(null);
         if (u == null) return ResponseEntity.notFound().build();
+        String previousCpf = u.getCpf();
+        Role previousRole = u.getRole();
         // Campos editáveis
         if (body.containsKey("name")) u.setName((String) body.get("name"));
         if (body.containsKey("cpf")) {
@@ -189,12 +154,16 @@ public class AdminController {
                 } catch (Exception ignored) { }
             }
         }
+        if (u.getRole() != previousRole) u.bumpTokenVersion();
         userRepository.save(u);
+        // CPF e/ou papel podem ter mudado: descarta os principals antigo e novo
+        principalCache.evict(previousCpf);
+        principalCache.evict(u.getCpf());
         return ResponseEntity.ok(Map.of("ok", true));
     }
 
     @GetMapping("/users/{id}")
-    public ResponseEntity<?> getUser(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> getUser(@AuthenticationPrincipal AuthenticatedUser principal,
                                      @PathVariable Long id) {
         ensureAdmin(principal);
         User u = userRepository.findById(id).orElse(null);
@@ -214,14 +183,14 @@ public class AdminController {
     }
 
     @GetMapping("/disciplines")
-    public ResponseEntity<?> listDisciplines(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
+    public ResponseEntity<?> listDisciplines(@AuthenticationPrincipal AuthenticatedUser principal) {
         ensureAdmin(principal);
         return ResponseEntity.ok(disciplineRepository.findAll());
     }
 
     // Lista alunos para a home unificada do ADMIN (sem limitar a um preceptor)
     @GetMapping("/students")
-    public ResponseEntity<?> listStudents(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> listStudents(@AuthenticationPrincipal AuthenticatedUser principal,
                                           @RequestParam(required = false) Integer year,
                                           @RequestParam(defaultValue = "0") int page,
                                           @RequestParam(defaultValue = "8") int size,
@@ -234,59 +203,49 @@ public class AdminController {
                                           @RequestParam(required = false, defaultValue = "true") boolean statusOut,
                                           @RequestParam(required = false) Long disciplineId) {
         ensureAdmin(principal);
-        int y = (year != null ? year : java.time.LocalDate.now().getYear());
+        int y = (year != null ? year : java.time.LocalDate.now(clock).getYear());
         java.time.LocalDateTime start = java.time.LocalDateTime.of(java.time.LocalDate.of(y,1,1), java.time.LocalTime.MIN);
         java.time.LocalDateTime end = java.time.LocalDateTime.of(java.time.LocalDate.of(y,12,31), java.time.LocalTime.MAX);
         if (page < 0) page = 0; if (size < 1) size = 1; if (size > 50) size = 50;
-        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(page, size);
         String qNorm = q != null && !q.isBlank() ? q.trim().toLowerCase() : null;
-        String qDigits = qNorm != null ? qNorm.replaceAll("\\D", "") : null;
         boolean anyField = fName || fPhone || fEmail || fCpf;
         boolean selName = anyField ? fName : true;
         boolean selPhone = anyField ? fPhone : true;
         boolean selEmail = anyField ? fEmail : true;
         boolean selCpf = anyField ? fCpf : true;
-        boolean statusAll = statusIn && statusOut;
+        UserSearchIndex.Fields fields = new UserSearchIndex.Fields(selName, selEmail, selCpf, selPhone);
 
-        org.springframework.data.domain.Page<User> alunosPage;
+        StudentListQueryService.StudentPage alunosPage;
         if (disciplineId != null) {
             var disc = disciplineRepository.findById(disciplineId).orElse(null);
             if (disc == null) {
-                alunosPage = org.springframework.data.domain.Page.empty(pageable);
+                alunosPage = new StudentListQueryService.StudentPage(List.of(), page, size, 0);
             } else {
-                alunosPage = checkSessionRepository.findDistinctAlunosByDisciplineAnyPreceptor(
-                        disc, start, end, qNorm, qDigits,
-                        selName, selEmail, selCpf, selPhone,
-                        statusAll, statusIn, statusOut,
-                        pageable
-                );
+                alunosPage = studentList.page(new StudentListQueryService.StudentFilter(start, end, null, disc.getId(),
+                        qNorm, fields, statusIn, statusOut), page, size);
             }
         } else {
-            alunosPage = checkSessionRepository.findDistinctAlunosGlobalByPeriodAdvanced(
-                    start, end, qNorm, qDigits,
-                    selName, selEmail, selCpf, selPhone,
-                    statusAll, statusIn, statusOut,
-                    pageable
-            );
+            alunosPage = studentList.page(new StudentListQueryService.StudentFilter(start, end, null, null,
+                    qNorm, fields, statusIn, statusOut), page, size);
         }
-        java.util.List<java.util.Map<String,Object>> items = alunosPage.getContent().stream().map(a -> {
+        java.util.List<java.util.Map<String,Object>> items = alunosPage.items().stream().map(a -> {
             java.util.Map<String,Object> m = new java.util.HashMap<>();
-            m.put("id", a.getId());
-            m.put("name", a.getName());
-            m.put("cpf", a.getCpf());
-            m.put("phone", a.getPhone());
-            m.put("email", a.getInstitutionalEmail());
+            m.put("id", a.id());
+            m.put("name", a.name());
+            m.put("cpf", a.cpf());
+            m.put("phone", a.phone());
+            m.put("email", a.email());
             // Em serviço global: qualquer sessão aberta (sem limitar preceptor)
-            boolean inService = checkSessionRepository.existsByAlunoAndCheckOutTimeIsNull(a);
-            m.put("inService", inService);
+            m.put("inService", a.inService());
             return m;
         }).toList();
+        metrics.rows("admin.students", items.size());
         return ResponseEntity.ok(java.util.Map.of(
                 "items", items,
-                "page", alunosPage.getNumber(),
-                "size", alunosPage.getSize(),
-                "totalPages", alunosPage.getTotalPages(),
-                "totalItems", alunosPage.getTotalElements()
+                "page", alunosPage.page(),
+                "size", alunosPage.size(),
+                "totalPages", alunosPage.totalPages(),
+                "totalItems", alunosPage.totalItems()
         ));
     }
 }
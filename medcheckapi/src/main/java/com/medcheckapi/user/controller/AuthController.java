@@ -5,6 +5,7 @@ import com.medcheckapi.user.dto.SignUpRequest;
 import com.medcheckapi.user.model.User;
 import com.medcheckapi.user.repository.UserRepository;
 import com.medcheckapi.user.security.JwtTokenProvider;
+import com.medcheckapi.user.security.PrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +28,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import com.medcheckapi.user.service.AvatarStore;
 import com.medcheckapi.user.service.PasswordResetService;
 import com.medcheckapi.user.repository.PasswordResetTokenRepository;
 import com.medcheckapi.user.model.PasswordResetToken;
@@ -59,6 +61,12 @@ public class AuthController {
     @Autowired
     Environment environment;
 
+    @Autowired
+    PrincipalCache principalCache;
+
+    @Autowired
+    AvatarStore avatarStore;
+
     @PostMapping("/signin")
     public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
     String rawCpf = loginRequest.getCpf();
@@ -157,8 +165,10 @@ public class AuthController {
                 }
                 String ct = signUpRequest.getPhotoContentType();
                 if (ct == null || !ct.startsWith("image/")) ct = "image/jpeg";
-                user.setAvatar(avatar);
-                user.setAvatarContentType(ct);
+                AvatarStore.Stored stored = avatarStore.put(avatar, ct);
+                user.setAvatarHash(stored.hash());
+                user.setAvatarSize(stored.size());
+                user.setAvatarContentType(stored.contentType());
             } catch (IllegalArgumentException ex) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiMessage("Foto inválida (base64)"));
             }
@@ -186,7 +196,7 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiMessage("CPF inválido"));
         }
         return userRepository.findByCpf(digits)
-            .map(u -> { userRepository.delete(u); log.info("[SIGNUP_DELETE] Deleted cpf={}", digits); return ResponseEntity.ok(new ApiMessage("Usuário removido")); })
+            .map(u -> { userRepository.delete(u); principalCache.evict(digits); log.info("[SIGNUP_DELETE] Deleted cpf={}", digits); return ResponseEntity.ok(new ApiMessage("Usuário removido")); })
             .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiMessage("Usuário não encontrado")));
     }
 
@@ -194,6 +204,7 @@ public class AuthController {
     @DeleteMapping(value = "/users", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> deleteAllUsers(){
         userRepository.deleteAll();
+        principalCache.evictAll();
         log.warn("[RESET] Todos os usuários foram removidos manualmente para novo teste");
         return ResponseEntity.ok(new ApiMessage("Todos os usuários removidos"));
     }
@@ -0,0 +1,52 @@
+package com.medcheckapi.user.controller;
+
+import com.medcheckapi.user.service.AvatarStore;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+
+/**
+ * Resposta de GET .../photo comum a {@link UserProfileController} e {@link UserController}.
+ * ETag = hash + variante: com If-None-Match igual responde 304 sem tocar nos bytes. URL com {@code v} igual ao
+ * hash atual é imutável (cache de 1 ano); sem {@code v} o navegador guarda mas revalida a cada uso.
+ */
+final class AvatarResponses {
+
+    private static final CacheControl VERSIONED = CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable();
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private AvatarResponses() {}
+
+    // Tipado como StreamingResponseBody: com ResponseEntity<?> o Spring não reconhece o corpo em streaming
+    // ("No converter") e o GET da foto falhava
+    static ResponseEntity<StreamingResponseBody> photo(AvatarStore store, String hash, Integer size, String version, String ifNoneMatch) {
+        AvatarStore.Variant v = store.find(hash, size);
+        if (v == null) return ResponseEntity.notFound().build();
+        CacheControl cache = hash.equals(version) ? VERSIONED : REVALIDATE;
+        if (matches(ifNoneMatch, v.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(v.etag()).cacheControl(cache).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(v.etag())
+                .cacheControl(cache)
+                .contentType(MediaType.parseMediaType(v.contentType()))
+                .contentLength(v.size())
+                .body(out -> store.copy(v, out));
+    }
+
+    // If-None-Match pode trazer lista, "*" e validadores fracos (W/"...")
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*")) return true;
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(etag)) return true;
+        }
+        return false;
+    }
+}
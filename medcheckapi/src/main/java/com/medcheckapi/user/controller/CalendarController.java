@@ -7,10 +7,13 @@ import com.medcheckapi.user.repository.InternshipJustificationRepository;
 import com.medcheckapi.user.repository.DisciplineRepository;
 import com.medcheckapi.user.repository.PreceptorEvaluationRepository;
 import com.medcheckapi.user.service.CalendarService;
+import com.medcheckapi.user.service.CalendarSummaryService;
+import com.medcheckapi.user.security.AuthenticatedUser;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -26,9 +29,16 @@ public class CalendarController {
     private final DisciplineRepository discRepo;
     private final PreceptorEvaluationRepository evaluationRepo;
     private final com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo;
+    private final CalendarSummaryService calendarSummaries;
+    private final Clock clock;
 
-    public CalendarController(UserRepository userRepo, CalendarService calendarService, InternshipPlanRepository planRepo, InternshipJustificationRepository justRepo, DisciplineRepository discRepo, PreceptorEvaluationRepository evaluationRepo, com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo) {
-        this.userRepo = userRepo; this.calendarService = calendarService; this.planRepo = planRepo; this.justRepo = justRepo; this.discRepo = discRepo; this.evaluationRepo = evaluationRepo; this.coordEvalRepo = coordEvalRepo;
+    public CalendarController(UserRepository userRepo, CalendarService calendarService, InternshipPlanRepository planRepo, InternshipJustificationRepository justRepo, DisciplineRepository discRepo, PreceptorEvaluationRepository evaluationRepo, com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo, CalendarSummaryService calendarSummaries, Clock clock) {
+        this.clock = clock;
+        this.userRepo = userRepo; this.calendarService = calendarService; this.planRepo = planRepo; this.justRepo = justRepo; this.discRepo = discRepo; this.evaluationRepo = evaluationRepo; this.coordEvalRepo = coordEvalRepo; this.calendarSummaries = calendarSummaries;
+    }
+
+    private static Long disciplineIdOf(Discipline d) {
+        return d == null ? null : d.getId();
     }
 
     private Map<String,Object> planDto(InternshipPlan p) {
@@ -52,13 +62,13 @@ public class CalendarController {
         return m;
     }
 
-    private User currentUser(org.springframework.security.core.userdetails.User principal) {
-        return userRepo.findByCpf(principal.getUsername()).orElseThrow();
+    private User currentUser(AuthenticatedUser principal) {
+        return userRepo.getReferenceById(principal.getId());
     }
 
     // Retorna o primeiro preceptor vinculado à disciplina atual do aluno logado (ou vazio)
     @GetMapping("/current/preceptor")
-    public ResponseEntity<?> currentPreceptor(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
+    public ResponseEntity<?> currentPreceptor(@AuthenticationPrincipal AuthenticatedUser principal) {
         User me = currentUser(principal);
         Discipline d = me.getCurrentDiscipline();
     if (d == null) return ResponseEntity.ok(new HashMap<>()); // empty
@@ -74,14 +84,14 @@ public class CalendarController {
     }
 
     @GetMapping("/month")
-    public ResponseEntity<?> month(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> month(@AuthenticationPrincipal AuthenticatedUser principal,
                                    @RequestParam int year, @RequestParam int month,
                                    @RequestParam(required = false) Long alunoId,
                                    @RequestParam(required = false) Long disciplineId) {
         User me = currentUser(principal);
         User target = me;
         // Permitir que PRECEPTOR, ADMIN e agora COORDENADOR consultem calendário de um aluno específico
-        if (alunoId != null && (me.getRole() == Role.PRECEPTOR || me.getRole() == Role.ADMIN || me.getRole() == Role.COORDENADOR)) {
+        if (alunoId != null && (principal.getRole() == Role.PRECEPTOR || principal.getRole() == Role.ADMIN || principal.getRole() == Role.COORDENADOR)) {
             target = userRepo.findById(alunoId).orElse(me);
         }
         Discipline forced;
@@ -89,7 +99,7 @@ public class CalendarController {
             forced = null; // visão geral (todas as disciplinas planejadas) ou current_discipline somente para status agregado
         } else {
             // Novo comportamento: PRECEPTOR, ADMIN ou COORDENADOR podem forçar QUALQUER disciplina existente
-            if (me.getRole() == Role.PRECEPTOR || me.getRole() == Role.ADMIN || me.getRole() == Role.COORDENADOR) {
+            if (principal.getRole() == Role.PRECEPTOR || principal.getRole() == Role.ADMIN || principal.getRole() == Role.COORDENADOR) {
                 forced = discRepo.findById(disciplineId).orElse(null); // se inexistente -> null (sem erro explícito)
             } else if (!Objects.equals(target.getId(), me.getId())) {
                 return ResponseEntity.status(403).body(Map.of("error", "Sem permissão para disciplina forçada"));
@@ -102,7 +112,7 @@ public class CalendarController {
 
     // Planos do aluno logado filtrados por weekNumber (1..10)
     @GetMapping("/week")
-    public ResponseEntity<?> week(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> week(@AuthenticationPrincipal AuthenticatedUser principal,
                                   @RequestParam("weekNumber") Integer weekNumber,
                                   @RequestParam(value = "alunoId", required = false) Long alunoId,
                                   @RequestParam(value = "disciplineId", required = false) Long disciplineId) {
@@ -111,7 +121,7 @@ public class CalendarController {
         }
         User me = currentUser(principal);
         User target = me;
-        if (alunoId != null && (me.getRole() == Role.PRECEPTOR || me.getRole() == Role.ADMIN || me.getRole() == Role.COORDENADOR)) {
+        if (alunoId != null && (principal.getRole() == Role.PRECEPTOR || principal.getRole() == Role.ADMIN || principal.getRole() == Role.COORDENADOR)) {
             target = userRepo.findById(alunoId).orElse(me);
         }
     Discipline current = target.getCurrentDiscipline();
@@ -120,7 +130,7 @@ public class CalendarController {
         // Permitir força de disciplina quando:
         // - PRECEPTOR / ADMIN visualizando qualquer aluno
         // - Aluno visualizando a si mesmo (target == me)
-        if ((me.getRole() == Role.PRECEPTOR || me.getRole() == Role.ADMIN || me.getRole() == Role.COORDENADOR) || Objects.equals(target.getId(), me.getId())) {
+        if ((principal.getRole() == Role.PRECEPTOR || principal.getRole() == Role.ADMIN || principal.getRole() == Role.COORDENADOR) || Objects.equals(target.getId(), me.getId())) {
             forced = discRepo.findById(disciplineId).orElse(null); // se inexistente, permanece null (resultará em visão geral ou current)
         } else {
             return ResponseEntity.status(403).body(Map.of("error", "Sem permissão para disciplina forçada"));
@@ -142,7 +152,7 @@ public class CalendarController {
     }
 
     @PostMapping("/plan")
-    public ResponseEntity<?> upsertPlan(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> upsertPlan(@AuthenticationPrincipal AuthenticatedUser principal,
                                         @RequestBody Map<String, String> body) {
         User me = currentUser(principal);
         Long id = body.containsKey("id") ? Long.valueOf(body.get("id")) : null;
@@ -162,6 +172,9 @@ public class CalendarController {
             } catch (Exception ignored) {}
         }
         InternshipPlan p = id == null ? new InternshipPlan() : planRepo.findById(id).orElse(new InternshipPlan());
+        // Edição pode mover o plano de dia/disciplina: o resumo do dia antigo também é recalculado
+        LocalDate previousDate = p.getDate();
+        Long previousDiscipline = disciplineIdOf(p.getDiscipline());
         p.setAluno(me);
         p.setDate(date);
         p.setStartTime(start);
@@ -185,13 +198,17 @@ public class CalendarController {
         }
         p.setDiscipline(disc);
         p = planRepo.save(p);
+        if (previousDate != null && (!previousDate.equals(date) || !Objects.equals(previousDiscipline, disciplineIdOf(disc)))) {
+            calendarSummaries.refresh(me.getId(), previousDiscipline, previousDate);
+        }
+        calendarSummaries.refresh(me.getId(), disciplineIdOf(disc), date);
         Map<String,Object> resp = new HashMap<>();
         resp.put("plan", planDto(p));
         return ResponseEntity.ok(resp);
     }
 
     @DeleteMapping("/plan/{id}")
-    public ResponseEntity<?> deletePlan(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> deletePlan(@AuthenticationPrincipal AuthenticatedUser principal,
                                         @PathVariable Long id) {
         User me = currentUser(principal);
         return planRepo.findById(id).map(p -> {
@@ -206,18 +223,21 @@ public class CalendarController {
                 }
             }
             planRepo.deleteById(id);
+            calendarSummaries.refresh(me.getId(), disciplineIdOf(p.getDiscipline()), p.getDate());
             return ResponseEntity.ok(Map.of("deleted", true));
         }).orElse(ResponseEntity.notFound().build());
     }
 
     // Criar ou atualizar justificativa do aluno logado
     @PostMapping("/justify")
-    public ResponseEntity<?> upsertJustification(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> upsertJustification(@AuthenticationPrincipal AuthenticatedUser principal,
                                                  @RequestBody Map<String,String> body) {
         User me = currentUser(principal);
         Long id = body.containsKey("id") ? Long.valueOf(body.get("id")) : null;
         LocalDate date = LocalDate.parse(body.get("date"));
         InternshipJustification j = id == null ? new InternshipJustification() : justRepo.findById(id).orElse(new InternshipJustification());
+        LocalDate previousDate = j.getDate();
+        Long previousDiscipline = disciplineIdOf(j.getDiscipline());
         j.setAluno(me);
         j.setDate(date);
         if (body.containsKey("planId")) {
@@ -237,6 +257,10 @@ public class CalendarController {
         if (disc == null) disc = me.getCurrentDiscipline();
         j.setDiscipline(disc);
         j = justRepo.save(j);
+        if (previousDate != null && (!previousDate.equals(date) || !Objects.equals(previousDiscipline, disciplineIdOf(disc)))) {
+            calendarSummaries.refresh(me.getId(), previousDiscipline, previousDate);
+        }
+        calendarSummaries.refresh(me.getId(), disciplineIdOf(disc), date);
         Map<String,Object> resp = new HashMap<>();
         resp.put("id", j.getId());
         resp.put("date", j.getDate().toString());
@@ -255,7 +279,7 @@ public class CalendarController {
     }
 
     @DeleteMapping("/justify/{id}")
-    public ResponseEntity<?> deleteJustification(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> deleteJustification(@AuthenticationPrincipal AuthenticatedUser principal,
                                                  @PathVariable Long id) {
         User me = currentUser(principal);
         return justRepo.findById(id).map(j -> {
@@ -267,12 +291,13 @@ public class CalendarController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Não é possível excluir justificativa já revisada"));
             }
             justRepo.deleteById(id);
+            calendarSummaries.refresh(me.getId(), disciplineIdOf(j.getDiscipline()), j.getDate());
             return ResponseEntity.ok(Map.of("deleted", true));
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/justify")
-    public ResponseEntity<?> deleteJustificationByDate(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> deleteJustificationByDate(@AuthenticationPrincipal AuthenticatedUser principal,
                                                        @RequestParam("date") String dateStr) {
         User me = currentUser(principal);
         LocalDate date = LocalDate.parse(dateStr);
@@ -281,20 +306,22 @@ public class CalendarController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Não é possível excluir justificativa já revisada"));
             }
             justRepo.delete(j);
+            calendarSummaries.refresh(me.getId(), disciplineIdOf(j.getDiscipline()), j.getDate());
             return ResponseEntity.ok(Map.of("deleted", true));
         }).orElse(ResponseEntity.notFound().build());
     }
 
     // PRECEPTOR/ADMIN: revisar (aprovar/reprovar) justificativa PENDING de um aluno
     @PostMapping("/justify/review")
-    public ResponseEntity<?> reviewJustification(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> reviewJustification(@AuthenticationPrincipal AuthenticatedUser principal,
                                                  @RequestBody Map<String, String> body) {
         User me = currentUser(principal);
-        if (me.getRole() != Role.PRECEPTOR && me.getRole() != Role.ADMIN) {
+        if (principal.getRole() != Role.PRECEPTOR && principal.getRole() != Role.ADMIN) {
             return ResponseEntity.status(403).body(Map.of("error", "Sem permissão"));
         }
         try {
             Long alunoId = Long.valueOf(body.getOrDefault("alunoId", "0"));
+            Long previousDiscipline;
             String dateStr = body.get("date");
             String action = String.valueOf(body.get("action")).toUpperCase(); // APPROVED or REJECTED
             String note = body.getOrDefault("note", "");
@@ -308,11 +335,12 @@ public class CalendarController {
             if (!"PENDING".equalsIgnoreCase(j.getStatus())) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Justificativa já revisada"));
             }
+            previousDiscipline = disciplineIdOf(j.getDiscipline());
             // Verifica vínculo do preceptor com a disciplina da justificativa (ou disciplina atual do aluno como fallback)
-            if (me.getRole() == Role.PRECEPTOR) {
+            if (principal.getRole() == Role.PRECEPTOR) {
                 Discipline target = j.getDiscipline() != null ? j.getDiscipline() : aluno.getCurrentDiscipline();
                 if (target != null) {
-                    boolean belongs = discRepo.findByPreceptors_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(target.getId()));
+                    boolean belongs = principal.isLinkedTo(target.getId());
                     if (!belongs) {
                         return ResponseEntity.status(403).body(Map.of("error", "Preceptor não vinculado à disciplina"));
                     }
@@ -322,9 +350,14 @@ public class CalendarController {
             }
             j.setStatus(action);
             j.setReviewedBy(me);
-            j.setReviewedAt(LocalDateTime.now());
+            j.setReviewedAt(LocalDateTime.now(clock));
             j.setReviewNote(note);
             justRepo.save(j);
+            // A revisão pode preencher a disciplina: sai da linha "sem disciplina" e entra na da disciplina
+            if (!Objects.equals(previousDiscipline, disciplineIdOf(j.getDiscipline()))) {
+                calendarSummaries.refresh(aluno.getId(), previousDiscipline, date);
+            }
+            calendarSummaries.refresh(aluno.getId(), disciplineIdOf(j.getDiscipline()), date);
             return ResponseEntity.ok(Map.of(
                     "id", j.getId(),
                     "date", j.getDate().toString(),
@@ -3,43 +3,63 @@ package com.medcheckapi.user.controller;
 import com.medcheckapi.user.model.User;
 import com.medcheckapi.user.repository.UserRepository;
 import com.medcheckapi.user.service.CheckInService;
+import com.medcheckapi.user.service.HoursLedgerService;
+import com.medcheckapi.user.service.SessionExportService;
 import com.medcheckapi.user.repository.DisciplineRepository;
 import com.medcheckapi.user.model.Discipline;
+import com.medcheckapi.user.security.AuthenticatedUser;
+import com.medcheckapi.user.config.props.AppProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/check")
 public class CheckInController {
 
+    private static final Logger log = LoggerFactory.getLogger(CheckInController.class);
+
     private final CheckInService checkInService;
     private final UserRepository userRepository;
     private final DisciplineRepository disciplineRepository;
+    private final SessionExportService sessionExport;
+    private final HoursLedgerService hoursLedger;
+    private final AppProperties appProperties;
 
-    public CheckInController(CheckInService checkInService, UserRepository userRepository, DisciplineRepository disciplineRepository) {
-        this.checkInService = checkInService; this.userRepository = userRepository; this.disciplineRepository = disciplineRepository; }
+    public CheckInController(CheckInService checkInService, UserRepository userRepository, DisciplineRepository disciplineRepository, SessionExportService sessionExport, HoursLedgerService hoursLedger, AppProperties appProperties) {
+        this.checkInService = checkInService; this.userRepository = userRepository; this.disciplineRepository = disciplineRepository; this.sessionExport = sessionExport; this.hoursLedger = hoursLedger; this.appProperties = appProperties; }
 
-    private User currentUser(org.springframework.security.core.userdetails.User principal) {
-        return userRepository.findByCpf(principal.getUsername()).orElseThrow();
+    private User currentUser(AuthenticatedUser principal) {
+        return userRepository.getReferenceById(principal.getId());
     }
 
     // PRECEPTOR: get current rotating code (creates new if expired)
     @GetMapping("/code")
-    public ResponseEntity<?> currentCode(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
-        User me = currentUser(principal);
-        return ResponseEntity.ok(checkInService.getOrCreateCurrentCode(me.getId()));
+    public ResponseEntity<?> currentCode(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(checkInService.getOrCreateCurrentCode(principal.getId(), principal.getRole()));
     }
 
     // ADMIN: visualizar código ativo de um preceptor específico (read-only, não gera novo)
     @GetMapping("/admin/preceptor/{id}/code")
-    public ResponseEntity<?> adminViewPreceptorCode(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> adminViewPreceptorCode(@AuthenticationPrincipal AuthenticatedUser principal,
                                                     @PathVariable Long id) {
-        User me = currentUser(principal);
-        if (me.getRole() != com.medcheckapi.user.model.Role.ADMIN) {
+        if (principal.getRole() != com.medcheckapi.user.model.Role.ADMIN) {
             return ResponseEntity.status(403).body(Map.of("error", "Acesso restrito ao ADMIN"));
         }
         try {
@@ -51,10 +71,9 @@ public class CheckInController {
 
     // ADMIN: listar disciplinas vinculadas a um preceptor
     @GetMapping("/admin/preceptor/{id}/disciplines")
-    public ResponseEntity<?> adminViewPreceptorDisciplines(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> adminViewPreceptorDisciplines(@AuthenticationPrincipal AuthenticatedUser principal,
                                                            @PathVariable Long id) {
-        User me = currentUser(principal);
-        if (me.getRole() != com.medcheckapi.user.model.Role.ADMIN) {
+        if (principal.getRole() != com.medcheckapi.user.model.Role.ADMIN) {
             return ResponseEntity.status(403).body(Map.of("error", "Acesso restrito ao ADMIN"));
         }
         List<Discipline> list = disciplineRepository.findByPreceptors_Id(id);
@@ -73,9 +92,8 @@ public class CheckInController {
 
     // PRECEPTOR: list disciplines linked to authenticated preceptor (via discipline_preceptors)
     @GetMapping("/my-disciplines")
-    public ResponseEntity<?> myDisciplines(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
-        User me = currentUser(principal);
-        List<Discipline> list = disciplineRepository.findByPreceptors_Id(me.getId());
+    public ResponseEntity<?> myDisciplines(@AuthenticationPrincipal AuthenticatedUser principal) {
+        List<Discipline> list = disciplineRepository.findByPreceptors_Id(principal.getId());
         // Return minimal fields to avoid exposing preceptors set
         List<Map<String,Object>> dto = new ArrayList<>();
         for (Discipline d : list) {
@@ -92,9 +110,8 @@ public class CheckInController {
 
     // ALUNO: perform check-in using code and preceptor id
     @PostMapping("/in")
-    public ResponseEntity<?> checkIn(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> checkIn(@AuthenticationPrincipal AuthenticatedUser principal,
                                      @RequestBody Map<String,Object> body) {
-        User me = currentUser(principal);
         Long preceptorId = Long.valueOf(String.valueOf(body.getOrDefault("preceptorId", "0")));
         String code = String.valueOf(body.getOrDefault("code", ""));
         Long disciplineId = null;
@@ -105,8 +122,8 @@ public class CheckInController {
         try { if (body.get("lat") != null) lat = Double.valueOf(String.valueOf(body.get("lat"))); } catch (Exception ignored) {}
         try { if (body.get("lng") != null) lng = Double.valueOf(String.valueOf(body.get("lng"))); } catch (Exception ignored) {}
         try {
-            System.out.println("[DEBUG] CheckInController /in aluno="+me.getId()+" preceptor="+preceptorId+" lat="+lat+" lng="+lng);
-            return ResponseEntity.ok(checkInService.performCheckIn(me.getId(), preceptorId, code, disciplineId, lat, lng));
+            log.debug("[CHECK-IN] /in aluno={} preceptor={} lat={} lng={}", principal.getId(), preceptorId, lat, lng);
+            return ResponseEntity.ok(checkInService.performCheckIn(principal.getId(), preceptorId, code, disciplineId, lat, lng));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -114,23 +131,22 @@ public class CheckInController {
 
     // ALUNO: perform checkout of open session
     @PostMapping("/out")
-    public ResponseEntity<?> checkOut(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> checkOut(@AuthenticationPrincipal AuthenticatedUser principal,
                                       @RequestBody(required = false) Map<String,Object> body) {
-        User me = currentUser(principal);
         Double lat = null, lng = null;
         if (body != null) {
             try { if (body.get("lat") != null) lat = Double.valueOf(String.valueOf(body.get("lat"))); } catch (Exception ignored) {}
             try { if (body.get("lng") != null) lng = Double.valueOf(String.valueOf(body.get("lng"))); } catch (Exception ignored) {}
         }
         try {
-            System.out.println("[DEBUG] CheckInController /out aluno="+me.getId()+" lat="+lat+" lng="+lng);
-            return ResponseEntity.ok(checkInService.performCheckOut(me.getId(), lat, lng));
+            log.debug("[CHECK-OUT] /out aluno={} lat={} lng={}", principal.getId(), lat, lng);
+            return ResponseEntity.ok(checkInService.performCheckOut(principal.getId(), lat, lng));
         } catch (Exception e) { return ResponseEntity.badRequest().body(Map.of("error", e.getMessage())); }
     }
 
     // ALUNO: list sessions for date range (filters: 3Dias, 3Semanas, Tudo handled client side)
     @GetMapping("/sessions")
-    public ResponseEntity<?> sessions(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> sessions(@AuthenticationPrincipal AuthenticatedUser principal,
                                       @RequestParam String start, @RequestParam String end,
                                       @RequestParam(required = false) Long alunoId,
                                       @RequestParam(required = false) Long disciplineId,
@@ -139,16 +155,99 @@ public class CheckInController {
         LocalDate s = LocalDate.parse(start);
         LocalDate e = LocalDate.parse(end);
         Long targetId = me.getId();
-        if (alunoId != null && (me.getRole() == com.medcheckapi.user.model.Role.PRECEPTOR || me.getRole() == com.medcheckapi.user.model.Role.ADMIN || me.getRole() == com.medcheckapi.user.model.Role.COORDENADOR)) {
+        if (alunoId != null && (principal.getRole() == com.medcheckapi.user.model.Role.PRECEPTOR || principal.getRole() == com.medcheckapi.user.model.Role.ADMIN || principal.getRole() == com.medcheckapi.user.model.Role.COORDENADOR)) {
             targetId = alunoId;
         }
         return ResponseEntity.ok(checkInService.listSessionsForAluno(targetId, s, e, disciplineId, preceptorId, me));
     }
 
+    // Horas acumuladas por disciplina (livro de horas) x carga horária: barras de progresso e avaliação final
+    @GetMapping("/hours")
+    public ResponseEntity<?> hours(@AuthenticationPrincipal AuthenticatedUser principal,
+                                   @RequestParam(required = false) Long alunoId) {
+        Long targetId = principal.getId();
+        if (alunoId != null && (principal.getRole() == com.medcheckapi.user.model.Role.PRECEPTOR || principal.getRole() == com.medcheckapi.user.model.Role.ADMIN || principal.getRole() == com.medcheckapi.user.model.Role.COORDENADOR)) {
+            targetId = alunoId;
+        }
+        List<Map<String,Object>> items = new ArrayList<>();
+        for (HoursLedgerService.DisciplineHours h : hoursLedger.progress(targetId)) {
+            Map<String,Object> m = new HashMap<>();
+            m.put("disciplineId", h.disciplineId() == 0 ? null : h.disciplineId());
+            m.put("code", h.code());
+            m.put("name", h.name());
+            m.put("requiredHours", h.requiredHours());
+            m.put("workedSeconds", h.workedSeconds());
+            m.put("sessions", h.sessions());
+            m.put("progress", h.progress());
+            items.add(m);
+        }
+        return ResponseEntity.ok(Map.of("alunoId", targetId, "items", items));
+    }
+
+    // Exportação completa (CSV/NDJSON) transmitida linha a linha. ALUNO: só as próprias sessões;
+    // PRECEPTOR: só sessões com ele; COORDENADOR/ADMIN: qualquer filtro (sem alunoId = todos os alunos).
+    // Retorno Object: erros saem como ResponseEntity com Map; o sucesso é o StreamingResponseBody puro (dentro de
+    // ResponseEntity<?> o Spring não reconhece o tipo do corpo e não transmite)
+    @GetMapping("/sessions/export")
+    public Object exportSessions(@AuthenticationPrincipal AuthenticatedUser principal,
+                                            @RequestParam String start, @RequestParam String end,
+                                            @RequestParam(required = false) String format,
+                                            @RequestParam(required = false) Long alunoId,
+                                            @RequestParam(required = false) Long disciplineId,
+                                            @RequestParam(required = false) Long preceptorId,
+                                            HttpServletRequest request, HttpServletResponse response) {
+        SessionExportService.Format fmt;
+        LocalDate s;
+        LocalDate e;
+        try {
+            fmt = SessionExportService.Format.parse(format);
+            s = LocalDate.parse(start);
+            e = LocalDate.parse(end);
+        } catch (IllegalArgumentException | DateTimeException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+        if (e.isBefore(s)) return ResponseEntity.badRequest().body(Map.of("error", "Período inválido"));
+        com.medcheckapi.user.model.Role role = principal.getRole();
+        if (role == com.medcheckapi.user.model.Role.ALUNO) {
+            alunoId = principal.getId();
+        } else if (role == com.medcheckapi.user.model.Role.PRECEPTOR) {
+            preceptorId = principal.getId();
+        } else if (role != com.medcheckapi.user.model.Role.COORDENADOR && role != com.medcheckapi.user.model.Role.ADMIN) {
+            return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        }
+        SessionExportService.Filter filter = new SessionExportService.Filter(alunoId, preceptorId, disciplineId, s, e);
+        StreamingResponseBody body = out -> sessionExport.export(filter, fmt, out);
+        // Timeout longo só para este download: ajustado antes do startAsync do StreamingResponseBody
+        long timeoutMs = TimeUnit.MINUTES.toMillis(appProperties.getExport().getTimeoutMinutes());
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor("sessionExportTimeout", new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                if (webRequest instanceof AsyncWebRequest async) async.setTimeout(timeoutMs);
+            }
+        });
+        response.setContentType(fmt.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"sessoes_" + s + "_" + e + "." + fmt.extension() + "\"");
+        return body;
+    }
+
+    // PRECEPTOR: alunos em serviço agora com ele; COORDENADOR/ADMIN: filtros opcionais por preceptor/disciplina
+    @GetMapping("/on-shift")
+    public ResponseEntity<?> onShift(@AuthenticationPrincipal AuthenticatedUser principal,
+                                     @RequestParam(required = false) Long preceptorId,
+                                     @RequestParam(required = false) Long disciplineId) {
+        com.medcheckapi.user.model.Role role = principal.getRole();
+        if (role == com.medcheckapi.user.model.Role.PRECEPTOR) {
+            preceptorId = principal.getId();
+        } else if (role != com.medcheckapi.user.model.Role.COORDENADOR && role != com.medcheckapi.user.model.Role.ADMIN) {
+            return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        }
+        return ResponseEntity.ok(Map.of("items", checkInService.onShift(preceptorId, disciplineId)));
+    }
+
     // ALUNO: status (open or not + worked seconds today)
     @GetMapping("/status")
-    public ResponseEntity<?> status(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
-        User me = currentUser(principal);
-        return ResponseEntity.ok(checkInService.statusForAluno(me.getId()));
+    public ResponseEntity<?> status(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(checkInService.statusForAluno(principal.getId()));
     }
 }
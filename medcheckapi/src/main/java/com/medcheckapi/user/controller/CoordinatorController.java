@@ -2,16 +2,21 @@ package com.medcheckapi.user.controller;
 
 import com.medcheckapi.user.model.Discipline;
 import com.medcheckapi.user.repository.CheckSessionRepository;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import com.medcheckapi.user.model.Role;
 import com.medcheckapi.user.model.User;
 import com.medcheckapi.user.repository.DisciplineRepository;
 import com.medcheckapi.user.repository.UserRepository;
+import com.medcheckapi.user.security.AuthenticatedUser;
+import com.medcheckapi.user.security.CustomUserDetailsService;
+import com.medcheckapi.user.service.CohortCalendarService;
+import com.medcheckapi.user.service.HotPathMetrics;
+import com.medcheckapi.user.service.HoursLedgerService;
+import com.medcheckapi.user.service.RosterQueryService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -26,24 +31,36 @@ public class CoordinatorController {
     private final DisciplineRepository disciplineRepository;
     private final CheckSessionRepository checkSessionRepository;
     private final com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo;
+    private final CustomUserDetailsService userDetailsService;
+    private final RosterQueryService rosterQueryService;
+    private final CohortCalendarService cohortCalendarService;
+    private final HoursLedgerService hoursLedger;
+    private final HotPathMetrics metrics;
+    private final Clock clock;
 
-    public CoordinatorController(UserRepository userRepository, DisciplineRepository disciplineRepository, CheckSessionRepository checkSessionRepository, com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo) {
+    public CoordinatorController(UserRepository userRepository, DisciplineRepository disciplineRepository, CheckSessionRepository checkSessionRepository, com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo, CustomUserDetailsService userDetailsService, RosterQueryService rosterQueryService, CohortCalendarService cohortCalendarService, HoursLedgerService hoursLedger, HotPathMetrics metrics, Clock clock) {
+        this.clock = clock;
         this.userRepository = userRepository;
         this.disciplineRepository = disciplineRepository;
         this.checkSessionRepository = checkSessionRepository;
         this.coordEvalRepo = coordEvalRepo;
+        this.userDetailsService = userDetailsService;
+        this.rosterQueryService = rosterQueryService;
+        this.cohortCalendarService = cohortCalendarService;
+        this.hoursLedger = hoursLedger;
+        this.metrics = metrics;
     }
 
-    private void ensureCoordinatorOrAdmin(org.springframework.security.core.userdetails.User principal) {
-        User u = userRepository.findByCpf(principal.getUsername()).orElseThrow();
-        if (!(u.getRole() == Role.COORDENADOR || u.getRole() == Role.ADMIN)) {
+    // Papel vem do principal (claims do token / cache), sem reconsultar users
+    private void ensureCoordinatorOrAdmin(AuthenticatedUser principal) {
+        if (!principal.hasRole(Role.COORDENADOR, Role.ADMIN)) {
             throw new org.springframework.security.access.AccessDeniedException("Forbidden");
         }
     }
 
     // Lista alunos que tiveram ao menos um check-in (sessão) na disciplina em um ano
     @GetMapping("/disciplinas/{id}/alunos")
-    public ResponseEntity<?> listDisciplineStudents(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> listDisciplineStudents(@AuthenticationPrincipal AuthenticatedUser principal,
                                                     @PathVariable Long id,
                                                     @RequestParam(required = false) String year,
                                                     @RequestParam(defaultValue = "0") int page,
@@ -65,99 +82,84 @@ public class CoordinatorController {
         if (!allYears && year != null) {
             try { yearNum = Integer.parseInt(year); } catch (NumberFormatException ignored) { allYears = true; }
         }
-        if (allYears) {
-            // Abrange todo o histórico (2000 até agora)
-            // (Se necessário futuramente otimizar com subqueries adicionais)
-        }
-        int effectiveYear = (yearNum != null ? yearNum : LocalDate.now().getYear());
+        int effectiveYear = (yearNum != null ? yearNum : LocalDate.now(clock).getYear());
         LocalDateTime start = allYears ? LocalDateTime.of(2000,1,1,0,0) : LocalDateTime.of(LocalDate.of(effectiveYear,1,1), LocalTime.MIN);
-        LocalDateTime end = allYears ? LocalDateTime.now().plusDays(1) : LocalDateTime.of(LocalDate.of(effectiveYear,12,31), LocalTime.MAX);
-    // Interpreta ordenação (campos permitidos: lastCheckIn, name, totalHours)
+        LocalDateTime end = allYears ? LocalDateTime.now(clock).plusDays(1) : LocalDateTime.of(LocalDate.of(effectiveYear,12,31), LocalTime.MAX);
+        // Ano sem nenhuma sessão na disciplina: abrange todo o histórico (2000 até agora) para não retornar lista vazia.
+        // Decidido por uma sonda indexada antes da agregação, em vez de agregar duas vezes.
+        if (!allYears && !rosterQueryService.hasSessions(disc.getId(), start, end)) {
+            start = LocalDateTime.of(2000, 1, 1, 0, 0);
+            end = LocalDateTime.now(clock).plusDays(1); // inclui hoje
+        }
+    // Interpreta ordenação (campos permitidos: lastCheckIn, name, totalHours) — aplicada no banco, antes da paginação
     String[] sortParts = sort != null ? sort.split(",") : new String[]{"lastCheckIn","desc"};
     String sortField = sortParts.length > 0 ? sortParts[0].trim() : "lastCheckIn";
     String sortDir = sortParts.length > 1 ? sortParts[1].trim().toLowerCase() : "desc";
     if (!List.of("lastCheckIn","name","totalHours").contains(sortField)) sortField = "lastCheckIn";
     if (!List.of("asc","desc").contains(sortDir)) sortDir = "desc";
-    Pageable pageable = PageRequest.of(Math.max(0,page), Math.max(1, Math.min(size,50)));
         String qNorm = q != null ? q.trim() : null;
-        String qDigits = qNorm != null ? qNorm.replaceAll("\\D", "") : null;
         boolean anyField = fName || fPhone || fEmail || fCpf;
         boolean selName = anyField ? fName : true;
         boolean selPhone = anyField ? fPhone : true;
         boolean selEmail = anyField ? fEmail : true;
         boolean selCpf = anyField ? fCpf : true;
-        boolean statusAll = statusIn && statusOut;
-    // Primeiro obtemos agregados básicos para o ano solicitado (ou ano corrente se não veio). Se não vierem resultados
-    // e o cliente NÃO especificou explicitamente um ano, fazemos fallback para "todos os anos" para mostrar histórico.
-    boolean explicitYear = (year != null && !allYears);
-    Page<Object[]> rawPage = checkSessionRepository.aggregateByDiscipline(
-        disc, start, end, preceptorId,
-        qNorm, qDigits, selName, selEmail, selCpf, selPhone, pageable);
 
-    // Novo critério: se não veio nada e não estamos em modo allYears, fazemos fallback mesmo que um ano tenha sido enviado
-    if (!allYears && rawPage.getTotalElements() == 0) {
-        // Fallback abrangendo todo o histórico conhecido (desde 2000 até agora) para não retornar lista vazia ao coordenador.
-        LocalDateTime fallbackStart = LocalDateTime.of(2000, 1, 1, 0, 0);
-        LocalDateTime fallbackEnd = LocalDateTime.now().plusDays(1); // inclui hoje
-        rawPage = checkSessionRepository.aggregateByDiscipline(
-            disc, fallbackStart, fallbackEnd, preceptorId,
-            qNorm, qDigits, selName, selEmail, selCpf, selPhone, pageable);
-    }
+        RosterQueryService.RosterPage rows = rosterQueryService.page(
+                new RosterQueryService.RosterFilter(disc.getId(), start, end, preceptorId,
+                        qNorm, selName, selEmail, selCpf, selPhone, statusIn, statusOut),
+                sortField, "desc".equals(sortDir), Math.max(0, page), Math.max(1, Math.min(size, 50)));
 
-        // Transformar em lista de mapas enriquecida
-        List<Map<String,Object>> items = new ArrayList<>();
-        for (Object[] row : rawPage.getContent()) {
-            User aluno = (User) row[0];
-            Number totalSeconds = (Number) row[1];
-            LocalDateTime lastCheckIn = (LocalDateTime) row[2];
-            Number preceptorCount = (Number) row[3];
-            Map<String,Object> m = new HashMap<>();
-            m.put("id", aluno.getId());
-            m.put("name", aluno.getName());
-            m.put("cpf", aluno.getCpf());
-            m.put("phone", aluno.getPhone());
-            m.put("email", aluno.getInstitutionalEmail());
-            long hours = totalSeconds != null ? Math.round(totalSeconds.longValue() / 3600.0) : 0L;
-            m.put("totalHours", hours);
-            m.put("lastCheckIn", lastCheckIn);
-            m.put("preceptorCount", preceptorCount != null ? preceptorCount.intValue() : 0);
-            boolean inService = checkSessionRepository.existsByAlunoAndDisciplineAndCheckOutTimeIsNull(aluno, disc);
-            m.put("inService", inService);
-            // Lista curta de nomes de preceptores (até 3) + "+n" se mais
-            List<User> pres = checkSessionRepository.findDistinctPreceptorsForAlunoInDisciplinePeriod(disc, aluno, start, end);
-            List<String> presNames = pres.stream().map(User::getName).sorted().toList();
-            if (presNames.size() > 3) {
-                List<String> head = presNames.subList(0,3);
-                head = new ArrayList<>(head);
-                head.add("+" + (presNames.size()-3));
-                m.put("preceptores", head);
-            } else {
-                m.put("preceptores", presNames);
-            }
-            items.add(m);
+        // Progresso acumulado na disciplina (todo o histórico) vem pronto do livro de horas: uma consulta por página
+        Map<Long, Long> accumulated = hoursLedger.totals(disc.getId(), rows.items().stream().map(m -> (Long) m.get("id")).toList());
+        for (Map<String,Object> m : rows.items()) {
+            m.put("accumulatedSeconds", accumulated.getOrDefault((Long) m.get("id"), 0L));
+            m.put("requiredHours", disc.getHours());
         }
 
-        // Ordenação em memória (pós paginação base) — para precisão ideal usar Sort na query agregada; mantemos simples.
-        Comparator<Map<String,Object>> comparator;
-        switch (sortField) {
-            case "name" -> comparator = Comparator.comparing(m -> (String) m.get("name"), String.CASE_INSENSITIVE_ORDER);
-            case "totalHours" -> comparator = Comparator.comparingLong(m -> ((Number) m.getOrDefault("totalHours",0)).longValue());
-            default -> comparator = Comparator.comparing(m -> (LocalDateTime) m.get("lastCheckIn"), Comparator.nullsLast(LocalDateTime::compareTo));
-        }
-        if ("desc".equals(sortDir)) comparator = comparator.reversed();
-        items.sort(comparator);
+        metrics.rows("coord.roster", rows.items().size());
+        Map<String,Object> resp = new HashMap<>();
+        resp.put("items", rows.items());
+        resp.put("page", rows.page());
+        resp.put("size", rows.size());
+        resp.put("totalPages", rows.totalPages());
+        resp.put("totalItems", rows.totalItems());
+        return ResponseEntity.ok(resp);
+    }
 
+    // Mapa de frequência da turma: alunos (paginados por nome) × dias do mês com planejado/trabalhado/status
+    @GetMapping("/disciplinas/{id}/calendar")
+    public ResponseEntity<?> disciplineCalendar(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                @PathVariable Long id,
+                                                @RequestParam int year,
+                                                @RequestParam int month,
+                                                @RequestParam(defaultValue = "0") int page,
+                                                @RequestParam(defaultValue = "20") int size) {
+        ensureCoordinatorOrAdmin(principal);
+        if (month < 1 || month > 12) return ResponseEntity.badRequest().body(Map.of("error", "Mês inválido"));
+        Discipline disc = disciplineRepository.findById(id).orElse(null);
+        if (disc == null) return ResponseEntity.notFound().build();
+        // Coordenador só vê a turma das disciplinas a que está vinculado (ADMIN vê todas)
+        if (principal.getRole() == Role.COORDENADOR && !principal.isLinkedTo(disc.getId())) {
+            return ResponseEntity.status(403).body(Map.of("error", "Coordenador não vinculado à disciplina"));
+        }
+        CohortCalendarService.CohortPage grid = cohortCalendarService.month(disc.getId(), YearMonth.of(year, month),
+                Math.max(0, page), Math.max(1, Math.min(size, 100)));
+        metrics.rows("coord.calendar", grid.students().size());
         Map<String,Object> resp = new HashMap<>();
-        resp.put("items", items);
-        resp.put("page", rawPage.getNumber());
-        resp.put("size", rawPage.getSize());
-        resp.put("totalPages", rawPage.getTotalPages());
-        resp.put("totalItems", rawPage.getTotalElements());
+        resp.put("year", year);
+        resp.put("month", month);
+        resp.put("discipline", Map.of("id", disc.getId(), "code", disc.getCode(), "name", disc.getName()));
+        resp.put("days", grid.days());
+        resp.put("students", grid.students());
+        resp.put("page", grid.page());
+        resp.put("size", grid.size());
+        resp.put("totalPages", grid.totalPages());
+        resp.put("totalItems", grid.totalItems());
         return ResponseEntity.ok(resp);
     }
 
     @GetMapping("/preceptores")
-    public ResponseEntity<?> listPreceptors(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
+    public ResponseEntity<?> listPreceptors(@AuthenticationPrincipal AuthenticatedUser principal) {
         ensureCoordinatorOrAdmin(principal);
         List<Map<String, Object>> list = userRepository.findByRole(Role.PRECEPTOR).stream().map(p -> {
             Map<String, Object> m = new HashMap<>();
@@ -172,7 +174,7 @@ public class CoordinatorController {
 
     // Lista todos os coordenadores disponíveis para vínculo
     @GetMapping("/coordenadores")
-    public ResponseEntity<?> listCoordinators(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
+    public ResponseEntity<?> listCoordinators(@AuthenticationPrincipal AuthenticatedUser principal) {
         ensureCoordinatorOrAdmin(principal);
         List<Map<String, Object>> list = userRepository.findByRole(Role.COORDENADOR).stream().map(c -> {
             Map<String, Object> m = new HashMap<>();
@@ -186,18 +188,17 @@ public class CoordinatorController {
     }
 
     @GetMapping("/disciplinas")
-    public ResponseEntity<?> listDisciplines(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
+    public ResponseEntity<?> listDisciplines(@AuthenticationPrincipal AuthenticatedUser principal) {
         ensureCoordinatorOrAdmin(principal);
-        User me = userRepository.findByCpf(principal.getUsername()).orElseThrow();
         // ADMIN vê todas; COORDENADOR vê apenas as vinculadas a ele. Se não houver vínculo retorna lista vazia.
-        if (me.getRole() == Role.ADMIN) {
+        if (principal.getRole() == Role.ADMIN) {
             return ResponseEntity.ok(disciplineRepository.findAll());
         }
-        return ResponseEntity.ok(disciplineRepository.findByCoordinators_Id(me.getId()));
+        return ResponseEntity.ok(disciplineRepository.findByCoordinators_Id(principal.getId()));
     }
 
     @GetMapping("/disciplinas/{id}/preceptores")
-    public ResponseEntity<?> listDisciplinePreceptors(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> listDisciplinePreceptors(@AuthenticationPrincipal AuthenticatedUser principal,
                                                       @PathVariable Long id) {
         ensureCoordinatorOrAdmin(principal);
         Discipline d = disciplineRepository.findById(id).orElseThrow();
@@ -213,7 +214,7 @@ public class CoordinatorController {
     }
 
     @GetMapping("/disciplinas/{id}/coordenadores")
-    public ResponseEntity<?> listDisciplineCoordinators(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> listDisciplineCoordinators(@AuthenticationPrincipal AuthenticatedUser principal,
                                                         @PathVariable Long id) {
         ensureCoordinatorOrAdmin(principal);
         Discipline d = disciplineRepository.findById(id).orElseThrow();
@@ -230,19 +231,19 @@ public class CoordinatorController {
 
     // Student info for coordinator (used to fill 'Nome do(a) Interno(a)' on report)
     @GetMapping("/student-info")
-    public ResponseEntity<?> studentInfo(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> studentInfo(@AuthenticationPrincipal AuthenticatedUser principal,
                                          @RequestParam("alunoId") Long alunoId,
                                          @RequestParam(value = "disciplineId", required = false) Long disciplineId) {
         ensureCoordinatorOrAdmin(principal);
-        User me = userRepository.findByCpf(principal.getUsername()).orElseThrow();
+        User me = userRepository.getReferenceById(principal.getId());
         User aluno = userRepository.findById(alunoId).orElse(null);
         if (aluno == null) return ResponseEntity.notFound().build();
         Discipline discipline = null;
         if (disciplineId != null) {
             discipline = disciplineRepository.findById(disciplineId).orElse(null);
-            if (discipline != null && me.getRole() == Role.COORDENADOR) {
+            if (discipline != null && principal.getRole() == Role.COORDENADOR) {
                 final Long dId = discipline.getId();
-                boolean linked = disciplineRepository.findByCoordinators_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(dId));
+                boolean linked = principal.isLinkedTo(dId);
                 if (!linked) return ResponseEntity.status(403).body(Map.of("error","Coordenador não vinculado à disciplina"));
             }
         }
@@ -265,7 +266,7 @@ public class CoordinatorController {
     public static class LinkCoordinatorRequest { public Long coordinatorId; }
 
     @PostMapping("/disciplinas/{id}/preceptores")
-    public ResponseEntity<?> linkPreceptor(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> linkPreceptor(@AuthenticationPrincipal AuthenticatedUser principal,
                                            @PathVariable Long id,
                                            @RequestBody LinkRequest req) {
         ensureCoordinatorOrAdmin(principal);
@@ -275,11 +276,13 @@ public class CoordinatorController {
         if (p.getRole() != Role.PRECEPTOR) return ResponseEntity.badRequest().body(Map.of("error", "Usuário não é PRECEPTOR"));
         d.getPreceptors().add(p);
         disciplineRepository.save(d);
+        // Disciplinas vinculadas fazem parte das claims do token do preceptor
+        userDetailsService.invalidateClaims(p);
         return ResponseEntity.ok(Map.of("ok", true));
     }
 
     @PostMapping("/disciplinas/{id}/coordenadores")
-    public ResponseEntity<?> linkCoordinator(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> linkCoordinator(@AuthenticationPrincipal AuthenticatedUser principal,
                                              @PathVariable Long id,
                                              @RequestBody LinkCoordinatorRequest req) {
         ensureCoordinatorOrAdmin(principal);
@@ -289,30 +292,35 @@ public class CoordinatorController {
         if (c.getRole() != Role.COORDENADOR) return ResponseEntity.badRequest().body(Map.of("error", "Usuário não é COORDENADOR"));
         d.getCoordinators().add(c);
         disciplineRepository.save(d);
+        userDetailsService.invalidateClaims(c);
         return ResponseEntity.ok(Map.of("ok", true));
     }
 
     @DeleteMapping("/disciplinas/{id}/preceptores/{preceptorId}")
-    public ResponseEntity<?> unlinkPreceptor(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> unlinkPreceptor(@AuthenticationPrincipal AuthenticatedUser principal,
                                              @PathVariable Long id,
                                              @PathVariable Long preceptorId) {
         ensureCoordinatorOrAdmin(principal);
         Discipline d = disciplineRepository.findById(id).orElseThrow();
-        boolean removed = d.getPreceptors().removeIf(u -> Objects.equals(u.getId(), preceptorId));
-        if (!removed) return ResponseEntity.notFound().build();
+        User p = d.getPreceptors().stream().filter(u -> Objects.equals(u.getId(), preceptorId)).findFirst().orElse(null);
+        if (p == null) return ResponseEntity.notFound().build();
+        d.getPreceptors().remove(p);
         disciplineRepository.save(d);
+        userDetailsService.invalidateClaims(p);
         return ResponseEntity.ok(Map.of("ok", true));
     }
 
     @DeleteMapping("/disciplinas/{id}/coordenadores/{coordinatorId}")
-    public ResponseEntity<?> unlinkCoordinator(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> unlinkCoordinator(@AuthenticationPrincipal AuthenticatedUser principal,
                                                @PathVariable Long id,
                                                @PathVariable Long coordinatorId) {
         ensureCoordinatorOrAdmin(principal);
         Discipline d = disciplineRepository.findById(id).orElseThrow();
-        boolean removed = d.getCoordinators().removeIf(u -> Objects.equals(u.getId(), coordinatorId));
-        if (!removed) return ResponseEntity.notFound().build();
+        User c = d.getCoordinators().stream().filter(u -> Objects.equals(u.getId(), coordinatorId)).findFirst().orElse(null);
+        if (c == null) return ResponseEntity.notFound().build();
+        d.getCoordinators().remove(c);
         disciplineRepository.save(d);
+        userDetailsService.invalidateClaims(c);
         return ResponseEntity.ok(Map.of("ok", true));
     }
 
@@ -320,7 +328,7 @@ public class CoordinatorController {
     public static class FinalEvaluationRequest { public Long alunoId; public Long disciplineId; public Integer score; public String comment; }
 
     @PostMapping("/evaluate-final")
-    public ResponseEntity<?> evaluateFinal(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> evaluateFinal(@AuthenticationPrincipal AuthenticatedUser principal,
                                            @RequestBody FinalEvaluationRequest req) {
         ensureCoordinatorOrAdmin(principal);
         try {
@@ -330,12 +338,12 @@ public class CoordinatorController {
             if (req.score != null && (req.score < 0 || req.score > 10)) {
                 return ResponseEntity.badRequest().body(Map.of("error", "score fora de faixa"));
             }
-            User me = userRepository.findByCpf(principal.getUsername()).orElseThrow();
+            User me = userRepository.getReferenceById(principal.getId());
             User aluno = userRepository.findById(req.alunoId).orElseThrow();
             Discipline disc = disciplineRepository.findById(req.disciplineId).orElseThrow();
             // Coordenador deve estar vinculado à disciplina (a menos que seja ADMIN)
-            if (me.getRole() == Role.COORDENADOR) {
-                boolean linked = disciplineRepository.findByCoordinators_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(disc.getId()));
+            if (principal.getRole() == Role.COORDENADOR) {
+                boolean linked = principal.isLinkedTo(disc.getId());
                 if (!linked) return ResponseEntity.status(403).body(Map.of("error", "Coordenador não vinculado à disciplina"));
             }
             var ev = coordEvalRepo.findFirstByAlunoAndDiscipline(aluno, disc).orElse(new com.medcheckapi.user.model.CoordinatorEvaluation());
@@ -344,7 +352,7 @@ public class CoordinatorController {
             ev.setCoordinator(me);
             ev.setScore(req.score);
             ev.setComment(req.comment);
-            ev.setUpdatedAt(java.time.LocalDateTime.now());
+            ev.setUpdatedAt(LocalDateTime.now(clock));
             coordEvalRepo.save(ev);
             // Map.of não aceita valores nulos; construir mapa mutável para permitir comment null
             java.util.Map<String, Object> resp = new java.util.LinkedHashMap<>();
@@ -354,6 +362,8 @@ public class CoordinatorController {
             resp.put("coordinatorId", me.getId());
             resp.put("score", ev.getScore());
             resp.put("comment", ev.getComment()); // pode ser null
+            resp.put("workedSeconds", hoursLedger.totals(disc.getId(), List.of(aluno.getId())).getOrDefault(aluno.getId(), 0L));
+            resp.put("requiredHours", disc.getHours());
             return ResponseEntity.ok(resp);
         } catch (Exception ex) {
             return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
@@ -362,20 +372,21 @@ public class CoordinatorController {
 
     // Recupera a avaliação final do coordenador (se existir) para um aluno+disciplina
     @GetMapping("/evaluate-final")
-    public ResponseEntity<?> getFinalEvaluation(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> getFinalEvaluation(@AuthenticationPrincipal AuthenticatedUser principal,
                                                 @RequestParam("alunoId") Long alunoId,
                                                 @RequestParam("disciplineId") Long disciplineId) {
         ensureCoordinatorOrAdmin(principal);
         try {
-            User me = userRepository.findByCpf(principal.getUsername()).orElseThrow();
+            User me = userRepository.getReferenceById(principal.getId());
             User aluno = userRepository.findById(alunoId).orElseThrow();
             Discipline disc = disciplineRepository.findById(disciplineId).orElseThrow();
-            if (me.getRole() == Role.COORDENADOR) {
-                boolean linked = disciplineRepository.findByCoordinators_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(disc.getId()));
+            if (principal.getRole() == Role.COORDENADOR) {
+                boolean linked = principal.isLinkedTo(disc.getId());
                 if (!linked) return ResponseEntity.status(403).body(Map.of("error", "Coordenador não vinculado à disciplina"));
             }
             var opt = coordEvalRepo.findFirstByAlunoAndDiscipline(aluno, disc);
-            if (opt.isEmpty()) return ResponseEntity.ok(Map.of("found", false));
+            long workedSeconds = hoursLedger.totals(disc.getId(), List.of(aluno.getId())).getOrDefault(aluno.getId(), 0L);
+            if (opt.isEmpty()) return ResponseEntity.ok(Map.of("found", false, "workedSeconds", workedSeconds, "requiredHours", disc.getHours()));
             var ev = opt.get();
             // Map.of não aceita null; usar mapa mutável
             java.util.Map<String, Object> resp = new java.util.LinkedHashMap<>();
@@ -394,16 +405,16 @@ public class CoordinatorController {
 
     // Exclui a avaliação final do coordenador (reabre a edição do calendário por ausência de avaliação final)
     @DeleteMapping("/evaluate-final")
-    public ResponseEntity<?> deleteFinalEvaluation(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> deleteFinalEvaluation(@AuthenticationPrincipal AuthenticatedUser principal,
                                                    @RequestParam("alunoId") Long alunoId,
                                                    @RequestParam("disciplineId") Long disciplineId) {
         ensureCoordinatorOrAdmin(principal);
         try {
-            User me = userRepository.findByCpf(principal.getUsername()).orElseThrow();
+            User me = userRepository.getReferenceById(principal.getId());
             User aluno = userRepository.findById(alunoId).orElseThrow();
             Discipline disc = disciplineRepository.findById(disciplineId).orElseThrow();
-            if (me.getRole() == Role.COORDENADOR) {
-                boolean linked = disciplineRepository.findByCoordinators_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(disc.getId()));
+            if (principal.getRole() == Role.COORDENADOR) {
+                boolean linked = principal.isLinkedTo(disc.getId());
                 if (!linked) return ResponseEntity.status(403).body(Map.of("error", "Coordenador não vinculado à disciplina"));
             }
             var opt = coordEvalRepo.findFirstByAlunoAndDiscipline(aluno, disc);
@@ -0,0 +1,38 @@
+package com.medcheckapi.user.controller;
+
+import com.medcheckapi.user.security.AuthenticatedUser;
+import com.medcheckapi.user.service.LiveDashboardPublisher;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+import java.util.Map;
+
+/**
+ * Snapshot inicial do painel ao vivo (STOMP). O cliente assina o tópico (/topic/preceptor/{id} ou
+ * /topic/discipline/{id}) e em seguida /app/.../snapshot, que responde uma única vez só para ele.
+ * O acesso já foi verificado no StompJwtChannelInterceptor.
+ */
+@Controller
+public class LiveDashboardController {
+
+    private final LiveDashboardPublisher publisher;
+
+    public LiveDashboardController(LiveDashboardPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @SubscribeMapping("/preceptor/{id}/snapshot")
+    public Map<String, Object> preceptorSnapshot(@DestinationVariable Long id, Principal principal) {
+        boolean self = principal instanceof Authentication auth
+                && auth.getPrincipal() instanceof AuthenticatedUser u && id.equals(u.getId());
+        return publisher.preceptorSnapshot(id, self);
+    }
+
+    @SubscribeMapping("/discipline/{id}/snapshot")
+    public Map<String, Object> disciplineSnapshot(@DestinationVariable Long id) {
+        return publisher.disciplineSnapshot(id);
+    }
+}
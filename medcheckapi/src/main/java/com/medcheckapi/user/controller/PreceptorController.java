@@ -2,13 +2,15 @@ package com.medcheckapi.user.controller;
 
 import com.medcheckapi.user.model.Role;
 import com.medcheckapi.user.model.User;
-import com.medcheckapi.user.repository.CheckSessionRepository;
 import com.medcheckapi.user.repository.UserRepository;
 import com.medcheckapi.user.repository.DisciplineRepository;
 import com.medcheckapi.user.repository.PreceptorEvaluationRepository;
 import com.medcheckapi.user.model.Discipline;
 import com.medcheckapi.user.model.PreceptorEvaluation;
-import org.springframework.data.domain.Page;
+import com.medcheckapi.user.security.AuthenticatedUser;
+import com.medcheckapi.user.service.HotPathMetrics;
+import com.medcheckapi.user.service.StudentListQueryService;
+import com.medcheckapi.user.service.UserSearchIndex;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +20,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -32,26 +35,30 @@ import java.util.stream.Collectors;
 public class PreceptorController {
 
     private final UserRepository userRepository;
-    private final CheckSessionRepository checkSessionRepository;
     private final DisciplineRepository disciplineRepository;
     private final PreceptorEvaluationRepository evaluationRepository;
     private final com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo;
+    private final StudentListQueryService studentList;
+    private final HotPathMetrics metrics;
+    private final Clock clock;
 
-    public PreceptorController(UserRepository userRepository, CheckSessionRepository checkSessionRepository, DisciplineRepository disciplineRepository, PreceptorEvaluationRepository evaluationRepository, com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo) {
+    public PreceptorController(UserRepository userRepository, DisciplineRepository disciplineRepository, PreceptorEvaluationRepository evaluationRepository, com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo, StudentListQueryService studentList, HotPathMetrics metrics, Clock clock) {
+        this.clock = clock;
         this.userRepository = userRepository;
-        this.checkSessionRepository = checkSessionRepository;
         this.disciplineRepository = disciplineRepository;
         this.evaluationRepository = evaluationRepository;
         this.coordEvalRepo = coordEvalRepo;
+        this.studentList = studentList;
+        this.metrics = metrics;
     }
 
-    private User me(org.springframework.security.core.userdetails.User principal) {
-        return userRepository.findByCpf(principal.getUsername()).orElseThrow();
+    private User me(AuthenticatedUser principal) {
+        return userRepository.getReferenceById(principal.getId());
     }
 
     // List students (alunos) that had any check-in with this preceptor within a given year
     @GetMapping("/students")
-    public ResponseEntity<?> students(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> students(@AuthenticationPrincipal AuthenticatedUser principal,
                                       @RequestParam(required = false) Integer year,
                                       @RequestParam(defaultValue = "0") int page,
                                       @RequestParam(defaultValue = "8") int size,
@@ -67,26 +74,25 @@ public class PreceptorController {
         if (preceptor.getRole() != Role.PRECEPTOR && preceptor.getRole() != Role.ADMIN) {
             return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
         }
-        int y = (year != null ? year : LocalDate.now().getYear());
+        int y = (year != null ? year : LocalDate.now(clock).getYear());
         LocalDateTime start = LocalDateTime.of(LocalDate.of(y, 1, 1), LocalTime.MIN);
         LocalDateTime end = LocalDateTime.of(LocalDate.of(y, 12, 31), LocalTime.MAX);
         Pageable pageable = PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, 50)));
 
-        Page<User> alunosPage;
+        StudentListQueryService.StudentPage alunosPage;
         String qNorm = q != null ? q.trim() : null;
-        String qDigits = qNorm != null ? qNorm.replaceAll("\\D", "") : null;
-        boolean statusAll = statusIn && statusOut;
         // Se nenhum campo selecionado, assume todos
         boolean anyField = fName || fPhone || fEmail || fCpf;
         boolean selName = anyField ? fName : true;
         boolean selPhone = anyField ? fPhone : true;
         boolean selEmail = anyField ? fEmail : true;
         boolean selCpf = anyField ? fCpf : true;
+        UserSearchIndex.Fields fields = new UserSearchIndex.Fields(selName, selEmail, selCpf, selPhone);
 
         if (disciplineId != null) {
             Discipline disc = disciplineRepository.findById(disciplineId).orElse(null);
             if (disc == null) {
-                alunosPage = Page.empty(pageable);
+                alunosPage = new StudentListQueryService.StudentPage(List.of(), pageable.getPageNumber(), pageable.getPageSize(), 0);
             } else {
                 // Se preceptor (não ADMIN) precisa estar vinculado à disciplina escolhida
                 if (preceptor.getRole() == Role.PRECEPTOR) {
@@ -95,47 +101,39 @@ public class PreceptorController {
                         return ResponseEntity.status(403).body(Map.of("error", "Preceptor não vinculado à disciplina informada"));
                     }
                 }
-                alunosPage = checkSessionRepository.findDistinctAlunosByPreceptorAndDisciplineAndPeriodAdvanced(
-                        preceptor, disc, start, end,
-                        qNorm, qDigits,
-                        selName, selEmail, selCpf, selPhone,
-                        statusAll, statusIn, statusOut,
-                        pageable);
+                alunosPage = studentList.page(new StudentListQueryService.StudentFilter(start, end, preceptor.getId(), disc.getId(),
+                        qNorm, fields, statusIn, statusOut), pageable.getPageNumber(), pageable.getPageSize());
             }
         } else {
-            alunosPage = checkSessionRepository.findDistinctAlunosByPreceptorAndPeriodAdvanced(
-                    preceptor, start, end,
-                    qNorm, qDigits,
-                    selName, selEmail, selCpf, selPhone,
-                    statusAll, statusIn, statusOut,
-                    pageable);
+            alunosPage = studentList.page(new StudentListQueryService.StudentFilter(start, end, preceptor.getId(), null,
+                    qNorm, fields, statusIn, statusOut), pageable.getPageNumber(), pageable.getPageSize());
         }
-        List<Map<String,Object>> items = alunosPage.getContent().stream().map(a -> {
+        List<Map<String,Object>> items = alunosPage.items().stream().map(a -> {
             Map<String,Object> m = new HashMap<>();
-            m.put("id", a.getId());
-            m.put("name", a.getName());
-            m.put("cpf", a.getCpf());
-            m.put("phone", a.getPhone());
-            m.put("email", a.getInstitutionalEmail());
-            boolean inService = checkSessionRepository.existsByAlunoAndPreceptorAndCheckOutTimeIsNull(a, preceptor);
-            m.put("inService", inService);
+            m.put("id", a.id());
+            m.put("name", a.name());
+            m.put("cpf", a.cpf());
+            m.put("phone", a.phone());
+            m.put("email", a.email());
+            m.put("inService", a.inService());
             return m;
         }).collect(Collectors.toList());
+        metrics.rows("preceptor.students", items.size());
 
         Map<String,Object> resp = new HashMap<>();
         resp.put("items", items);
-        resp.put("page", alunosPage.getNumber());
-        resp.put("size", alunosPage.getSize());
-        resp.put("totalPages", alunosPage.getTotalPages());
-        resp.put("totalItems", alunosPage.getTotalElements());
+        resp.put("page", alunosPage.page());
+        resp.put("size", alunosPage.size());
+        resp.put("totalPages", alunosPage.totalPages());
+        resp.put("totalItems", alunosPage.totalItems());
         return ResponseEntity.ok(resp);
     }
 
     // List disciplines linked to this preceptor
     @GetMapping("/disciplines")
-    public ResponseEntity<?> disciplines(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
+    public ResponseEntity<?> disciplines(@AuthenticationPrincipal AuthenticatedUser principal) {
         User me = me(principal);
-        if (me.getRole() != Role.PRECEPTOR && me.getRole() != Role.ADMIN) {
+        if (principal.getRole() != Role.PRECEPTOR && principal.getRole() != Role.ADMIN) {
             return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
         }
         List<Discipline> discs = disciplineRepository.findByPreceptors_Id(me.getId());
@@ -153,11 +151,11 @@ public class PreceptorController {
 
     // Student info for evaluation (includes discipline context)
     @GetMapping("/student-info")
-    public ResponseEntity<?> studentInfo(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> studentInfo(@AuthenticationPrincipal AuthenticatedUser principal,
                                          @RequestParam("alunoId") Long alunoId,
                                          @RequestParam(value = "disciplineId", required = false) Long disciplineId) {
         User me = me(principal);
-        if (me.getRole() != Role.PRECEPTOR && me.getRole() != Role.ADMIN) {
+        if (principal.getRole() != Role.PRECEPTOR && principal.getRole() != Role.ADMIN) {
             return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
         }
         User aluno = userRepository.findById(alunoId).orElse(null);
@@ -165,9 +163,9 @@ public class PreceptorController {
         Discipline discipline = null;
         if (disciplineId != null) {
             discipline = disciplineRepository.findById(disciplineId).orElse(null);
-            if (discipline != null && me.getRole() == Role.PRECEPTOR) {
+            if (discipline != null && principal.getRole() == Role.PRECEPTOR) {
                 final Long dId = discipline.getId();
-                boolean belongs = disciplineRepository.findByPreceptors_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(dId));
+                boolean belongs = principal.isLinkedTo(dId);
                 if (!belongs) return ResponseEntity.status(403).body(Map.of("error","Preceptor não vinculado à disciplina"));
             }
         } else {
@@ -192,10 +190,10 @@ public class PreceptorController {
 
     // Create or update evaluation
     @org.springframework.web.bind.annotation.PostMapping("/evaluate")
-    public ResponseEntity<?> evaluate(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> evaluate(@AuthenticationPrincipal AuthenticatedUser principal,
                                       @org.springframework.web.bind.annotation.RequestBody Map<String,Object> body) {
         User me = me(principal);
-        if (me.getRole() != Role.PRECEPTOR && me.getRole() != Role.ADMIN) {
+        if (principal.getRole() != Role.PRECEPTOR && principal.getRole() != Role.ADMIN) {
             return ResponseEntity.status(403).body(Map.of("error","Forbidden"));
         }
         try {
@@ -210,9 +208,9 @@ public class PreceptorController {
             if (body.get("disciplineId") != null) {
                 Long did = Long.valueOf(String.valueOf(body.get("disciplineId")));
                 discipline = disciplineRepository.findById(did).orElse(null);
-                if (discipline != null && me.getRole() == Role.PRECEPTOR) {
+                if (discipline != null && principal.getRole() == Role.PRECEPTOR) {
                     final Long dId = discipline.getId();
-                    boolean belongs = disciplineRepository.findByPreceptors_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(dId));
+                    boolean belongs = principal.isLinkedTo(dId);
                     if (!belongs) return ResponseEntity.status(403).body(Map.of("error","Preceptor não vinculado à disciplina"));
                 }
             }
@@ -230,7 +228,7 @@ public class PreceptorController {
             eval.setScore(score);
             eval.setComment(comment);
             eval.setDetailsJson(detailsJson);
-            eval.setUpdatedAt(java.time.LocalDateTime.now());
+            eval.setUpdatedAt(LocalDateTime.now(clock));
             evaluationRepository.save(eval);
             Map<String,Object> resp = new HashMap<>();
             resp.put("id", eval.getId());
@@ -249,7 +247,7 @@ public class PreceptorController {
 
     // Recupera avaliação existente (para preceptor ou aluno visualizar). Preceptor precisa vínculo; aluno só pode ver sua própria.
     @GetMapping("/evaluation")
-    public ResponseEntity<?> getEvaluation(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> getEvaluation(@AuthenticationPrincipal AuthenticatedUser principal,
                                            @RequestParam("alunoId") Long alunoId,
                                            @RequestParam("weekNumber") Integer weekNumber,
                                            @RequestParam(value = "disciplineId", required = false) Long disciplineId) {
@@ -262,20 +260,20 @@ public class PreceptorController {
             discipline = disciplineRepository.findById(disciplineId).orElse(null);
         }
         boolean isAluno = me.getId().equals(aluno.getId());
-        boolean isPreceptor = me.getRole() == Role.PRECEPTOR || me.getRole() == Role.ADMIN;
-        boolean isCoordinator = me.getRole() == Role.COORDENADOR;
+        boolean isPreceptor = principal.getRole() == Role.PRECEPTOR || principal.getRole() == Role.ADMIN;
+        boolean isCoordinator = principal.getRole() == Role.COORDENADOR;
         if (!isAluno && !isPreceptor && !isCoordinator) {
             return ResponseEntity.status(403).body(Map.of("error","Forbidden"));
         }
         // Valida vínculo da disciplina conforme o papel
         if (discipline != null) {
             final Long dId = discipline.getId();
-            if (isPreceptor && me.getRole() == Role.PRECEPTOR) {
-                boolean belongs = disciplineRepository.findByPreceptors_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(dId));
+            if (isPreceptor && principal.getRole() == Role.PRECEPTOR) {
+                boolean belongs = principal.isLinkedTo(dId);
                 if (!belongs) return ResponseEntity.status(403).body(Map.of("error","Preceptor não vinculado à disciplina"));
             }
             if (isCoordinator) {
-                boolean coordLinked = disciplineRepository.findByCoordinators_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(dId));
+                boolean coordLinked = principal.isLinkedTo(dId);
                 if (!coordLinked) return ResponseEntity.status(403).body(Map.of("error","Coordenador não vinculado à disciplina"));
             }
         }
@@ -286,7 +284,7 @@ public class PreceptorController {
             evals = evaluationRepository.findByAlunoAndWeekNumberAndDisciplineIsNull(aluno, weekNumber);
         }
         // Regra: Preceptor não pode ver avaliação de outro preceptor.
-        if (me.getRole() == Role.PRECEPTOR) {
+        if (principal.getRole() == Role.PRECEPTOR) {
             final Long myId = me.getId();
             evals = evals.stream()
                     .filter(ev -> ev.getPreceptor() != null && myId.equals(ev.getPreceptor().getId()))
@@ -312,12 +310,12 @@ public class PreceptorController {
 
     // Delete evaluation (allow PRECEPTOR or ADMIN). Coordinator intentionally not allowed to delete.
     @org.springframework.web.bind.annotation.DeleteMapping("/evaluation")
-    public ResponseEntity<?> deleteEvaluation(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> deleteEvaluation(@AuthenticationPrincipal AuthenticatedUser principal,
                                               @RequestParam("alunoId") Long alunoId,
                                               @RequestParam("weekNumber") Integer weekNumber,
                                               @RequestParam(value = "disciplineId", required = false) Long disciplineId) {
         User me = me(principal);
-        if (me.getRole() != Role.PRECEPTOR && me.getRole() != Role.ADMIN) {
+        if (principal.getRole() != Role.PRECEPTOR && principal.getRole() != Role.ADMIN) {
             return ResponseEntity.status(403).body(Map.of("error","Forbidden"));
         }
         if (weekNumber < 1 || weekNumber > 52) return ResponseEntity.badRequest().body(Map.of("error","weekNumber inválido"));
@@ -326,14 +324,14 @@ public class PreceptorController {
         Discipline discipline = null;
         if (disciplineId != null) {
             discipline = disciplineRepository.findById(disciplineId).orElse(null);
-            if (discipline != null && me.getRole() == Role.PRECEPTOR) {
+            if (discipline != null && principal.getRole() == Role.PRECEPTOR) {
                 final Long dId = discipline.getId();
-                boolean belongs = disciplineRepository.findByPreceptors_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(dId));
+                boolean belongs = principal.isLinkedTo(dId);
                 if (!belongs) return ResponseEntity.status(403).body(Map.of("error","Preceptor não vinculado à disciplina"));
             }
         }
         PreceptorEvaluation eval;
-        if (me.getRole() == Role.PRECEPTOR) {
+        if (principal.getRole() == Role.PRECEPTOR) {
             // Preceptor só pode excluir sua própria avaliação
             if (discipline != null) {
                 eval = evaluationRepository.findFirstByAlunoAndPreceptorAndDisciplineAndWeekNumber(aluno, me, discipline, weekNumber).orElse(null);
@@ -350,7 +348,7 @@ public class PreceptorController {
         }
         if (eval == null) return ResponseEntity.ok(Map.of("deleted", false, "reason", "not-found"));
         // Only the original preceptor or an ADMIN can delete
-        if (!eval.getPreceptor().getId().equals(me.getId()) && me.getRole() != Role.ADMIN) {
+        if (!eval.getPreceptor().getId().equals(me.getId()) && principal.getRole() != Role.ADMIN) {
             return ResponseEntity.status(403).body(Map.of("error","Somente o avaliador original ou ADMIN pode excluir"));
         }
         evaluationRepository.delete(eval);
@@ -359,19 +357,19 @@ public class PreceptorController {
 
     // Final evaluation (coordinator) visibility for PRECEPTOR/ADMIN
     @GetMapping("/final-evaluation")
-    public ResponseEntity<?> getCoordinatorFinalForStudent(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+    public ResponseEntity<?> getCoordinatorFinalForStudent(@AuthenticationPrincipal AuthenticatedUser principal,
                                                            @RequestParam("alunoId") Long alunoId,
                                                            @RequestParam("disciplineId") Long disciplineId) {
         User me = me(principal);
-        if (me.getRole() != Role.PRECEPTOR && me.getRole() != Role.ADMIN) {
+        if (principal.getRole() != Role.PRECEPTOR && principal.getRole() != Role.ADMIN) {
             return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
         }
         User aluno = userRepository.findById(alunoId).orElse(null);
         Discipline disc = disciplineRepository.findById(disciplineId).orElse(null);
         if (aluno == null || disc == null) return ResponseEntity.notFound().build();
         // Se PRECEPTOR, precisa estar vinculado à disciplina
-        if (me.getRole() == Role.PRECEPTOR) {
-            boolean linked = disciplineRepository.findByPreceptors_Id(me.getId()).stream().anyMatch(d -> d.getId().equals(disc.getId()));
+        if (principal.getRole() == Role.PRECEPTOR) {
+            boolean linked = principal.isLinkedTo(disc.getId());
             if (!linked) return ResponseEntity.status(403).body(Map.of("error", "Preceptor não vinculado à disciplina"));
         }
         var opt = coordEvalRepo.findFirstByAlunoAndDiscipline(aluno, disc);
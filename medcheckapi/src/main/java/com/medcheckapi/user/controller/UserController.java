@@ -1,30 +1,28 @@
 package com.medcheckapi.user.controller;
 
-import com.medcheckapi.user.model.User;
 import com.medcheckapi.user.repository.UserRepository;
+import com.medcheckapi.user.service.AvatarStore;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.Optional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
     private final UserRepository userRepository;
-    public UserController(UserRepository userRepository) { this.userRepository = userRepository; }
+    private final AvatarStore avatarStore;
+    public UserController(UserRepository userRepository, AvatarStore avatarStore) { this.userRepository = userRepository; this.avatarStore = avatarStore; }
 
     @GetMapping("/{id}/photo")
-    public ResponseEntity<?> getUserPhoto(@PathVariable Long id) {
-        Optional<User> opt = userRepository.findById(id);
-        if (opt.isEmpty()) return ResponseEntity.notFound().build();
-        User u = opt.get();
-        if (u.getAvatar() == null || u.getAvatar().length == 0) return ResponseEntity.notFound().build();
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CACHE_CONTROL, "no-store")
-                .contentType(u.getAvatarContentType() != null ? MediaType.parseMediaType(u.getAvatarContentType()) : MediaType.IMAGE_JPEG)
-                .body(u.getAvatar());
+    public ResponseEntity<StreamingResponseBody> getUserPhoto(@PathVariable Long id,
+                                          @RequestParam(value = "size", required = false) Integer size,
+                                          @RequestParam(value = "v", required = false) String version,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Só o hash: não carrega a entidade
+        String hash = userRepository.findAvatarHashById(id).orElse(null);
+        if (hash == null) return ResponseEntity.notFound().build();
+        return AvatarResponses.photo(avatarStore, hash, size, version, ifNoneMatch);
     }
 
 }
@@ -4,13 +4,14 @@ import com.medcheckapi.user.model.User;
 import com.medcheckapi.user.model.Discipline;
 import com.medcheckapi.user.repository.DisciplineRepository;
 import com.medcheckapi.user.repository.UserRepository;
+import com.medcheckapi.user.service.AvatarStore;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Map;
 import java.util.List;
@@ -22,8 +23,9 @@ public class UserProfileController {
 	private final UserRepository userRepository;
 	private final DisciplineRepository disciplineRepository;
 	private final com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo;
+	private final AvatarStore avatarStore;
 
-	public UserProfileController(UserRepository userRepository, DisciplineRepository disciplineRepository, com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo) { this.userRepository = userRepository; this.disciplineRepository = disciplineRepository; this.coordEvalRepo = coordEvalRepo; }
+	public UserProfileController(UserRepository userRepository, DisciplineRepository disciplineRepository, com.medcheckapi.user.repository.CoordinatorEvaluationRepository coordEvalRepo, AvatarStore avatarStore) { this.userRepository = userRepository; this.disciplineRepository = disciplineRepository; this.coordEvalRepo = coordEvalRepo; this.avatarStore = avatarStore; }
 
 	private User currentUser(org.springframework.security.core.userdetails.User principal) {
 		if (principal == null) return null;
@@ -45,7 +47,8 @@ public class UserProfileController {
 		resp.put("email", Optional.ofNullable(u.getInstitutionalEmail()).orElse(""));
 		resp.put("phone", Optional.ofNullable(u.getPhone()).orElse(""));
 		resp.put("role", u.getRole().name());
-		resp.put("hasAvatar", u.getAvatar() != null && u.getAvatar().length > 0);
+		resp.put("hasAvatar", u.hasAvatar());
+		resp.put("avatarHash", u.getAvatarHash()); // ?v=<hash> na URL da foto => cache imutável
 		resp.put("currentDisciplineId", u.getCurrentDiscipline() == null ? null : u.getCurrentDiscipline().getId());
 		resp.put("currentDisciplineName", u.getCurrentDiscipline() == null ? null : u.getCurrentDiscipline().getName());
 		resp.put("currentDisciplineCode", u.getCurrentDiscipline() == null ? null : u.getCurrentDiscipline().getCode());
@@ -118,17 +121,17 @@ public class UserProfileController {
 		));
 	}
 
+	// size = lado maior desejado (miniaturas 64/256); v = hash atual (opcional, libera cache longo)
 	@GetMapping("/photo")
-	@Transactional(readOnly = true)
-	public ResponseEntity<?> getPhoto(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
+	public ResponseEntity<StreamingResponseBody> getPhoto(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal,
+									  @RequestParam(value = "size", required = false) Integer size,
+									  @RequestParam(value = "v", required = false) String version,
+									  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 		User u = currentUser(principal);
-		if (u.getAvatar() == null || u.getAvatar().length == 0) {
+		if (u == null || !u.hasAvatar()) {
 			return ResponseEntity.notFound().build();
 		}
-		return ResponseEntity.ok()
-				.header(HttpHeaders.CACHE_CONTROL, "no-store")
-				.contentType(u.getAvatarContentType() != null ? MediaType.parseMediaType(u.getAvatarContentType()) : MediaType.IMAGE_JPEG)
-				.body(u.getAvatar());
+		return AvatarResponses.photo(avatarStore, u.getAvatarHash(), size, version, ifNoneMatch);
 	}
 
 	@PostMapping(value = "/photo", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -139,18 +142,25 @@ public class UserProfileController {
 		String ct = Optional.ofNullable(file.getContentType()).orElse("image/jpeg");
 		if (!ct.startsWith("image/")) return ResponseEntity.badRequest().body(Map.of("error", "Tipo não suportado"));
 		User u = currentUser(principal);
-		u.setAvatar(file.getBytes());
-		u.setAvatarContentType(ct);
+		String previous = u.getAvatarHash();
+		AvatarStore.Stored stored = avatarStore.put(file.getBytes(), ct);
+		u.setAvatarHash(stored.hash());
+		u.setAvatarSize(stored.size());
+		u.setAvatarContentType(stored.contentType());
 		userRepository.save(u);
-		return ResponseEntity.ok(Map.of("ok", true));
+		if (previous != null && !previous.equals(stored.hash())) avatarStore.release(previous);
+		return ResponseEntity.ok(Map.of("ok", true, "avatarHash", stored.hash()));
 	}
 
 	@DeleteMapping("/photo")
 	public ResponseEntity<?> deletePhoto(@AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
 		User u = currentUser(principal);
-		u.setAvatar(null);
+		String previous = u.getAvatarHash();
+		u.setAvatarHash(null);
+		u.setAvatarSize(null);
 		u.setAvatarContentType(null);
 		userRepository.save(u);
+		avatarStore.release(previous);
 		return ResponseEntity.ok(Map.of("ok", true));
 	}
 }
@@ -0,0 +1,33 @@
+package com.medcheckapi.user.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+
+/**
+ * Escreve um LocalDateTime (horário local do Acre) com o offset do fuso, no mesmo formato de
+ * {@code atZone(ACRE).toOffsetDateTime().toString()} (ex.: 2025-03-10T07:00-05:00), sem criar
+ * ZonedDateTime/OffsetDateTime por linha.
+ */
+public class AcreDateTimeSerializer extends StdSerializer<LocalDateTime> {
+
+    private static final ZoneRules ACRE_RULES = ZoneId.of("America/Rio_Branco").getRules();
+
+    public AcreDateTimeSerializer() {
+        super(LocalDateTime.class);
+    }
+
+    @Override
+    public void serialize(LocalDateTime value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeString(format(value));
+    }
+
+    public static String format(LocalDateTime value) {
+        return value.toString().concat(ACRE_RULES.getOffset(value).getId());
+    }
+}
@@ -0,0 +1,10 @@
+package com.medcheckapi.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/** Dia da visão mensal: totais do resumo diário e status já avaliado. justificationStatus só quando há justificativa. */
+public record CalendarDayDto(String date,
+                             long plannedSeconds,
+                             long workedSeconds,
+                             String status,
+                             @JsonInclude(JsonInclude.Include.NON_NULL) String justificationStatus) {}
@@ -0,0 +1,10 @@
+package com.medcheckapi.user.dto;
+
+/** Disciplina resumida ({id, code, name}) embutida nas listagens. */
+public record DisciplineRef(Long id, String code, String name) {
+
+    /** Monta a partir das colunas da projeção; sem disciplina (LEFT JOIN vazio) devolve null. */
+    public static DisciplineRef of(Long id, String code, String name) {
+        return id == null ? null : new DisciplineRef(id, code, name);
+    }
+}
@@ -0,0 +1,23 @@
+package com.medcheckapi.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import java.time.LocalDate;
+
+/** Justificativa no calendário mensal, vinda da projeção de {@code InternshipJustificationRepository#findMonthRows}. */
+public record JustificationDto(Long id,
+                               @JsonSerialize(using = ToStringSerializer.class) LocalDate date,
+                               String type,
+                               String reason,
+                               String status,
+                               String reviewNote,
+                               Long planId,
+                               @JsonInclude(JsonInclude.Include.NON_NULL) DisciplineRef discipline) {
+
+    public JustificationDto(Long id, LocalDate date, String type, String reason, String status, String reviewNote,
+                            Long planId, Long disciplineId, String disciplineCode, String disciplineName) {
+        this(id, date, type, reason, status, reviewNote, planId, DisciplineRef.of(disciplineId, disciplineCode, disciplineName));
+    }
+}
@@ -0,0 +1,36 @@
+package com.medcheckapi.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Plano de estágio no calendário mensal, vindo da projeção de {@code InternshipPlanRepository#findMonthRows}.
+ * Datas/horários saem como toString() (2025-03-10, 07:00), igual ao mapa anterior.
+ */
+public record PlanDto(Long id,
+                      @JsonSerialize(using = ToStringSerializer.class) LocalDate date,
+                      @JsonSerialize(using = ToStringSerializer.class) LocalTime startTime,
+                      @JsonSerialize(using = ToStringSerializer.class) LocalTime endTime,
+                      String location,
+                      String note,
+                      long plannedSeconds,
+                      @JsonInclude(JsonInclude.Include.NON_NULL) Integer weekNumber,
+                      @JsonInclude(JsonInclude.Include.NON_NULL) DisciplineRef discipline) {
+
+    public PlanDto(Long id, LocalDate date, LocalTime startTime, LocalTime endTime, String location, String note,
+                   Integer weekNumber, Long disciplineId, String disciplineCode, String disciplineName) {
+        this(id, date, startTime, endTime, location, note, plannedSeconds(startTime, endTime), weekNumber,
+                DisciplineRef.of(disciplineId, disciplineCode, disciplineName));
+    }
+
+    // Mesma regra de InternshipPlan#getPlannedSeconds: intervalo que atravessa a meia-noite soma 24h
+    private static long plannedSeconds(LocalTime start, LocalTime end) {
+        if (start == null || end == null) return 0;
+        long secs = end.toSecondOfDay() - start.toSecondOfDay();
+        return secs < 0 ? secs + 24 * 3600 : secs;
+    }
+}
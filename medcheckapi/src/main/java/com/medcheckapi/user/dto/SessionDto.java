@@ -0,0 +1,63 @@
+package com.medcheckapi.user.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.medcheckapi.user.model.CheckSession;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Sessão de check-in/out como sai na API (mesmas chaves do antigo mapa por linha). Nas listagens vem direto da
+ * projeção JPQL ({@code CheckSessionRepository#findSessionRows}), sem carregar aluno, preceptor nem disciplina.
+ * Horários são serializados com o offset do Acre; {@code worked} (HH:MM:SS) só existe após o check-out.
+ */
+public record SessionDto(Long id,
+                         Long alunoId,
+                         Long preceptorId,
+                         @JsonInclude(JsonInclude.Include.NON_NULL) DisciplineRef discipline,
+                         @JsonSerialize(using = AcreDateTimeSerializer.class) LocalDateTime checkInTime,
+                         @JsonSerialize(using = AcreDateTimeSerializer.class) LocalDateTime checkOutTime,
+                         boolean validated,
+                         Double checkInLat,
+                         Double checkInLng,
+                         Double checkOutLat,
+                         Double checkOutLng) {
+
+    /** Construtor da projeção (colunas da disciplina achatadas por causa do LEFT JOIN). */
+    public SessionDto(Long id, Long alunoId, Long preceptorId,
+                      Long disciplineId, String disciplineCode, String disciplineName,
+                      LocalDateTime checkInTime, LocalDateTime checkOutTime, Boolean validated,
+                      Double checkInLat, Double checkInLng, Double checkOutLat, Double checkOutLng) {
+        this(id, alunoId, preceptorId, DisciplineRef.of(disciplineId, disciplineCode, disciplineName),
+                checkInTime, checkOutTime, Boolean.TRUE.equals(validated), checkInLat, checkInLng, checkOutLat, checkOutLng);
+    }
+
+    /** Para a sessão recém gravada (check-in/check-out), que já está em memória. */
+    public static SessionDto of(CheckSession cs) {
+        return new SessionDto(cs.getId(), cs.getAluno().getId(), cs.getPreceptor().getId(),
+                cs.getDiscipline() == null ? null
+                        : new DisciplineRef(cs.getDiscipline().getId(), cs.getDiscipline().getCode(), cs.getDiscipline().getName()),
+                cs.getCheckInTime(), cs.getCheckOutTime(), cs.isValidated(),
+                cs.getCheckInLat(), cs.getCheckInLng(), cs.getCheckOutLat(), cs.getCheckOutLng());
+    }
+
+    @JsonProperty("worked")
+    public String worked() {
+        if (checkOutTime == null) return null;
+        return hms(checkOutTime.toEpochSecond(ZoneOffset.UTC) - checkInTime.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    // Equivalente a String.format("%02d:%02d:%02d", h, m, s)
+    static String hms(long secs) {
+        long h = secs / 3600, m = (secs % 3600) / 60, s = secs % 60;
+        StringBuilder sb = new StringBuilder(8);
+        if (h >= 0 && h < 10) sb.append('0');
+        sb.append(h).append(':');
+        if (m >= 0 && m < 10) sb.append('0');
+        sb.append(m).append(':');
+        if (s >= 0 && s < 10) sb.append('0');
+        return sb.append(s).toString();
+    }
+}
@@ -3,6 +3,8 @@ package com.medcheckapi.user.model;
 import jakarta.persistence.*;
 import java.util.Date;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.medcheckapi.user.service.UserSearchIndexListener;
 
 /**
  * Core user entity. Added role support to distinguish ALUNO / PRECEPTOR / ADMIN / COORDENADOR
@@ -12,6 +14,7 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserSearchIndexListener.class)
 public class User {
 
     @Id
@@ -36,16 +39,32 @@ public class User {
     @Column(length = 20)
     private Role role = Role.ALUNO; // default
 
-    // Optional profile avatar stored in DB for simplicity
-    @Lob
-    @Basic(fetch = FetchType.LAZY)
-    private byte[] avatar;
+    // Foto de perfil: bytes ficam no AvatarStore (avatar_blobs); aqui só o SHA-256 e o tamanho do original
+    @Column(length = 64)
+    private String avatarHash;
+    private Integer avatarSize;
     private String avatarContentType;
 
     @ManyToOne(optional = true)
     @JoinColumn(name = "current_discipline_id")
     private Discipline currentDiscipline;
 
+    // Incrementado quando papel/vínculos mudam: claims de tokens emitidos antes deixam de ser aceitas
+    @Column(name = "token_version", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int tokenVersion;
+
+    // Só dígitos, mantidos em @PrePersist/@PreUpdate: busca por CPF/telefone sem REPLACE aninhado
+    @JsonIgnore
+    @Column(name = "cpf_digits", length = 14)
+    private String cpfDigits;
+    @JsonIgnore
+    @Column(name = "phone_digits", length = 20)
+    private String phoneDigits;
+
+    // Campos de busca como estavam no último load/índice (null = nunca indexado)
+    @Transient
+    private String indexedSearchText;
+
     // Getters and Setters
 
     public Long getId() {
@@ -141,12 +160,24 @@ public class User {
         this.role = role;
     }
 
-    public byte[] getAvatar() {
-        return avatar;
+    public String getAvatarHash() {
+        return avatarHash;
+    }
+
+    public void setAvatarHash(String avatarHash) {
+        this.avatarHash = avatarHash;
+    }
+
+    public Integer getAvatarSize() {
+        return avatarSize;
+    }
+
+    public void setAvatarSize(Integer avatarSize) {
+        this.avatarSize = avatarSize;
     }
 
-    public void setAvatar(byte[] avatar) {
-        this.avatar = avatar;
+    public boolean hasAvatar() {
+        return avatarHash != null;
     }
 
     public String getAvatarContentType() {
@@ -159,4 +190,26 @@ public class User {
 
     public Discipline getCurrentDiscipline() { return currentDiscipline; }
     public void setCurrentDiscipline(Discipline currentDiscipline) { this.currentDiscipline = currentDiscipline; }
+
+    public int getTokenVersion() { return tokenVersion; }
+    public void setTokenVersion(int tokenVersion) { this.tokenVersion = tokenVersion; }
+    public void bumpTokenVersion() { this.tokenVersion++; }
+
+    public String getCpfDigits() { return cpfDigits; }
+    public String getPhoneDigits() { return phoneDigits; }
+
+    @PrePersist
+    @PreUpdate
+    void normalizeSearchFields() {
+        cpfDigits = cpf == null ? null : cpf.replaceAll("\\D", "");
+        phoneDigits = phone == null ? null : phone.replaceAll("\\D", "");
+    }
+
+    @PostLoad
+    public void markSearchFieldsIndexed() { indexedSearchText = searchText(); }
+
+    /** Nome, e-mail, CPF ou telefone diferentes do que está no índice de busca. */
+    public boolean searchFieldsChanged() { return !searchText().equals(indexedSearchText); }
+
+    private String searchText() { return name + '\u0000' + institutionalEmail + '\u0000' + cpf + '\u0000' + phone; }
 }
@@ -17,6 +17,10 @@ public interface CheckCodeRepository extends JpaRepository<CheckCode, Long> {
 
     Optional<CheckCode> findFirstByPreceptorAndCodeIgnoreCaseAndExpiresAtGreaterThanOrderByGeneratedAtDesc(User preceptor, String code, LocalDateTime now);
 
+    @Modifying
+    @Query("update CheckCode c set c.usageCount = c.usageCount + :uses, c.lastAccessedAt = :now where c.id = :id")
+    int incrementUsage(@Param("id") Long id, @Param("uses") int uses, @Param("now") LocalDateTime now);
+
     @Modifying
     @Query("delete from CheckCode c where c.usageCount = 0 and c.generatedAt < :threshold and (c.lastAccessedAt is null or c.lastAccessedAt < :threshold)")
     int deleteAllUnusedOlderThan(@Param("threshold") LocalDateTime threshold);
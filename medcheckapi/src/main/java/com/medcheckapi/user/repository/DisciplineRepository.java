@@ -2,6 +2,8 @@ package com.medcheckapi.user.repository;
 
 import com.medcheckapi.user.model.Discipline;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 import java.util.List;
@@ -10,4 +12,11 @@ public interface DisciplineRepository extends JpaRepository<Discipline, Long> {
     Optional<Discipline> findByCode(String code);
     List<Discipline> findByPreceptors_Id(Long preceptorId);
     List<Discipline> findByCoordinators_Id(Long coordinatorId);
+
+    // Apenas ids (claims do token / checagens de vínculo), sem carregar as entidades
+    @Query("select d.id from Discipline d join d.preceptors p where p.id = :userId")
+    List<Long> findIdsByPreceptorId(@Param("userId") Long userId);
+
+    @Query("select d.id from Discipline d join d.coordinators c where c.id = :userId")
+    List<Long> findIdsByCoordinatorId(@Param("userId") Long userId);
 }
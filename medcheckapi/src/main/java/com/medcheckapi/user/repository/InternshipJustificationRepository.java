@@ -1,8 +1,11 @@
 package com.medcheckapi.user.repository;
 
+import com.medcheckapi.user.dto.JustificationDto;
 import com.medcheckapi.user.model.InternshipJustification;
 import com.medcheckapi.user.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -10,6 +13,21 @@ import java.util.Optional;
 
 public interface InternshipJustificationRepository extends JpaRepository<InternshipJustification, Long> {
     List<InternshipJustification> findByAlunoAndDateBetweenOrderByDateAsc(User aluno, LocalDate start, LocalDate end);
+    // Calendário mensal: projeção direta no JustificationDto (disciplineId null = todas, inclusive sem disciplina)
+    @Query("""
+       SELECT new com.medcheckapi.user.dto.JustificationDto(j.id, j.date, j.type, j.reason, j.status, j.reviewNote,
+              pl.id, d.id, d.code, d.name)
+       FROM InternshipJustification j LEFT JOIN j.plan pl LEFT JOIN j.discipline d
+       WHERE j.aluno.id = :alunoId
+        AND j.date BETWEEN :start AND :end
+        AND (:disciplineId IS NULL OR d.id = :disciplineId)
+       ORDER BY j.date ASC
+       """)
+    List<JustificationDto> findMonthRows(@Param("alunoId") Long alunoId,
+                                         @Param("start") LocalDate start,
+                                         @Param("end") LocalDate end,
+                                         @Param("disciplineId") Long disciplineId);
+
     List<InternshipJustification> findByAlunoAndDate(User aluno, LocalDate date);
     Optional<InternshipJustification> findFirstByAlunoAndDate(User aluno, LocalDate date);
 }
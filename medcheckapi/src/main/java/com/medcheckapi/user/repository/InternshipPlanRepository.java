@@ -1,15 +1,33 @@
 package com.medcheckapi.user.repository;
 
+import com.medcheckapi.user.dto.PlanDto;
 import com.medcheckapi.user.model.InternshipPlan;
 import com.medcheckapi.user.model.User;
 import com.medcheckapi.user.model.Discipline;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
 
 public interface InternshipPlanRepository extends JpaRepository<InternshipPlan, Long> {
     List<InternshipPlan> findByAlunoAndDateBetweenOrderByDateAsc(User aluno, LocalDate start, LocalDate end);
+    // Calendário mensal: projeção direta no PlanDto (disciplineId null = todas, inclusive sem disciplina)
+    @Query("""
+       SELECT new com.medcheckapi.user.dto.PlanDto(p.id, p.date, p.startTime, p.endTime, p.location, p.note,
+              p.weekNumber, d.id, d.code, d.name)
+       FROM InternshipPlan p LEFT JOIN p.discipline d
+       WHERE p.aluno.id = :alunoId
+        AND p.date BETWEEN :start AND :end
+        AND (:disciplineId IS NULL OR d.id = :disciplineId)
+       ORDER BY p.date ASC
+       """)
+    List<PlanDto> findMonthRows(@Param("alunoId") Long alunoId,
+                                @Param("start") LocalDate start,
+                                @Param("end") LocalDate end,
+                                @Param("disciplineId") Long disciplineId);
+
     List<InternshipPlan> findByAlunoAndDate(User aluno, LocalDate date);
     List<InternshipPlan> findByAlunoAndWeekNumberOrderByDateAsc(User aluno, Integer weekNumber);
     List<InternshipPlan> findByAlunoAndDisciplineAndWeekNumberOrderByDateAsc(User aluno, Discipline discipline, Integer weekNumber);
@@ -3,6 +3,8 @@ package com.medcheckapi.user.repository;
 import com.medcheckapi.user.model.Role;
 import com.medcheckapi.user.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,4 +15,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByCpf(String cpf);
     Optional<User> findByInstitutionalEmailIgnoreCase(String institutionalEmail);
     List<User> findByRole(Role role);
+
+    @Query("select u.avatarHash from User u where u.id = :id and u.avatarHash is not null")
+    Optional<String> findAvatarHashById(@Param("id") Long id);
 }
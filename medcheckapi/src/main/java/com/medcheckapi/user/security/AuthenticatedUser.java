@@ -0,0 +1,75 @@
+package com.medcheckapi.user.security;
+
+import com.medcheckapi.user.model.Role;
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Principal autenticado com os dados que os controllers precisam para autorizar a requisição
+ * (id, papel e disciplinas vinculadas) sem reconsultar a tabela users. Estende o User do Spring
+ * para continuar compatível com parâmetros {@code @AuthenticationPrincipal} já existentes.
+ *
+ * disciplineIds: disciplinas em que o usuário é PRECEPTOR (discipline_preceptors) ou
+ * COORDENADOR (discipline_coordinators), conforme o papel atual.
+ */
+public class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_DISCIPLINES = "disc";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
+    private final Long id;
+    private final Role role;
+    private final Set<Long> disciplineIds;
+    private final int tokenVersion;
+
+    public AuthenticatedUser(Long id, String cpf, String password, Role role, Collection<Long> disciplineIds, int tokenVersion) {
+        super(cpf, password != null ? password : "", List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+        this.id = id;
+        this.role = role;
+        this.disciplineIds = Set.copyOf(disciplineIds);
+        this.tokenVersion = tokenVersion;
+    }
+
+    /**
+     * Reconstrói o principal a partir das claims do token, desde que tenham sido emitidas na versão atual
+     * do usuário; caso contrário (papel/vínculos alterados ou token antigo sem claims) devolve {@code current}.
+     */
+    public static AuthenticatedUser fromClaims(Claims claims, AuthenticatedUser current) {
+        Number uid = claims.get(CLAIM_USER_ID, Number.class);
+        Number ver = claims.get(CLAIM_TOKEN_VERSION, Number.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        if (uid == null || ver == null || role == null) return current;
+        if (ver.intValue() != current.getTokenVersion() || uid.longValue() != current.getId()) return current;
+        Set<Long> discs = new LinkedHashSet<>();
+        Object raw = claims.get(CLAIM_DISCIPLINES);
+        if (raw instanceof Collection<?> c) {
+            for (Object o : c) if (o instanceof Number n) discs.add(n.longValue());
+        }
+        try {
+            return new AuthenticatedUser(uid.longValue(), claims.getSubject(), "", Role.valueOf(role), discs, ver.intValue());
+        } catch (IllegalArgumentException ex) {
+            return current;
+        }
+    }
+
+    public Long getId() { return id; }
+    public Role getRole() { return role; }
+    public Set<Long> getDisciplineIds() { return disciplineIds; }
+    public int getTokenVersion() { return tokenVersion; }
+
+    public boolean hasRole(Role... roles) {
+        for (Role r : roles) if (r == role) return true;
+        return false;
+    }
+
+    public boolean isLinkedTo(Long disciplineId) {
+        return disciplineId != null && disciplineIds.contains(disciplineId);
+    }
+}
@@ -1,32 +1,50 @@
 package com.medcheckapi.user.security;
 
+import com.medcheckapi.user.model.Role;
 import com.medcheckapi.user.model.User;
+import com.medcheckapi.user.repository.DisciplineRepository;
 import com.medcheckapi.user.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private DisciplineRepository disciplineRepository;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
     @Override
     public UserDetails loadUserByUsername(String cpf) throws UsernameNotFoundException {
         // Defensive trim to avoid lookup failures due to accidental spaces
-    final String normalizedCpf = cpf != null ? cpf.replaceAll("\\D", "") : null;
-    System.out.println("[CustomUserDetailsService] loadUserByUsername raw='" + cpf + "' normalized='" + normalizedCpf + "' length=" + (normalizedCpf==null?0:normalizedCpf.length()));
-    // List stored CPFs for debugging (only in dev)
-    userRepository.findAll().forEach(u -> System.out.println("[CustomUserDetailsService] existing cpf='" + u.getCpf() + "' len=" + (u.getCpf()==null?0:u.getCpf().length())));
-    User user = userRepository.findByCpf(normalizedCpf)
-        .orElseThrow(() -> new UsernameNotFoundException("User not found with cpf: " + normalizedCpf));
-
-    return new org.springframework.security.core.userdetails.User(user.getCpf(), user.getPassword(), new ArrayList<>());
+        final String normalizedCpf = normalize(cpf);
+        log.debug("[CustomUserDetailsService] loadUserByUsername raw='{}' normalized='{}'", cpf, normalizedCpf);
+        User user = userRepository.findByCpf(normalizedCpf)
+            .orElseThrow(() -> new UsernameNotFoundException("User not found with cpf: " + normalizedCpf));
+
+        return toPrincipal(user);
+    }
+
+    /**
+     * Caminho usado pelo filtro JWT: resolve o principal pelo cache e só consulta o banco em caso de
+     * ausência/expiração. O login (AuthenticationManager) continua usando {@link #loadUserByUsername}.
+     */
+    public AuthenticatedUser loadCachedUserByCpf(String cpf) throws UsernameNotFoundException {
+        return (AuthenticatedUser) principalCache.get(normalize(cpf), this::loadUserByUsername);
     }
 
     public UserDetails loadUserById(Long id) {
@@ -34,6 +52,30 @@ public class CustomUserDetailsService implements UserDetailsService {
             () -> new UsernameNotFoundException("User not found with id : " + id)
         );
 
-        return new org.springframework.security.core.userdetails.User(user.getCpf(), user.getPassword(), new ArrayList<>());
+        return toPrincipal(user);
+    }
+
+    /**
+     * Papel ou vínculos de disciplina do usuário mudaram: incrementa a versão para que as claims
+     * dos tokens já emitidos sejam ignoradas e descarta o principal em cache.
+     */
+    public void invalidateClaims(User user) {
+        user.bumpTokenVersion();
+        userRepository.save(user);
+        principalCache.evict(user.getCpf());
+    }
+
+    private AuthenticatedUser toPrincipal(User user) {
+        Role role = user.getRole() != null ? user.getRole() : Role.ALUNO;
+        List<Long> disciplineIds = switch (role) {
+            case PRECEPTOR -> disciplineRepository.findIdsByPreceptorId(user.getId());
+            case COORDENADOR -> disciplineRepository.findIdsByCoordinatorId(user.getId());
+            default -> List.of();
+        };
+        return new AuthenticatedUser(user.getId(), user.getCpf(), user.getPassword(), role, disciplineIds, user.getTokenVersion());
+    }
+
+    private static String normalize(String cpf) {
+        return cpf != null ? cpf.replaceAll("\\D", "") : null;
     }
 }
@@ -1,5 +1,7 @@
 package com.medcheckapi.user.security;
 
+import com.medcheckapi.user.config.RequestTiming;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -26,13 +28,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
             throws ServletException, IOException {
+        // Server-Timing "auth": verificação do token + principal (cache ou banco); null quando desligado
+        RequestTiming timing = RequestTiming.current();
+        long authStart = timing == null ? 0 : System.nanoTime();
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
+            // Valida e extrai as claims numa única verificação (ou direto do cache de tokens verificados)
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.validateAndGetClaims(jwt) : null;
+            if (claims != null) {
                 // Extract cpf directly (we store cpf as subject in token)
-                String cpf = tokenProvider.getCpfFromJWT(jwt);
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(cpf);
+                String cpf = claims.getSubject();
+                // A versão em cache decide se as claims (id/papel/disciplinas) do token ainda valem
+                AuthenticatedUser current = customUserDetailsService.loadCachedUserByCpf(cpf);
+                UserDetails userDetails = AuthenticatedUser.fromClaims(claims, current);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -42,6 +51,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
         }
+        if (timing != null) timing.addAuth(System.nanoTime() - authStart);
 
         filterChain.doFilter(request, response);
     }
@@ -1,6 +1,8 @@
 package com.medcheckapi.user.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -10,7 +12,13 @@ import com.medcheckapi.user.config.props.AppProperties;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Component
 public class JwtTokenProvider {
@@ -18,10 +26,38 @@ public class JwtTokenProvider {
     @Autowired
     private AppProperties appProperties;
 
-    private javax.crypto.SecretKey key() {
+    // Chave/parser derivados uma única vez por segredo (recalculados apenas se app.jwt-secret mudar)
+    private record SigningState(String secret, javax.crypto.SecretKey key, JwtParser parser) {}
+    private volatile SigningState signing;
+
+    // Tokens já verificados: digest SHA-256 do token -> claims + expiração (LRU por ordem de acesso)
+    private record VerifiedToken(Claims claims, long expiresAt) {}
+    private final Map<String, VerifiedToken> verified = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+            return size() > tokenCacheSize();
+        }
+    };
+
+    private SigningState signing() {
+        String jwtSecret = appProperties.getJwtSecret();
+        SigningState s = signing;
+        if (s != null && s.secret().equals(jwtSecret)) return s;
+        synchronized (this) {
+            s = signing;
+            if (s == null || !s.secret().equals(jwtSecret)) {
+                javax.crypto.SecretKey key = deriveKey(jwtSecret);
+                s = new SigningState(jwtSecret, key, Jwts.parserBuilder().setSigningKey(key).build());
+                signing = s;
+                synchronized (verified) { verified.clear(); }
+            }
+            return s;
+        }
+    }
+
+    private static javax.crypto.SecretKey deriveKey(String jwtSecret) {
         // Accept plain text or Base64; if length < 64 bytes, pad by hashing style repetition (dev convenience)
-    String jwtSecret = appProperties.getJwtSecret();
-    byte[] raw = jwtSecret.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        byte[] raw = jwtSecret.getBytes(StandardCharsets.UTF_8);
         // If it's Base64 try decode (without failing if not)
         if (jwtSecret.matches("^[A-Za-z0-9+/=]+$")) {
             try { raw = Decoders.BASE64.decode(jwtSecret); } catch (IllegalArgumentException ignored) {}
@@ -40,34 +76,76 @@ public class JwtTokenProvider {
         org.springframework.security.core.userdetails.User userPrincipal = (org.springframework.security.core.userdetails.User) authentication.getPrincipal();
 
         Date now = new Date();
-    Date expiryDate = new Date(now.getTime() + appProperties.getJwtExpirationInMs());
-
-    return Jwts.builder()
-        .setSubject(userPrincipal.getUsername())
-        .setIssuedAt(new Date())
-        .setExpiration(expiryDate)
-        .signWith(key(), SignatureAlgorithm.HS512)
-        .compact();
+        Date expiryDate = new Date(now.getTime() + appProperties.getJwtExpirationInMs());
+
+        JwtBuilder builder = Jwts.builder()
+            .setSubject(userPrincipal.getUsername())
+            .setIssuedAt(now)
+            .setExpiration(expiryDate);
+        // Id, papel e disciplinas vinculadas viajam no token; "ver" permite ignorá-las após mudanças de papel/vínculo
+        if (userPrincipal instanceof AuthenticatedUser au) {
+            builder.claim(AuthenticatedUser.CLAIM_USER_ID, au.getId())
+                .claim(AuthenticatedUser.CLAIM_ROLE, au.getRole().name())
+                .claim(AuthenticatedUser.CLAIM_DISCIPLINES, au.getDisciplineIds())
+                .claim(AuthenticatedUser.CLAIM_TOKEN_VERSION, au.getTokenVersion());
+        }
+        return builder.signWith(signing().key(), SignatureAlgorithm.HS512).compact();
     }
 
-    public String getCpfFromJWT(String token) {
-    Claims claims = Jwts.parserBuilder()
-        .setSigningKey(key())
-        .build()
-        .parseClaimsJws(token)
-        .getBody();
+    /**
+     * Valida assinatura/expiração e devolve as claims em uma única passada; {@code null} se o token for inválido.
+     * Tokens já verificados e ainda não expirados são atendidos pelo cache, sem refazer o HMAC.
+     */
+    public Claims validateAndGetClaims(String token) {
+        if (token == null || token.isEmpty()) return null;
+        SigningState s = signing();
+        boolean useCache = tokenCacheSize() > 0;
+        String digest = useCache ? digest(token) : null;
+        long now = System.currentTimeMillis();
+        if (useCache) {
+            VerifiedToken hit;
+            synchronized (verified) { hit = verified.get(digest); }
+            if (hit != null) {
+                if (hit.expiresAt() > now) return hit.claims();
+                synchronized (verified) { verified.remove(digest); }
+                return null;
+            }
+        }
+        Claims claims;
+        try {
+            claims = s.parser().parseClaimsJws(token).getBody();
+        } catch (Exception ex) {
+            // MalformedJwtException, ExpiredJwtException, UnsupportedJwtException, IllegalArgumentException
+            return null;
+        }
+        if (useCache) {
+            Date exp = claims.getExpiration();
+            long expiresAt = exp != null ? exp.getTime() : now + appProperties.getJwtExpirationInMs();
+            synchronized (verified) { verified.put(digest, new VerifiedToken(claims, expiresAt)); }
+        }
+        return claims;
+    }
 
+    public String getCpfFromJWT(String token) {
+        Claims claims = validateAndGetClaims(token);
+        if (claims == null) throw new IllegalArgumentException("Token JWT inválido");
         return claims.getSubject();
     }
 
-
     public boolean validateToken(String authToken) {
+        return validateAndGetClaims(authToken) != null;
+    }
+
+    private int tokenCacheSize() {
+        return appProperties.getAuth().getTokenCacheSize();
+    }
+
+    private static String digest(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key()).build().parseClaimsJws(authToken);
-            return true;
-        } catch (Exception ex) {
-            // MalformedJwtException, ExpiredJwtException, UnsupportedJwtException, IllegalArgumentException
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        return false;
     }
 }
@@ -0,0 +1,84 @@
+package com.medcheckapi.user.security;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache em memória dos principals autenticados, indexado pelo CPF (subject do JWT).
+ * Evita consultar a tabela users a cada requisição Bearer. Entradas expiram por TTL e
+ * são removidas explicitamente quando o papel, a senha ou a existência do usuário mudam.
+ */
+@Component
+public class PrincipalCache {
+
+    private record Entry(UserDetails principal, long expiresAt) {}
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LongSupplier currentTimeMillis;
+
+    public PrincipalCache(AppProperties appProperties) {
+        this(appProperties, System::currentTimeMillis);
+    }
+
+    PrincipalCache(AppProperties appProperties, LongSupplier currentTimeMillis) {
+        this.currentTimeMillis = currentTimeMillis;
+        this.ttlMillis = Math.max(0, appProperties.getAuth().getPrincipalCacheTtlSeconds()) * 1000L;
+        this.maxEntries = Math.max(1, appProperties.getAuth().getPrincipalCacheMaxEntries());
+    }
+
+    public UserDetails get(String cpf, Function<String, UserDetails> loader) {
+        if (cpf == null || ttlMillis == 0) return loader.apply(cpf);
+        long now = currentTimeMillis.getAsLong();
+        Entry e = entries.get(cpf);
+        if (e != null && e.expiresAt() > now) return e.principal();
+        UserDetails loaded = loader.apply(cpf);
+        if (entries.size() >= maxEntries) shrink(now);
+        entries.put(cpf, new Entry(loaded, now + ttlMillis));
+        return loaded;
+    }
+
+    /**
+     * Remove o principal do CPF informado. Dentro de uma transação a remoção é repetida após o commit,
+     * para que uma requisição concorrente não recoloque no cache o estado anterior à alteração.
+     */
+    public void evict(String cpf) {
+        if (cpf == null) return;
+        entries.remove(cpf);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { entries.remove(cpf); }
+            });
+        }
+    }
+
+    public void evictAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Descarta expirados; se ainda estiver cheio, remove ~10% das entradas para abrir espaço
+    private void shrink(long now) {
+        entries.values().removeIf(e -> e.expiresAt() <= now);
+        int excess = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<String> it = entries.keySet().iterator();
+        while (excess-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.medcheckapi.user.security;
+
+import com.medcheckapi.user.model.Role;
+import io.jsonwebtoken.Claims;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Autenticação/autorização STOMP. No CONNECT lê {@code Authorization: Bearer <jwt>} dos headers nativos e
+ * monta o mesmo {@link AuthenticatedUser} do {@link JwtAuthenticationFilter}; sem token a conexão segue
+ * anônima (chat público). Assinaturas em /topic/ são negadas por padrão; liberados só:
+ * <ul>
+ *   <li>tópicos do chat ({@link #CHAT_TOPICS}), para qualquer conexão;</li>
+ *   <li>/topic/preceptor/{id} (e /app/preceptor/{id}/snapshot): o próprio preceptor, COORDENADOR ou ADMIN;</li>
+ *   <li>/topic/discipline/{id} (e /app/discipline/{id}/snapshot): ADMIN ou preceptor/coordenador vinculado.</li>
+ * </ul>
+ * Destinos com curinga (*, ?, {) são recusados: o broker simples trata o destino do SUBSCRIBE como padrão
+ * e /topic/preceptor/* receberia o tópico de todos os preceptores. Clientes não publicam (SEND) direto em
+ * /topic/ (o chat passa por /app/chat.*).
+ */
+@Component
+public class StompJwtChannelInterceptor implements ChannelInterceptor {
+
+    static final Set<String> CHAT_TOPICS = Set.of("/topic/public");
+
+    private static final Pattern LIVE_DESTINATION =
+            Pattern.compile("^/(?:topic|app)/(preceptor|discipline)/(\\d+)(?:/snapshot)?$");
+
+    private final JwtTokenProvider tokenProvider;
+    private final CustomUserDetailsService userDetailsService;
+
+    public StompJwtChannelInterceptor(JwtTokenProvider tokenProvider, CustomUserDetailsService userDetailsService) {
+        this.tokenProvider = tokenProvider;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) return message;
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.CONNECT) {
+            AuthenticatedUser user = authenticate(accessor.getFirstNativeHeader("Authorization"));
+            if (user != null) {
+                accessor.setUser(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+            }
+        } else if (command == StompCommand.SUBSCRIBE) {
+            authorizeSubscribe(accessor.getDestination(), accessor.getUser());
+        } else if (command == StompCommand.SEND) {
+            String destination = accessor.getDestination();
+            if (destination != null && destination.startsWith("/topic/")) {
+                throw new AccessDeniedException("Publicação não permitida em " + destination);
+            }
+        }
+        return message;
+    }
+
+    private AuthenticatedUser authenticate(String header) {
+        if (!StringUtils.hasText(header) || !header.startsWith("Bearer ")) return null;
+        Claims claims = tokenProvider.validateAndGetClaims(header.substring(7));
+        if (claims == null) throw new AccessDeniedException("Token inválido ou expirado");
+        AuthenticatedUser current = userDetailsService.loadCachedUserByCpf(claims.getSubject());
+        return AuthenticatedUser.fromClaims(claims, current);
+    }
+
+    void authorizeSubscribe(String destination, Principal principal) {
+        if (destination == null || destination.indexOf('*') >= 0 || destination.indexOf('?') >= 0 || destination.indexOf('{') >= 0) {
+            throw new AccessDeniedException("Acesso negado a " + destination);
+        }
+        if (CHAT_TOPICS.contains(destination)) return;
+        boolean live = destination.startsWith("/topic/") || destination.startsWith("/app/preceptor") || destination.startsWith("/app/discipline");
+        if (!live) return;
+        Matcher m = LIVE_DESTINATION.matcher(destination);
+        AuthenticatedUser user = principal instanceof UsernamePasswordAuthenticationToken t
+                && t.getPrincipal() instanceof AuthenticatedUser u ? u : null;
+        if (!m.matches() || user == null) throw new AccessDeniedException("Acesso negado a " + destination);
+        Long id = Long.valueOf(m.group(2));
+        boolean allowed = "preceptor".equals(m.group(1))
+                ? user.hasRole(Role.ADMIN, Role.COORDENADOR) || (user.getRole() == Role.PRECEPTOR && id.equals(user.getId()))
+                : user.hasRole(Role.ADMIN) || (user.hasRole(Role.PRECEPTOR, Role.COORDENADOR) && user.isLinkedTo(id));
+        if (!allowed) throw new AccessDeniedException("Acesso negado a " + destination);
+    }
+}
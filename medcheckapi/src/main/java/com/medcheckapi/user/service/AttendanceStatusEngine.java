@@ -0,0 +1,99 @@
+package com.medcheckapi.user.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Status de frequência por dia (cores do calendário), sem efeitos colaterais:
+ * <ul>
+ *   <li>ORANGE: há justificativa (domina)</li>
+ *   <li>NONE: nada planejado</li>
+ *   <li>BLUE: futuro, ou hoje antes do início / dentro da tolerância sem check-in</li>
+ *   <li>RED: nada trabalhado (passado, hoje após a janela ou após a tolerância de atraso)</li>
+ *   <li>YELLOW / GREEN: trabalhou menos / pelo menos o planejado</li>
+ * </ul>
+ * "Agora" vem do {@link Clock} injetado e é lido uma vez por lote ({@link #evaluate}); as variantes com
+ * {@code now} explícito permitem reavaliar dados históricos em qualquer instante.
+ */
+@Component
+public class AttendanceStatusEngine {
+
+    // Minutos de tolerância após o horário inicial planejado antes de marcar FALTOU se não houve qualquer trabalho
+    static final int LATE_START_GRACE_MINUTES = 1;
+
+    public enum Status { NONE, BLUE, RED, YELLOW, GREEN, ORANGE }
+
+    /**
+     * Dias consecutivos a partir de firstDay em arrays paralelos (mesmo tamanho). worked já arredondado;
+     * earliestStart/latestEnd podem ter null (dia sem janela planejada).
+     */
+    public record Days(LocalDate firstDay, long[] planned, long[] worked, boolean[] justified,
+                       LocalTime[] earliestStart, LocalTime[] latestEnd) {
+        public int size() { return planned.length; }
+    }
+
+    private final Clock clock;
+
+    public AttendanceStatusEngine(Clock clock) {
+        this.clock = clock;
+    }
+
+    public LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    public LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    /** Avalia o lote no instante atual do relógio. */
+    public Status[] evaluate(Days days) {
+        return evaluate(days, now());
+    }
+
+    public static Status[] evaluate(Days days, LocalDateTime now) {
+        int n = days.size();
+        Status[] out = new Status[n];
+        LocalDate today = now.toLocalDate();
+        long todayIndex = today.toEpochDay() - days.firstDay().toEpochDay();
+        LocalTime time = now.toLocalTime();
+        for (int i = 0; i < n; i++) {
+            long planned = days.planned()[i];
+            long worked = days.worked()[i];
+            if (days.justified()[i]) out[i] = Status.ORANGE;
+            else if (planned <= 0) out[i] = Status.NONE;
+            else if (i > todayIndex) out[i] = Status.BLUE;
+            else if (i < todayIndex) out[i] = worked <= 0 ? Status.RED : completion(planned, worked);
+            else out[i] = today(planned, worked, days.earliestStart()[i], days.latestEnd()[i], time);
+        }
+        return out;
+    }
+
+    /** Um único dia no instante informado. */
+    public static Status status(LocalDate day, LocalDateTime now, long planned, long worked, boolean justified,
+                                LocalTime earliestStart, LocalTime latestEnd) {
+        return evaluate(new Days(day, new long[]{planned}, new long[]{worked}, new boolean[]{justified},
+                new LocalTime[]{earliestStart}, new LocalTime[]{latestEnd}), now)[0];
+    }
+
+    private static Status completion(long planned, long worked) {
+        return worked < planned ? Status.YELLOW : Status.GREEN;
+    }
+
+    // Dia atual: com qualquer trabalho vale YELLOW/GREEN; sem trabalho depende da janela planejada e da tolerância
+    private static Status today(long planned, long worked, LocalTime earliestStart, LocalTime latestEnd, LocalTime now) {
+        if (earliestStart == null || latestEnd == null) {
+            // Sem janelas: fallback agregado (ainda em andamento)
+            return worked <= 0 ? Status.BLUE : completion(planned, worked);
+        }
+        if (now.isBefore(earliestStart)) return Status.BLUE; // ainda vai começar
+        if (now.isAfter(latestEnd)) return worked <= 0 ? Status.RED : completion(planned, worked);
+        if (worked > 0) return completion(planned, worked);
+        // Ainda nenhum check-in dentro da janela: atraso após a tolerância
+        return now.isAfter(earliestStart.plusMinutes(LATE_START_GRACE_MINUTES)) ? Status.RED : Status.BLUE;
+    }
+}
@@ -0,0 +1,208 @@
+package com.medcheckapi.user.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Fotos de perfil fora da tabela users: avatar_blobs guarda a imagem original e as miniaturas
+ * ({@link #SIZES}, lado maior em px) endereçadas pelo SHA-256 do original. O usuário guarda só
+ * avatar_hash/avatar_size/avatar_content_type — carregar um User (login, joins de sessão, findAll) não traz bytes.
+ *
+ * Miniaturas são geradas uma vez no upload; formatos que o ImageIO não lê (ex.: webp) ficam só com o original,
+ * e {@link #find} cai para ele. Mesmo conteúdo enviado por dois usuários é gravado uma única vez;
+ * {@link #release} apaga o hash quando nenhum usuário o referencia mais.
+ */
+@Service
+public class AvatarStore {
+
+    private static final Logger log = LoggerFactory.getLogger(AvatarStore.class);
+
+    /** Variante 0 = original. */
+    public static final int ORIGINAL = 0;
+    public static final int[] SIZES = {64, 256};
+    // Imagens maiores que isso (em pixels) não são decodificadas para miniatura: evita estourar memória
+    private static final long MAX_DECODE_PIXELS = 40_000_000L;
+
+    private static final String INSERT = """
+            INSERT INTO avatar_blobs (hash, variant, content_type, byte_size, data)
+            VALUES (:hash, :variant, :ct, :size, :data)
+            ON DUPLICATE KEY UPDATE hash = hash
+            """;
+
+    /** Resultado do upload: o que vai para a linha do usuário. */
+    public record Stored(String hash, int size, String contentType) {}
+
+    /** Metadados da variante escolhida (sem os bytes). */
+    public record Variant(String hash, int variant, String contentType, long size) {
+        public String etag() { return "\"" + hash + "-" + variant + "\""; }
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public AvatarStore(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Grava original e miniaturas (se ainda não existirem) e devolve o hash. */
+    public Stored put(byte[] bytes, String contentType) {
+        String hash = sha256(bytes);
+        Integer exists = jdbc.queryForObject("SELECT COUNT(*) FROM avatar_blobs WHERE hash = :hash AND variant = 0",
+                new MapSqlParameterSource("hash", hash), Integer.class);
+        if (exists == null || exists == 0) {
+            insert(hash, ORIGINAL, contentType, bytes);
+            BufferedImage img = decode(bytes);
+            if (img != null) {
+                for (int size : SIZES) {
+                    if (Math.max(img.getWidth(), img.getHeight()) <= size) continue; // original já serve
+                    boolean alpha = img.getColorModel().hasAlpha();
+                    byte[] thumb = encode(scale(img, size), alpha ? "png" : "jpg");
+                    if (thumb != null) insert(hash, size, alpha ? "image/png" : "image/jpeg", thumb);
+                }
+            }
+        }
+        return new Stored(hash, bytes.length, contentType);
+    }
+
+    /**
+     * Variante para o tamanho pedido (null = original): a menor miniatura com lado &gt;= size;
+     * se não houver miniatura gravada, o original.
+     */
+    public Variant find(String hash, Integer size) {
+        if (hash == null) return null;
+        int wanted = ORIGINAL;
+        if (size != null && size > 0) {
+            for (int s : SIZES) {
+                if (s >= size) { wanted = s; break; }
+            }
+        }
+        List<Variant> rows = jdbc.query("""
+                SELECT hash, variant, content_type, byte_size FROM avatar_blobs
+                WHERE hash = :hash AND variant IN (0, :variant)
+                ORDER BY variant DESC LIMIT 1
+                """, new MapSqlParameterSource("hash", hash).addValue("variant", wanted),
+                (rs, i) -> new Variant(rs.getString("hash"), rs.getInt("variant"),
+                        rs.getString("content_type"), rs.getLong("byte_size")));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /** Copia os bytes da variante para o stream, sem montar um byte[] intermediário. */
+    public void copy(Variant v, OutputStream out) {
+        jdbc.query("SELECT data FROM avatar_blobs WHERE hash = :hash AND variant = :variant",
+                new MapSqlParameterSource("hash", v.hash()).addValue("variant", v.variant()), rs -> {
+                    try (InputStream in = rs.getBinaryStream("data")) {
+                        in.transferTo(out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /** Apaga o hash (todas as variantes) se nenhum usuário o referencia. Chamar depois de salvar o usuário. */
+    public void release(String hash) {
+        if (hash == null) return;
+        jdbc.update("DELETE FROM avatar_blobs WHERE hash = :hash " +
+                "AND NOT EXISTS (SELECT 1 FROM users WHERE avatar_hash = :hash)", new MapSqlParameterSource("hash", hash));
+    }
+
+    /** Remove blobs órfãos (ex.: cadastro que falhou depois do upload). */
+    @EventListener(ApplicationReadyEvent.class)
+    public void purgeOrphans() {
+        int n = jdbc.getJdbcTemplate().update("DELETE FROM avatar_blobs WHERE hash NOT IN " +
+                "(SELECT avatar_hash FROM users WHERE avatar_hash IS NOT NULL)");
+        if (n > 0) log.info("[AVATAR] {} blobs órfãos removidos", n);
+    }
+
+    private void insert(String hash, int variant, String contentType, byte[] data) {
+        jdbc.update(INSERT, new MapSqlParameterSource("hash", hash)
+                .addValue("variant", variant)
+                .addValue("ct", contentType)
+                .addValue("size", data.length)
+                .addValue("data", data));
+    }
+
+    static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    // null se o formato não for suportado, a imagem for inválida ou grande demais para decodificar
+    static BufferedImage decode(byte[] bytes) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_DECODE_PIXELS) return null;
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("[AVATAR] Imagem não decodificada: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Reduz pela metade até chegar perto do alvo (bilinear direto para 64px a partir de fotos grandes serrilha)
+    static BufferedImage scale(BufferedImage src, int maxSide) {
+        int type = src.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        double ratio = (double) maxSide / Math.max(src.getWidth(), src.getHeight());
+        int targetW = Math.max(1, (int) Math.round(src.getWidth() * ratio));
+        int targetH = Math.max(1, (int) Math.round(src.getHeight() * ratio));
+        BufferedImage cur = src;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        do {
+            w = Math.max(targetW, w / 2);
+            h = Math.max(targetH, h / 2);
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(cur, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            cur = next;
+        } while (w != targetW || h != targetH);
+        return cur;
+    }
+
+    private static byte[] encode(BufferedImage img, String format) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            return ImageIO.write(img, format, out) ? out.toByteArray() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
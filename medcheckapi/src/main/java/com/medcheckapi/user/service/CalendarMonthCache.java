@@ -0,0 +1,86 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Cache da visão mensal do calendário ({@link CalendarService#monthView}) por aluno, mês e disciplina
+ * (null = visão geral). Meses passados ficam até serem alterados; o mês corrente e os futuros dependem do
+ * relógio e usam TTL curto. LRU limitado por {@code app.calendar.month-cache-max-entries}.
+ *
+ * A invalidação vem do {@link CalendarSummaryService}: todo recálculo de dias (check-out, auto-fechamento,
+ * planos e justificativas) remove os meses afetados do aluno, na disciplina e na visão geral.
+ */
+@Component
+public class CalendarMonthCache {
+
+    public record Key(Long alunoId, int year, int month, Long disciplineId) {}
+
+    private record Entry(Map<String, Object> view, long expiresAt) {}
+
+    private final Map<Key, Entry> entries;
+    private final long currentTtlMillis;
+    private final Clock clock;
+    // Incrementado a cada invalidação: um cálculo que cruzou uma escrita não é guardado
+    private long generation;
+
+    public CalendarMonthCache(AppProperties appProperties, Clock clock) {
+        this.clock = clock;
+        int maxEntries = Math.max(1, appProperties.getCalendar().getMonthCacheMaxEntries());
+        this.currentTtlMillis = Math.max(0, appProperties.getCalendar().getCurrentMonthTtlSeconds()) * 1000L;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public Map<String, Object> get(Key key, Supplier<Map<String, Object>> loader) {
+        boolean closed = YearMonth.of(key.year(), key.month()).isBefore(YearMonth.now(clock));
+        if (!closed && currentTtlMillis == 0) return loader.get();
+        long now = clock.millis();
+        long seen;
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null && e.expiresAt() > now) return e.view();
+            seen = generation;
+        }
+        Map<String, Object> view = loader.get();
+        synchronized (this) {
+            if (seen == generation) {
+                entries.put(key, new Entry(view, closed ? Long.MAX_VALUE : now + currentTtlMillis));
+            }
+        }
+        return view;
+    }
+
+    /** Remove os meses de [from..to] do aluno na disciplina informada (null = sem disciplina) e na visão geral. */
+    public synchronized void evict(Long alunoId, Long disciplineId, LocalDate from, LocalDate to) {
+        generation++;
+        YearMonth first = YearMonth.from(from);
+        YearMonth last = YearMonth.from(to);
+        entries.keySet().removeIf(k -> k.alunoId().equals(alunoId)
+                && (k.disciplineId() == null || Objects.equals(k.disciplineId(), disciplineId))
+                && !YearMonth.of(k.year(), k.month()).isBefore(first)
+                && !YearMonth.of(k.year(), k.month()).isAfter(last));
+    }
+
+    /** Remove todos os meses do aluno (recálculo completo). */
+    public synchronized void evict(Long alunoId) {
+        generation++;
+        entries.keySet().removeIf(k -> k.alunoId().equals(alunoId));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -1,24 +1,29 @@
 package com.medcheckapi.user.service;
 
+import com.medcheckapi.user.dto.CalendarDayDto;
+import com.medcheckapi.user.dto.DisciplineRef;
+import com.medcheckapi.user.dto.JustificationDto;
+import com.medcheckapi.user.dto.PlanDto;
 import com.medcheckapi.user.model.*;
 import com.medcheckapi.user.repository.*;
+import io.micrometer.core.instrument.Tags;
 import org.springframework.stereotype.Service;
 
 import java.time.*;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class CalendarService {
     private final InternshipPlanRepository planRepo;
     private final InternshipJustificationRepository justRepo;
-    private final CheckSessionRepository sessionRepo;
-    private static final ZoneId ZONE = ZoneId.of("GMT-5");
-    // Minutos de tolerância após o horário inicial planejado antes de marcar FALTOU se não houve qualquer trabalho
-    private static final int LATE_START_GRACE_MINUTES = 1;
+    private final CalendarSummaryService summaries;
+    private final CalendarMonthCache monthCache;
+    private final AttendanceStatusEngine statusEngine;
+    private final HotPathMetrics metrics;
 
-    public CalendarService(InternshipPlanRepository planRepo, InternshipJustificationRepository justRepo, CheckSessionRepository sessionRepo) {
-        this.planRepo = planRepo; this.justRepo = justRepo; this.sessionRepo = sessionRepo;
+    public CalendarService(InternshipPlanRepository planRepo, InternshipJustificationRepository justRepo, CalendarSummaryService summaries, CalendarMonthCache monthCache, AttendanceStatusEngine statusEngine, HotPathMetrics metrics) {
+        this.planRepo = planRepo; this.justRepo = justRepo; this.summaries = summaries; this.monthCache = monthCache; this.statusEngine = statusEngine;
+        this.metrics = metrics;
     }
 
     // Backward compatible adapter (deprecated use with forced discipline param)
@@ -28,6 +33,20 @@ public class CalendarService {
     }
 
     public Map<String,Object> monthView(User aluno, int year, int month, Discipline forced) {
+        CalendarMonthCache.Key key = new CalendarMonthCache.Key(aluno.getId(), year, month, forced == null ? null : forced.getId());
+        // Loader só roda no miss: a tag cache separa a latência do cache da do cálculo (duas consultas + resumo)
+        boolean[] computed = {false};
+        long start = System.nanoTime();
+        Map<String,Object> view = monthCache.get(key, () -> {
+            computed[0] = true;
+            return computeMonthView(aluno, year, month, forced);
+        });
+        metrics.record("medcheck.calendar.month", Tags.of("view", forced == null ? "general" : "discipline",
+                "cache", computed[0] ? "miss" : "hit"), System.nanoTime() - start);
+        return view;
+    }
+
+    private Map<String,Object> computeMonthView(User aluno, int year, int month, Discipline forced) {
         YearMonth ym = YearMonth.of(year, month);
         LocalDate start = ym.atDay(1);
         LocalDate end = ym.atEndOfMonth();
@@ -39,202 +58,47 @@ public class CalendarService {
         // Novo ajuste:
         //  - effective == null => visão geral: retorna todos os planos (todas as disciplinas + NULL)
         //  - effective != null (filtragem explícita) => retorna apenas planos daquela disciplina (SEM incluir NULL)
-        List<InternshipPlan> plans = planRepo.findByAlunoAndDateBetweenOrderByDateAsc(aluno, start, end)
-            .stream().filter(p -> effective == null || (p.getDiscipline() != null && p.getDiscipline().getId().equals(effective.getId())))
-            .toList();
-        List<InternshipJustification> justs = justRepo.findByAlunoAndDateBetweenOrderByDateAsc(aluno, start, end)
-            .stream().filter(j -> effective == null || (j.getDiscipline() != null && j.getDiscipline().getId().equals(effective.getId())))
-            .toList();
-        List<CheckSession> sessions = (effective == null)
-            ? sessionRepo.findByAlunoAndCheckInTimeBetweenOrderByCheckInTimeDesc(aluno, start.atStartOfDay(), end.atTime(23,59,59))
-            : sessionRepo.findByAlunoAndDisciplineAndCheckInTimeBetweenOrderByCheckInTimeDesc(aluno, effective, start.atStartOfDay(), end.atTime(23,59,59));
-
-        Map<LocalDate, Long> plannedByDay = plans.stream().collect(Collectors.groupingBy(InternshipPlan::getDate, Collectors.summingLong(InternshipPlan::getPlannedSeconds)));
-        // Mapear menor horário de início e maior horário de fim por dia (para distinguir "futuro" de "faltou" no próprio dia)
-        Map<LocalDate, LocalTime> earliestStartByDay = new HashMap<>();
-        Map<LocalDate, LocalTime> latestEndByDay = new HashMap<>();
-        for (InternshipPlan p : plans) {
-            LocalDate d = p.getDate();
-            LocalTime s = p.getStartTime();
-            LocalTime e = p.getEndTime();
-            if (s != null) {
-                earliestStartByDay.merge(d, s, (oldV, newV) -> newV.isBefore(oldV) ? newV : oldV);
-            }
-            if (e != null) {
-                if (s != null && s.isAfter(e)) {
-                    e = LocalTime.of(23,59); // overnight: usar 23:59 como limite do dia
-                }
-                LocalTime finalEnd = e;
-                latestEndByDay.merge(d, finalEnd, (oldV, newV) -> newV.isAfter(oldV) ? newV : oldV);
+        // Planos e justificativas vêm direto das projeções (DTOs), sem carregar entidades nem montar mapas por linha
+        Long disciplineId = effective == null ? null : effective.getId();
+        List<PlanDto> plans = planRepo.findMonthRows(aluno.getId(), start, end, disciplineId);
+        List<JustificationDto> justs = justRepo.findMonthRows(aluno.getId(), start, end, disciplineId);
+        // Totais por dia vêm do resumo materializado (calendar_day_summaries); só o status depende do relógio.
+        // Visão geral: soma as disciplinas do dia (no máximo uma justificativa por aluno/dia)
+        int n = ym.lengthOfMonth();
+        long[] planned = new long[n];
+        long[] worked = new long[n];
+        boolean[] justified = new boolean[n];
+        String[] justStatus = new String[n];
+        LocalTime[] earliest = new LocalTime[n];
+        LocalTime[] latest = new LocalTime[n];
+        for (CalendarSummaryService.DaySummary r : summaries.month(aluno.getId(), disciplineId, ym)) {
+            int i = r.day().getDayOfMonth() - 1;
+            planned[i] += r.plannedSeconds();
+            worked[i] += r.workedSeconds();
+            if (r.justificationStatus() != null) {
+                justified[i] = true;
+                justStatus[i] = r.justificationStatus();
             }
+            if (r.earliestStart() != null && (earliest[i] == null || r.earliestStart().isBefore(earliest[i]))) earliest[i] = r.earliestStart();
+            if (r.latestEnd() != null && (latest[i] == null || r.latestEnd().isAfter(latest[i]))) latest[i] = r.latestEnd();
         }
-        Map<LocalDate, Long> workedByDay = computeWorkedByDay(sessions, start, end);
-        Map<LocalDate, List<InternshipJustification>> justByDay = justs.stream().collect(Collectors.groupingBy(InternshipJustification::getDate));
+        for (int i = 0; i < n; i++) worked[i] = WorkedTimeEngine.roundToMinute(worked[i]);
+        AttendanceStatusEngine.Status[] status = statusEngine.evaluate(
+            new AttendanceStatusEngine.Days(start, planned, worked, justified, earliest, latest));
 
-        List<Map<String,Object>> days = new ArrayList<>();
-        LocalDate today = LocalDate.now(ZONE);
-        for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
-            long planned = plannedByDay.getOrDefault(d, 0L);
-            long worked = workedByDay.getOrDefault(d, 0L);
-            List<InternshipJustification> ds = justByDay.getOrDefault(d, Collections.emptyList());
-            String status = computeStatus(d, today, planned, worked, ds, earliestStartByDay.get(d), latestEndByDay.get(d));
-            Map<String,Object> item = new HashMap<>();
-            item.put("date", d.toString());
-            item.put("plannedSeconds", planned);
-            item.put("workedSeconds", worked);
-            item.put("status", status);
-            if (!ds.isEmpty()) {
-                item.put("justificationStatus", ds.get(0).getStatus());
-            }
-            days.add(item);
+        List<CalendarDayDto> days = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            days.add(new CalendarDayDto(start.plusDays(i).toString(), planned[i], worked[i], status[i].name(), justStatus[i]));
         }
 
         Map<String,Object> out = new HashMap<>();
         out.put("year", year); out.put("month", month);
         out.put("days", days);
-        out.put("plans", plans.stream().map(this::planToMap).toList());
-        out.put("justifications", justs.stream().map(this::justToMap).toList());
+        out.put("plans", plans);
+        out.put("justifications", justs);
         if (effective != null) {
-            out.put("forcedDiscipline", Map.of(
-                "id", effective.getId(),
-                "code", effective.getCode(),
-                "name", effective.getName()
-            ));
+            out.put("forcedDiscipline", new DisciplineRef(effective.getId(), effective.getCode(), effective.getName()));
         }
         return out;
     }
-
-    private String computeStatus(LocalDate day, LocalDate today, long planned, long worked, List<InternshipJustification> justs,
-                                 LocalTime earliestStart, LocalTime latestEnd) {
-        boolean hasAnyJust = !justs.isEmpty();
-        if (hasAnyJust) return "ORANGE"; // justificativa domina
-        if (planned <= 0) return "NONE";
-        if (day.isAfter(today)) return "BLUE"; // qualquer coisa no futuro
-
-        // Passado (ontem ou antes)
-        if (day.isBefore(today)) {
-            if (worked <= 0) return "RED"; // nada feito
-            if (worked < planned) return "YELLOW"; // fez algo mas não completou
-            return "GREEN"; // completou ou excedeu
-        }
-
-    // Dia atual: regra solicitada -> se houve qualquer check-in (worked>0):
-    //   - se worked < planned => INCOMPLETO (YELLOW)
-    //   - se worked >= planned => CUMPRIDO (GREEN)
-    // Caso contrário (worked==0) aplica lógica temporal (BLUE futuro / RED após janela / BLUE dentro da janela antes de check-in com tolerância).
-    // Mantemos contudo parte da granularidade para transição automática para RED quando passa a janela completa sem check-in.
-        LocalTime now = LocalTime.now(ZONE);
-        // Se não temos janelas, usar fallback agregado
-        if (earliestStart == null || latestEnd == null) {
-            if (worked <= 0) return "BLUE"; // sem info granular, considerar ainda futuro/andamento
-            if (worked < planned) return "YELLOW"; // começou e não terminou
-            return "GREEN";
-        }
-        // Antes de começar qualquer intervalo previsto
-        if (now.isBefore(earliestStart)) {
-            return "BLUE"; // ainda vai começar
-        }
-        // Após terminar todas as janelas previstas
-        if (now.isAfter(latestEnd)) {
-            if (worked <= 0) return "RED"; // perdeu tudo
-            if (worked < planned) return "YELLOW"; // fez parcial
-            return "GREEN"; // completou
-        }
-        // Se já existe qualquer worked > 0 ignoramos o estado futuro e passamos direto para YELLOW/GREEN
-        if (worked > 0) {
-            if (worked < planned) return "YELLOW";
-            return "GREEN";
-        }
-        // Ainda nenhum check-in dentro da janela
-        if (earliestStart != null) {
-            LocalTime graceLimit = earliestStart.plusMinutes(LATE_START_GRACE_MINUTES);
-            if (now.isAfter(graceLimit)) {
-                return "RED"; // atraso após tolerância sem check-in
-            }
-        }
-        return "BLUE"; // aguardando primeiro check-in
-    }
-
-    private Map<String,Object> planToMap(InternshipPlan p) {
-        Map<String,Object> m = new HashMap<>();
-        m.put("id", p.getId());
-        m.put("date", p.getDate().toString());
-        m.put("startTime", p.getStartTime().toString());
-        m.put("endTime", p.getEndTime().toString());
-        m.put("location", p.getLocation());
-        m.put("note", p.getNote());
-        long secs = p.getPlannedSeconds();
-        if (secs < 0 && p.getStartTime() != null && p.getEndTime() != null) {
-            // segurança extra: overnight não tratado por algum motivo => soma 24h
-            secs += 24 * 3600;
-        }
-        m.put("plannedSeconds", secs);
-        if (p.getWeekNumber() != null) m.put("weekNumber", p.getWeekNumber());
-        if (p.getDiscipline() != null) {
-            m.put("discipline", Map.of(
-                "id", p.getDiscipline().getId(),
-                "code", p.getDiscipline().getCode(),
-                "name", p.getDiscipline().getName()
-            ));
-        }
-        return m;
-    }
-
-    private Map<String,Object> justToMap(InternshipJustification j) {
-        Map<String,Object> m = new HashMap<>();
-        m.put("id", j.getId());
-        m.put("date", j.getDate().toString());
-        m.put("type", j.getType());
-        m.put("reason", j.getReason());
-        m.put("status", j.getStatus());
-        m.put("reviewNote", j.getReviewNote());
-        m.put("planId", j.getPlan() == null ? null : j.getPlan().getId());
-        if (j.getDiscipline() != null) {
-            m.put("discipline", Map.of(
-                "id", j.getDiscipline().getId(),
-                "code", j.getDiscipline().getCode(),
-                "name", j.getDiscipline().getName()
-            ));
-        }
-        return m;
-    }
-
-    private Map<LocalDate, Long> computeWorkedByDay(List<CheckSession> sessions, LocalDate start, LocalDate end) {
-        Map<LocalDate, Long> map = new HashMap<>();
-        for (CheckSession cs : sessions) {
-            LocalDateTime in = cs.getCheckInTime();
-            LocalDateTime out = cs.getCheckOutTime() != null ? cs.getCheckOutTime() : cs.getCheckInTime();
-            if (out.isBefore(in)) out = in;
-            // clip to range [start..end]
-            LocalDateTime rangeStart = start.atStartOfDay();
-            LocalDateTime rangeEnd = end.atTime(23,59,59);
-            LocalDateTime from = in.isBefore(rangeStart) ? rangeStart : in;
-            LocalDateTime to = out.isAfter(rangeEnd) ? rangeEnd : out;
-            if (to.isBefore(from)) continue;
-            // distribute per day
-            LocalDateTime cursor = from;
-            while (!cursor.toLocalDate().isAfter(to.toLocalDate())) {
-                LocalDate day = cursor.toLocalDate();
-                LocalDateTime dayEnd = day.atTime(23,59,59);
-                LocalDateTime segTo = to.isBefore(dayEnd) ? to : dayEnd;
-                long secs = Duration.between(cursor, segTo).getSeconds();
-                // accumulate then round to nearest minute when finalizing later; here we still add seconds
-                map.merge(day, Math.max(0, secs), Long::sum);
-                cursor = day.plusDays(1).atStartOfDay();
-            }
-        }
-        // Round each day total to nearest minute to avoid fractional-hour artifacts in UI
-        Map<LocalDate, Long> rounded = new HashMap<>();
-        for (Map.Entry<LocalDate, Long> e : map.entrySet()) {
-            long s = e.getValue();
-            long roundedToMin = Math.round(s / 60.0) * 60L;
-            // Regra de negócio: qualquer check-in (mesmo 1 segundo) deve contar para mudar estado.
-            // Se houve algum segundo (>0) mas o arredondamento levou a 0, preservamos como 1 segundo.
-            if (s > 0 && roundedToMin == 0) {
-                roundedToMin = 1; // garante worked>0 na lógica de status
-            }
-            rounded.put(e.getKey(), roundedToMin);
-        }
-        return rounded;
-    }
 }
@@ -0,0 +1,218 @@
+package com.medcheckapi.user.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Resumo diário do calendário (calendar_day_summaries): por aluno, disciplina e dia guarda segundos planejados,
+ * segundos trabalhados (brutos, sem arredondamento), menor início, maior fim e status da justificativa.
+ * O {@link CalendarService} lê o mês com uma consulta por faixa na PK em vez de recarregar planos, justificativas
+ * e sessões e redistribuir cada sessão dia a dia.
+ *
+ * Mantido por recálculo dos dias afetados: check-out e auto-fechamento ({@link CheckSessionEvent} CLOSED) e
+ * gravações de plano/justificativa ({@link #refresh}); cada recálculo invalida os meses no {@link CalendarMonthCache}. Sessões abertas não contam (trabalho = 0 até o check-out).
+ * Planos/justificativas/sessões sem disciplina ficam em discipline_id = 0 ({@link #NO_DISCIPLINE}).
+ */
+@Service
+public class CalendarSummaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(CalendarSummaryService.class);
+
+    public static final long NO_DISCIPLINE = 0L;
+
+    /** Linha do resumo. earliestStart/latestEnd/justificationStatus podem ser null. */
+    public record DaySummary(long disciplineId, LocalDate day, long plannedSeconds, long workedSeconds,
+                             LocalTime earliestStart, LocalTime latestEnd, String justificationStatus) {}
+
+    private static final class Acc {
+        long planned;
+        long worked;
+        LocalTime earliestStart;
+        LocalTime latestEnd;
+        String justificationStatus;
+    }
+
+    private record Key(long disciplineId, LocalDate day) {}
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final CalendarMonthCache monthCache;
+
+    public CalendarSummaryService(NamedParameterJdbcTemplate jdbc, PlatformTransactionManager txManager, CalendarMonthCache monthCache) {
+        this.jdbc = jdbc;
+        this.monthCache = monthCache;
+        this.tx = new TransactionTemplate(txManager);
+        // Ouvinte roda após o commit da sessão: precisa de transação própria
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /** Dias do mês (disciplineId null = todas as disciplinas, inclusive sem disciplina). */
+    public List<DaySummary> month(Long alunoId, Long disciplineId, YearMonth ym) {
+        MapSqlParameterSource p = new MapSqlParameterSource("aluno", alunoId)
+                .addValue("start", Date.valueOf(ym.atDay(1)))
+                .addValue("end", Date.valueOf(ym.atEndOfMonth()));
+        String sql = "SELECT discipline_id, day, planned_seconds, worked_seconds, earliest_start, latest_end, justification_status " +
+                "FROM calendar_day_summaries WHERE aluno_id = :aluno AND day BETWEEN :start AND :end";
+        if (disciplineId != null) {
+            sql += " AND discipline_id = :discipline";
+            p.addValue("discipline", disciplineId);
+        }
+        return jdbc.query(sql, p, (rs, i) -> {
+            Time s = rs.getTime("earliest_start");
+            Time e = rs.getTime("latest_end");
+            return new DaySummary(rs.getLong("discipline_id"), rs.getDate("day").toLocalDate(),
+                    rs.getLong("planned_seconds"), rs.getLong("worked_seconds"),
+                    s == null ? null : s.toLocalTime(), e == null ? null : e.toLocalTime(),
+                    rs.getString("justification_status"));
+        });
+    }
+
+    /** Recalcula os dias [from..to] do aluno na disciplina (null = sem disciplina). */
+    public void refresh(Long alunoId, Long disciplineId, LocalDate from, LocalDate to) {
+        long key = disciplineId == null ? NO_DISCIPLINE : disciplineId;
+        tx.executeWithoutResult(status -> rebuild(alunoId, key, from, to));
+        // Após o commit do resumo: leituras seguintes já veem os dias recalculados
+        monthCache.evict(alunoId, disciplineId, from, to);
+    }
+
+    public void refresh(Long alunoId, Long disciplineId, LocalDate day) {
+        refresh(alunoId, disciplineId, day, day);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(CheckSessionEvent e) {
+        if (e.type() != CheckSessionEvent.Type.CLOSED) return;
+        LocalDate in = e.checkInTime().toLocalDate();
+        try {
+            // Sessões duram no máximo 9h (auto-fechamento): atingem o dia do check-in e, se noturnas, o seguinte
+            refresh(e.alunoId(), e.disciplineId(), in, in.plusDays(1));
+        } catch (RuntimeException ex) {
+            log.error("[CAL-SUMMARY] Falha ao atualizar resumo aluno={} sessão={}", e.alunoId(), e.sessionId(), ex);
+        }
+    }
+
+    /** Monta o resumo de alunos que ainda não têm linhas (seeds do schema.sql, dados anteriores à tabela). */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        List<Long> alunos = jdbc.getJdbcTemplate().queryForList("""
+                SELECT aluno_id FROM internship_plans
+                UNION SELECT aluno_id FROM internship_justifications
+                UNION SELECT aluno_id FROM check_sessions WHERE check_out_time IS NOT NULL
+                """, Long.class);
+        Set<Long> done = new HashSet<>(jdbc.getJdbcTemplate().queryForList(
+                "SELECT DISTINCT aluno_id FROM calendar_day_summaries", Long.class));
+        int count = 0;
+        for (Long aluno : alunos) {
+            if (done.contains(aluno)) continue;
+            tx.executeWithoutResult(status -> rebuild(aluno, null, null, null));
+            monthCache.evict(aluno);
+            count++;
+        }
+        if (count > 0) log.info("[CAL-SUMMARY] Resumo diário montado para {} alunos", count);
+    }
+
+    // discipline null = todas; from/to null = sem limite
+    private void rebuild(Long alunoId, Long discipline, LocalDate from, LocalDate to) {
+        MapSqlParameterSource p = new MapSqlParameterSource("aluno", alunoId);
+        StringBuilder dayFilter = new StringBuilder();
+        StringBuilder summaryDayFilter = new StringBuilder();
+        StringBuilder discFilter = new StringBuilder();
+        if (discipline != null) {
+            discFilter.append(" AND COALESCE(discipline_id, 0) = :discipline");
+            p.addValue("discipline", discipline);
+        }
+        if (from != null) {
+            dayFilter.append(" AND date >= :from");
+            summaryDayFilter.append(" AND day >= :from");
+            p.addValue("from", Date.valueOf(from));
+        }
+        if (to != null) {
+            dayFilter.append(" AND date <= :to");
+            summaryDayFilter.append(" AND day <= :to");
+            p.addValue("to", Date.valueOf(to));
+        }
+
+        Map<Key, Acc> days = new TreeMap<>(Comparator.comparing(Key::disciplineId).thenComparing(Key::day));
+        jdbc.query("SELECT COALESCE(discipline_id, 0) AS dk, date, start_time, end_time FROM internship_plans " +
+                "WHERE aluno_id = :aluno" + discFilter + dayFilter, p, rs -> {
+            Acc a = days.computeIfAbsent(new Key(rs.getLong("dk"), rs.getDate("date").toLocalDate()), k -> new Acc());
+            Time st = rs.getTime("start_time");
+            Time et = rs.getTime("end_time");
+            LocalTime s = st == null ? null : st.toLocalTime();
+            LocalTime e = et == null ? null : et.toLocalTime();
+            a.planned += plannedSeconds(s, e);
+            if (s != null && (a.earliestStart == null || s.isBefore(a.earliestStart))) a.earliestStart = s;
+            if (e != null) {
+                if (s != null && s.isAfter(e)) e = LocalTime.of(23, 59); // overnight: 23:59 como limite do dia
+                if (a.latestEnd == null || e.isAfter(a.latestEnd)) a.latestEnd = e;
+            }
+        });
+        // uq_ij_user_date: no máximo uma justificativa por aluno/dia
+        jdbc.query("SELECT COALESCE(discipline_id, 0) AS dk, date, status FROM internship_justifications " +
+                "WHERE aluno_id = :aluno" + discFilter + dayFilter, p, rs -> {
+            days.computeIfAbsent(new Key(rs.getLong("dk"), rs.getDate("date").toLocalDate()), k -> new Acc())
+                    .justificationStatus = rs.getString("status");
+        });
+
+        StringBuilder sessionFilter = new StringBuilder();
+        if (from != null) {
+            // Sessão iniciada na véspera pode avançar sobre o primeiro dia
+            sessionFilter.append(" AND check_in_time >= :sessionFrom AND check_out_time >= :fromTs");
+            p.addValue("sessionFrom", Timestamp.valueOf(from.minusDays(1).atStartOfDay()));
+            p.addValue("fromTs", Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sessionFilter.append(" AND check_in_time < :toTs");
+            p.addValue("toTs", Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        jdbc.query("SELECT COALESCE(discipline_id, 0) AS dk, check_in_time, check_out_time FROM check_sessions " +
+                "WHERE aluno_id = :aluno AND check_out_time IS NOT NULL" + discFilter + sessionFilter, p, rs -> {
+            long dk = rs.getLong("dk");
+            WorkedTimeEngine.split(WorkedTimeEngine.epoch(rs.getTimestamp("check_in_time").toLocalDateTime()),
+                    WorkedTimeEngine.epoch(rs.getTimestamp("check_out_time").toLocalDateTime()),
+                    (epochDay, secs) -> {
+                        if ((from == null || epochDay >= from.toEpochDay()) && (to == null || epochDay <= to.toEpochDay())) {
+                            days.computeIfAbsent(new Key(dk, LocalDate.ofEpochDay(epochDay)), k -> new Acc()).worked += secs;
+                        }
+                    });
+        });
+
+        jdbc.update("DELETE FROM calendar_day_summaries WHERE aluno_id = :aluno" +
+                discFilter + summaryDayFilter, p);
+        if (days.isEmpty()) return;
+        List<MapSqlParameterSource> rows = new ArrayList<>(days.size());
+        days.forEach((k, a) -> rows.add(new MapSqlParameterSource("aluno", alunoId)
+                .addValue("discipline", k.disciplineId())
+                .addValue("day", Date.valueOf(k.day()))
+                .addValue("planned", a.planned)
+                .addValue("worked", a.worked)
+                .addValue("earliest", a.earliestStart == null ? null : Time.valueOf(a.earliestStart))
+                .addValue("latest", a.latestEnd == null ? null : Time.valueOf(a.latestEnd))
+                .addValue("just", a.justificationStatus)));
+        jdbc.batchUpdate("INSERT INTO calendar_day_summaries (aluno_id, discipline_id, day, planned_seconds, worked_seconds, " +
+                "earliest_start, latest_end, justification_status) VALUES (:aluno, :discipline, :day, :planned, :worked, :earliest, :latest, :just)",
+                rows.toArray(MapSqlParameterSource[]::new));
+    }
+
+    static long plannedSeconds(LocalTime start, LocalTime end) {
+        if (start == null || end == null) return 0;
+        Duration d = Duration.between(start, end);
+        if (d.isNegative()) d = d.plusHours(24); // atravessa a meia-noite
+        return d.getSeconds();
+    }
+}
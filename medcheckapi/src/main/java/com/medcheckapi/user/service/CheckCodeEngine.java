@@ -0,0 +1,60 @@
+package com.medcheckapi.user.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Estratégia de emissão/validação dos códigos rotativos de check-in (um código por preceptor a cada 60s).
+ * A implementação é escolhida por {@code app.check-code.mode}:
+ * <ul>
+ *   <li>database (padrão): um registro em check_codes por código, consultado/atualizado a cada uso;</li>
+ *   <li>memory: códigos vigentes em memória, histórico gravado em lote de forma assíncrona;</li>
+ *   <li>totp: códigos derivados de um segredo por preceptor e da janela de 60s, sem estado.</li>
+ * </ul>
+ * Horários sempre no fuso do Acre (mesmo relógio do {@link CheckInService}).
+ */
+public interface CheckCodeEngine {
+
+    /** Duração fixa de validade do código (em segundos). Requisito: apenas 1 minuto. */
+    int CODE_VALIDITY_SECONDS = 60;
+
+    record IssuedCode(String code, LocalDateTime generatedAt, LocalDateTime expiresAt) {
+        public long secondsRemaining(ZoneId zone) {
+            return Math.max(0, Duration.between(LocalDateTime.now(zone), expiresAt).getSeconds());
+        }
+    }
+
+    /** Código vigente do preceptor; gera um novo se não houver código válido em {@code now}. */
+    IssuedCode currentCode(Long preceptorId, LocalDateTime now);
+
+    /** Código vigente sem gerar novo (visualização ADMIN). */
+    Optional<IssuedCode> activeCode(Long preceptorId, LocalDateTime now);
+
+    /**
+     * Valida o código informado pelo aluno (case-insensitive) e contabiliza o uso.
+     * @throws IllegalStateException se o código for inválido ou estiver expirado
+     */
+    void consume(Long preceptorId, String code, LocalDateTime now);
+
+    /**
+     * Só valida, sem contabilizar (modo group-commit). Devolve a chave do código para contagem posterior
+     * em lote via {@link #recordUses}, ou {@code null} quando o próprio engine já contabilizou/não contabiliza.
+     * @throws IllegalStateException se o código for inválido ou estiver expirado
+     */
+    default Long verify(Long preceptorId, String code, LocalDateTime now) {
+        consume(preceptorId, code, now);
+        return null;
+    }
+
+    /** Aplica os usos agregados (chave devolvida por {@link #verify} -> quantidade) de um lote já confirmado. */
+    default void recordUses(Map<Long, Integer> usesByCode, LocalDateTime now) {
+    }
+
+    /** Se o engine grava em check_codes (e portanto precisa da limpeza periódica de códigos não usados). */
+    default boolean usesCodeTable() {
+        return true;
+    }
+}
@@ -0,0 +1,17 @@
+package com.medcheckapi.user.service;
+
+import java.util.Random;
+
+/** Alfabeto e formato compartilhados pelos engines de código de check-in. */
+final class CheckCodes {
+    static final String ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789"; // no similar chars
+    static final int LENGTH = 6;
+
+    private CheckCodes() {}
+
+    static String random(Random random) {
+        StringBuilder sb = new StringBuilder(LENGTH);
+        for (int i = 0; i < LENGTH; i++) sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        return sb.toString();
+    }
+}
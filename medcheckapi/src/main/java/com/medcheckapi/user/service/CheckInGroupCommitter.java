@@ -0,0 +1,235 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ingestão de check-ins em rajada (início de turno): os check-ins já validados entram numa fila e um único
+ * worker grava vários de uma vez numa só transação — um INSERT em lote em check_sessions e um UPDATE por
+ * código usado (usos agregados); sessões abertas vêm de uma consulta por lote em check_sessions (vale entre
+ * instâncias, ao contrário do {@link OpenSessionRegistry} local). Cada chamador aguarda
+ * o resultado do seu item (id da sessão ou conflito "Já em serviço").
+ *
+ * Ativado por {@code app.check-in.group-commit=true}; sem ele o {@link CheckInService} grava um a um.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.check-in", name = "group-commit", havingValue = "true")
+public class CheckInGroupCommitter {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckInGroupCommitter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO check_sessions (aluno_id, preceptor_id, discipline_id, check_in_time, check_in_lat, check_in_lng, validated) VALUES (?,?,?,?,?,?,?)";
+
+    /** Check-in validado aguardando gravação. codeKey: chave devolvida por {@link CheckCodeEngine#verify}. */
+    public record PendingCheckIn(Long alunoId, Long preceptorId, Long disciplineId, LocalDateTime checkInTime,
+                                 Double lat, Double lng, Long codeKey) {}
+
+    // Estado do item: o worker reivindica (CLAIMED) antes de gravar; o chamador que esgota o tempo só desiste
+    // (ABANDONED) se o worker ainda não pegou o item — assim nunca sobra sessão gravada que o aluno viu falhar.
+    private static final int PENDING = 0, CLAIMED = 1, ABANDONED = 2;
+
+    private record Item(PendingCheckIn request, CompletableFuture<Long> result, AtomicInteger state) {
+        Item(PendingCheckIn request) { this(request, new CompletableFuture<>(), new AtomicInteger(PENDING)); }
+        boolean claim() { return state.compareAndSet(PENDING, CLAIMED); }
+        boolean abandon() { return state.compareAndSet(PENDING, ABANDONED); }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final CheckCodeEngine codeEngine;
+    private final ApplicationEventPublisher events;
+    private final BlockingQueue<Item> queue;
+    private final int maxBatch;
+    private final long maxWaitMs;
+    private final long timeoutMs;
+    private volatile boolean running = true;
+    private Thread worker;
+
+    public CheckInGroupCommitter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                 CheckCodeEngine codeEngine, ApplicationEventPublisher events, AppProperties appProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = transactionTemplate;
+        this.codeEngine = codeEngine;
+        this.events = events;
+        AppProperties.CheckIn cfg = appProperties.getCheckIn();
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, cfg.getQueueCapacity()));
+        this.maxBatch = Math.max(1, cfg.getMaxBatch());
+        this.maxWaitMs = Math.max(0, cfg.getMaxWaitMs());
+        this.timeoutMs = Math.max(1, cfg.getTimeoutMs());
+    }
+
+    @PostConstruct
+    void start() {
+        worker = new Thread(this::loop, "checkin-group-commit");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * Enfileira o check-in e aguarda a gravação do lote. Retorna o id da sessão criada.
+     * @throws IllegalStateException em conflito (sessão aberta), fila cheia, tempo esgotado ou falha do lote
+     */
+    public Long submit(PendingCheckIn request) {
+        Item item = new Item(request);
+        if (!running || !queue.offer(item)) {
+            throw new IllegalStateException("Sistema ocupado, tente novamente");
+        }
+        try {
+            try {
+                return item.result().get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Ainda na fila: o worker vai pular o item. Já em gravação: o resultado do lote é o que vale.
+                if (item.abandon()) throw new IllegalStateException("Tempo esgotado ao registrar check-in");
+                return item.result().get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalStateException ise) throw ise;
+            throw new IllegalStateException("Falha ao registrar check-in", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (item.abandon()) throw new IllegalStateException("Check-in interrompido");
+            // Worker já gravando: o check-in pode ter entrado; não afirmar falha
+            throw new IllegalStateException("Check-in em processamento, confira em instantes");
+        }
+    }
+
+    private void loop() {
+        List<Item> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                Item first = queue.take();
+                batch.add(first);
+                // Janela curta para juntar a rajada no mesmo lote
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < maxBatch) {
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) continue;
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    Item next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("[GROUP-COMMIT] Falha ao gravar lote de {} check-ins", batch.size(), e);
+                batch.forEach(i -> i.result().completeExceptionally(new IllegalStateException("Falha ao registrar check-in")));
+            } finally {
+                batch.clear();
+            }
+        }
+        // Encerrando: não deixa chamadores pendurados
+        Item left;
+        while ((left = queue.poll()) != null) {
+            left.result().completeExceptionally(new IllegalStateException("Serviço encerrando, tente novamente"));
+        }
+    }
+
+    private void commit(List<Item> batch) {
+        Map<Item, Object> outcome = tx.execute(status -> write(batch));
+        // Resultados só após o commit
+        outcome.forEach((item, r) -> {
+            if (r instanceof Long id) item.result().complete(id);
+            else item.result().completeExceptionally((IllegalStateException) r);
+        });
+    }
+
+    // Uma consulta para todos os alunos do lote
+    private Set<Long> openSessions(List<Long> alunoIds) {
+        String in = String.join(",", Collections.nCopies(alunoIds.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT DISTINCT aluno_id FROM check_sessions WHERE check_out_time IS NULL AND aluno_id IN (" + in + ")",
+                Long.class, alunoIds.toArray()));
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    private Map<Item, Object> write(List<Item> batch) {
+        Map<Item, Object> outcome = new LinkedHashMap<>();
+        // Chamador já desistiu por tempo esgotado: não grava
+        List<Item> claimed = batch.stream().filter(Item::claim).toList();
+        if (claimed.isEmpty()) return outcome;
+        Set<Long> openInDb = openSessions(claimed.stream().map(i -> i.request().alunoId()).distinct().toList());
+        Set<Long> seen = new HashSet<>();
+        List<Item> accepted = new ArrayList<>();
+        for (Item i : claimed) {
+            // Sessão aberta ou duplicado dentro do próprio lote (duplo clique)
+            if (!seen.add(i.request().alunoId()) || openInDb.contains(i.request().alunoId())) {
+                outcome.put(i, new IllegalStateException("Já em serviço"));
+            } else {
+                accepted.add(i);
+            }
+        }
+        if (accepted.isEmpty()) return outcome;
+
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) con -> {
+            List<Long> keys = new ArrayList<>(accepted.size());
+            try (PreparedStatement ps = con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Item i : accepted) {
+                    PendingCheckIn r = i.request();
+                    ps.setLong(1, r.alunoId());
+                    ps.setLong(2, r.preceptorId());
+                    if (r.disciplineId() != null) ps.setLong(3, r.disciplineId()); else ps.setNull(3, Types.BIGINT);
+                    ps.setTimestamp(4, Timestamp.valueOf(r.checkInTime()));
+                    if (r.lat() != null) ps.setDouble(5, r.lat()); else ps.setNull(5, Types.DECIMAL);
+                    if (r.lng() != null) ps.setDouble(6, r.lng()); else ps.setNull(6, Types.DECIMAL);
+                    ps.setBoolean(7, true);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    while (rs.next()) keys.add(rs.getLong(1));
+                }
+            }
+            return keys;
+        });
+        if (ids == null || ids.size() != accepted.size()) {
+            throw new IllegalStateException("Chaves geradas inconsistentes no lote de check-ins");
+        }
+
+        Map<Long, Integer> uses = new HashMap<>();
+        LocalDateTime lastUse = null;
+        for (int k = 0; k < accepted.size(); k++) {
+            Item i = accepted.get(k);
+            outcome.put(i, ids.get(k));
+            PendingCheckIn r = i.request();
+            events.publishEvent(new CheckSessionEvent(CheckSessionEvent.Type.OPENED, ids.get(k), r.alunoId(),
+                    r.preceptorId(), r.disciplineId(), r.checkInTime()));
+            Long codeKey = i.request().codeKey();
+            if (codeKey != null) uses.merge(codeKey, 1, Integer::sum);
+            if (lastUse == null || i.request().checkInTime().isAfter(lastUse)) lastUse = i.request().checkInTime();
+        }
+        if (!uses.isEmpty()) codeEngine.recordUses(uses, lastUse);
+        return outcome;
+    }
+}
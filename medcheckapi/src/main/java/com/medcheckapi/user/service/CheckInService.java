@@ -1,12 +1,19 @@
 package com.medcheckapi.user.service;
 
+import com.medcheckapi.user.dto.SessionDto;
 import com.medcheckapi.user.model.*;
 import com.medcheckapi.user.repository.*;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.security.SecureRandom;
 import java.time.*;
 import java.time.ZoneId;
 import java.util.*;
@@ -15,58 +22,75 @@ import java.util.stream.Collectors;
 @Service
 public class CheckInService {
 
+    private static final Logger log = LoggerFactory.getLogger(CheckInService.class);
+
     private final CheckCodeRepository codeRepo;
     private final CheckSessionRepository sessionRepo;
     private final UserRepository userRepo;
-    private final SecureRandom random = new SecureRandom();
     private final DisciplineRepository disciplineRepo;
-    // Duração fixa de validade do código (em segundos). Requisito: apenas 1 minuto.
-    private static final int CODE_VALIDITY_SECONDS = 60;
+    // Emissão/validação dos códigos rotativos (app.check-code.mode)
+    private final CheckCodeEngine codeEngine;
+    // Presente só com app.check-in.group-commit=true
+    private final CheckInGroupCommitter groupCommitter;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate readOnlyTx;
+    // Sessões abertas em memória; atualizado pelos CheckSessionEvent publicados aqui
+    private final OpenSessionRegistry openSessions;
+    private final ApplicationEventPublisher events;
+    // Relógio no fuso do Acre (TimeConfig); substituível em testes
+    private final Clock clock;
+    // Livro de horas: somado na mesma transação do check-out
+    private final HoursLedgerService hoursLedger;
+    // Lease dos jobs agendados: com várias instâncias, só uma executa cada tick
+    private final SchedulerLock schedulerLock;
+    // Timers com outcome (medcheck.checkin/checkout/code.current) e duração dos jobs
+    private final HotPathMetrics metrics;
 
-    public CheckInService(CheckCodeRepository codeRepo, CheckSessionRepository sessionRepo, UserRepository userRepo, DisciplineRepository disciplineRepo) {
+    public CheckInService(CheckCodeRepository codeRepo, CheckSessionRepository sessionRepo, UserRepository userRepo, DisciplineRepository disciplineRepo, CheckCodeEngine codeEngine,
+                          PlatformTransactionManager txManager, ObjectProvider<CheckInGroupCommitter> groupCommitter,
+                          OpenSessionRegistry openSessions, ApplicationEventPublisher events, Clock clock,
+                          HoursLedgerService hoursLedger, SchedulerLock schedulerLock, HotPathMetrics metrics) {
         this.codeRepo = codeRepo;
         this.sessionRepo = sessionRepo;
         this.userRepo = userRepo;
         this.disciplineRepo = disciplineRepo;
-    }
-
-    private String generateCode() {
-        String chars = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789"; // no similar chars
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < 6; i++) sb.append(chars.charAt(random.nextInt(chars.length())));
-        return sb.toString();
+        this.codeEngine = codeEngine;
+        this.groupCommitter = groupCommitter.getIfAvailable();
+        this.tx = new TransactionTemplate(txManager);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.openSessions = openSessions;
+        this.events = events;
+        this.clock = clock;
+        this.hoursLedger = hoursLedger;
+        this.schedulerLock = schedulerLock;
+        this.metrics = metrics;
     }
 
     // Fuso oficial do Acre (sem horário de verão atualmente)
     private static final ZoneId ACRE_ZONE = ZoneId.of("America/Rio_Branco");
-    private LocalDateTime fixedNow() { return LocalDateTime.now(ACRE_ZONE); }
+    private LocalDateTime fixedNow() { return LocalDateTime.now(clock.withZone(ACRE_ZONE)); }
 
     @Transactional
     public Map<String,Object> getOrCreateCurrentCode(Long preceptorId) {
         User preceptor = userRepo.findById(preceptorId).orElseThrow();
-        if (preceptor.getRole() != Role.PRECEPTOR && preceptor.getRole() != Role.ADMIN) throw new IllegalStateException("Usuário não é preceptor");
-    LocalDateTime now = fixedNow();
-    return codeRepo.findFirstByPreceptorAndExpiresAtGreaterThanOrderByGeneratedAtDesc(preceptor, now).map(c -> mapCode(c))
-                .orElseGet(() -> {
-                    // create new (valid 60s)
-                    CheckCode c = new CheckCode();
-                    c.setPreceptor(preceptor);
-                    c.setCode(generateCode());
-                    c.setGeneratedAt(now);
-                    c.setExpiresAt(now.plusSeconds(CODE_VALIDITY_SECONDS));
-                    c.setUsageCount(0);
-                    c.setLastAccessedAt(now);
-                    codeRepo.save(c);
-                    return mapCode(c);
-                });
+        return getOrCreateCurrentCode(preceptorId, preceptor.getRole());
     }
 
-    private Map<String,Object> mapCode(CheckCode c) {
+    /** Variante para quem já conhece o papel (principal autenticado): nenhuma consulta a users. */
+    public Map<String,Object> getOrCreateCurrentCode(Long preceptorId, Role role) {
+        return metrics.timed("medcheck.code.current", Tags.empty(), () -> {
+            if (role != Role.PRECEPTOR && role != Role.ADMIN) throw new IllegalStateException("Usuário não é preceptor");
+            return mapCode(codeEngine.currentCode(preceptorId, fixedNow()));
+        });
+    }
+
+    private Map<String,Object> mapCode(CheckCodeEngine.IssuedCode c) {
         Map<String,Object> m = new HashMap<>();
-        m.put("code", c.getCode());
+        m.put("code", c.code());
     // Timestamp de expiração com offset -05:00 explícito
-    m.put("expiresAt", c.getExpiresAt().atZone(ACRE_ZONE).toOffsetDateTime().toString());
-        m.put("secondsRemaining", c.getSecondsRemaining());
+    m.put("expiresAt", c.expiresAt().atZone(ACRE_ZONE).toOffsetDateTime().toString());
+        m.put("secondsRemaining", c.secondsRemaining(ACRE_ZONE));
         return m;
     }
 
@@ -81,7 +105,7 @@ public class CheckInService {
             throw new IllegalStateException("Usuário alvo não é preceptor");
         }
         LocalDateTime now = fixedNow();
-        return codeRepo.findFirstByPreceptorAndExpiresAtGreaterThanOrderByGeneratedAtDesc(preceptor, now)
+        return codeEngine.activeCode(preceptor.getId(), now)
                 .map(this::mapCode)
                 .orElseGet(() -> {
                     Map<String,Object> empty = new HashMap<>();
@@ -92,9 +116,68 @@ public class CheckInService {
                 });
     }
 
-    @Transactional
-    public Map<String,Object> performCheckIn(Long alunoId, Long preceptorId, String code, Long disciplineId, Double lat, Double lng) {
-    User aluno = userRepo.findById(alunoId).orElseThrow();
+    /**
+     * Sem group-commit: validação e gravação numa única transação (comportamento original).
+     * Com group-commit: valida numa transação somente leitura e entrega a gravação ao
+     * {@link CheckInGroupCommitter}, aguardando fora de transação (não segura conexão durante a espera).
+     */
+    public SessionDto performCheckIn(Long alunoId, Long preceptorId, String code, Long disciplineId, Double lat, Double lng) {
+        return metrics.timed("medcheck.checkin", Tags.of("mode", groupCommitter == null ? "direct" : "group"),
+                () -> doCheckIn(alunoId, preceptorId, code, disciplineId, lat, lng));
+    }
+
+    private SessionDto doCheckIn(Long alunoId, Long preceptorId, String code, Long disciplineId, Double lat, Double lng) {
+        if (groupCommitter == null) {
+            return tx.execute(status -> {
+                CheckInContext ctx = validateCheckIn(alunoId, preceptorId, disciplineId);
+                // code validation (case-insensitive) + contagem de uso
+                codeEngine.consume(ctx.preceptor().getId(), code, ctx.now());
+                // ensure no open session
+                if (findOpenSession(alunoId).isPresent()) throw new IllegalStateException("Já em serviço");
+                CheckSession cs = newSession(ctx, lat, lng);
+                sessionRepo.save(cs);
+                events.publishEvent(CheckSessionEvent.opened(cs));
+                if (cs.getCheckInLat() != null || cs.getCheckInLng() != null) {
+                    log.debug("[CHECK-IN] Sessão {} gravada com localização lat={} lng={}", cs.getId(), cs.getCheckInLat(), cs.getCheckInLng());
+                }
+                return SessionDto.of(cs);
+            });
+        }
+        CheckInContext ctx = readOnlyTx.execute(status -> {
+            CheckInContext c = validateCheckIn(alunoId, preceptorId, disciplineId);
+            // Rejeição antecipada só quando o registro aponta sessão e o banco confirma; o lote consulta o banco
+            if (openSessions.isInService(alunoId) && findOpenSession(alunoId).isPresent()) throw new IllegalStateException("Já em serviço");
+            return c;
+        });
+        Long codeKey = codeEngine.verify(ctx.preceptor().getId(), code, ctx.now());
+        // Sessão aberta é verificada pelo lote (uma consulta para todos os alunos do lote)
+        CheckSession cs = newSession(ctx, lat, lng);
+        cs.setId(groupCommitter.submit(new CheckInGroupCommitter.PendingCheckIn(
+                alunoId, ctx.preceptor().getId(), ctx.selected().getId(), ctx.now(), lat, lng, codeKey)));
+        return SessionDto.of(cs);
+    }
+
+    /**
+     * Sessão aberta do aluno. Atalho: a sessão do registro, buscada por id. Se o registro não tem (ou tem uma já
+     * fechada) vale a consulta em check_sessions — outra instância, evento perdido ou registro defasado após restart —
+     * e o registro local é corrigido com o que o banco mostrou.
+     */
+    private Optional<CheckSession> findOpenSession(Long alunoId) {
+        Optional<OpenSessionRegistry.OpenSession> cached = openSessions.find(alunoId);
+        Optional<CheckSession> open = cached.flatMap(s -> sessionRepo.findById(s.sessionId())).filter(cs -> cs.getCheckOutTime() == null);
+        if (open.isPresent()) return open;
+        open = sessionRepo.findFirstByAlunoAndCheckOutTimeIsNullOrderByCheckInTimeDesc(userRepo.getReferenceById(alunoId));
+        // Direto no registro (sem publicar): o banco já está commitado, demais ouvintes não devem reagir
+        cached.ifPresent(s -> openSessions.on(new CheckSessionEvent(CheckSessionEvent.Type.CLOSED, s.sessionId(), alunoId,
+                s.preceptorId(), s.disciplineId(), s.checkInTime())));
+        open.ifPresent(cs -> openSessions.on(CheckSessionEvent.opened(cs)));
+        return open;
+    }
+
+    private record CheckInContext(User aluno, User preceptor, Discipline selected, LocalDateTime now) {}
+
+    private CheckInContext validateCheckIn(Long alunoId, Long preceptorId, Long disciplineId) {
+        User aluno = userRepo.findById(alunoId).orElseThrow();
         User preceptor = userRepo.findById(preceptorId).orElseThrow();
         if (aluno.getRole() != Role.ALUNO) throw new IllegalStateException("Usuário não é aluno");
     // Nova regra: disciplineId é obrigatório e não há mais fallback em currentDiscipline legado
@@ -118,151 +201,120 @@ public class CheckInService {
             throw new IllegalStateException("Preceptor não vinculado à disciplina selecionada");
         }
     }
-    LocalDateTime now = fixedNow();
-        // code validation (case-insensitive)
-    CheckCode usedCode = codeRepo.findFirstByPreceptorAndCodeIgnoreCaseAndExpiresAtGreaterThanOrderByGeneratedAtDesc(preceptor, code, now)
-        .orElseThrow(() -> new IllegalStateException("Código inválido ou expirado"));
-        // incrementa contador de uso e marca lastAccessedAt
-        usedCode.setUsageCount(usedCode.getUsageCount() + 1);
-        usedCode.setLastAccessedAt(now);
-        codeRepo.save(usedCode);
-        // ensure no open session
-    if (sessionRepo.findFirstByAlunoAndCheckOutTimeIsNullOrderByCheckInTimeDesc(aluno).isPresent()) throw new IllegalStateException("Já em serviço");
+        return new CheckInContext(aluno, preceptor, selected, fixedNow());
+    }
+
+    private CheckSession newSession(CheckInContext ctx, Double lat, Double lng) {
         CheckSession cs = new CheckSession();
-        cs.setAluno(aluno);
-        cs.setPreceptor(preceptor);
-        cs.setCheckInTime(now);
-        cs.setDiscipline(selected);
+        cs.setAluno(ctx.aluno());
+        cs.setPreceptor(ctx.preceptor());
+        cs.setCheckInTime(ctx.now());
+        cs.setDiscipline(ctx.selected());
         cs.setValidated(true);
         if (lat != null) cs.setCheckInLat(lat);
         if (lng != null) cs.setCheckInLng(lng);
-        if (lat != null || lng != null) {
-            System.out.println("[DEBUG] Saving Check-In location lat="+lat+" lng="+lng+" sessionTempId? (before save)");
-        }
-        sessionRepo.save(cs);
-        if (cs.getCheckInLat() != null || cs.getCheckInLng() != null) {
-            System.out.println("[DEBUG] Persisted Check-In session id="+cs.getId()+" lat="+cs.getCheckInLat()+" lng="+cs.getCheckInLng());
-        }
-        return sessionToMap(cs);
+        return cs;
     }
 
+    // Timer dentro da transação do proxy: o commit fica fora da medida (aparece em http.server.requests)
     @Transactional
-    public Map<String,Object> performCheckOut(Long alunoId, Double lat, Double lng) {
-        User aluno = userRepo.findById(alunoId).orElseThrow();
-    CheckSession open = sessionRepo.findFirstByAlunoAndCheckOutTimeIsNullOrderByCheckInTimeDesc(aluno).orElseThrow(() -> new IllegalStateException("Nenhum check-in ativo"));
+    public SessionDto performCheckOut(Long alunoId, Double lat, Double lng) {
+        return metrics.timed("medcheck.checkout", Tags.empty(), () -> doCheckOut(alunoId, lat, lng));
+    }
+
+    private SessionDto doCheckOut(Long alunoId, Double lat, Double lng) {
+        CheckSession open = findOpenSession(alunoId).orElseThrow(() -> new IllegalStateException("Nenhum check-in ativo"));
     open.setCheckOutTime(fixedNow());
         if (lat != null) open.setCheckOutLat(lat);
         if (lng != null) open.setCheckOutLng(lng);
         sessionRepo.save(open);
+        hoursLedger.record(alunoId, open.getPreceptor().getId(),
+                open.getDiscipline() == null ? null : open.getDiscipline().getId(), open.getCheckInTime(), open.getCheckOutTime());
+        events.publishEvent(CheckSessionEvent.closed(open));
         if (lat != null || lng != null) {
-            System.out.println("[DEBUG] Persisted Check-Out session id="+open.getId()+" lat="+open.getCheckOutLat()+" lng="+open.getCheckOutLng());
+            log.debug("[CHECK-OUT] Sessão {} fechada com localização lat={} lng={}", open.getId(), open.getCheckOutLat(), open.getCheckOutLng());
         }
-        return sessionToMap(open);
+        return SessionDto.of(open);
     }
 
-    public List<Map<String,Object>> listSessionsForAluno(Long alunoId, LocalDate start, LocalDate end, Long disciplineId, Long preceptorIdFilter, User requester) {
-        User aluno = userRepo.findById(alunoId).orElseThrow();
+    public List<SessionDto> listSessionsForAluno(Long alunoId, LocalDate start, LocalDate end, Long disciplineId, Long preceptorIdFilter, User requester) {
         LocalDateTime from = start.atStartOfDay();
         LocalDateTime to = end.atTime(23,59,59);
-        Discipline selected = null;
+        Long selected;
         if (disciplineId != null) {
-            selected = disciplineRepo.findById(disciplineId).orElse(null);
+            // disciplina inexistente => sem filtro (comportamento anterior)
+            selected = disciplineRepo.existsById(disciplineId) ? disciplineId : null;
         } else {
-            selected = aluno.getCurrentDiscipline();
-        }
-        List<CheckSession> base = (selected == null)
-                ? sessionRepo.findByAlunoAndCheckInTimeBetweenOrderByCheckInTimeDesc(aluno, from, to)
-                : sessionRepo.findByAlunoAndDisciplineAndCheckInTimeBetweenOrderByCheckInTimeDesc(aluno, selected, from, to);
-        // Filtro por preceptor (somente se requester for COORDENADOR ou ADMIN ou o próprio preceptor especificado)
-        if (preceptorIdFilter != null) {
-            base = base.stream().filter(cs -> Objects.equals(cs.getPreceptor().getId(), preceptorIdFilter)).toList();
+            Discipline current = userRepo.findById(alunoId).orElseThrow().getCurrentDiscipline();
+            selected = current == null ? null : current.getId();
         }
-        List<Map<String,Object>> out = new ArrayList<>();
-        base.forEach(cs -> out.add(sessionToMap(cs)));
-        return out;
+        // Projeção direta no DTO; filtro por preceptor (COORDENADOR/ADMIN ou o próprio preceptor) vai na consulta
+        return sessionRepo.findSessionRows(alunoId, from, to, selected, preceptorIdFilter);
     }
 
-    private Map<String,Object> sessionToMap(CheckSession cs) {
-        Map<String,Object> m = new HashMap<>();
-        m.put("id", cs.getId());
-        m.put("alunoId", cs.getAluno().getId());
-        m.put("preceptorId", cs.getPreceptor().getId());
-    if (cs.getDiscipline() != null) {
-        m.put("discipline", Map.of(
-            "id", cs.getDiscipline().getId(),
-            "code", cs.getDiscipline().getCode(),
-            "name", cs.getDiscipline().getName()
-        ));
-    }
-    m.put("checkInTime", cs.getCheckInTime().atZone(ACRE_ZONE).toOffsetDateTime().toString());
-    m.put("checkOutTime", cs.getCheckOutTime() == null ? null : cs.getCheckOutTime().atZone(ACRE_ZONE).toOffsetDateTime().toString());
-    m.put("validated", cs.isValidated());
-    m.put("checkInLat", cs.getCheckInLat());
-    m.put("checkInLng", cs.getCheckInLng());
-    m.put("checkOutLat", cs.getCheckOutLat());
-    m.put("checkOutLng", cs.getCheckOutLng());
-        if (cs.getCheckOutTime() != null) {
-            Duration d = cs.getWorkedDuration();
-            long secs = d.getSeconds();
-            long h = secs / 3600; long mnt = (secs % 3600)/60; long s = secs % 60;
-            m.put("worked", String.format("%02d:%02d:%02d", h,mnt,s));
-        } else {
-            m.put("worked", null);
+    /**
+     * Quem está em serviço agora (filtros opcionais por preceptor/disciplina), direto do registro de sessões
+     * abertas; só os nomes vêm do banco, numa única consulta.
+     */
+    public List<Map<String,Object>> onShift(Long preceptorId, Long disciplineId) {
+        List<OpenSessionRegistry.OpenSession> open = openSessions.onShift(preceptorId, disciplineId);
+        Map<Long,String> names = new HashMap<>();
+        userRepo.findAllById(open.stream().map(OpenSessionRegistry.OpenSession::alunoId).toList())
+                .forEach(u -> names.put(u.getId(), u.getName()));
+        LocalDateTime now = fixedNow();
+        List<Map<String,Object>> out = new ArrayList<>();
+        for (OpenSessionRegistry.OpenSession s : open) {
+            Map<String,Object> m = new HashMap<>();
+            m.put("sessionId", s.sessionId());
+            m.put("alunoId", s.alunoId());
+            m.put("alunoName", names.get(s.alunoId()));
+            m.put("preceptorId", s.preceptorId());
+            m.put("disciplineId", s.disciplineId());
+            m.put("checkInTime", s.checkInTime().atZone(ACRE_ZONE).toOffsetDateTime().toString());
+            m.put("elapsedSeconds", Math.max(0, Duration.between(s.checkInTime(), now).getSeconds()));
+            out.add(m);
         }
-        return m;
+        return out;
     }
 
     public Map<String,Object> statusForAluno(Long alunoId) {
         User aluno = userRepo.findById(alunoId).orElseThrow();
-    LocalDate today = LocalDate.now(ACRE_ZONE);
+    LocalDate today = fixedNow().toLocalDate();
     List<CheckSession> todays = sessionRepo.findByAlunoAndCheckInTimeBetweenOrderByCheckInTimeDesc(aluno, today.atStartOfDay(), today.atTime(23,59,59));
-        long workedSecs = 0;
         Optional<CheckSession> open = Optional.empty();
     LocalDateTime now = fixedNow();
+        WorkedTimeEngine worked = new WorkedTimeEngine(today, 1);
         for (CheckSession cs : todays) {
             if (cs.getCheckOutTime() == null) {
                 open = Optional.of(cs);
                 // adiciona tempo decorrido até agora (não esperar check-out para contar)
-                workedSecs += Duration.between(cs.getCheckInTime(), now).getSeconds();
+                worked.add(cs.getCheckInTime(), now);
             } else {
-                workedSecs += cs.getWorkedDuration().getSeconds();
+                worked.add(cs.getCheckInTime(), cs.getCheckOutTime());
             }
         }
+        long workedSecs = worked.total();
         Map<String,Object> resp = new HashMap<>();
         resp.put("inService", open.isPresent());
-        resp.put("openSession", open.map(this::sessionToMap).orElse(null));
+        resp.put("openSession", open.map(SessionDto::of).orElse(null));
         resp.put("workedSeconds", workedSecs);
         return resp;
     }
 
-    // Limpeza periódica: a cada 5 minutos remove códigos não utilizados há mais de 20 minutos
+    // Limpeza periódica: a cada 5 minutos remove códigos não utilizados há mais de 20 minutos.
+    // Uma instância por tick (lease "check-code-cleanup"); lease mínimo de 4 min cobre agendas defasadas entre nós.
     @Scheduled(fixedDelay = 300_000) // 5 minutos
-    @Transactional
     public void cleanupUnusedCodes() {
-    LocalDateTime threshold = fixedNow().minusMinutes(20);
-        int removed = codeRepo.deleteAllUnusedOlderThan(threshold);
-        if (removed > 0) {
-            System.out.println("[CLEANUP] Removed " + removed + " unused check codes older than 20 minutes");
-        }
+        if (!codeEngine.usesCodeTable()) return; // modo totp: nada é gravado em check_codes
+        schedulerLock.runExclusive("check-code-cleanup", Duration.ofMinutes(10), Duration.ofMinutes(4), () -> metrics.job("check-code-cleanup", () -> {
+            LocalDateTime threshold = fixedNow().minusMinutes(20);
+            Integer removed = tx.execute(status -> codeRepo.deleteAllUnusedOlderThan(threshold));
+            if (removed != null && removed > 0) {
+                log.info("[CLEANUP] Removidos {} códigos não usados com mais de 20 minutos", removed);
+            }
+            return removed;
+        }));
     }
 
-    // Auto-fechamento: encerra automaticamente sessões abertas há mais de 9 horas (capando exatamente em 9h a partir do check-in)
-    @Scheduled(fixedDelay = 60_000) // a cada 1 minuto
-    @Transactional
-    public void autoCloseLongRunningSessions() {
-        LocalDateTime now = fixedNow();
-        LocalDateTime threshold = now.minusHours(9);
-        List<CheckSession> toClose = sessionRepo.findByCheckOutTimeIsNullAndCheckInTimeBefore(threshold);
-        int count = 0;
-        for (CheckSession cs : toClose) {
-            // Capa o período exatamente em 9 horas após o check-in
-            LocalDateTime cappedCheckout = cs.getCheckInTime().plusHours(9);
-            cs.setCheckOutTime(cappedCheckout);
-            sessionRepo.save(cs);
-            count++;
-        }
-        if (count > 0) {
-            System.out.println("[AUTO-CLOSE] Fechadas " + count + " sessões com mais de 9h ativas");
-        }
-    }
+    // Auto-fechamento (9h após o check-in): ver SessionAutoCloser
 }
@@ -0,0 +1,34 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.model.CheckSession;
+
+import java.time.LocalDateTime;
+
+/**
+ * Abertura/fechamento de sessão (check-in, check-out, auto-fechamento). Publicado dentro da transação que
+ * grava a sessão; os ouvintes ({@link OpenSessionRegistry}) aplicam após o commit.
+ * {@code autoClosed} distingue o fechamento pelo {@link SessionAutoCloser} do check-out manual.
+ */
+public record CheckSessionEvent(Type type, Long sessionId, Long alunoId, Long preceptorId, Long disciplineId,
+                                LocalDateTime checkInTime, boolean autoClosed) {
+
+    public enum Type { OPENED, CLOSED }
+
+    public CheckSessionEvent(Type type, Long sessionId, Long alunoId, Long preceptorId, Long disciplineId,
+                             LocalDateTime checkInTime) {
+        this(type, sessionId, alunoId, preceptorId, disciplineId, checkInTime, false);
+    }
+
+    public static CheckSessionEvent opened(CheckSession cs) {
+        return of(Type.OPENED, cs);
+    }
+
+    public static CheckSessionEvent closed(CheckSession cs) {
+        return of(Type.CLOSED, cs);
+    }
+
+    private static CheckSessionEvent of(Type type, CheckSession cs) {
+        return new CheckSessionEvent(type, cs.getId(), cs.getAluno().getId(), cs.getPreceptor().getId(),
+                cs.getDiscipline() != null ? cs.getDiscipline().getId() : null, cs.getCheckInTime());
+    }
+}
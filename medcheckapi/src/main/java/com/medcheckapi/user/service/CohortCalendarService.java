@@ -0,0 +1,133 @@
+package com.medcheckapi.user.service;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Grade do mês para a turma inteira de uma disciplina (alunos × dias com planejado, trabalhado e status),
+ * para o mapa de frequência do coordenador. Uma consulta pagina os alunos matriculados (por nome) e outra
+ * percorre uma única vez o resumo diário ({@link CalendarSummaryService}) dos alunos da página — em vez de abrir o
+ * calendário de cada aluno separadamente.
+ */
+@Service
+public class CohortCalendarService {
+
+    // Turma = alunos matriculados (disciplina atual) + quem tem resumo na disciplina no mês (ex.: trocou de
+    // disciplina depois); os resumos entram por "left join" na montagem da grade — aluno sem linha fica zerado.
+    private static final String COHORT_WHERE = """
+            u.role = 'ALUNO'
+              AND (u.current_discipline_id = :disc
+                   OR u.id IN (SELECT s.aluno_id FROM calendar_day_summaries s
+                               WHERE s.discipline_id = :disc AND s.day BETWEEN :start AND :end))
+            """;
+
+    private static final String STUDENTS_SQL =
+            "SELECT u.id, u.name, COUNT(*) OVER () AS total_rows FROM users u WHERE " + COHORT_WHERE
+                    + " ORDER BY u.name, u.id LIMIT :limit OFFSET :offset";
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM users u WHERE " + COHORT_WHERE;
+
+    private static final String DAYS_SQL = """
+            SELECT aluno_id, day, planned_seconds, worked_seconds, earliest_start, latest_end, justification_status
+            FROM calendar_day_summaries
+            WHERE discipline_id = :disc AND day BETWEEN :start AND :end AND aluno_id IN (:ids)
+            """;
+
+    public record CohortPage(List<String> days, List<Map<String, Object>> students, int page, int size, long totalItems) {
+        public int totalPages() { return size == 0 ? 0 : (int) ((totalItems + size - 1) / size); }
+    }
+
+    // Linha da grade: arrays paralelos indexados pelo dia do mês (0 = dia 1)
+    private static final class Row {
+        final long[] planned;
+        final long[] worked;
+        final LocalTime[] earliest;
+        final LocalTime[] latest;
+        final boolean[] justified;
+
+        Row(int days) {
+            planned = new long[days];
+            worked = new long[days];
+            earliest = new LocalTime[days];
+            latest = new LocalTime[days];
+            justified = new boolean[days];
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final AttendanceStatusEngine statusEngine;
+
+    public CohortCalendarService(NamedParameterJdbcTemplate jdbc, AttendanceStatusEngine statusEngine) {
+        this.jdbc = jdbc;
+        this.statusEngine = statusEngine;
+    }
+
+    public CohortPage month(Long disciplineId, YearMonth ym, int page, int size) {
+        int length = ym.lengthOfMonth();
+        MapSqlParameterSource p = new MapSqlParameterSource("disc", disciplineId)
+                .addValue("start", Date.valueOf(ym.atDay(1)))
+                .addValue("end", Date.valueOf(ym.atEndOfMonth()))
+                .addValue("limit", size)
+                .addValue("offset", (long) page * size);
+        List<String> days = new ArrayList<>(length);
+        for (int d = 1; d <= length; d++) days.add(ym.atDay(d).toString());
+
+        long[] total = {0};
+        LinkedHashMap<Long, String> students = new LinkedHashMap<>();
+        jdbc.query(STUDENTS_SQL, p, rs -> {
+            total[0] = rs.getLong("total_rows");
+            students.put(rs.getLong("id"), rs.getString("name"));
+        });
+        if (students.isEmpty()) {
+            if (page > 0) {
+                Long n = jdbc.queryForObject(COUNT_SQL, p, Long.class);
+                total[0] = n != null ? n : 0L;
+            }
+            return new CohortPage(days, List.of(), page, size, total[0]);
+        }
+
+        Map<Long, Row> rows = new HashMap<>();
+        students.keySet().forEach(id -> rows.put(id, new Row(length)));
+        p.addValue("ids", students.keySet());
+        jdbc.query(DAYS_SQL, p, rs -> {
+            Row r = rows.get(rs.getLong("aluno_id"));
+            int i = rs.getDate("day").toLocalDate().getDayOfMonth() - 1;
+            r.planned[i] = rs.getLong("planned_seconds");
+            r.worked[i] = rs.getLong("worked_seconds");
+            Time s = rs.getTime("earliest_start");
+            Time e = rs.getTime("latest_end");
+            r.earliest[i] = s == null ? null : s.toLocalTime();
+            r.latest[i] = e == null ? null : e.toLocalTime();
+            r.justified[i] = rs.getString("justification_status") != null;
+        });
+
+        // Mesmo "agora" para a página inteira
+        LocalDateTime now = statusEngine.now();
+        List<Map<String, Object>> items = new ArrayList<>(students.size());
+        students.forEach((id, name) -> {
+            Row r = rows.get(id);
+            long[] worked = new long[length];
+            for (int i = 0; i < length; i++) worked[i] = WorkedTimeEngine.roundToMinute(r.worked[i]);
+            AttendanceStatusEngine.Status[] evaluated = AttendanceStatusEngine.evaluate(
+                    new AttendanceStatusEngine.Days(ym.atDay(1), r.planned, worked, r.justified, r.earliest, r.latest), now);
+            String[] status = new String[length];
+            for (int i = 0; i < length; i++) status[i] = evaluated[i].name();
+            Map<String, Object> m = new HashMap<>();
+            m.put("id", id);
+            m.put("name", name);
+            m.put("plannedSeconds", r.planned);
+            m.put("workedSeconds", worked);
+            m.put("status", status);
+            items.add(m);
+        });
+        return new CohortPage(days, items, page, size, total[0]);
+    }
+}
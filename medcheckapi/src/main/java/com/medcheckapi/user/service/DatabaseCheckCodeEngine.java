@@ -0,0 +1,88 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.model.CheckCode;
+import com.medcheckapi.user.model.User;
+import com.medcheckapi.user.repository.CheckCodeRepository;
+import com.medcheckapi.user.repository.UserRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Comportamento original: cada código é uma linha em check_codes; o uso incrementa usageCount
+ * na mesma transação do check-in.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.check-code", name = "mode", havingValue = "database", matchIfMissing = true)
+public class DatabaseCheckCodeEngine implements CheckCodeEngine {
+
+    private final CheckCodeRepository codeRepo;
+    private final UserRepository userRepo;
+    private final SecureRandom random = new SecureRandom();
+
+    public DatabaseCheckCodeEngine(CheckCodeRepository codeRepo, UserRepository userRepo) {
+        this.codeRepo = codeRepo;
+        this.userRepo = userRepo;
+    }
+
+    @Override
+    @Transactional
+    public IssuedCode currentCode(Long preceptorId, LocalDateTime now) {
+        User preceptor = userRepo.getReferenceById(preceptorId);
+        CheckCode c = codeRepo.findFirstByPreceptorAndExpiresAtGreaterThanOrderByGeneratedAtDesc(preceptor, now)
+                .orElseGet(() -> {
+                    // create new (valid 60s)
+                    CheckCode n = new CheckCode();
+                    n.setPreceptor(preceptor);
+                    n.setCode(CheckCodes.random(random));
+                    n.setGeneratedAt(now);
+                    n.setExpiresAt(now.plusSeconds(CODE_VALIDITY_SECONDS));
+                    n.setUsageCount(0);
+                    n.setLastAccessedAt(now);
+                    return codeRepo.save(n);
+                });
+        return toIssued(c);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<IssuedCode> activeCode(Long preceptorId, LocalDateTime now) {
+        return codeRepo.findFirstByPreceptorAndExpiresAtGreaterThanOrderByGeneratedAtDesc(userRepo.getReferenceById(preceptorId), now)
+                .map(this::toIssued);
+    }
+
+    @Override
+    @Transactional
+    public void consume(Long preceptorId, String code, LocalDateTime now) {
+        CheckCode usedCode = codeRepo.findFirstByPreceptorAndCodeIgnoreCaseAndExpiresAtGreaterThanOrderByGeneratedAtDesc(userRepo.getReferenceById(preceptorId), code, now)
+                .orElseThrow(() -> new IllegalStateException("Código inválido ou expirado"));
+        // incrementa contador de uso e marca lastAccessedAt
+        usedCode.setUsageCount(usedCode.getUsageCount() + 1);
+        usedCode.setLastAccessedAt(now);
+        codeRepo.save(usedCode);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Long verify(Long preceptorId, String code, LocalDateTime now) {
+        return codeRepo.findFirstByPreceptorAndCodeIgnoreCaseAndExpiresAtGreaterThanOrderByGeneratedAtDesc(userRepo.getReferenceById(preceptorId), code, now)
+                .map(CheckCode::getId)
+                .orElseThrow(() -> new IllegalStateException("Código inválido ou expirado"));
+    }
+
+    @Override
+    @Transactional
+    public void recordUses(Map<Long, Integer> usesByCode, LocalDateTime now) {
+        // Um UPDATE por código no lote (em vez de um por check-in disputando a mesma linha)
+        usesByCode.forEach((codeId, uses) -> codeRepo.incrementUsage(codeId, uses, now));
+    }
+
+    private IssuedCode toIssued(CheckCode c) {
+        return new IssuedCode(c.getCode(), c.getGeneratedAt(), c.getExpiresAt());
+    }
+}
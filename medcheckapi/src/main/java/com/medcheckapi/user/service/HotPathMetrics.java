@@ -0,0 +1,86 @@
+package com.medcheckapi.user.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métricas dos caminhos quentes (Micrometer, exportadas em /actuator/prometheus):
+ * <ul>
+ *   <li>medcheck.checkin / medcheck.checkout / medcheck.code.current — timer com tag outcome
+ *       (ok, invalid_code, already_in_service, no_active_session, busy, rejected, error);</li>
+ *   <li>medcheck.calendar.month — timer com tags view (general|discipline) e cache (hit|miss);</li>
+ *   <li>medcheck.listing.rows — linhas devolvidas por listagem (tag endpoint);</li>
+ *   <li>medcheck.job / medcheck.job.rows — duração e linhas tocadas por job agendado (tag job).</li>
+ * </ul>
+ * Histogramas (p95/p99 por percentil no Prometheus) ligados por management.metrics.distribution.*.
+ */
+@Component
+public class HotPathMetrics {
+
+    private final MeterRegistry registry;
+
+    public HotPathMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** Executa e registra a duração com tag outcome derivada da exceção (relançada). */
+    public <T> T timed(String name, Tags tags, Supplier<T> body) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "ok";
+        try {
+            return body.get();
+        } catch (RuntimeException e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            sample.stop(registry.timer(name, tags.and("outcome", outcome)));
+        }
+    }
+
+    /** Para quando as tags só são conhecidas depois da execução (ex.: hit/miss de cache). */
+    public void record(String name, Tags tags, long nanos) {
+        registry.timer(name, tags).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rows(String endpoint, long rows) {
+        DistributionSummary.builder("medcheck.listing.rows")
+                .tag("endpoint", endpoint)
+                .baseUnit("rows")
+                .register(registry)
+                .record(rows);
+    }
+
+    /** Job agendado: body devolve as linhas tocadas (null conta como 0), repassadas ao chamador. */
+    public Integer job(String job, Supplier<Integer> body) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "ok";
+        try {
+            Integer rows = body.get();
+            DistributionSummary.builder("medcheck.job.rows").tag("job", job).baseUnit("rows").register(registry)
+                    .record(rows == null ? 0 : rows);
+            return rows;
+        } catch (RuntimeException e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            sample.stop(registry.timer("medcheck.job", "job", job, "outcome", outcome));
+        }
+    }
+
+    // Mensagens das regras de negócio (IllegalStateException) viram poucos valores fixos de tag
+    static String outcome(Throwable e) {
+        String msg = e.getMessage() == null ? "" : e.getMessage();
+        if (msg.startsWith("Código inválido")) return "invalid_code";
+        if (msg.startsWith("Já em serviço")) return "already_in_service";
+        if (msg.startsWith("Nenhum check-in ativo")) return "no_active_session";
+        if (msg.startsWith("Sistema ocupado") || msg.startsWith("Tempo esgotado")) return "busy";
+        if (e instanceof IllegalStateException) return "rejected";
+        return "error";
+    }
+}
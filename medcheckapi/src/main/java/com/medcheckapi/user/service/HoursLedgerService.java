@@ -0,0 +1,153 @@
+package com.medcheckapi.user.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Livro de horas: segundos trabalhados por (aluno, disciplina, preceptor, dia) em hours_ledger e o total por
+ * (aluno, disciplina) em hours_totals. {@link #record} soma uma sessão fechada e deve rodar na transação que
+ * grava o check-out (manual ou auto-fechamento): o livro nunca diverge das sessões gravadas.
+ *
+ * Progresso e avaliação leem o total pronto (uma linha por disciplina) em vez de somar o histórico de sessões.
+ * Dias seguem a regra do calendário ({@link WorkedTimeEngine#split}); sessão sem disciplina fica em discipline_id = 0.
+ */
+@Service
+public class HoursLedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(HoursLedgerService.class);
+
+    private static final String LEDGER_UPSERT = """
+            INSERT INTO hours_ledger (aluno_id, discipline_id, preceptor_id, day, worked_seconds, session_count)
+            VALUES (:aluno, :discipline, :preceptor, :day, :worked, :sessions)
+            ON DUPLICATE KEY UPDATE worked_seconds = worked_seconds + VALUES(worked_seconds),
+                                    session_count = session_count + VALUES(session_count)
+            """;
+
+    private static final String TOTALS_UPSERT = """
+            INSERT INTO hours_totals (aluno_id, discipline_id, worked_seconds, session_count)
+            VALUES (:aluno, :discipline, :worked, :sessions)
+            ON DUPLICATE KEY UPDATE worked_seconds = worked_seconds + VALUES(worked_seconds),
+                                    session_count = session_count + VALUES(session_count)
+            """;
+
+    /** Total do aluno numa disciplina; requiredHours = carga horária da disciplina (0 se sem disciplina). */
+    public record DisciplineHours(long disciplineId, String code, String name, int requiredHours,
+                                  long workedSeconds, int sessions) {
+        /** Fração concluída (0..1), limitada a 1. */
+        public double progress() {
+            if (requiredHours <= 0) return 0;
+            return Math.min(1.0, workedSeconds / (requiredHours * 3600.0));
+        }
+    }
+
+    private record DayKey(long disciplineId, long preceptorId, long epochDay) {}
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    public HoursLedgerService(NamedParameterJdbcTemplate jdbc, PlatformTransactionManager txManager) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /** Soma a sessão fechada ao livro (participa da transação corrente). */
+    public void record(Long alunoId, Long preceptorId, Long disciplineId, LocalDateTime checkIn, LocalDateTime checkOut) {
+        long discipline = disciplineId == null ? CalendarSummaryService.NO_DISCIPLINE : disciplineId;
+        List<MapSqlParameterSource> days = new ArrayList<>(2);
+        long[] total = {0};
+        WorkedTimeEngine.split(WorkedTimeEngine.epoch(checkIn), WorkedTimeEngine.epoch(checkOut), (epochDay, secs) -> {
+            total[0] += secs;
+            days.add(row(alunoId, discipline, preceptorId).addValue("day", Date.valueOf(LocalDate.ofEpochDay(epochDay)))
+                    .addValue("worked", secs).addValue("sessions", 1));
+        });
+        jdbc.batchUpdate(LEDGER_UPSERT, days.toArray(MapSqlParameterSource[]::new));
+        jdbc.update(TOTALS_UPSERT, new MapSqlParameterSource("aluno", alunoId).addValue("discipline", discipline)
+                .addValue("worked", total[0]).addValue("sessions", 1));
+    }
+
+    /** Totais do aluno por disciplina (leitura direta de hours_totals). */
+    public List<DisciplineHours> progress(Long alunoId) {
+        return jdbc.query("""
+                SELECT t.discipline_id, d.code, d.name, COALESCE(d.hours, 0) AS hours, t.worked_seconds, t.session_count
+                FROM hours_totals t LEFT JOIN disciplines d ON d.id = t.discipline_id
+                WHERE t.aluno_id = :aluno
+                ORDER BY d.code
+                """, new MapSqlParameterSource("aluno", alunoId), (rs, i) -> new DisciplineHours(
+                rs.getLong("discipline_id"), rs.getString("code"), rs.getString("name"), rs.getInt("hours"),
+                rs.getLong("worked_seconds"), rs.getInt("session_count")));
+    }
+
+    /** Total acumulado na disciplina para cada aluno informado (ausente = 0). */
+    public Map<Long, Long> totals(Long disciplineId, Collection<Long> alunoIds) {
+        Map<Long, Long> out = new HashMap<>();
+        if (alunoIds.isEmpty()) return out;
+        jdbc.query("SELECT aluno_id, worked_seconds FROM hours_totals WHERE discipline_id = :discipline AND aluno_id IN (:ids)",
+                new MapSqlParameterSource("discipline", disciplineId).addValue("ids", alunoIds),
+                rs -> { out.put(rs.getLong(1), rs.getLong(2)); });
+        return out;
+    }
+
+    /** Refaz o livro do aluno a partir das sessões fechadas (transação própria). */
+    public void rebuild(Long alunoId) {
+        tx.executeWithoutResult(status -> {
+            MapSqlParameterSource p = new MapSqlParameterSource("aluno", alunoId);
+            Map<DayKey, long[]> days = new TreeMap<>(Comparator.comparingLong(DayKey::disciplineId)
+                    .thenComparingLong(DayKey::preceptorId).thenComparingLong(DayKey::epochDay));
+            Map<Long, long[]> totals = new TreeMap<>();
+            jdbc.query("SELECT COALESCE(discipline_id, 0) AS dk, preceptor_id, check_in_time, check_out_time " +
+                    "FROM check_sessions WHERE aluno_id = :aluno AND check_out_time IS NOT NULL", p, rs -> {
+                long dk = rs.getLong("dk");
+                long preceptor = rs.getLong("preceptor_id");
+                long[] t = totals.computeIfAbsent(dk, k -> new long[2]);
+                t[1]++;
+                WorkedTimeEngine.split(WorkedTimeEngine.epoch(rs.getTimestamp("check_in_time").toLocalDateTime()),
+                        WorkedTimeEngine.epoch(rs.getTimestamp("check_out_time").toLocalDateTime()), (epochDay, secs) -> {
+                            long[] d = days.computeIfAbsent(new DayKey(dk, preceptor, epochDay), k -> new long[2]);
+                            d[0] += secs;
+                            d[1]++;
+                            t[0] += secs;
+                        });
+            });
+            jdbc.update("DELETE FROM hours_ledger WHERE aluno_id = :aluno", p);
+            jdbc.update("DELETE FROM hours_totals WHERE aluno_id = :aluno", p);
+            List<MapSqlParameterSource> rows = new ArrayList<>(days.size());
+            days.forEach((k, v) -> rows.add(row(alunoId, k.disciplineId(), k.preceptorId())
+                    .addValue("day", Date.valueOf(LocalDate.ofEpochDay(k.epochDay())))
+                    .addValue("worked", v[0]).addValue("sessions", v[1])));
+            jdbc.batchUpdate(LEDGER_UPSERT, rows.toArray(MapSqlParameterSource[]::new));
+            List<MapSqlParameterSource> totalRows = new ArrayList<>(totals.size());
+            totals.forEach((dk, v) -> totalRows.add(new MapSqlParameterSource("aluno", alunoId).addValue("discipline", dk)
+                    .addValue("worked", v[0]).addValue("sessions", v[1])));
+            jdbc.batchUpdate(TOTALS_UPSERT, totalRows.toArray(MapSqlParameterSource[]::new));
+        });
+    }
+
+    /** Monta o livro de alunos com sessões fechadas que ainda não têm totais (seeds, dados anteriores à tabela). */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        List<Long> alunos = jdbc.getJdbcTemplate().queryForList("""
+                SELECT DISTINCT aluno_id FROM check_sessions
+                WHERE check_out_time IS NOT NULL AND aluno_id NOT IN (SELECT aluno_id FROM hours_totals)
+                """, Long.class);
+        alunos.forEach(this::rebuild);
+        if (!alunos.isEmpty()) log.info("[HOURS-LEDGER] Livro de horas montado para {} alunos", alunos.size());
+    }
+
+    private static MapSqlParameterSource row(Long alunoId, long discipline, long preceptor) {
+        return new MapSqlParameterSource("aluno", alunoId).addValue("discipline", discipline).addValue("preceptor", preceptor);
+    }
+}
@@ -0,0 +1,157 @@
+package com.medcheckapi.user.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Códigos vigentes em memória (um por preceptor), sem consultas ao banco na geração/validação.
+ * Ao expirar, o código é retirado do mapa e, se foi usado, entra na fila de histórico, que é
+ * gravada em check_codes em lote pelo agendador. Códigos nunca usados não são gravados (seriam
+ * removidos pela limpeza de qualquer forma).
+ *
+ * Atenção: o estado é local à instância; com várias réplicas use o modo database (ou totp).
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.check-code", name = "mode", havingValue = "memory")
+public class InMemoryCheckCodeEngine implements CheckCodeEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryCheckCodeEngine.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO check_codes (preceptor_id, code, generated_at, expires_at, usage_count, last_accessed_at) VALUES (?,?,?,?,?,?)";
+    private static final int BATCH_SIZE = 500;
+    private static final ZoneId ACRE_ZONE = ZoneId.of("America/Rio_Branco");
+
+    static final class Slot {
+        final Long preceptorId;
+        final IssuedCode issued;
+        final AtomicInteger usage = new AtomicInteger();
+        volatile LocalDateTime lastAccessedAt;
+
+        Slot(Long preceptorId, IssuedCode issued) {
+            this.preceptorId = preceptorId;
+            this.issued = issued;
+            this.lastAccessedAt = issued.generatedAt();
+        }
+
+        boolean validAt(LocalDateTime now) { return issued.expiresAt().isAfter(now); }
+    }
+
+    private final Map<Long, Slot> current = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Slot> retired = new ConcurrentLinkedQueue<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final SecureRandom random = new SecureRandom();
+    private final Clock clock;
+
+    public InMemoryCheckCodeEngine(JdbcTemplate jdbcTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    @Override
+    public IssuedCode currentCode(Long preceptorId, LocalDateTime now) {
+        Slot slot = current.compute(preceptorId, (id, existing) -> {
+            if (existing != null && existing.validAt(now)) return existing;
+            if (existing != null) retire(existing);
+            return new Slot(id, new IssuedCode(CheckCodes.random(random), now, now.plusSeconds(CODE_VALIDITY_SECONDS)));
+        });
+        return slot.issued;
+    }
+
+    @Override
+    public Optional<IssuedCode> activeCode(Long preceptorId, LocalDateTime now) {
+        Slot slot = current.get(preceptorId);
+        return slot != null && slot.validAt(now) ? Optional.of(slot.issued) : Optional.empty();
+    }
+
+    @Override
+    public void consume(Long preceptorId, String code, LocalDateTime now) {
+        Slot slot = current.get(preceptorId);
+        if (slot == null || !slot.validAt(now) || code == null || !slot.issued.code().equalsIgnoreCase(code.trim())) {
+            throw new IllegalStateException("Código inválido ou expirado");
+        }
+        // Contabiliza só se o check-in for efetivado (equivalente ao rollback do modo database)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { recordUse(slot, now); }
+            });
+        } else {
+            recordUse(slot, now);
+        }
+    }
+
+    private void recordUse(Slot slot, LocalDateTime now) {
+        slot.usage.incrementAndGet();
+        slot.lastAccessedAt = now;
+    }
+
+    private void retire(Slot slot) {
+        if (slot.usage.get() > 0) retired.add(slot);
+    }
+
+    /** Retira os códigos expirados e grava o histórico pendente em lote. */
+    @Scheduled(fixedDelayString = "${app.check-code.flush-interval-ms:5000}")
+    public void flush() {
+        LocalDateTime now = LocalDateTime.now(clock.withZone(ACRE_ZONE));
+        // Remoção condicional: não descarta um slot recém-renovado por outra thread
+        current.forEach((id, slot) -> {
+            if (!slot.validAt(now) && current.remove(id, slot)) retire(slot);
+        });
+        writeRetired();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        current.forEach((id, slot) -> {
+            if (current.remove(id, slot)) retire(slot);
+        });
+        writeRetired();
+    }
+
+    private void writeRetired() {
+        List<Slot> batch = new ArrayList<>();
+        Slot s;
+        while ((s = retired.poll()) != null) {
+            batch.add(s);
+            if (batch.size() == BATCH_SIZE) { insert(batch); batch.clear(); }
+        }
+        if (!batch.isEmpty()) insert(batch);
+    }
+
+    private void insert(List<Slot> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, slot) -> {
+                ps.setLong(1, slot.preceptorId);
+                ps.setString(2, slot.issued.code());
+                ps.setTimestamp(3, Timestamp.valueOf(slot.issued.generatedAt()));
+                ps.setTimestamp(4, Timestamp.valueOf(slot.issued.expiresAt()));
+                ps.setInt(5, slot.usage.get());
+                ps.setTimestamp(6, Timestamp.valueOf(slot.lastAccessedAt));
+            });
+        } catch (RuntimeException ex) {
+            // Histórico é informativo: registra e descarta o lote para não travar o agendador
+            log.warn("[CHECK-CODE] Falha ao gravar {} códigos no histórico: {}", batch.size(), ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.dto.AcreDateTimeSerializer;
+import com.medcheckapi.user.model.Role;
+import com.medcheckapi.user.security.AuthenticatedUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Painel ao vivo do preceptor sobre o broker STOMP existente: em vez de cada aba consultar o código e a lista
+ * de alunos periodicamente, os eventos são empurrados para
+ * <ul>
+ *   <li>/topic/preceptor/{id}: CODE (rotação do código), CHECK_IN, CHECK_OUT e AUTO_CLOSE das sessões com ele;</li>
+ *   <li>/topic/discipline/{id}: CHECK_IN, CHECK_OUT e AUTO_CLOSE da disciplina.</li>
+ * </ul>
+ * Sessões vêm dos {@link CheckSessionEvent} (após o commit). Códigos só giram para preceptores inscritos no
+ * próprio tópico: a cada expiração o código seguinte é emitido e publicado. O estado inicial vem do snapshot
+ * (/app/.../snapshot, ver LiveDashboardController). Acesso controlado no StompJwtChannelInterceptor.
+ */
+@Component
+public class LiveDashboardPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveDashboardPublisher.class);
+    private static final Pattern PRECEPTOR_TOPIC = Pattern.compile("^/topic/preceptor/(\\d+)$");
+
+    public static String preceptorTopic(Long preceptorId) { return "/topic/preceptor/" + preceptorId; }
+    public static String disciplineTopic(Long disciplineId) { return "/topic/discipline/" + disciplineId; }
+
+    private final SimpMessageSendingOperations messaging;
+    private final CheckInService checkInService;
+    private final JdbcTemplate jdbc;
+    // "sessão STOMP:inscrição" -> preceptor observado
+    private final Map<String, Long> preceptorSubscriptions = new ConcurrentHashMap<>();
+    // preceptor -> instante (ms) da próxima rotação a publicar
+    private final Map<Long, Long> nextRotation = new ConcurrentHashMap<>();
+
+    public LiveDashboardPublisher(SimpMessageSendingOperations messaging, CheckInService checkInService, JdbcTemplate jdbc) {
+        this.messaging = messaging;
+        this.checkInService = checkInService;
+        this.jdbc = jdbc;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(CheckSessionEvent e) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("type", e.type() == CheckSessionEvent.Type.OPENED ? "CHECK_IN" : e.autoClosed() ? "AUTO_CLOSE" : "CHECK_OUT");
+        m.put("sessionId", e.sessionId());
+        m.put("alunoId", e.alunoId());
+        m.put("alunoName", alunoName(e));
+        m.put("preceptorId", e.preceptorId());
+        m.put("disciplineId", e.disciplineId());
+        m.put("checkInTime", AcreDateTimeSerializer.format(e.checkInTime()));
+        try {
+            messaging.convertAndSend(preceptorTopic(e.preceptorId()), m);
+            if (e.disciplineId() != null) messaging.convertAndSend(disciplineTopic(e.disciplineId()), m);
+        } catch (RuntimeException ex) {
+            log.warn("[LIVE] Falha ao publicar evento da sessão {}: {}", e.sessionId(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Estado inicial do preceptor: código vigente + alunos em serviço com ele. Só o próprio preceptor gera
+     * código novo; COORDENADOR/ADMIN veem o vigente (como em /api/check/admin/preceptor/{id}/code).
+     */
+    public Map<String, Object> preceptorSnapshot(Long preceptorId, boolean self) {
+        Map<String, Object> code;
+        if (self) {
+            code = checkInService.getOrCreateCurrentCode(preceptorId, Role.PRECEPTOR);
+            scheduleNext(preceptorId, code);
+        } else {
+            code = checkInService.getActiveCodeReadOnly(preceptorId);
+        }
+        Map<String, Object> m = new HashMap<>();
+        m.put("type", "SNAPSHOT");
+        m.put("code", code);
+        m.put("onShift", checkInService.onShift(preceptorId, null));
+        return m;
+    }
+
+    /** Estado inicial da disciplina: alunos em serviço. */
+    public Map<String, Object> disciplineSnapshot(Long disciplineId) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("type", "SNAPSHOT");
+        m.put("onShift", checkInService.onShift(null, disciplineId));
+        return m;
+    }
+
+    // Rotação dos códigos dos preceptores observados (só emite quando o código vigente expira)
+    @Scheduled(fixedDelay = 1000)
+    public void publishCodeRotations() {
+        Set<Long> watched = new HashSet<>(preceptorSubscriptions.values());
+        nextRotation.keySet().retainAll(watched);
+        long now = System.currentTimeMillis();
+        for (Long preceptorId : watched) {
+            if (nextRotation.getOrDefault(preceptorId, 0L) > now) continue;
+            try {
+                Map<String, Object> code = checkInService.getOrCreateCurrentCode(preceptorId, Role.PRECEPTOR);
+                scheduleNext(preceptorId, code);
+                Map<String, Object> m = new HashMap<>(code);
+                m.put("type", "CODE");
+                messaging.convertAndSend(preceptorTopic(preceptorId), m);
+            } catch (RuntimeException ex) {
+                // Usuário não é (mais) preceptor ou banco indisponível: tenta de novo mais tarde
+                nextRotation.put(preceptorId, now + 30_000);
+                log.warn("[LIVE] Falha ao rotacionar código do preceptor {}: {}", preceptorId, ex.getMessage());
+            }
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor a = StompHeaderAccessor.wrap(event.getMessage());
+        if (a.getDestination() == null) return;
+        Matcher m = PRECEPTOR_TOPIC.matcher(a.getDestination());
+        // Só a inscrição do próprio preceptor mantém o código girando (observadores não geram códigos)
+        if (m.matches() && event.getUser() instanceof Authentication auth
+                && auth.getPrincipal() instanceof AuthenticatedUser u && u.getId().equals(Long.valueOf(m.group(1)))) {
+            preceptorSubscriptions.put(a.getSessionId() + ":" + a.getSubscriptionId(), u.getId());
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor a = StompHeaderAccessor.wrap(event.getMessage());
+        preceptorSubscriptions.remove(a.getSessionId() + ":" + a.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String prefix = event.getSessionId() + ":";
+        preceptorSubscriptions.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    int watchedPreceptors() {
+        return new HashSet<>(preceptorSubscriptions.values()).size();
+    }
+
+    private void scheduleNext(Long preceptorId, Map<String, Object> code) {
+        Object remaining = code.get("secondsRemaining");
+        long secs = remaining instanceof Number n ? Math.max(1, n.longValue()) : 1;
+        nextRotation.put(preceptorId, System.currentTimeMillis() + secs * 1000);
+    }
+
+    private String alunoName(CheckSessionEvent e) {
+        try {
+            return jdbc.queryForObject("SELECT name FROM users WHERE id = ?", String.class, e.alunoId());
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.medcheckapi.user.service;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+
+/**
+ * Fila de e-mails (mail_outbox). {@link #enqueue} só grava a linha — na transação de quem chama, então o e-mail
+ * existe se e somente se a operação de origem (ex.: token de redefinição) foi confirmada. O envio SMTP fica com o
+ * {@link MailOutboxDispatcher}, fora da requisição e sem segurar conexão do banco.
+ */
+@Service
+public class MailOutbox {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final Clock clock;
+
+    public MailOutbox(NamedParameterJdbcTemplate jdbc, Clock clock) {
+        this.jdbc = jdbc;
+        this.clock = clock;
+    }
+
+    public void enqueue(String recipient, String subject, String body) {
+        Timestamp now = Timestamp.from(clock.instant());
+        jdbc.update("INSERT INTO mail_outbox (recipient, subject, body, status, attempts, next_attempt_at, created_at) " +
+                        "VALUES (:to, :subject, :body, 'PENDING', 0, :now, :now)",
+                new MapSqlParameterSource("to", recipient)
+                        .addValue("subject", subject)
+                        .addValue("body", body)
+                        .addValue("now", now));
+    }
+}
@@ -0,0 +1,227 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envia a fila {@link MailOutbox} em lotes: cada lote sai numa única conexão SMTP
+ * ({@link JavaMailSender#send(SimpleMailMessage...)} conecta uma vez e reaproveita o transporte).
+ *
+ * As linhas são reservadas antes do envio (next_attempt_at empurrado {@link #CLAIM_SECONDS} à frente, uma a uma
+ * com checagem do valor lido): nenhuma transação fica aberta durante o SMTP e outra instância não pega o mesmo
+ * e-mail; se o processo cair no meio do lote, as linhas voltam à fila quando a reserva vence.
+ * Falha por destinatário ou de conexão = nova tentativa com backoff exponencial; esgotadas as tentativas, FAILED.
+ *
+ * Métricas: mail.outbox.depth (pendentes), mail.outbox.send (duração do lote SMTP),
+ * mail.outbox.delivery (enfileirado → entregue) e contadores mail.outbox.sent/retried/failed.
+ */
+@Component
+public class MailOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MailOutboxDispatcher.class);
+
+    static final long CLAIM_SECONDS = 300;
+    // Lotes seguidos por varredura quando a fila está cheia (rajada de redefinições no início do semestre)
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private static final String DUE_SQL = """
+            SELECT id, recipient, subject, body, attempts, next_attempt_at, created_at FROM mail_outbox
+            WHERE status = 'PENDING' AND next_attempt_at <= :now
+            ORDER BY next_attempt_at, id
+            LIMIT :limit
+            """;
+
+    private record Pending(long id, String recipient, String subject, String body, int attempts,
+                           Timestamp nextAttemptAt, Instant createdAt) {}
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final JavaMailSender mailSender;
+    private final AppProperties.MailOutbox config;
+    private final Clock clock;
+    private final SchedulerLock schedulerLock;
+    private final AtomicLong depth = new AtomicLong();
+    private final Timer sendTimer;
+    private final Timer deliveryTimer;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+
+    // Se nao definido app.mail.from, usa spring.mail.username; se tambem vazio, fica sem From
+    @Value("${app.mail.from:${spring.mail.username:}}")
+    private String mailFrom;
+
+    public MailOutboxDispatcher(NamedParameterJdbcTemplate jdbc, JavaMailSender mailSender, AppProperties appProperties,
+                                MeterRegistry registry, Clock clock, SchedulerLock schedulerLock) {
+        this.jdbc = jdbc;
+        this.schedulerLock = schedulerLock;
+        this.mailSender = mailSender;
+        this.config = appProperties.getMailOutbox();
+        this.clock = clock;
+        registry.gauge("mail.outbox.depth", depth);
+        this.sendTimer = Timer.builder("mail.outbox.send").description("Duração de um lote SMTP").register(registry);
+        this.deliveryTimer = Timer.builder("mail.outbox.delivery").description("Tempo entre enfileirar e entregar").register(registry);
+        this.sent = registry.counter("mail.outbox.sent");
+        this.retried = registry.counter("mail.outbox.retried");
+        this.failed = registry.counter("mail.outbox.failed");
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail-outbox.poll-interval-ms:2000}")
+    public void poll() {
+        try {
+            // Uma instância envia por vez; a reserva por linha continua valendo se o lease vencer no meio do lote
+            schedulerLock.runExclusive("mail-outbox", Duration.ofSeconds(CLAIM_SECONDS), Duration.ZERO, () -> {
+                int batch = Math.max(1, config.getBatchSize());
+                for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                    if (dispatchOnce() < batch) break;
+                }
+            });
+            refreshDepth();
+        } catch (RuntimeException e) {
+            log.error("[MAIL-OUTBOX] Falha na varredura da fila", e);
+        }
+    }
+
+    /** Reserva e envia um lote; devolve quantos e-mails foram tentados. */
+    int dispatchOnce() {
+        Instant now = clock.instant();
+        Timestamp nowTs = Timestamp.from(now);
+        List<Pending> due = jdbc.query(DUE_SQL, new MapSqlParameterSource("now", nowTs)
+                .addValue("limit", Math.max(1, config.getBatchSize())), (rs, i) -> new Pending(
+                rs.getLong("id"), rs.getString("recipient"), rs.getString("subject"), rs.getString("body"),
+                rs.getInt("attempts"), rs.getTimestamp("next_attempt_at"), rs.getTimestamp("created_at").toInstant()));
+        if (due.isEmpty()) return 0;
+
+        List<Pending> claimed = claim(due, Timestamp.from(now.plusSeconds(CLAIM_SECONDS)));
+        if (claimed.isEmpty()) return 0;
+
+        Map<SimpleMailMessage, Pending> batch = new IdentityHashMap<>();
+        for (Pending p : claimed) batch.put(toMessage(p), p);
+        Map<Object, Exception> failures = send(batch);
+
+        Instant done = clock.instant();
+        List<MapSqlParameterSource> ok = new ArrayList<>();
+        List<MapSqlParameterSource> retry = new ArrayList<>();
+        batch.forEach((msg, p) -> {
+            Exception error = failures.get(msg);
+            if (error == null) {
+                ok.add(new MapSqlParameterSource("id", p.id()).addValue("now", Timestamp.from(done)));
+                deliveryTimer.record(Duration.between(p.createdAt(), done));
+                sent.increment();
+                return;
+            }
+            int attempts = p.attempts() + 1;
+            boolean giveUp = attempts >= config.getMaxAttempts();
+            retry.add(new MapSqlParameterSource("id", p.id())
+                    .addValue("status", giveUp ? "FAILED" : "PENDING")
+                    .addValue("next", Timestamp.from(done.plus(backoff(attempts))))
+                    .addValue("error", truncate(String.valueOf(error.getMessage()), 500)));
+            if (giveUp) {
+                failed.increment();
+                log.error("[MAIL-OUTBOX] E-mail id={} para {} descartado após {} tentativas: {}", p.id(), p.recipient(), attempts, error.getMessage());
+            } else {
+                retried.increment();
+                log.warn("[MAIL-OUTBOX] E-mail id={} falhou (tentativa {}): {}", p.id(), attempts, error.getMessage());
+            }
+        });
+        if (!ok.isEmpty()) {
+            jdbc.batchUpdate("UPDATE mail_outbox SET status = 'SENT', attempts = attempts + 1, sent_at = :now, " +
+                    "body = NULL, last_error = NULL WHERE id = :id", ok.toArray(MapSqlParameterSource[]::new));
+        }
+        if (!retry.isEmpty()) {
+            jdbc.batchUpdate("UPDATE mail_outbox SET status = :status, attempts = attempts + 1, next_attempt_at = :next, " +
+                    "last_error = :error WHERE id = :id", retry.toArray(MapSqlParameterSource[]::new));
+        }
+        return claimed.size();
+    }
+
+    void refreshDepth() {
+        Long n = jdbc.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM mail_outbox WHERE status = 'PENDING'", Long.class);
+        depth.set(n == null ? 0 : n);
+    }
+
+    // Só fica com a linha quem ainda vê o next_attempt_at lido: duas instâncias não reservam o mesmo e-mail
+    private List<Pending> claim(List<Pending> due, Timestamp lease) {
+        MapSqlParameterSource[] params = due.stream().map(p -> new MapSqlParameterSource("id", p.id())
+                .addValue("seen", p.nextAttemptAt())
+                .addValue("lease", lease)).toArray(MapSqlParameterSource[]::new);
+        int[] counts = jdbc.batchUpdate("UPDATE mail_outbox SET next_attempt_at = :lease " +
+                "WHERE id = :id AND status = 'PENDING' AND next_attempt_at = :seen", params);
+        List<Pending> claimed = new ArrayList<>(due.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) claimed.add(due.get(i)); // SUCCESS_NO_INFO (-2) conta como reservado
+        }
+        return claimed;
+    }
+
+    // Falhas por mensagem (chaveadas pela mensagem original); erro de conexão/autenticação derruba o lote inteiro
+    private Map<Object, Exception> send(Map<SimpleMailMessage, Pending> batch) {
+        SimpleMailMessage[] messages = batch.keySet().toArray(SimpleMailMessage[]::new);
+        Timer.Sample sample = Timer.start();
+        try {
+            mailSender.send(messages);
+            return Map.of();
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) return allFailed(messages, e);
+            Map<Object, Exception> failures = new IdentityHashMap<>();
+            // getFailedMessages usa equals(): remapeia para as instâncias do lote
+            for (SimpleMailMessage m : messages) {
+                Exception ex = e.getFailedMessages().get(m);
+                if (ex != null) failures.put(m, ex);
+            }
+            return failures;
+        } catch (MailException e) {
+            return allFailed(messages, e);
+        } finally {
+            sample.stop(sendTimer);
+        }
+    }
+
+    private static Map<Object, Exception> allFailed(SimpleMailMessage[] messages, Exception e) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        for (SimpleMailMessage m : messages) failures.put(m, e);
+        return failures;
+    }
+
+    private SimpleMailMessage toMessage(Pending p) {
+        SimpleMailMessage msg = new SimpleMailMessage();
+        msg.setTo(p.recipient());
+        if (mailFrom != null && !mailFrom.isBlank()) msg.setFrom(mailFrom);
+        msg.setSubject(p.subject());
+        msg.setText(p.body());
+        return msg;
+    }
+
+    Duration backoff(int attempts) {
+        long base = Math.max(1, config.getInitialBackoffSeconds());
+        long max = Math.max(base, config.getMaxBackoffSeconds());
+        int shift = Math.min(attempts - 1, 30);
+        return Duration.ofSeconds(Math.min(max, base << shift));
+    }
+
+    private static String truncate(String s, int max) {
+        return s.length() <= max ? s : s.substring(0, max);
+    }
+}
@@ -0,0 +1,99 @@
+package com.medcheckapi.user.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sessões abertas (check-in sem check-out) indexadas por aluno. Carregado uma vez na subida e mantido pelos
+ * {@link CheckSessionEvent} de check-in, check-out e auto-fechamento, aplicados só após o commit.
+ * Serve de cache para o caminho quente: pré-checagem do check-in (confirmada no banco), "quem está no turno
+ * agora" do painel ao vivo e os prazos do auto-fechamento.
+ *
+ * Atenção: o estado é local à instância e só vê os eventos dela. Nada que precise valer entre instâncias lê
+ * daqui: "em serviço" e os filtros de status das listagens consultam check_out_time IS NULL no banco.
+ */
+@Component
+public class OpenSessionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenSessionRegistry.class);
+
+    private static final String LOAD_SQL =
+            "SELECT id, aluno_id, preceptor_id, discipline_id, check_in_time FROM check_sessions WHERE check_out_time IS NULL";
+
+    /** Sessão aberta do aluno. disciplineId pode ser null (sessões legadas). */
+    public record OpenSession(Long sessionId, Long alunoId, Long preceptorId, Long disciplineId, LocalDateTime checkInTime) {}
+
+    private final Map<Long, OpenSession> byAluno = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+
+    public OpenSessionRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void load() {
+        byAluno.clear();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            long discipline = rs.getLong("discipline_id");
+            put(new OpenSession(rs.getLong("id"), rs.getLong("aluno_id"), rs.getLong("preceptor_id"),
+                    rs.wasNull() ? null : discipline, rs.getTimestamp("check_in_time").toLocalDateTime()));
+        });
+        log.info("[OPEN-SESSIONS] {} sessões abertas carregadas", byAluno.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(CheckSessionEvent e) {
+        if (e.type() == CheckSessionEvent.Type.OPENED) {
+            put(new OpenSession(e.sessionId(), e.alunoId(), e.preceptorId(), e.disciplineId(), e.checkInTime()));
+        } else {
+            // Só remove se for a mesma sessão (não apaga um check-in mais novo)
+            byAluno.computeIfPresent(e.alunoId(), (id, cur) -> Objects.equals(cur.sessionId(), e.sessionId()) ? null : cur);
+        }
+    }
+
+    // Com mais de uma sessão aberta (dados legados) prevalece a mais recente, como no findFirst...Desc
+    private void put(OpenSession s) {
+        byAluno.merge(s.alunoId(), s, (cur, nu) -> nu.checkInTime().isBefore(cur.checkInTime()) ? cur : nu);
+    }
+
+    public Optional<OpenSession> find(Long alunoId) {
+        return Optional.ofNullable(byAluno.get(alunoId));
+    }
+
+    public boolean isInService(Long alunoId) {
+        return byAluno.containsKey(alunoId);
+    }
+
+    /** Em serviço com o preceptor e/ou na disciplina informados (null = qualquer). */
+    public boolean isInService(Long alunoId, Long preceptorId, Long disciplineId) {
+        OpenSession s = byAluno.get(alunoId);
+        return s != null && matches(s, preceptorId, disciplineId);
+    }
+
+    /** Quem está no turno agora (filtros opcionais), do check-in mais recente para o mais antigo. */
+    public List<OpenSession> onShift(Long preceptorId, Long disciplineId) {
+        List<OpenSession> out = new ArrayList<>();
+        for (OpenSession s : byAluno.values()) {
+            if (matches(s, preceptorId, disciplineId)) out.add(s);
+        }
+        out.sort(Comparator.comparing(OpenSession::checkInTime).reversed());
+        return out;
+    }
+
+    public int size() {
+        return byAluno.size();
+    }
+
+    private static boolean matches(OpenSession s, Long preceptorId, Long disciplineId) {
+        return (preceptorId == null || preceptorId.equals(s.preceptorId()))
+                && (disciplineId == null || disciplineId.equals(s.disciplineId()));
+    }
+}
@@ -5,11 +5,10 @@ import com.medcheckapi.user.model.PasswordResetToken;
 import com.medcheckapi.user.model.User;
 import com.medcheckapi.user.repository.PasswordResetTokenRepository;
 import com.medcheckapi.user.repository.UserRepository;
+import com.medcheckapi.user.security.PrincipalCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,8 +26,9 @@ public class PasswordResetService {
 
     private final UserRepository userRepository;
     private final PasswordResetTokenRepository tokenRepository;
-    private final JavaMailSender mailSender;
+    private final MailOutbox mailOutbox;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
 
     @Value("${app.reset.expiration.minutes:30}")
     private long expirationMinutes;
@@ -36,10 +36,6 @@ public class PasswordResetService {
     @Value("${app.reset.base-url:http://localhost:4200/reset-password}")
     private String baseUrl;
 
-    // Se nao definido app.mail.from, usa spring.mail.username; se tambem vazio, fica null
-    @Value("${app.mail.from:${spring.mail.username:}}")
-    private String mailFrom;
-
     @Value("${app.reset.log-link:true}")
     private boolean logLink;
 
@@ -55,12 +51,14 @@ public class PasswordResetService {
 
     public PasswordResetService(UserRepository userRepository,
                                 PasswordResetTokenRepository tokenRepository,
-                                JavaMailSender mailSender,
-                                PasswordEncoder passwordEncoder) {
+                                MailOutbox mailOutbox,
+                                PasswordEncoder passwordEncoder,
+                                PrincipalCache principalCache) {
         this.userRepository = userRepository;
         this.tokenRepository = tokenRepository;
-        this.mailSender = mailSender;
+        this.mailOutbox = mailOutbox;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
     }
 
     private String generateToken() {
@@ -86,12 +84,11 @@ public class PasswordResetService {
 
         String link = baseUrl + "?token=" + token.getToken();
         if (logLink) {
-            log.info("[RESET_LINK] link={} expiresAt={} userEmail={} smtpUserPresent={} from={} auth={} starttls={}",
+            log.info("[RESET_LINK] link={} expiresAt={} userEmail={} smtpUserPresent={} auth={} starttls={}",
                 link,
                 token.getExpiresAt(),
                 user.getInstitutionalEmail(),
                 (smtpUser != null && !smtpUser.isBlank()),
-                mailFrom,
                 smtpAuth,
                 System.getProperty("mail.smtp.starttls.enable")
             );
@@ -101,23 +98,10 @@ public class PasswordResetService {
             log.warn("[RESET_EMAIL] SMTP auth=true mas credenciais ausentes (spring.mail.username/password). Email NAO enviado. Link acima pode ser usado para testes.");
             return;
         }
-        try {
-            SimpleMailMessage msg = new SimpleMailMessage();
-            msg.setTo(user.getInstitutionalEmail());
-            if (mailFrom != null && !mailFrom.isBlank()) {
-                msg.setFrom(mailFrom);
-            }
-            msg.setSubject("Redefinição de Senha");
-            msg.setText("Olá,\n\nClique no link para redefinir sua senha: " + link + "\n\nSe não solicitou, ignore.");
-            log.info("[RESET_EMAIL] Attempting send host={} userPresent={} from={}",
-                System.getProperty("spring.mail.host"),
-                (smtpUser != null && !smtpUser.isBlank()),
-                mailFrom);
-            mailSender.send(msg);
-            log.info("[RESET_EMAIL] Sent reset email to {}", user.getInstitutionalEmail());
-        } catch (Exception e) {
-            log.error("[RESET_EMAIL] Failed to send email", e);
-        }
+        // Só enfileira (mesma transação do token); o envio SMTP é do MailOutboxDispatcher
+        mailOutbox.enqueue(user.getInstitutionalEmail(), "Redefinição de Senha",
+            "Olá,\n\nClique no link para redefinir sua senha: " + link + "\n\nSe não solicitou, ignore.");
+        log.info("[RESET_EMAIL] Queued reset email to {}", user.getInstitutionalEmail());
     }
 
     @Transactional
@@ -131,6 +115,7 @@ public class PasswordResetService {
         if (user == null) return new ApiMessage("Token inválido");
         user.setPassword(passwordEncoder.encode(newPassword));
         token.setUsed(true);
+        principalCache.evict(user.getCpf());
         log.info("[RESET] Password updated for user id={}", user.getId());
         return new ApiMessage("Senha redefinida com sucesso");
     }
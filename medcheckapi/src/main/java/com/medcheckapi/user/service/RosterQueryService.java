@@ -0,0 +1,161 @@
+package com.medcheckapi.user.service;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Lista de alunos da disciplina para o coordenador: totais, último check-in, nº de preceptores e
+ * contagem total numa consulta agregada (ordenada e paginada no banco), mais uma consulta com os
+ * preceptores dos alunos da página. "Em serviço" (coluna e filtros de status) vem do banco
+ * (check_out_time IS NULL), não do {@link OpenSessionRegistry}, que é local a cada instância.
+ */
+@Service
+public class RosterQueryService {
+
+    private static final ZoneId ACRE_ZONE = ZoneId.of("America/Rio_Branco");
+    private static final int MAX_PRECEPTOR_NAMES = 3;
+
+    // Campos de ordenação aceitos -> expressão SQL (whitelist; nunca concatenar entrada do cliente)
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "lastCheckIn", "last_check_in",
+            "name", "u.name",
+            "totalHours", "total_seconds");
+
+    private static final String PROBE_SQL =
+            "SELECT 1 FROM check_sessions WHERE discipline_id = :disc AND check_in_time BETWEEN :start AND :end LIMIT 1";
+
+    // Sessão aberta do aluno u na disciplina (idx_cs_aluno_time)
+    private static final String OPEN_IN_DISCIPLINE =
+            "EXISTS (SELECT 1 FROM check_sessions o WHERE o.aluno_id = u.id AND o.check_out_time IS NULL AND o.discipline_id = :disc)";
+
+    private static final String PRECEPTORS_SQL = """
+            SELECT cs.aluno_id, p.name
+            FROM check_sessions cs JOIN users p ON p.id = cs.preceptor_id
+            WHERE cs.discipline_id = :disc AND cs.check_in_time BETWEEN :start AND :end AND cs.aluno_id IN (:ids)
+            GROUP BY cs.aluno_id, p.id, p.name
+            ORDER BY cs.aluno_id, p.name
+            """;
+
+    /** Filtros da listagem; q é resolvido pelo {@link UserSearchIndex}. */
+    public record RosterFilter(Long disciplineId, LocalDateTime start, LocalDateTime end, Long preceptorId,
+                               String q, boolean name, boolean email, boolean cpf, boolean phone,
+                               boolean statusIn, boolean statusOut) {}
+
+    public record RosterPage(List<Map<String, Object>> items, int page, int size, long totalItems) {
+        public int totalPages() { return size == 0 ? 0 : (int) ((totalItems + size - 1) / size); }
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final UserSearchIndex searchIndex;
+    private final Clock clock;
+
+    public RosterQueryService(NamedParameterJdbcTemplate jdbc, UserSearchIndex searchIndex, Clock clock) {
+        this.jdbc = jdbc;
+        this.searchIndex = searchIndex;
+        this.clock = clock;
+    }
+
+    /** Há alguma sessão na disciplina no período? (consulta indexada, sem agregação) */
+    public boolean hasSessions(Long disciplineId, LocalDateTime start, LocalDateTime end) {
+        MapSqlParameterSource p = new MapSqlParameterSource("disc", disciplineId)
+                .addValue("start", Timestamp.valueOf(start)).addValue("end", Timestamp.valueOf(end));
+        return !jdbc.queryForList(PROBE_SQL, p, Integer.class).isEmpty();
+    }
+
+    public RosterPage page(RosterFilter f, String sortField, boolean desc, int page, int size) {
+        MapSqlParameterSource p = new MapSqlParameterSource("disc", f.disciplineId())
+                .addValue("start", Timestamp.valueOf(f.start()))
+                .addValue("end", Timestamp.valueOf(f.end()))
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now(clock.withZone(ACRE_ZONE))))
+                .addValue("limit", size)
+                .addValue("offset", (long) page * size);
+        StringBuilder where = new StringBuilder("cs.discipline_id = :disc AND cs.check_in_time BETWEEN :start AND :end");
+        if (f.preceptorId() != null) {
+            where.append(" AND cs.preceptor_id = :preceptorId");
+            p.addValue("preceptorId", f.preceptorId());
+        }
+        if (f.q() != null && !f.q().isBlank()) {
+            searchIndex.appendMatch(where, p, "u", f.q(), new UserSearchIndex.Fields(f.name(), f.email(), f.cpf(), f.phone()));
+        }
+        if (!f.statusIn() && !f.statusOut()) {
+            where.append(" AND 1 = 0"); // nenhum status marcado: lista vazia, como nas demais listagens
+        } else if (f.statusIn() != f.statusOut()) {
+            // Só um dos status marcado: filtra pelos alunos em serviço na disciplina
+            where.append(f.statusIn() ? " AND " : " AND NOT ").append(OPEN_IN_DISCIPLINE);
+        }
+        String order = SORT_COLUMNS.getOrDefault(sortField, "last_check_in") + (desc ? " DESC" : " ASC");
+        String sql = """
+                SELECT u.id, u.name, u.cpf, u.phone, u.institutional_email,
+                       SUM(TIMESTAMPDIFF(SECOND, cs.check_in_time, COALESCE(cs.check_out_time, :now))) AS total_seconds,
+                       MAX(cs.check_in_time) AS last_check_in,
+                       COUNT(DISTINCT cs.preceptor_id) AS preceptor_count,
+                       CASE WHEN %s THEN 1 ELSE 0 END AS in_service,
+                       COUNT(*) OVER () AS total_rows
+                FROM check_sessions cs JOIN users u ON u.id = cs.aluno_id
+                WHERE %s
+                GROUP BY u.id, u.name, u.cpf, u.phone, u.institutional_email
+                ORDER BY %s, u.id
+                LIMIT :limit OFFSET :offset
+                """.formatted(OPEN_IN_DISCIPLINE, where, order);
+
+        long[] total = {0};
+        List<Map<String, Object>> items = jdbc.query(sql, p, (rs, i) -> {
+            total[0] = rs.getLong("total_rows");
+            Map<String, Object> m = new HashMap<>();
+            long alunoId = rs.getLong("id");
+            m.put("id", alunoId);
+            m.put("name", rs.getString("name"));
+            m.put("cpf", rs.getString("cpf"));
+            m.put("phone", rs.getString("phone"));
+            m.put("email", rs.getString("institutional_email"));
+            m.put("totalHours", Math.round(rs.getLong("total_seconds") / 3600.0));
+            Timestamp last = rs.getTimestamp("last_check_in");
+            m.put("lastCheckIn", last != null ? last.toLocalDateTime() : null);
+            m.put("preceptorCount", rs.getInt("preceptor_count"));
+            m.put("inService", rs.getInt("in_service") == 1);
+            return m;
+        });
+        if (items.isEmpty() && page > 0) {
+            // Página além do fim: total ainda é útil para o cliente voltar
+            total[0] = countOnly(where.toString(), p);
+        }
+        attachPreceptorNames(items, f);
+        return new RosterPage(items, page, size, total[0]);
+    }
+
+    private long countOnly(String where, MapSqlParameterSource p) {
+        Long n = jdbc.queryForObject("SELECT COUNT(DISTINCT cs.aluno_id) FROM check_sessions cs JOIN users u ON u.id = cs.aluno_id WHERE " + where, p, Long.class);
+        return n != null ? n : 0L;
+    }
+
+    // Até 3 nomes em ordem alfabética + "+n" (mesmo formato da listagem anterior)
+    private void attachPreceptorNames(List<Map<String, Object>> items, RosterFilter f) {
+        if (items.isEmpty()) return;
+        List<Long> ids = items.stream().map(m -> (Long) m.get("id")).toList();
+        MapSqlParameterSource p = new MapSqlParameterSource("disc", f.disciplineId())
+                .addValue("start", Timestamp.valueOf(f.start()))
+                .addValue("end", Timestamp.valueOf(f.end()))
+                .addValue("ids", ids);
+        Map<Long, List<String>> byAluno = new HashMap<>();
+        jdbc.query(PRECEPTORS_SQL, p, rs -> {
+            byAluno.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getString(2));
+        });
+        for (Map<String, Object> m : items) {
+            List<String> names = byAluno.getOrDefault((Long) m.get("id"), List.of());
+            if (names.size() > MAX_PRECEPTOR_NAMES) {
+                List<String> head = new ArrayList<>(names.subList(0, MAX_PRECEPTOR_NAMES));
+                head.add("+" + (names.size() - MAX_PRECEPTOR_NAMES));
+                m.put("preceptores", head);
+            } else {
+                m.put("preceptores", names);
+            }
+        }
+    }
+}
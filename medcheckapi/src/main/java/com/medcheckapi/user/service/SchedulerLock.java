@@ -0,0 +1,124 @@
+package com.medcheckapi.user.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Lease por job agendado (tabela scheduler_locks, uma linha por job): com várias instâncias atrás do balanceador,
+ * só quem pega o lease executa o tick; as demais pulam. Aquisição é um UPDATE condicional (locked_until vencido) ou,
+ * na primeira vez, um INSERT — sem SELECT ... FOR UPDATE nem transação aberta durante o job.
+ *
+ * lockAtMost limita o lease se a instância cair no meio do job (failover: outra assume no primeiro tick depois
+ * disso); lockAtLeast segura o lease após um job rápido para que as outras instâncias, com agendas defasadas,
+ * não repitam o mesmo tick. Todos os instantes (locked_at, locked_until e a comparação) vêm de CURRENT_TIMESTAMP(3)
+ * do banco: um único relógio decide, e a defasagem entre os relógios das instâncias não importa.
+ */
+@Component
+public class SchedulerLock {
+
+    private static final Logger log = LoggerFactory.getLogger(SchedulerLock.class);
+
+    private static final String ACQUIRE_SQL = """
+            UPDATE scheduler_locks
+            SET locked_until = TIMESTAMPADD(MICROSECOND, :atMost, CURRENT_TIMESTAMP(3)),
+                locked_at = CURRENT_TIMESTAMP(3), locked_by = :node
+            WHERE name = :name AND locked_until <= CURRENT_TIMESTAMP(3)
+            """;
+
+    private static final String INSERT_SQL = """
+            INSERT INTO scheduler_locks (name, locked_until, locked_at, locked_by)
+            VALUES (:name, TIMESTAMPADD(MICROSECOND, :atMost, CURRENT_TIMESTAMP(3)), CURRENT_TIMESTAMP(3), :node)
+            """;
+
+    // Só mexe no próprio lease (se venceu e outra instância assumiu, locked_at/locked_by já mudaram)
+    private static final String RELEASE_SQL = """
+            UPDATE scheduler_locks
+            SET locked_until = GREATEST(TIMESTAMPADD(MICROSECOND, :atLeast, locked_at), CURRENT_TIMESTAMP(3))
+            WHERE name = :name AND locked_by = :node AND locked_at = :lockedAt
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final String node;
+
+    @Autowired
+    public SchedulerLock(NamedParameterJdbcTemplate jdbc, PlatformTransactionManager txManager) {
+        this(jdbc, txManager, ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8));
+    }
+
+    SchedulerLock(NamedParameterJdbcTemplate jdbc, PlatformTransactionManager txManager, String node) {
+        this.jdbc = jdbc;
+        this.node = node;
+        this.tx = new TransactionTemplate(txManager);
+        // Lease é gravado e visível na hora, mesmo se chamado dentro da transação do job
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public String node() {
+        return node;
+    }
+
+    /** Executa o job se esta instância obtiver o lease; devolve false se outra instância está com ele. */
+    public boolean runExclusive(String name, Duration lockAtMost, Duration lockAtLeast, Runnable job) {
+        Timestamp lockedAt = tryAcquire(name, lockAtMost);
+        if (lockedAt == null) return false;
+        try {
+            job.run();
+        } finally {
+            release(name, lockedAt, lockAtLeast);
+        }
+        return true;
+    }
+
+    /** Devolve o locked_at gravado (identifica este lease na liberação) ou null se não obteve. */
+    Timestamp tryAcquire(String name, Duration lockAtMost) {
+        MapSqlParameterSource p = new MapSqlParameterSource("name", name)
+                .addValue("atMost", micros(lockAtMost))
+                .addValue("node", node);
+        try {
+            return tx.execute(status -> {
+                int n = jdbc.update(ACQUIRE_SQL, p);
+                // Primeira execução do job: cria a linha (se outra instância criou antes, perdeu)
+                if (n == 0) n = jdbc.update(INSERT_SQL, p);
+                if (n == 0) return null;
+                return jdbc.queryForObject("SELECT locked_at FROM scheduler_locks WHERE name = :name AND locked_by = :node",
+                        p, Timestamp.class);
+            });
+        } catch (DuplicateKeyException e) {
+            return null;
+        } catch (RuntimeException e) {
+            log.warn("[SCHED-LOCK] Falha ao obter lease {}: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    void release(String name, Timestamp lockedAt, Duration lockAtLeast) {
+        MapSqlParameterSource p = new MapSqlParameterSource("name", name)
+                .addValue("atLeast", micros(lockAtLeast))
+                .addValue("lockedAt", lockedAt)
+                .addValue("node", node);
+        try {
+            tx.executeWithoutResult(status -> jdbc.update(RELEASE_SQL, p));
+        } catch (RuntimeException e) {
+            // Lease expira sozinho em lockAtMost
+            log.warn("[SCHED-LOCK] Falha ao liberar lease {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static long micros(Duration d) {
+        return d.toNanos() / 1_000;
+    }
+}
@@ -0,0 +1,219 @@
+package com.medcheckapi.user.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Auto-fechamento: cada sessão aberta ganha um prazo (check-in + 9h) numa DelayQueue, reconstruída na subida a
+ * partir do {@link OpenSessionRegistry} e alimentada pelos check-ins. Um worker dorme até o próximo prazo e
+ * fecha todas as sessões vencidas com um único UPDATE (check-out = check-in + 9h).
+ *
+ * A fila é local à instância: se o nó que recebeu o check-in cair, ninguém mais tem aquele prazo. Por isso há
+ * também uma varredura periódica no banco, sob {@link SchedulerLock} (um nó por vez), que fecha o que passou das
+ * 9h pelo relógio do banco. Nos dois caminhos as linhas são travadas (SELECT ... FOR UPDATE) antes do UPDATE:
+ * só quem de fato fechou a linha soma no livro de horas ({@link HoursLedgerService}, mesma transação) e publica
+ * o CLOSED; as demais instâncias apenas descartam a sessão do próprio registro.
+ */
+@Component
+public class SessionAutoCloser {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionAutoCloser.class);
+
+    static final int MAX_SESSION_HOURS = 9;
+    private static final int MAX_BATCH = 500;
+    private static final long RETRY_DELAY_SECONDS = 30;
+    private static final String SWEEP_LOCK = "session-auto-close";
+    private static final ZoneId ACRE_ZONE = ZoneId.of("America/Rio_Branco");
+
+    private static final String CLOSE_SQL =
+            "UPDATE check_sessions SET check_out_time = TIMESTAMPADD(HOUR, " + MAX_SESSION_HOURS + ", check_in_time) " +
+            "WHERE check_out_time IS NULL AND id IN (:ids)";
+
+    // Vencimento decidido pelo relógio do banco (mesmo fuso das sessões), não pelo da instância
+    private static final String EXPIRED =
+            "check_out_time IS NULL AND check_in_time <= TIMESTAMPADD(HOUR, -" + MAX_SESSION_HOURS + ", CURRENT_TIMESTAMP)";
+
+    private static final String LOCK_DUE_SQL =
+            "SELECT id, aluno_id, preceptor_id, discipline_id, check_in_time FROM check_sessions " +
+            "WHERE id IN (:ids) AND " + EXPIRED + " FOR UPDATE";
+
+    private static final String LOCK_SWEEP_SQL =
+            "SELECT id, aluno_id, preceptor_id, discipline_id, check_in_time FROM check_sessions " +
+            "WHERE " + EXPIRED + " ORDER BY check_in_time LIMIT " + MAX_BATCH + " FOR UPDATE";
+
+    private static final RowMapper<OpenSessionRegistry.OpenSession> OPEN_SESSION = (rs, i) -> new OpenSessionRegistry.OpenSession(
+            rs.getLong("id"), rs.getLong("aluno_id"), rs.getLong("preceptor_id"),
+            rs.getObject("discipline_id") == null ? null : rs.getLong("discipline_id"),
+            rs.getTimestamp("check_in_time").toLocalDateTime());
+
+    static final class Deadline implements Delayed {
+        final OpenSessionRegistry.OpenSession session;
+        final Instant dueAt;
+
+        Deadline(OpenSessionRegistry.OpenSession session, Instant dueAt) {
+            this.session = session;
+            this.dueAt = dueAt;
+        }
+
+        static Deadline of(OpenSessionRegistry.OpenSession s) {
+            return new Deadline(s, s.checkInTime().plusHours(MAX_SESSION_HOURS).atZone(ACRE_ZONE).toInstant());
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt.toEpochMilli() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return dueAt.compareTo(((Deadline) o).dueAt);
+        }
+    }
+
+    private final DelayQueue<Deadline> deadlines = new DelayQueue<>();
+    private final NamedParameterJdbcTemplate jdbc;
+    private final OpenSessionRegistry openSessions;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final HoursLedgerService hoursLedger;
+    private final HotPathMetrics metrics;
+    private final SchedulerLock schedulerLock;
+    private volatile boolean running = true;
+    private Thread worker;
+
+    public SessionAutoCloser(NamedParameterJdbcTemplate jdbc, OpenSessionRegistry openSessions, ApplicationEventPublisher events,
+                             PlatformTransactionManager txManager, HoursLedgerService hoursLedger, HotPathMetrics metrics,
+                             SchedulerLock schedulerLock) {
+        this.jdbc = jdbc;
+        this.openSessions = openSessions;
+        this.events = events;
+        this.tx = new TransactionTemplate(txManager);
+        this.hoursLedger = hoursLedger;
+        this.metrics = metrics;
+        this.schedulerLock = schedulerLock;
+    }
+
+    @PostConstruct
+    void start() {
+        openSessions.onShift(null, null).forEach(s -> deadlines.add(Deadline.of(s)));
+        worker = new Thread(this::loop, "session-auto-close");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(CheckSessionEvent e) {
+        // Fechamentos não precisam remover o prazo: a sessão é ignorada ao vencer
+        if (e.type() == CheckSessionEvent.Type.OPENED) {
+            deadlines.add(Deadline.of(new OpenSessionRegistry.OpenSession(e.sessionId(), e.alunoId(), e.preceptorId(), e.disciplineId(), e.checkInTime())));
+        }
+    }
+
+    int pending() {
+        return deadlines.size();
+    }
+
+    private void loop() {
+        List<Deadline> due = new ArrayList<>();
+        while (running) {
+            try {
+                due.add(deadlines.take());
+                deadlines.drainTo(due, MAX_BATCH - 1);
+                closeExpired(due);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                due.clear();
+            }
+        }
+    }
+
+    void closeExpired(List<Deadline> due) {
+        // Só o que continua aberto segundo o registro (check-out manual já removeu)
+        List<OpenSessionRegistry.OpenSession> stillOpen = new ArrayList<>();
+        for (Deadline d : due) {
+            OpenSessionRegistry.OpenSession s = d.session;
+            openSessions.find(s.alunoId()).filter(cur -> cur.sessionId().equals(s.sessionId())).ifPresent(stillOpen::add);
+        }
+        if (stillOpen.isEmpty()) return;
+        try {
+            MapSqlParameterSource ids = new MapSqlParameterSource("ids", stillOpen.stream().map(OpenSessionRegistry.OpenSession::sessionId).toList());
+            List<OpenSessionRegistry.OpenSession> closed = close(LOCK_DUE_SQL, ids);
+            // Fechadas por outro caminho (check-out manual, varredura de outra instância): só saem do registro local
+            Set<Long> closedIds = closed.stream().map(OpenSessionRegistry.OpenSession::sessionId).collect(Collectors.toSet());
+            stillOpen.stream().filter(s -> !closedIds.contains(s.sessionId())).forEach(s -> openSessions.on(closedEvent(s)));
+        } catch (RuntimeException ex) {
+            // Banco indisponível: tenta de novo em instantes
+            log.warn("[AUTO-CLOSE] Falha ao fechar {} sessões: {}", stillOpen.size(), ex.getMessage());
+            Instant retryAt = Instant.now().plusSeconds(RETRY_DELAY_SECONDS);
+            stillOpen.forEach(s -> deadlines.add(new Deadline(s, retryAt)));
+        }
+    }
+
+    /** Rede de segurança entre instâncias: fecha no banco o que venceu e não foi fechado por nenhuma fila. */
+    @Scheduled(fixedDelay = 300_000) // 5 minutos
+    public void sweep() {
+        schedulerLock.runExclusive(SWEEP_LOCK, Duration.ofMinutes(10), Duration.ofMinutes(4), () -> {
+            try {
+                close(LOCK_SWEEP_SQL, new MapSqlParameterSource());
+            } catch (RuntimeException ex) {
+                log.warn("[AUTO-CLOSE] Falha na varredura de sessões vencidas: {}", ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Trava as linhas vencidas, fecha-as e soma no livro na mesma transação; depois do commit publica o CLOSED
+     * só das linhas fechadas aqui. Uma segunda instância com as mesmas sessões espera a trava e não as vê mais abertas.
+     */
+    private List<OpenSessionRegistry.OpenSession> close(String lockSql, MapSqlParameterSource params) {
+        List<OpenSessionRegistry.OpenSession> closed = new ArrayList<>();
+        metrics.job("session-auto-close", () -> tx.execute(status -> {
+            List<OpenSessionRegistry.OpenSession> rows = jdbc.query(lockSql, params, OPEN_SESSION);
+            if (rows.isEmpty()) return 0;
+            int n = jdbc.update(CLOSE_SQL, new MapSqlParameterSource("ids", rows.stream().map(OpenSessionRegistry.OpenSession::sessionId).toList()));
+            rows.forEach(s -> hoursLedger.record(s.alunoId(), s.preceptorId(), s.disciplineId(),
+                    s.checkInTime(), s.checkInTime().plusHours(MAX_SESSION_HOURS)));
+            closed.addAll(rows);
+            return n;
+        }));
+        if (closed.isEmpty()) return closed;
+        closed.forEach(s -> events.publishEvent(closedEvent(s)));
+        log.info("[AUTO-CLOSE] Fechadas {} sessões com mais de {}h ativas", closed.size(), MAX_SESSION_HOURS);
+        return closed;
+    }
+
+    private static CheckSessionEvent closedEvent(OpenSessionRegistry.OpenSession s) {
+        return new CheckSessionEvent(CheckSessionEvent.Type.CLOSED, s.sessionId(), s.alunoId(),
+                s.preceptorId(), s.disciplineId(), s.checkInTime(), true);
+    }
+}
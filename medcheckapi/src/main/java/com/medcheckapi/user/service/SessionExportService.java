@@ -0,0 +1,285 @@
+package com.medcheckapi.user.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.medcheckapi.user.dto.AcreDateTimeSerializer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Exportação de sessões de check-in/out (auditoria de fim de semestre) em CSV ou NDJSON, filtrando por aluno,
+ * preceptor, disciplina e período. As linhas são lidas por cursor forward-only e escritas direto na resposta,
+ * uma a uma: a memória não cresce com o número de sessões.
+ *
+ * No MySQL o streaming linha a linha do Connector/J exige fetchSize = Integer.MIN_VALUE; nos demais bancos
+ * (H2 nos testes) usa um fetchSize comum. A conexão fica presa enquanto o cliente baixa o arquivo.
+ */
+@Service
+public class SessionExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"), NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() { return contentType; }
+        public String extension() { return extension; }
+
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) return CSV;
+            for (Format f : values()) {
+                if (f.name().equalsIgnoreCase(value.trim())) return f;
+            }
+            throw new IllegalArgumentException("Formato inválido (use csv ou ndjson)");
+        }
+    }
+
+    /** Filtros da exportação; ids null = sem filtro. Período por data do check-in (inclusivo). */
+    public record Filter(Long alunoId, Long preceptorId, Long disciplineId, LocalDate start, LocalDate end) {}
+
+    private static final String SQL = """
+            SELECT cs.id, cs.aluno_id, a.name AS aluno_name, a.matricula AS aluno_matricula,
+                   cs.preceptor_id, p.name AS preceptor_name, cs.discipline_id, d.code AS discipline_code,
+                   d.name AS discipline_name, cs.check_in_time, cs.check_out_time, cs.validated,
+                   cs.check_in_lat, cs.check_in_lng, cs.check_out_lat, cs.check_out_lng
+            FROM check_sessions cs
+            JOIN users a ON a.id = cs.aluno_id
+            JOIN users p ON p.id = cs.preceptor_id
+            LEFT JOIN disciplines d ON d.id = cs.discipline_id
+            WHERE cs.check_in_time BETWEEN :start AND :end
+            """;
+
+    private static final String[] COLUMNS = {
+            "id", "alunoId", "alunoName", "alunoMatricula", "preceptorId", "preceptorName",
+            "disciplineId", "disciplineCode", "disciplineName", "checkInTime", "checkOutTime",
+            "validated", "workedSeconds", "checkInLat", "checkInLng", "checkOutLat", "checkOutLng"
+    };
+
+    private static final int FETCH_SIZE = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataSource dataSource;
+    private volatile NamedParameterJdbcTemplate streamingJdbc;
+
+    public SessionExportService(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /** Escreve as sessões no stream (que não é fechado) e devolve quantas linhas saíram. */
+    public long export(Filter filter, Format format, OutputStream out) throws IOException {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(filter.start().atStartOfDay()))
+                .addValue("end", Timestamp.valueOf(filter.end().atTime(23, 59, 59)));
+        StringBuilder sql = new StringBuilder(SQL);
+        if (filter.alunoId() != null) {
+            sql.append(" AND cs.aluno_id = :aluno");
+            p.addValue("aluno", filter.alunoId());
+        }
+        if (filter.preceptorId() != null) {
+            sql.append(" AND cs.preceptor_id = :preceptor");
+            p.addValue("preceptor", filter.preceptorId());
+        }
+        if (filter.disciplineId() != null) {
+            sql.append(" AND cs.discipline_id = :discipline");
+            p.addValue("discipline", filter.disciplineId());
+        }
+        sql.append(" ORDER BY cs.check_in_time, cs.id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+        long[] count = {0};
+        try {
+            rows.header();
+            jdbc().query(sql.toString(), p, rs -> {
+                try {
+                    rows.row(rs);
+                } catch (IOException e) {
+                    // Cliente desconectou: interrompe a leitura do cursor
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rows.finish();
+        writer.flush();
+        return count[0];
+    }
+
+    private NamedParameterJdbcTemplate jdbc() {
+        NamedParameterJdbcTemplate t = streamingJdbc;
+        if (t == null) {
+            JdbcTemplate base = new JdbcTemplate(dataSource);
+            base.setFetchSize(isMySql() ? Integer.MIN_VALUE : FETCH_SIZE);
+            t = new NamedParameterJdbcTemplate(base);
+            streamingJdbc = t;
+        }
+        return t;
+    }
+
+    private boolean isMySql() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return product != null && product.toLowerCase().contains("mysql");
+        } catch (MetaDataAccessException e) {
+            return false;
+        }
+    }
+
+    private interface RowWriter {
+        void header() throws IOException;
+        void row(ResultSet rs) throws SQLException, IOException;
+        default void finish() throws IOException {}
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer w;
+
+        CsvRowWriter(Writer w) { this.w = w; }
+
+        @Override
+        public void header() throws IOException {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) w.write(',');
+                w.write(COLUMNS[i]);
+            }
+            w.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            LocalDateTime in = rs.getTimestamp("check_in_time").toLocalDateTime();
+            Timestamp outTs = rs.getTimestamp("check_out_time");
+            LocalDateTime outTime = outTs == null ? null : outTs.toLocalDateTime();
+            w.write(Long.toString(rs.getLong("id")));
+            w.write(',');
+            w.write(Long.toString(rs.getLong("aluno_id")));
+            field(rs.getString("aluno_name"));
+            field(rs.getString("aluno_matricula"));
+            w.write(',');
+            w.write(Long.toString(rs.getLong("preceptor_id")));
+            field(rs.getString("preceptor_name"));
+            long disc = rs.getLong("discipline_id");
+            field(rs.wasNull() ? null : Long.toString(disc));
+            field(rs.getString("discipline_code"));
+            field(rs.getString("discipline_name"));
+            field(AcreDateTimeSerializer.format(in));
+            field(outTime == null ? null : AcreDateTimeSerializer.format(outTime));
+            field(Boolean.toString(rs.getBoolean("validated")));
+            field(outTime == null ? null : Long.toString(workedSeconds(in, outTime)));
+            field(decimal(rs.getBigDecimal("check_in_lat")));
+            field(decimal(rs.getBigDecimal("check_in_lng")));
+            field(decimal(rs.getBigDecimal("check_out_lat")));
+            field(decimal(rs.getBigDecimal("check_out_lng")));
+            w.write("\r\n");
+        }
+
+        // RFC 4180: aspas só quando o valor tem separador, aspas ou quebra de linha
+        private void field(String v) throws IOException {
+            w.write(',');
+            if (v == null) return;
+            boolean quote = false;
+            for (int i = 0; i < v.length() && !quote; i++) {
+                char c = v.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                w.write(v);
+                return;
+            }
+            w.write('"');
+            w.write(v.replace("\"", "\"\""));
+            w.write('"');
+        }
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final Writer w;
+        private final JsonGenerator gen;
+
+        NdjsonRowWriter(Writer w) throws IOException {
+            this.w = w;
+            this.gen = new JsonFactory().createGenerator(w);
+            this.gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // flush() do gerador não deve chegar ao socket a cada linha; separador de raiz é o '\n' escrito abaixo
+            this.gen.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            this.gen.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void header() {}
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            LocalDateTime in = rs.getTimestamp("check_in_time").toLocalDateTime();
+            Timestamp outTs = rs.getTimestamp("check_out_time");
+            LocalDateTime outTime = outTs == null ? null : outTs.toLocalDateTime();
+            gen.writeStartObject();
+            gen.writeNumberField("id", rs.getLong("id"));
+            gen.writeNumberField("alunoId", rs.getLong("aluno_id"));
+            gen.writeStringField("alunoName", rs.getString("aluno_name"));
+            gen.writeStringField("alunoMatricula", rs.getString("aluno_matricula"));
+            gen.writeNumberField("preceptorId", rs.getLong("preceptor_id"));
+            gen.writeStringField("preceptorName", rs.getString("preceptor_name"));
+            long disc = rs.getLong("discipline_id");
+            if (rs.wasNull()) gen.writeNullField("disciplineId"); else gen.writeNumberField("disciplineId", disc);
+            gen.writeStringField("disciplineCode", rs.getString("discipline_code"));
+            gen.writeStringField("disciplineName", rs.getString("discipline_name"));
+            gen.writeStringField("checkInTime", AcreDateTimeSerializer.format(in));
+            gen.writeStringField("checkOutTime", outTime == null ? null : AcreDateTimeSerializer.format(outTime));
+            gen.writeBooleanField("validated", rs.getBoolean("validated"));
+            if (outTime == null) gen.writeNullField("workedSeconds"); else gen.writeNumberField("workedSeconds", workedSeconds(in, outTime));
+            decimalField("checkInLat", rs.getBigDecimal("check_in_lat"));
+            decimalField("checkInLng", rs.getBigDecimal("check_in_lng"));
+            decimalField("checkOutLat", rs.getBigDecimal("check_out_lat"));
+            decimalField("checkOutLng", rs.getBigDecimal("check_out_lng"));
+            gen.writeEndObject();
+            gen.flush(); // só esvazia o buffer do gerador no BufferedWriter
+            w.write('\n');
+        }
+
+        private void decimalField(String name, BigDecimal v) throws IOException {
+            if (v == null) gen.writeNullField(name); else gen.writeNumberField(name, v);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            gen.close();
+        }
+    }
+
+    private static long workedSeconds(LocalDateTime in, LocalDateTime out) {
+        return Math.max(0, WorkedTimeEngine.epoch(out) - WorkedTimeEngine.epoch(in));
+    }
+
+    private static String decimal(BigDecimal v) {
+        return v == null ? null : v.toPlainString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.medcheckapi.user.service;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Alunos com check-in no período (home do preceptor e do ADMIN), numa consulta sobre check_sessions paginada no
+ * banco. A busca entra no próprio WHERE pelo {@link UserSearchIndex#appendMatch} (subconsulta de trigramas), como no
+ * {@link RosterQueryService} — sem resolver antes a lista de ids que casam e passá-la como IN.
+ * "Em serviço" (coluna e filtros de status) também vem do banco (check_out_time IS NULL), e não do
+ * {@link OpenSessionRegistry}, que é local a cada instância.
+ */
+@Service
+public class StudentListQueryService {
+
+    /** preceptorId/disciplineId null = sem filtro; q null ou vazio = sem busca. */
+    public record StudentFilter(LocalDateTime start, LocalDateTime end, Long preceptorId, Long disciplineId,
+                                String q, UserSearchIndex.Fields fields, boolean statusIn, boolean statusOut) {}
+
+    /** inService: sessão aberta com o preceptor do filtro (ou qualquer uma, sem preceptor). */
+    public record StudentRow(Long id, String name, String cpf, String phone, String email, boolean inService) {}
+
+    public record StudentPage(List<StudentRow> items, int page, int size, long totalItems) {
+        public int totalPages() { return size == 0 ? 0 : (int) ((totalItems + size - 1) / size); }
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final UserSearchIndex searchIndex;
+
+    public StudentListQueryService(NamedParameterJdbcTemplate jdbc, UserSearchIndex searchIndex) {
+        this.jdbc = jdbc;
+        this.searchIndex = searchIndex;
+    }
+
+    // Sessão aberta do aluno u (idx_cs_aluno_time), opcionalmente com o preceptor/disciplina do filtro
+    private static String openSession(boolean preceptor, boolean discipline) {
+        return "EXISTS (SELECT 1 FROM check_sessions o WHERE o.aluno_id = u.id AND o.check_out_time IS NULL"
+                + (preceptor ? " AND o.preceptor_id = :preceptorId" : "")
+                + (discipline ? " AND o.discipline_id = :disc" : "") + ")";
+    }
+
+    public StudentPage page(StudentFilter f, int page, int size) {
+        MapSqlParameterSource p = new MapSqlParameterSource("start", Timestamp.valueOf(f.start()))
+                .addValue("end", Timestamp.valueOf(f.end()))
+                .addValue("limit", size)
+                .addValue("offset", (long) page * size);
+        StringBuilder where = new StringBuilder("cs.check_in_time BETWEEN :start AND :end");
+        if (f.preceptorId() != null) {
+            where.append(" AND cs.preceptor_id = :preceptorId");
+            p.addValue("preceptorId", f.preceptorId());
+        }
+        if (f.disciplineId() != null) {
+            where.append(" AND cs.discipline_id = :disc");
+            p.addValue("disc", f.disciplineId());
+        }
+        if (f.q() != null && !f.q().isBlank()) {
+            searchIndex.appendMatch(where, p, "u", f.q(), f.fields());
+        }
+        if (!f.statusIn() && !f.statusOut()) {
+            where.append(" AND 1 = 0"); // nenhum status marcado: lista vazia
+        } else if (f.statusIn() != f.statusOut()) {
+            String open = openSession(f.preceptorId() != null, f.disciplineId() != null);
+            where.append(f.statusIn() ? " AND " : " AND NOT ").append(open);
+        }
+        String sql = """
+                SELECT u.id, u.name, u.cpf, u.phone, u.institutional_email,
+                       CASE WHEN %s THEN 1 ELSE 0 END AS in_service,
+                       COUNT(*) OVER () AS total_rows
+                FROM check_sessions cs JOIN users u ON u.id = cs.aluno_id
+                WHERE %s
+                GROUP BY u.id, u.name, u.cpf, u.phone, u.institutional_email
+                ORDER BY u.name, u.id
+                LIMIT :limit OFFSET :offset
+                """.formatted(openSession(f.preceptorId() != null, false), where);
+
+        long[] total = {0};
+        List<StudentRow> items = jdbc.query(sql, p, (rs, i) -> {
+            total[0] = rs.getLong("total_rows");
+            return new StudentRow(rs.getLong("id"), rs.getString("name"), rs.getString("cpf"),
+                    rs.getString("phone"), rs.getString("institutional_email"), rs.getInt("in_service") == 1);
+        });
+        if (items.isEmpty() && page > 0) {
+            // Página além do fim: total ainda é útil para o cliente voltar
+            Long n = jdbc.queryForObject("SELECT COUNT(DISTINCT cs.aluno_id) FROM check_sessions cs JOIN users u ON u.id = cs.aluno_id WHERE "
+                    + where, p, Long.class);
+            total[0] = n != null ? n : 0L;
+        }
+        return new StudentPage(items, page, size, total[0]);
+    }
+}
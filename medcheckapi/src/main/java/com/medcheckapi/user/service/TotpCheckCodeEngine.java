@@ -0,0 +1,105 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+/**
+ * Códigos derivados (estilo TOTP) em vez de armazenados: code = HMAC(segredo do preceptor, janela de 60s)
+ * mapeado no mesmo alfabeto sem caracteres ambíguos. O segredo do preceptor é HMAC(segredo mestre, id).
+ * A validação recalcula o código da janela atual e da anterior; não há leitura nem escrita em banco,
+ * então o check-in não depende de check_codes (e a limpeza periódica deixa de ser necessária).
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.check-code", name = "mode", havingValue = "totp")
+public class TotpCheckCodeEngine implements CheckCodeEngine {
+
+    private static final String HMAC = "HmacSHA256";
+    private static final ZoneId ACRE_ZONE = ZoneId.of("America/Rio_Branco");
+
+    private final byte[] masterKey;
+
+    public TotpCheckCodeEngine(AppProperties appProperties) {
+        String secret = appProperties.getCheckCode().getSecret();
+        // Sem segredo próprio, deriva do segredo do JWT (rótulo distinto evita reaproveitar a mesma chave)
+        if (secret == null || secret.isBlank()) secret = "check-code:" + appProperties.getJwtSecret();
+        this.masterKey = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public IssuedCode currentCode(Long preceptorId, LocalDateTime now) {
+        long window = windowOf(now);
+        return issued(preceptorId, window);
+    }
+
+    @Override
+    public Optional<IssuedCode> activeCode(Long preceptorId, LocalDateTime now) {
+        return Optional.of(currentCode(preceptorId, now));
+    }
+
+    @Override
+    public void consume(Long preceptorId, String code, LocalDateTime now) {
+        if (code == null) throw new IllegalStateException("Código inválido ou expirado");
+        byte[] given = code.trim().toUpperCase(java.util.Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+        long window = windowOf(now);
+        byte[] key = preceptorKey(preceptorId);
+        // Janela atual e anterior: tolera o código exibido pouco antes da virada
+        boolean ok = MessageDigest.isEqual(given, codeFor(key, window).getBytes(StandardCharsets.US_ASCII))
+                | MessageDigest.isEqual(given, codeFor(key, window - 1).getBytes(StandardCharsets.US_ASCII));
+        if (!ok) throw new IllegalStateException("Código inválido ou expirado");
+    }
+
+    @Override
+    public boolean usesCodeTable() {
+        return false;
+    }
+
+    private IssuedCode issued(Long preceptorId, long window) {
+        LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochSecond(window * CODE_VALIDITY_SECONDS), ACRE_ZONE);
+        return new IssuedCode(codeFor(preceptorKey(preceptorId), window), start, start.plusSeconds(CODE_VALIDITY_SECONDS));
+    }
+
+    private static long windowOf(LocalDateTime now) {
+        return Math.floorDiv(now.atZone(ACRE_ZONE).toEpochSecond(), CODE_VALIDITY_SECONDS);
+    }
+
+    private byte[] preceptorKey(Long preceptorId) {
+        return hmac(masterKey, ("preceptor:" + preceptorId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Alfabeto de 32 símbolos: cada caractere consome 5 bits do HMAC (sem viés de módulo)
+    static String codeFor(byte[] preceptorKey, long window) {
+        byte[] h = hmac(preceptorKey, ByteBuffer.allocate(Long.BYTES).putLong(window).array());
+        int offset = h[h.length - 1] & 0x0f; // truncamento dinâmico (RFC 4226)
+        long bits = ((long) (h[offset] & 0xff) << 24) | ((h[offset + 1] & 0xff) << 16)
+                | ((h[offset + 2] & 0xff) << 8) | (h[offset + 3] & 0xff);
+        bits = (bits << 8) | (h[offset + 4] & 0xff); // 40 bits disponíveis, 30 usados
+        StringBuilder sb = new StringBuilder(CheckCodes.LENGTH);
+        for (int i = 0; i < CheckCodes.LENGTH; i++) {
+            sb.append(CheckCodes.ALPHABET.charAt((int) (bits & 0x1f)));
+            bits >>>= 5;
+        }
+        return sb.toString();
+    }
+
+    private static byte[] hmac(byte[] key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(key, HMAC));
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
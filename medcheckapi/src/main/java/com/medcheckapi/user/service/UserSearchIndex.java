@@ -0,0 +1,132 @@
+package com.medcheckapi.user.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Índice de busca de usuários: trigramas (user_search_grams) de nome, e-mail, CPF e telefone normalizados
+ * (minúsculas, sem acento; CPF/telefone só dígitos). Uma busca "contém q" vira "tem todos os trigramas de q"
+ * (consulta pela PK gram,user_id) seguida da confirmação com LIKE só nos candidatos — em vez de LIKE '%q%'
+ * em todas as linhas.
+ *
+ * Mantido por {@link UserSearchIndexListener} (insert/update de User); usuários inseridos por SQL (seeds)
+ * são indexados na subida (cpf_digits nulo = ainda não indexado).
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    static final int GRAM = 3;
+    // Prefixo do trigrama por campo: a busca só por nome não casa com trigramas do e-mail
+    static final char NAME = 'n', EMAIL = 'e', CPF = 'c', PHONE = 'p';
+    private static final int BACKFILL_BATCH = 1000;
+
+    /** Campos selecionados na busca (mesmas flags fName/fEmail/fCpf/fPhone das listagens). */
+    public record Fields(boolean name, boolean email, boolean cpf, boolean phone) {
+        public static final Fields ALL = new Fields(true, true, true, true);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public UserSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /** Minúsculas, sem acentos e espaços colapsados (mesma equivalência do collation utf8mb4_unicode_ci). */
+    public static String normalize(String s) {
+        if (s == null) return "";
+        String n = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return n.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    public static String digits(String s) {
+        return s == null ? "" : s.replaceAll("\\D", "");
+    }
+
+    static Set<String> grams(char field, String normalized) {
+        Set<String> out = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= normalized.length(); i++) {
+            out.add(field + normalized.substring(i, i + GRAM));
+        }
+        return out;
+    }
+
+    /** Regrava os trigramas do usuário (chamado após o commit do insert/update). */
+    public void reindex(Long userId, String name, String email, String cpf, String phone) {
+        jdbcTemplate.update("DELETE FROM user_search_grams WHERE user_id = ?", userId);
+        insertGrams(List.<Object[]>of(new Object[]{userId, name, email, cpf, phone}));
+    }
+
+    private void insertGrams(List<Object[]> users) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] u : users) {
+            Set<String> g = new LinkedHashSet<>();
+            g.addAll(grams(NAME, normalize((String) u[1])));
+            g.addAll(grams(EMAIL, normalize((String) u[2])));
+            g.addAll(grams(CPF, digits((String) u[3])));
+            g.addAll(grams(PHONE, digits((String) u[4])));
+            for (String gram : g) rows.add(new Object[]{gram, u[0]});
+        }
+        if (!rows.isEmpty()) jdbcTemplate.batchUpdate("INSERT INTO user_search_grams (gram, user_id) VALUES (?,?)", rows);
+    }
+
+    /** Indexa usuários ainda sem índice (seeds do schema.sql, linhas anteriores a esta coluna). */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        int total = 0;
+        while (true) {
+            List<Object[]> batch = jdbcTemplate.query(
+                    "SELECT id, name, institutional_email, cpf, phone FROM users WHERE cpf_digits IS NULL ORDER BY id LIMIT " + BACKFILL_BATCH,
+                    (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)});
+            if (batch.isEmpty()) break;
+            List<Object[]> digits = new ArrayList<>();
+            for (Object[] u : batch) digits.add(new Object[]{digits((String) u[3]), digits((String) u[4]), u[0]});
+            jdbcTemplate.update("DELETE FROM user_search_grams WHERE user_id IN (" + String.join(",", batch.stream().map(u -> String.valueOf(u[0])).toList()) + ")");
+            insertGrams(batch);
+            jdbcTemplate.batchUpdate("UPDATE users SET cpf_digits = ?, phone_digits = ? WHERE id = ?", digits);
+            total += batch.size();
+        }
+        if (total > 0) log.info("[SEARCH-INDEX] {} usuários indexados", total);
+    }
+
+    /**
+     * Acrescenta ao WHERE a condição "usuário {alias} casa com q" nos campos escolhidos.
+     * Termos com menos de 3 caracteres não têm trigrama e caem só no LIKE.
+     */
+    public void appendMatch(StringBuilder where, MapSqlParameterSource p, String alias, String q, Fields f) {
+        String text = normalize(q);
+        String dig = digits(q);
+        List<String> any = new ArrayList<>();
+        if (f.name()) any.add(fieldMatch(p, alias, NAME, text, "LOWER(" + alias + ".name) LIKE :qLike"));
+        if (f.email()) any.add(fieldMatch(p, alias, EMAIL, text, "LOWER(" + alias + ".institutional_email) LIKE :qLike"));
+        if (!dig.isEmpty()) {
+            if (f.cpf()) any.add(fieldMatch(p, alias, CPF, dig, alias + ".cpf_digits LIKE :digitsLike"));
+            if (f.phone()) any.add(fieldMatch(p, alias, PHONE, dig, alias + ".phone_digits LIKE :digitsLike"));
+            p.addValue("digitsLike", "%" + dig + "%");
+        }
+        p.addValue("qLike", "%" + q.trim().toLowerCase(Locale.ROOT) + "%");
+        where.append(any.isEmpty() ? " AND 1 = 0" : " AND (" + String.join(" OR ", any) + ")");
+    }
+
+    private static String fieldMatch(MapSqlParameterSource p, String alias, char field, String term, String recheck) {
+        Set<String> g = grams(field, term);
+        if (g.isEmpty()) return "(" + recheck + ")";
+        String param = "g" + field;
+        p.addValue(param, g);
+        p.addValue(param + "n", g.size());
+        return "(" + alias + ".id IN (SELECT sg.user_id FROM user_search_grams sg WHERE sg.gram IN (:" + param + ")"
+                + " GROUP BY sg.user_id HAVING COUNT(*) = :" + param + "n) AND " + recheck + ")";
+    }
+}
@@ -0,0 +1,37 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.model.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Listener JPA de {@link User} (instanciado pelo Spring via SpringBeanContainer do Hibernate): reindexa a busca quando nome,
+ * e-mail, CPF ou telefone mudam. A escrita no índice roda após o commit, fora do flush do Hibernate.
+ */
+public class UserSearchIndexListener {
+
+    // Ausente em fatias de teste sem os serviços (@DataJpaTest): listener vira no-op
+    @Autowired(required = false)
+    private UserSearchIndex index;
+
+    @PostPersist
+    @PostUpdate
+    public void afterSave(User u) {
+        if (index == null || !u.searchFieldsChanged()) return;
+        Long id = u.getId();
+        String name = u.getName(), email = u.getInstitutionalEmail(), cpf = u.getCpf(), phone = u.getPhone();
+        u.markSearchFieldsIndexed();
+        Runnable reindex = () -> index.reindex(id, name, email, cpf, phone);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { reindex.run(); }
+            });
+        } else {
+            reindex.run();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.medcheckapi.user.service;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Busca de usuários do ADMIN direto no banco: filtros (disciplina; nome, e-mail, CPF e telefone pelo
+ * {@link UserSearchIndex}) no WHERE,
+ * paginação por chave (id &gt; cursor, usando a PK) e projeção leve — sem carregar entidades nem avatar.
+ */
+@Service
+public class UserSearchService {
+
+    /** Linha da listagem (sem senha/avatar/coleções). Disciplina atual pode ser nula. */
+    public record UserSummary(Long id, String name, String cpf, String email, String phone, String matricula,
+                              String role, Long disciplineId, String disciplineCode, String disciplineName) {
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> m = new HashMap<>();
+            m.put("id", id);
+            m.put("name", name);
+            m.put("cpf", cpf);
+            m.put("email", email);
+            m.put("phone", phone);
+            m.put("matricula", matricula);
+            m.put("role", role);
+            if (disciplineId != null) {
+                m.put("currentDiscipline", Map.of("id", disciplineId, "code", disciplineCode, "name", disciplineName));
+            }
+            return m;
+        }
+    }
+
+    /** Filtros já normalizados: q em minúsculas, campos selecionados. */
+    public record UserFilter(Long disciplineId, String q, boolean name, boolean email, boolean cpf, boolean phone) {}
+
+    /** nextCursor: id a enviar como afterId para a próxima página (null = fim). */
+    public record UserPage(List<UserSummary> items, long totalItems, Long nextCursor) {}
+
+    private static final String SELECT = """
+            SELECT u.id, u.name, u.cpf, u.institutional_email, u.phone, u.matricula, u.role,
+                   d.id AS d_id, d.code AS d_code, d.name AS d_name
+            FROM users u LEFT JOIN disciplines d ON d.id = u.current_discipline_id
+            """;
+
+    private static final RowMapper<UserSummary> ROW = (rs, i) -> {
+        long discId = rs.getLong("d_id");
+        Long disc = rs.wasNull() ? null : discId;
+        return new UserSummary(rs.getLong("id"), rs.getString("name"), rs.getString("cpf"), rs.getString("institutional_email"),
+                rs.getString("phone"), rs.getString("matricula"), rs.getString("role"), disc, rs.getString("d_code"), rs.getString("d_name"));
+    };
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final UserSearchIndex searchIndex;
+
+    public UserSearchService(NamedParameterJdbcTemplate jdbc, UserSearchIndex searchIndex) {
+        this.jdbc = jdbc;
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * afterId != null: página seguinte por chave (não depende de OFFSET);
+     * senão usa page/size com OFFSET (compatibilidade com o cliente atual).
+     */
+    public UserPage search(UserFilter f, Long afterId, int page, int size) {
+        MapSqlParameterSource p = new MapSqlParameterSource();
+        String where = where(f, p);
+        Long total = jdbc.queryForObject("SELECT COUNT(*) FROM users u WHERE " + where, p, Long.class);
+
+        StringBuilder sql = new StringBuilder(SELECT).append("WHERE ").append(where);
+        if (afterId != null) {
+            sql.append(" AND u.id > :afterId");
+            p.addValue("afterId", afterId);
+        }
+        // Um a mais para saber se existe próxima página
+        sql.append(" ORDER BY u.id LIMIT :limit");
+        p.addValue("limit", size + 1);
+        if (afterId == null && page > 0) {
+            sql.append(" OFFSET :offset");
+            p.addValue("offset", (long) page * size);
+        }
+        List<UserSummary> rows = jdbc.query(sql.toString(), p, ROW);
+        Long next = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            next = rows.get(size - 1).id();
+        }
+        return new UserPage(rows, total != null ? total : 0L, next);
+    }
+
+    private String where(UserFilter f, MapSqlParameterSource p) {
+        List<String> and = new ArrayList<>();
+        and.add("1 = 1");
+        if (f.disciplineId() != null) {
+            // Aluno com a disciplina atual, ou preceptor/coordenador vinculado (PKs das tabelas de vínculo)
+            and.add("(u.current_discipline_id = :disc"
+                    + " OR u.id IN (SELECT dp.preceptor_id FROM discipline_preceptors dp WHERE dp.discipline_id = :disc)"
+                    + " OR u.id IN (SELECT dc.coordinator_id FROM discipline_coordinators dc WHERE dc.discipline_id = :disc))");
+            p.addValue("disc", f.disciplineId());
+        }
+        StringBuilder where = new StringBuilder(String.join(" AND ", and));
+        if (f.q() != null && !f.q().isEmpty()) {
+            searchIndex.appendMatch(where, p, "u", f.q(), new UserSearchIndex.Fields(f.name(), f.email(), f.cpf(), f.phone()));
+        }
+        return where.toString();
+    }
+}
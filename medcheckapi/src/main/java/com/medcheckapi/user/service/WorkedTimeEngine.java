@@ -0,0 +1,120 @@
+package com.medcheckapi.user.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Tempo trabalhado por dia num intervalo de datas, em aritmética de epoch-segundos sobre um {@code long[]}
+ * indexado pelo dia do intervalo (0 = primeiro dia). Sem LocalDateTime por fronteira de dia nem mapas de
+ * Long: cada sessão é recortada ao intervalo e dividida nas viradas de dia num único laço.
+ *
+ * Regras (as mesmas do calendário): sessão aberta conta 0; cada dia vai até 23:59:59; o total do dia é
+ * arredondado ao minuto, mas qualquer segundo trabalhado vira pelo menos 1 (para o status mudar).
+ * Horários são locais (sem fuso): o epoch é calculado como se fosse UTC, só para aritmética.
+ *
+ * Uso: {@code new WorkedTimeEngine(first, days)}, {@link #add} por sessão e {@link #rounded()} ou
+ * {@link #raw()} no fim. Não é thread-safe.
+ */
+public final class WorkedTimeEngine {
+
+    static final long DAY = 86_400L;
+    private static final long LAST_SECOND = DAY - 1; // 23:59:59
+
+    /** Recebe cada fatia diária de uma sessão: dia (epoch-day) e segundos. */
+    public interface DaySink {
+        void add(long epochDay, long seconds);
+    }
+
+    private final LocalDate firstDay;
+    private final long rangeStart;
+    private final long rangeEnd;
+    private final long[] seconds;
+
+    public WorkedTimeEngine(LocalDate firstDay, int days) {
+        if (days <= 0) throw new IllegalArgumentException("days deve ser > 0");
+        this.firstDay = firstDay;
+        this.rangeStart = firstDay.toEpochDay() * DAY;
+        this.rangeEnd = rangeStart + (days - 1) * DAY + LAST_SECOND;
+        this.seconds = new long[days];
+    }
+
+    public static WorkedTimeEngine forRange(LocalDate first, LocalDate last) {
+        return new WorkedTimeEngine(first, (int) (last.toEpochDay() - first.toEpochDay()) + 1);
+    }
+
+    public static long epoch(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /** Soma a sessão; checkOut null (aberta) não conta. */
+    public WorkedTimeEngine add(LocalDateTime checkIn, LocalDateTime checkOut) {
+        return add(epoch(checkIn), checkOut == null ? Long.MIN_VALUE : epoch(checkOut));
+    }
+
+    public WorkedTimeEngine add(long in, long out) {
+        if (out < in) out = in;
+        long from = Math.max(in, rangeStart);
+        long to = Math.min(out, rangeEnd);
+        if (to <= from) return this;
+        int i = (int) ((from - rangeStart) / DAY);
+        long cursor = from;
+        long dayEnd = rangeStart + i * DAY + LAST_SECOND;
+        while (true) {
+            long segTo = Math.min(to, dayEnd);
+            if (segTo > cursor) seconds[i] += segTo - cursor;
+            if (to <= dayEnd) break;
+            i++;
+            cursor = dayEnd + 1;
+            dayEnd += DAY;
+        }
+        return this;
+    }
+
+    /** Fatias diárias de uma sessão sem recorte de intervalo (ex.: recálculo do resumo diário). */
+    public static void split(long in, long out, DaySink sink) {
+        if (out < in) out = in;
+        long day = Math.floorDiv(in, DAY);
+        long cursor = in;
+        while (true) {
+            long dayEnd = day * DAY + LAST_SECOND;
+            long segTo = Math.min(out, dayEnd);
+            sink.add(day, Math.max(0, segTo - cursor));
+            if (out <= dayEnd) break;
+            day++;
+            cursor = day * DAY;
+        }
+    }
+
+    /** Segundos brutos por dia (o array interno; não alterar). */
+    public long[] raw() {
+        return seconds;
+    }
+
+    public long total() {
+        long t = 0;
+        for (long s : seconds) t += s;
+        return t;
+    }
+
+    /** Cópia arredondada ao minuto; qualquer segundo trabalhado vira pelo menos 1. */
+    public long[] rounded() {
+        long[] out = new long[seconds.length];
+        for (int i = 0; i < seconds.length; i++) out[i] = roundToMinute(seconds[i]);
+        return out;
+    }
+
+    public static long roundToMinute(long s) {
+        if (s <= 0) return 0;
+        long r = (s + 30) / 60 * 60; // Math.round(s / 60.0) * 60 para s >= 0
+        return r == 0 ? 1 : r;
+    }
+
+    public LocalDate day(int index) {
+        return firstDay.plusDays(index);
+    }
+
+    public int days() {
+        return seconds.length;
+    }
+}
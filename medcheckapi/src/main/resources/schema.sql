@@ -20,6 +20,12 @@ USE medcheck;
 -- ============================================================================
 -- DROPS (limpeza)
 -- ============================================================================
+DROP TABLE IF EXISTS scheduler_locks;
+DROP TABLE IF EXISTS mail_outbox;
+DROP TABLE IF EXISTS avatar_blobs;
+DROP TABLE IF EXISTS hours_totals;
+DROP TABLE IF EXISTS hours_ledger;
+DROP TABLE IF EXISTS calendar_day_summaries;
 DROP TABLE IF EXISTS internship_justifications;
 DROP TABLE IF EXISTS internship_plans;
 DROP TABLE IF EXISTS preceptor_evaluations;
@@ -30,6 +36,7 @@ DROP TABLE IF EXISTS password_reset_tokens;
 DROP TABLE IF EXISTS discipline_preceptors;
 DROP TABLE IF EXISTS discipline_coordinators;
 DROP TABLE IF EXISTS disciplines;
+DROP TABLE IF EXISTS user_search_grams;
 DROP TABLE IF EXISTS users;
 
 -- ============================================================================
@@ -46,12 +53,73 @@ CREATE TABLE users (
   phone VARCHAR(40) NULL,
   institutional_email VARCHAR(160) NOT NULL UNIQUE,
   password VARCHAR(120) NOT NULL,
-  avatar LONGBLOB NULL,
+  -- Foto de perfil fica em avatar_blobs (endereçada por SHA-256); aqui só a referência
+  avatar_hash CHAR(64) NULL,
+  avatar_size INT NULL,
   avatar_content_type VARCHAR(100) NULL,
   role VARCHAR(20) NOT NULL DEFAULT 'ALUNO',
-  current_discipline_id BIGINT NULL
+  current_discipline_id BIGINT NULL,
+  token_version INT NOT NULL DEFAULT 0,
+  -- Só dígitos (mantidos pela aplicação; NULL = ainda não indexado para busca)
+  cpf_digits VARCHAR(14) NULL,
+  phone_digits VARCHAR(20) NULL,
+  INDEX idx_users_cpf_digits (cpf_digits),
+  INDEX idx_users_phone_digits (phone_digits),
+  INDEX idx_users_avatar_hash (avatar_hash)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- ============================================================================
+-- TABELA: avatar_blobs (fotos de perfil por SHA-256 do original; variant 0 = original, 64/256 = miniaturas)
+-- ============================================================================
+CREATE TABLE avatar_blobs (
+  hash CHAR(64) NOT NULL,
+  variant SMALLINT NOT NULL,
+  content_type VARCHAR(100) NOT NULL,
+  byte_size INT NOT NULL,
+  data LONGBLOB NOT NULL,
+  PRIMARY KEY (hash, variant)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================================
+-- TABELA: mail_outbox (e-mails gravados na transação de origem; enviados em lote pelo MailOutboxDispatcher)
+-- ============================================================================
+CREATE TABLE mail_outbox (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  recipient VARCHAR(160) NOT NULL,
+  subject VARCHAR(200) NOT NULL,
+  -- Apagado após o envio (contém o link de redefinição)
+  body TEXT NULL,
+  -- PENDING | SENT | FAILED (tentativas esgotadas)
+  status VARCHAR(10) NOT NULL DEFAULT 'PENDING',
+  attempts INT NOT NULL DEFAULT 0,
+  next_attempt_at DATETIME(3) NOT NULL,
+  last_error VARCHAR(500) NULL,
+  created_at DATETIME(3) NOT NULL,
+  sent_at DATETIME(3) NULL,
+  INDEX idx_mail_outbox_due (status, next_attempt_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================================
+-- TABELA: scheduler_locks (lease por job agendado: com várias instâncias só uma executa cada tick)
+-- ============================================================================
+CREATE TABLE scheduler_locks (
+  name VARCHAR(64) PRIMARY KEY,
+  locked_until DATETIME(3) NOT NULL,
+  locked_at DATETIME(3) NOT NULL,
+  locked_by VARCHAR(255) NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================================
+-- TABELA: user_search_grams (índice de busca: trigramas de nome/e-mail/CPF/telefone)
+-- ============================================================================
+CREATE TABLE user_search_grams (
+  gram VARCHAR(8) NOT NULL,
+  user_id BIGINT NOT NULL,
+  PRIMARY KEY (gram, user_id),
+  INDEX idx_usg_user (user_id),
+  CONSTRAINT fk_usg_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin;
+
 -- ============================================================================
 -- TABELA: password_reset_tokens
 -- ============================================================================
@@ -84,7 +152,8 @@ CREATE TABLE check_sessions (
   CONSTRAINT fk_cs_aluno FOREIGN KEY (aluno_id) REFERENCES users(id) ON DELETE CASCADE,
   CONSTRAINT fk_cs_preceptor FOREIGN KEY (preceptor_id) REFERENCES users(id) ON DELETE CASCADE,
   CONSTRAINT fk_cs_discipline FOREIGN KEY (discipline_id) REFERENCES disciplines(id) ON DELETE SET NULL,
-  INDEX idx_cs_aluno_time (aluno_id, check_in_time)
+  INDEX idx_cs_aluno_time (aluno_id, check_in_time),
+  INDEX idx_cs_discipline_time (discipline_id, check_in_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- ============================================================================
@@ -146,6 +215,57 @@ CREATE TABLE internship_justifications (
   CONSTRAINT uq_ij_user_date UNIQUE (aluno_id, date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- ============================================================================
+-- TABELA: calendar_day_summaries (resumo diário do calendário por aluno/disciplina)
+-- Recalculado no check-out, auto-fechamento e gravação de planos/justificativas.
+-- discipline_id = 0 agrupa registros sem disciplina (coluna faz parte da PK).
+-- ============================================================================
+CREATE TABLE calendar_day_summaries (
+  aluno_id BIGINT NOT NULL,
+  discipline_id BIGINT NOT NULL DEFAULT 0,
+  day DATE NOT NULL,
+  planned_seconds BIGINT NOT NULL DEFAULT 0,
+  worked_seconds BIGINT NOT NULL DEFAULT 0,
+  earliest_start TIME NULL,
+  latest_end TIME NULL,
+  justification_status VARCHAR(20) NULL,
+  PRIMARY KEY (aluno_id, discipline_id, day),
+  INDEX idx_cds_aluno_day (aluno_id, day),
+  INDEX idx_cds_discipline_day (discipline_id, day),
+  CONSTRAINT fk_cds_aluno FOREIGN KEY (aluno_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================================
+-- TABELA: hours_ledger (livro de horas: segundos trabalhados por aluno/disciplina/preceptor/dia)
+-- Somado na mesma transação do check-out e do auto-fechamento; sessões noturnas dividem-se
+-- nos dias (mesma regra do calendário). discipline_id = 0 = sessão sem disciplina.
+-- ============================================================================
+CREATE TABLE hours_ledger (
+  aluno_id BIGINT NOT NULL,
+  discipline_id BIGINT NOT NULL DEFAULT 0,
+  preceptor_id BIGINT NOT NULL,
+  day DATE NOT NULL,
+  worked_seconds BIGINT NOT NULL DEFAULT 0,
+  session_count INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (aluno_id, discipline_id, preceptor_id, day),
+  INDEX idx_hl_discipline_day (discipline_id, day),
+  CONSTRAINT fk_hl_aluno FOREIGN KEY (aluno_id) REFERENCES users(id) ON DELETE CASCADE,
+  CONSTRAINT fk_hl_preceptor FOREIGN KEY (preceptor_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================================
+-- TABELA: hours_totals (total acumulado por aluno/disciplina; uma linha por barra de progresso)
+-- ============================================================================
+CREATE TABLE hours_totals (
+  aluno_id BIGINT NOT NULL,
+  discipline_id BIGINT NOT NULL DEFAULT 0,
+  worked_seconds BIGINT NOT NULL DEFAULT 0,
+  session_count INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (aluno_id, discipline_id),
+  INDEX idx_ht_discipline (discipline_id),
+  CONSTRAINT fk_ht_aluno FOREIGN KEY (aluno_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- ============================================================================
 -- TABELA: disciplines
 -- ============================================================================
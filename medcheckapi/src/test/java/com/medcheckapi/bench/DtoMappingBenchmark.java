@@ -0,0 +1,177 @@
+package com.medcheckapi.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medcheckapi.user.dto.JustificationDto;
+import com.medcheckapi.user.dto.PlanDto;
+import com.medcheckapi.user.dto.SessionDto;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem + serialização Jackson das listagens:
+ * <ul>
+ *   <li>sessionsLegacyMaps / monthLegacyMaps: HashMap por linha + Map.of da disciplina, atZone().toOffsetDateTime().toString()
+ *       e String.format do tempo trabalhado (sessionToMap, planToMap e justToMap anteriores)</li>
+ *   <li>sessionsDto / monthDto: records preenchidos pelo construtor da projeção JPQL ({@link SessionDto}, {@link PlanDto},
+ *       {@link JustificationDto}) e serializados direto</li>
+ * </ul>
+ * Linhas já lidas (colunas da projeção em arrays) para isolar o custo do mapeamento. O que interessa é
+ * gc.alloc.rate.norm (bytes por operação) do {@link GCProfiler}, ligado no {@link #main}.
+ * Executar: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.medcheckapi.bench.DtoMappingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    private static final ZoneId ACRE_ZONE = ZoneId.of("America/Rio_Branco");
+
+    // ~1 ano de sessões de um aluno / rodízio com várias sessões por dia
+    @Param({"365", "2000"})
+    public int sessions;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private LocalDateTime[] ins;
+    private LocalDateTime[] outs;
+    private LocalDate[] planDates;
+    private LocalTime[] planStarts;
+    private LocalTime[] planEnds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(42);
+        ins = new LocalDateTime[sessions];
+        outs = new LocalDateTime[sessions];
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 6, 0);
+        for (int i = 0; i < sessions; i++) {
+            ins[i] = base.plusMinutes((long) i * 24 * 60 * 365 / sessions + rnd.nextInt(120));
+            outs[i] = i == 0 ? null : ins[i].plusMinutes(30 + rnd.nextInt(480));
+        }
+        // Mês cheio: 2 planos por dia (um noturno) e justificativa em ~1/3 dos dias
+        planDates = new LocalDate[62];
+        planStarts = new LocalTime[62];
+        planEnds = new LocalTime[62];
+        for (int i = 0; i < 62; i++) {
+            planDates[i] = LocalDate.of(2025, 3, 1).plusDays(i / 2);
+            planStarts[i] = i % 2 == 0 ? LocalTime.of(7, 0) : LocalTime.of(19, 0);
+            planEnds[i] = i % 2 == 0 ? LocalTime.of(13, 0) : LocalTime.of(7, 0);
+        }
+    }
+
+    @Benchmark
+    public byte[] sessionsLegacyMaps() throws Exception {
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (int i = 0; i < ins.length; i++) out.add(legacySession(i));
+        return mapper.writeValueAsBytes(out);
+    }
+
+    @Benchmark
+    public byte[] sessionsDto() throws Exception {
+        List<SessionDto> out = new ArrayList<>(ins.length);
+        for (int i = 0; i < ins.length; i++) {
+            out.add(new SessionDto((long) i, 10L, 20L, 1L, "MED-I", "Clínica Médica I",
+                    ins[i], outs[i], Boolean.TRUE, -9.97, -67.81, outs[i] == null ? null : -9.97, outs[i] == null ? null : -67.81));
+        }
+        return mapper.writeValueAsBytes(out);
+    }
+
+    @Benchmark
+    public byte[] monthLegacyMaps() throws Exception {
+        List<Map<String, Object>> plans = new ArrayList<>();
+        List<Map<String, Object>> justs = new ArrayList<>();
+        for (int i = 0; i < planDates.length; i++) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("id", (long) i);
+            m.put("date", planDates[i].toString());
+            m.put("startTime", planStarts[i].toString());
+            m.put("endTime", planEnds[i].toString());
+            m.put("location", "Hospital");
+            m.put("note", null);
+            Duration d = Duration.between(planStarts[i], planEnds[i]);
+            if (d.isNegative()) d = d.plusHours(24);
+            m.put("plannedSeconds", d.getSeconds());
+            m.put("weekNumber", i / 14 + 1);
+            m.put("discipline", Map.of("id", 1L, "code", "MED-I", "name", "Clínica Médica I"));
+            plans.add(m);
+            if (i % 6 == 0) {
+                Map<String, Object> j = new HashMap<>();
+                j.put("id", (long) i);
+                j.put("date", planDates[i].toString());
+                j.put("type", "ABSENCE");
+                j.put("reason", "Consulta médica");
+                j.put("status", "PENDING");
+                j.put("reviewNote", null);
+                j.put("planId", (long) i);
+                j.put("discipline", Map.of("id", 1L, "code", "MED-I", "name", "Clínica Médica I"));
+                justs.add(j);
+            }
+        }
+        Map<String, Object> view = new HashMap<>();
+        view.put("plans", plans);
+        view.put("justifications", justs);
+        return mapper.writeValueAsBytes(view);
+    }
+
+    @Benchmark
+    public byte[] monthDto() throws Exception {
+        List<PlanDto> plans = new ArrayList<>(planDates.length);
+        List<JustificationDto> justs = new ArrayList<>();
+        for (int i = 0; i < planDates.length; i++) {
+            plans.add(new PlanDto((long) i, planDates[i], planStarts[i], planEnds[i], "Hospital", null,
+                    i / 14 + 1, 1L, "MED-I", "Clínica Médica I"));
+            if (i % 6 == 0) {
+                justs.add(new JustificationDto((long) i, planDates[i], "ABSENCE", "Consulta médica", "PENDING", null,
+                        (long) i, 1L, "MED-I", "Clínica Médica I"));
+            }
+        }
+        Map<String, Object> view = new HashMap<>();
+        view.put("plans", plans);
+        view.put("justifications", justs);
+        return mapper.writeValueAsBytes(view);
+    }
+
+    // Cópia do CheckInService.sessionToMap anterior
+    private Map<String, Object> legacySession(int i) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("id", (long) i);
+        m.put("alunoId", 10L);
+        m.put("preceptorId", 20L);
+        m.put("discipline", Map.of("id", 1L, "code", "MED-I", "name", "Clínica Médica I"));
+        m.put("checkInTime", ins[i].atZone(ACRE_ZONE).toOffsetDateTime().toString());
+        m.put("checkOutTime", outs[i] == null ? null : outs[i].atZone(ACRE_ZONE).toOffsetDateTime().toString());
+        m.put("validated", true);
+        m.put("checkInLat", -9.97);
+        m.put("checkInLng", -67.81);
+        m.put("checkOutLat", outs[i] == null ? null : -9.97);
+        m.put("checkOutLng", outs[i] == null ? null : -67.81);
+        if (outs[i] != null) {
+            long secs = Duration.between(ins[i], outs[i]).getSeconds();
+            long h = secs / 3600; long mnt = (secs % 3600) / 60; long s = secs % 60;
+            m.put("worked", String.format("%02d:%02d:%02d", h, mnt, s));
+        } else {
+            m.put("worked", null);
+        }
+        return m;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DtoMappingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,101 @@
+package com.medcheckapi.bench;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import com.medcheckapi.user.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por requisição de autenticar um Bearer token no filtro JWT.
+ * <ul>
+ *   <li>legacy: comportamento anterior (deriva a chave e verifica a assinatura duas vezes: validateToken + getCpfFromJWT)</li>
+ *   <li>precomputedKey: chave/parser derivados uma vez, uma verificação por token (cache de tokens desligado)</li>
+ *   <li>verifiedCache: token repetido atendido pelo LRU de tokens verificados (polling de /api/check/status)</li>
+ * </ul>
+ * Executar: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.medcheckapi.bench.JwtTokenProviderBenchmark}
+ * ou pela IDE via {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "JWTSuperSecretKey-ReplaceThisInProd-1234567890ABCDEFGHIJKLMNOPQRSTUVWXYZabcdef";
+
+    private JwtTokenProvider uncached;
+    private JwtTokenProvider cached;
+    private String token;
+
+    @Setup
+    public void setup() {
+        uncached = provider(0);
+        cached = provider(4096);
+        User principal = new User("12345678900", "pwd", List.of());
+        token = cached.generateToken(new UsernamePasswordAuthenticationToken(principal, "pwd", principal.getAuthorities()));
+        cached.validateAndGetClaims(token);
+    }
+
+    @Benchmark
+    public String legacy() {
+        Jwts.parserBuilder().setSigningKey(legacyKey()).build().parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(legacyKey()).build().parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String precomputedKey() {
+        Claims claims = uncached.validateAndGetClaims(token);
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public String verifiedCache() {
+        Claims claims = cached.validateAndGetClaims(token);
+        return claims.getSubject();
+    }
+
+    // Cópia da derivação anterior, executada a cada chamada
+    private static javax.crypto.SecretKey legacyKey() {
+        byte[] raw = SECRET.getBytes(StandardCharsets.UTF_8);
+        if (SECRET.matches("^[A-Za-z0-9+/=]+$")) {
+            try { raw = Decoders.BASE64.decode(SECRET); } catch (IllegalArgumentException ignored) {}
+        }
+        if (raw.length < 64) {
+            byte[] expanded = new byte[64];
+            for (int i = 0; i < expanded.length; i++) expanded[i] = raw[i % raw.length];
+            raw = expanded;
+        }
+        return Keys.hmacShaKeyFor(raw);
+    }
+
+    private static JwtTokenProvider provider(int tokenCacheSize) {
+        AppProperties props = new AppProperties();
+        props.setJwtSecret(SECRET);
+        props.setJwtExpirationInMs(3600000);
+        props.getAuth().setTokenCacheSize(tokenCacheSize);
+        JwtTokenProvider provider = new JwtTokenProvider();
+        try {
+            var f = JwtTokenProvider.class.getDeclaredField("appProperties");
+            f.setAccessible(true);
+            f.set(provider, props);
+        } catch (Exception e) { throw new RuntimeException(e); }
+        return provider;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(JwtTokenProviderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
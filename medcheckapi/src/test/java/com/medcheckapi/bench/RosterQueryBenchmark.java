@@ -0,0 +1,117 @@
+package com.medcheckapi.bench;
+
+import com.medcheckapi.user.service.RosterQueryService;
+import com.medcheckapi.user.service.UserSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listagem de alunos da disciplina (coordenador) com milhares de alunos, em H2 (modo MySQL).
+ * <ul>
+ *   <li>legacyNPlusOne: agregado paginado + contagem e, por linha, EXISTS de sessão aberta e preceptores distintos</li>
+ *   <li>rosterQuery: {@link RosterQueryService} (agregado ordenado + total numa consulta, preceptores da página em outra)</li>
+ * </ul>
+ * Executar: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.medcheckapi.bench.RosterQueryBenchmark}
+ * ou pela IDE via {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RosterQueryBenchmark {
+
+    private static final long DISCIPLINE = 1L;
+    private static final int PRECEPTORS = 12;
+    private static final int SESSIONS_PER_STUDENT = 20;
+
+    @Param({"2000", "8000"})
+    public int students;
+
+    @Param({"8", "50"})
+    public int pageSize;
+
+    private NamedParameterJdbcTemplate jdbc;
+    private RosterQueryService service;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @Setup
+    public void setup() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:roster" + students + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate t = new JdbcTemplate(ds);
+        t.execute("DROP ALL OBJECTS");
+        t.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(120), cpf VARCHAR(32), phone VARCHAR(40), institutional_email VARCHAR(160))");
+        t.execute("CREATE TABLE check_sessions (id BIGINT AUTO_INCREMENT PRIMARY KEY, aluno_id BIGINT, preceptor_id BIGINT, discipline_id BIGINT, check_in_time TIMESTAMP, check_out_time TIMESTAMP)");
+        t.execute("CREATE INDEX idx_cs_discipline_time ON check_sessions (discipline_id, check_in_time)");
+        t.execute("CREATE INDEX idx_cs_aluno_time ON check_sessions (aluno_id, check_in_time)");
+        List<Object[]> users = new ArrayList<>();
+        for (int p = 1; p <= PRECEPTORS; p++) users.add(new Object[]{(long) p, "Preceptor " + p, "p" + p, null, "p" + p + "@x"});
+        for (int a = 0; a < students; a++) {
+            long id = 1000L + a;
+            users.add(new Object[]{id, "Aluno " + a, String.format("%011d", id), "(68) 9" + a, "a" + a + "@x"});
+        }
+        t.batchUpdate("INSERT INTO users VALUES (?,?,?,?,?)", users);
+        LocalDateTime base = LocalDateTime.of(2025, 2, 3, 7, 0);
+        List<Object[]> sessions = new ArrayList<>();
+        for (int a = 0; a < students; a++) {
+            for (int s = 0; s < SESSIONS_PER_STUDENT; s++) {
+                LocalDateTime in = base.plusDays(s).plusMinutes(a % 90);
+                boolean open = s == SESSIONS_PER_STUDENT - 1 && a % 10 == 0;
+                sessions.add(new Object[]{1000L + a, 1L + (a + s) % PRECEPTORS, DISCIPLINE, Timestamp.valueOf(in), open ? null : Timestamp.valueOf(in.plusHours(6))});
+            }
+        }
+        t.batchUpdate("INSERT INTO check_sessions (aluno_id, preceptor_id, discipline_id, check_in_time, check_out_time) VALUES (?,?,?,?,?)", sessions);
+        jdbc = new NamedParameterJdbcTemplate(t);
+        service = new RosterQueryService(jdbc, new UserSearchIndex(t), Clock.systemDefaultZone());
+        start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        end = LocalDateTime.of(2025, 12, 31, 23, 59, 59);
+    }
+
+    @Benchmark
+    public int legacyNPlusOne() {
+        Map<String, Object> p = Map.of("disc", DISCIPLINE, "start", Timestamp.valueOf(start), "end", Timestamp.valueOf(end),
+                "now", Timestamp.valueOf(LocalDateTime.now()), "limit", pageSize);
+        List<Long> page = jdbc.queryForList("""
+                SELECT cs.aluno_id FROM check_sessions cs
+                WHERE cs.discipline_id = :disc AND cs.check_in_time BETWEEN :start AND :end
+                GROUP BY cs.aluno_id
+                ORDER BY SUM(TIMESTAMPDIFF(SECOND, cs.check_in_time, COALESCE(cs.check_out_time, :now))) DESC,
+                         MAX(cs.check_in_time), COUNT(DISTINCT cs.preceptor_id)
+                LIMIT :limit
+                """, p, Long.class);
+        jdbc.queryForObject("SELECT COUNT(DISTINCT aluno_id) FROM check_sessions WHERE discipline_id = :disc AND check_in_time BETWEEN :start AND :end", p, Long.class);
+        int work = 0;
+        for (Long aluno : page) {
+            Map<String, Object> row = Map.of("disc", DISCIPLINE, "aluno", aluno, "start", Timestamp.valueOf(start), "end", Timestamp.valueOf(end));
+            work += jdbc.queryForList("SELECT 1 FROM check_sessions WHERE aluno_id = :aluno AND discipline_id = :disc AND check_out_time IS NULL LIMIT 1", row).size();
+            work += jdbc.queryForList("SELECT DISTINCT u.id, u.name FROM check_sessions cs JOIN users u ON u.id = cs.preceptor_id WHERE cs.discipline_id = :disc AND cs.aluno_id = :aluno AND cs.check_in_time BETWEEN :start AND :end", row).size();
+        }
+        return work;
+    }
+
+    @Benchmark
+    public int rosterQuery() {
+        RosterQueryService.RosterPage page = service.page(
+                new RosterQueryService.RosterFilter(DISCIPLINE, start, end, null, null, true, true, true, true, true, true),
+                "totalHours", true, 0, pageSize);
+        return page.items().size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(RosterQueryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,120 @@
+package com.medcheckapi.bench;
+
+import com.medcheckapi.user.service.UserSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca de alunos nas listagens (50k usuários, 2M sessões), em H2 (modo MySQL).
+ * <ul>
+ *   <li>likeScan: forma anterior — LIKE '%q%' em nome/e-mail/CPF e REPLACE aninhado no telefone, na junção com sessões</li>
+ *   <li>gramIndex: condição do {@link UserSearchIndex} (subconsulta de trigramas + confirmação) embutida na consulta de sessões</li>
+ * </ul>
+ * Executar: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.medcheckapi.bench.UserSearchBenchmark}
+ * ou pela IDE via {@link #main}. A carga inicial leva alguns minutos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSearchBenchmark {
+
+    private static final int USERS = 50_000;
+    private static final int SESSIONS = 2_000_000;
+    private static final int PRECEPTORS = 200;
+    private static final String[] FIRST = {"Ana", "João", "Maria", "José", "Lucas", "Beatriz", "Pedro", "Luíza", "Rafael", "Camila"};
+    private static final String[] LAST = {"Silva", "Souza", "Oliveira", "Lima", "Pereira", "Ferreira", "Costa", "Rodrigues", "Almeida", "Nascimento"};
+
+    @Param({"nasc", "souza lima", "98765"})
+    public String q;
+
+    private NamedParameterJdbcTemplate jdbc;
+    private UserSearchIndex index;
+    private Timestamp start;
+    private Timestamp end;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:usersearch;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate t = new JdbcTemplate(ds);
+        t.execute("DROP ALL OBJECTS");
+        t.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(120), cpf VARCHAR(32), phone VARCHAR(40), institutional_email VARCHAR(160), cpf_digits VARCHAR(14), phone_digits VARCHAR(20))");
+        t.execute("CREATE TABLE user_search_grams (gram VARCHAR(8), user_id BIGINT, PRIMARY KEY (gram, user_id))");
+        t.execute("CREATE INDEX idx_usg_user ON user_search_grams (user_id)");
+        t.execute("CREATE TABLE check_sessions (id BIGINT AUTO_INCREMENT PRIMARY KEY, aluno_id BIGINT, preceptor_id BIGINT, check_in_time TIMESTAMP)");
+        t.execute("CREATE INDEX idx_cs_aluno_time ON check_sessions (aluno_id, check_in_time)");
+        t.execute("CREATE INDEX idx_cs_preceptor_time ON check_sessions (preceptor_id, check_in_time)");
+
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) {
+            String name = FIRST[i % FIRST.length] + " " + LAST[(i / 10) % LAST.length] + " " + LAST[(i / 100) % LAST.length] + " " + i;
+            String phone = String.format("(68) 9%04d-%04d", i % 10_000, (i * 7) % 10_000);
+            users.add(new Object[]{(long) i, name, String.format("%011d", 10_000_000_000L + i * 7919L), phone, "user" + i + "@ufac.br"});
+        }
+        t.batchUpdate("INSERT INTO users (id, name, cpf, phone, institutional_email) VALUES (?,?,?,?,?)", users);
+
+        LocalDateTime base = LocalDateTime.of(2025, 1, 6, 7, 0);
+        List<Object[]> chunk = new ArrayList<>();
+        for (int s = 0; s < SESSIONS; s++) {
+            long aluno = PRECEPTORS + 1 + (s % (USERS - PRECEPTORS));
+            chunk.add(new Object[]{aluno, 1L + (s % PRECEPTORS), Timestamp.valueOf(base.plusMinutes(s % 400_000))});
+            if (chunk.size() == 20_000) {
+                t.batchUpdate("INSERT INTO check_sessions (aluno_id, preceptor_id, check_in_time) VALUES (?,?,?)", chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) t.batchUpdate("INSERT INTO check_sessions (aluno_id, preceptor_id, check_in_time) VALUES (?,?,?)", chunk);
+
+        index = new UserSearchIndex(t);
+        index.backfill();
+        jdbc = new NamedParameterJdbcTemplate(t);
+        start = Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 0, 0));
+        end = Timestamp.valueOf(LocalDateTime.of(2025, 12, 31, 23, 59));
+    }
+
+    @Benchmark
+    public List<Long> likeScan() {
+        String qLower = q.toLowerCase();
+        String digits = q.replaceAll("\\D", "");
+        MapSqlParameterSource p = new MapSqlParameterSource("preceptor", 7L).addValue("start", start).addValue("end", end)
+                .addValue("q", qLower).addValue("qDigits", digits);
+        return jdbc.queryForList("""
+                SELECT cs.aluno_id FROM check_sessions cs JOIN users a ON a.id = cs.aluno_id
+                WHERE cs.preceptor_id = :preceptor AND cs.check_in_time BETWEEN :start AND :end
+                  AND (LOWER(a.name) LIKE CONCAT('%',:q,'%') OR LOWER(a.institutional_email) LIKE CONCAT('%',:q,'%')
+                       OR (:qDigits <> '' AND a.cpf LIKE CONCAT('%',:qDigits,'%'))
+                       OR LOWER(a.phone) LIKE CONCAT('%',:q,'%')
+                       OR (:qDigits <> '' AND REPLACE(REPLACE(REPLACE(REPLACE(a.phone,'(',''),')',''),'-',''),' ','') LIKE CONCAT('%',:qDigits,'%')))
+                GROUP BY cs.aluno_id ORDER BY cs.aluno_id LIMIT 8
+                """, p, Long.class);
+    }
+
+    @Benchmark
+    public List<Long> gramIndex() {
+        MapSqlParameterSource p = new MapSqlParameterSource("preceptor", 7L).addValue("start", start).addValue("end", end);
+        StringBuilder where = new StringBuilder("cs.preceptor_id = :preceptor AND cs.check_in_time BETWEEN :start AND :end");
+        index.appendMatch(where, p, "u", q, UserSearchIndex.Fields.ALL);
+        return jdbc.queryForList("""
+                SELECT cs.aluno_id FROM check_sessions cs JOIN users u ON u.id = cs.aluno_id
+                WHERE %s
+                GROUP BY cs.aluno_id ORDER BY cs.aluno_id LIMIT 8
+                """.formatted(where), p, Long.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(UserSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
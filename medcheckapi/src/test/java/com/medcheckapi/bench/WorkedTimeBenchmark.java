@@ -0,0 +1,108 @@
+package com.medcheckapi.bench;
+
+import com.medcheckapi.user.service.WorkedTimeEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo trabalhado por dia:
+ * <ul>
+ *   <li>legacyMaps: cálculo anterior do calendário (LocalDateTime por fronteira de dia, HashMap&lt;LocalDate, Long&gt; + mapa arredondado)</li>
+ *   <li>engine: {@link WorkedTimeEngine} (epoch-segundos sobre long[] por dia do intervalo)</li>
+ * </ul>
+ * Cenários: mês de 31 dias e rodízio de 10 semanas, com milhares de sessões (parte noturna, parte fora do intervalo).
+ * Executar: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.medcheckapi.bench.WorkedTimeBenchmark}
+ * ou pela IDE via {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkedTimeBenchmark {
+
+    @Param({"month31", "rotation10w"})
+    public String scenario;
+
+    @Param({"2000", "20000"})
+    public int sessions;
+
+    private LocalDate start;
+    private LocalDate end;
+    private LocalDateTime[] ins;
+    private LocalDateTime[] outs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        start = LocalDate.of(2025, 3, 3);
+        end = "month31".equals(scenario) ? start.plusDays(30) : start.plusWeeks(10).minusDays(1);
+        int days = (int) (end.toEpochDay() - start.toEpochDay()) + 1;
+        Random rnd = new Random(42);
+        ins = new LocalDateTime[sessions];
+        outs = new LocalDateTime[sessions];
+        for (int i = 0; i < sessions; i++) {
+            // Alguns começam na véspera do intervalo; ~20% noturnos atravessam a meia-noite
+            LocalDateTime in = start.minusDays(1).atStartOfDay().plusMinutes(rnd.nextInt((days + 1) * 24 * 60));
+            ins[i] = in;
+            outs[i] = rnd.nextInt(20) == 0 ? null : in.plusMinutes(rnd.nextInt(5) == 0 ? 540 : 30 + rnd.nextInt(360));
+        }
+    }
+
+    @Benchmark
+    public Map<LocalDate, Long> legacyMaps() {
+        return legacy(ins, outs, start, end);
+    }
+
+    @Benchmark
+    public long[] engine() {
+        WorkedTimeEngine e = WorkedTimeEngine.forRange(start, end);
+        for (int i = 0; i < ins.length; i++) e.add(ins[i], outs[i]);
+        return e.rounded();
+    }
+
+    // Cópia do cálculo anterior (CalendarService.computeWorkedByDay)
+    private static Map<LocalDate, Long> legacy(LocalDateTime[] ins, LocalDateTime[] outs, LocalDate start, LocalDate end) {
+        Map<LocalDate, Long> map = new HashMap<>();
+        for (int i = 0; i < ins.length; i++) {
+            LocalDateTime in = ins[i];
+            LocalDateTime out = outs[i] != null ? outs[i] : in;
+            if (out.isBefore(in)) out = in;
+            LocalDateTime rangeStart = start.atStartOfDay();
+            LocalDateTime rangeEnd = end.atTime(23, 59, 59);
+            LocalDateTime from = in.isBefore(rangeStart) ? rangeStart : in;
+            LocalDateTime to = out.isAfter(rangeEnd) ? rangeEnd : out;
+            if (to.isBefore(from)) continue;
+            LocalDateTime cursor = from;
+            while (!cursor.toLocalDate().isAfter(to.toLocalDate())) {
+                LocalDate day = cursor.toLocalDate();
+                LocalDateTime dayEnd = day.atTime(23, 59, 59);
+                LocalDateTime segTo = to.isBefore(dayEnd) ? to : dayEnd;
+                long secs = Duration.between(cursor, segTo).getSeconds();
+                map.merge(day, Math.max(0, secs), Long::sum);
+                cursor = day.plusDays(1).atStartOfDay();
+            }
+        }
+        Map<LocalDate, Long> rounded = new HashMap<>();
+        for (Map.Entry<LocalDate, Long> e : map.entrySet()) {
+            long s = e.getValue();
+            long r = Math.round(s / 60.0) * 60L;
+            if (s > 0 && r == 0) r = 1;
+            rounded.put(e.getKey(), r);
+        }
+        return rounded;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(WorkedTimeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,138 @@
+package com.medcheckapi.testsupport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor SMTP mínimo para testes (sem TLS/AUTH): aceita conexões em localhost numa porta livre e guarda as
+ * mensagens recebidas. Destinatários em {@link #rejectRecipient} recebem 451 (falha temporária) no RCPT TO.
+ */
+public final class FakeSmtpServer implements AutoCloseable {
+
+    public record Received(String from, List<String> recipients, String data) {}
+
+    private final ServerSocket server;
+    private final Thread acceptor;
+    private final List<Received> messages = new CopyOnWriteArrayList<>();
+    private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    public FakeSmtpServer() {
+        try {
+            server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        acceptor = new Thread(this::acceptLoop, "fake-smtp");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int port() { return server.getLocalPort(); }
+
+    public List<Received> messages() { return List.copyOf(messages); }
+
+    /** Conexões SMTP abertas até agora. */
+    public int connections() { return connections.get(); }
+
+    public void rejectRecipient(String address) { rejected.add(address.toLowerCase(Locale.ROOT)); }
+
+    public void acceptRecipient(String address) { rejected.remove(address.toLowerCase(Locale.ROOT)); }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try (Socket s = server.accept()) {
+                connections.incrementAndGet();
+                session(s);
+            } catch (IOException e) {
+                // servidor fechado ou cliente desconectou
+            }
+        }
+    }
+
+    private void session(Socket s) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+        OutputStream out = s.getOutputStream();
+        reply(out, "220 localhost fake SMTP");
+        String from = null;
+        List<String> rcpts = new ArrayList<>();
+        String line;
+        while ((line = in.readLine()) != null) {
+            String cmd = line.toUpperCase(Locale.ROOT);
+            if (cmd.startsWith("EHLO") || cmd.startsWith("HELO")) {
+                reply(out, "250 localhost");
+            } else if (cmd.startsWith("MAIL FROM:")) {
+                from = address(line);
+                rcpts.clear();
+                reply(out, "250 OK");
+            } else if (cmd.startsWith("RCPT TO:")) {
+                String to = address(line);
+                if (rejected.contains(to.toLowerCase(Locale.ROOT))) {
+                    reply(out, "451 4.3.0 Try again later");
+                } else {
+                    rcpts.add(to);
+                    reply(out, "250 OK");
+                }
+            } else if (cmd.equals("DATA")) {
+                if (rcpts.isEmpty()) { reply(out, "554 No valid recipients"); continue; }
+                reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                StringBuilder data = new StringBuilder();
+                String d;
+                while ((d = in.readLine()) != null && !d.equals(".")) {
+                    data.append(d.startsWith("..") ? d.substring(1) : d).append("\r\n");
+                }
+                messages.add(new Received(from, List.copyOf(rcpts), data.toString()));
+                rcpts.clear();
+                reply(out, "250 OK queued");
+            } else if (cmd.equals("RSET")) {
+                from = null;
+                rcpts.clear();
+                reply(out, "250 OK");
+            } else if (cmd.equals("NOOP")) {
+                reply(out, "250 OK");
+            } else if (cmd.equals("QUIT")) {
+                reply(out, "221 Bye");
+                return;
+            } else {
+                reply(out, "502 Command not implemented");
+            }
+        }
+    }
+
+    private static String address(String line) {
+        int lt = line.indexOf('<');
+        int gt = line.indexOf('>', lt + 1);
+        return lt >= 0 && gt > lt ? line.substring(lt + 1, gt) : line.substring(line.indexOf(':') + 1).trim();
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+            acceptor.join(1000);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
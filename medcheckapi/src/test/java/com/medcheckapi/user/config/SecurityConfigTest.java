@@ -0,0 +1,30 @@
+package com.medcheckapi.user.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecurityConfigTest {
+
+    private static MockHttpServletRequest get(int localPort, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setLocalPort(localPort);
+        return request;
+    }
+
+    @Test
+    @DisplayName("Prometheus sem login só pela porta de gestão separada da API")
+    void prometheus_open_only_on_management_port() {
+        RequestMatcher separate = SecurityConfig.prometheusOnManagementPort(8081, 8080);
+        assertThat(separate.matches(get(8081, "/actuator/prometheus"))).isTrue();
+        assertThat(separate.matches(get(8080, "/actuator/prometheus"))).isFalse();
+        assertThat(separate.matches(get(8081, "/actuator/metrics"))).isFalse();
+
+        // Gestão na mesma porta da API (ou sem porta própria): nada liberado, cai no ADMIN
+        assertThat(SecurityConfig.prometheusOnManagementPort(8080, 8080).matches(get(8080, "/actuator/prometheus"))).isFalse();
+        assertThat(SecurityConfig.prometheusOnManagementPort(null, 8080).matches(get(8080, "/actuator/prometheus"))).isFalse();
+    }
+}
@@ -0,0 +1,68 @@
+package com.medcheckapi.user.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServerTimingTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.end();
+    }
+
+    @Test
+    @DisplayName("Proxy JDBC conta só os comandos executados dentro da requisição")
+    void counts_statements_inside_request_only() {
+        EmbeddedDatabase db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(new TimingDataSource(db));
+            jdbc.execute("CREATE TABLE t (id INT PRIMARY KEY)");
+
+            RequestTiming t = RequestTiming.begin();
+            jdbc.update("INSERT INTO t (id) VALUES (?)", 1);
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM t", Integer.class)).isEqualTo(1);
+            RequestTiming.end();
+            jdbc.queryForList("SELECT id FROM t");
+
+            assertThat(t.queries()).isEqualTo(2);
+            assertThat(t.header()).matches("auth;dur=\\d+\\.\\d, db;dur=\\d+\\.\\d;desc=\"2 queries\", serialize;dur=\\d+\\.\\d, total;dur=\\d+\\.\\d");
+        } finally {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Conversor JSON grava o header com o tempo de serialização antes do corpo")
+    void converter_sets_header_before_body() throws Exception {
+        TimingJsonConverter converter = new TimingJsonConverter(new ObjectMapper());
+        MockHttpOutputMessage out = new MockHttpOutputMessage();
+
+        RequestTiming.begin();
+        converter.write(Map.of("items", 3), MediaType.APPLICATION_JSON, out);
+
+        assertThat(out.getHeaders().getFirst(RequestTiming.HEADER)).contains("serialize;dur=").contains("total;dur=");
+        assertThat(out.getBodyAsString()).isEqualTo("{\"items\":3}");
+    }
+
+    @Test
+    @DisplayName("Desligado (sem RequestTiming): conversor não adiciona header")
+    void converter_without_timing_is_plain() throws Exception {
+        MockHttpOutputMessage out = new MockHttpOutputMessage();
+        new TimingJsonConverter(new ObjectMapper()).write(Map.of("ok", true), MediaType.APPLICATION_JSON, out);
+
+        assertThat(out.getHeaders().containsKey(RequestTiming.HEADER)).isFalse();
+        assertThat(out.getBodyAsString()).isEqualTo("{\"ok\":true}");
+    }
+}
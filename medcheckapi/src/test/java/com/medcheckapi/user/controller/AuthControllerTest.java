@@ -70,6 +70,8 @@ class AuthControllerTest {
         @Bean org.springframework.security.crypto.password.PasswordEncoder passwordEncoder() { return Mockito.mock(org.springframework.security.crypto.password.PasswordEncoder.class); }
         @Bean com.medcheckapi.user.service.PasswordResetService passwordResetService() { return Mockito.mock(com.medcheckapi.user.service.PasswordResetService.class); }
         @Bean com.medcheckapi.user.repository.PasswordResetTokenRepository passwordResetTokenRepository() { return Mockito.mock(com.medcheckapi.user.repository.PasswordResetTokenRepository.class); }
+        @Bean com.medcheckapi.user.security.PrincipalCache principalCache() { return Mockito.mock(com.medcheckapi.user.security.PrincipalCache.class); }
+        @Bean com.medcheckapi.user.service.AvatarStore avatarStore() { return Mockito.mock(com.medcheckapi.user.service.AvatarStore.class); }
     }
 
     @Test
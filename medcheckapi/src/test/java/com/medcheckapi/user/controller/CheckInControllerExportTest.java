@@ -0,0 +1,93 @@
+package com.medcheckapi.user.controller;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import com.medcheckapi.user.model.Role;
+import com.medcheckapi.user.repository.DisciplineRepository;
+import com.medcheckapi.user.repository.UserRepository;
+import com.medcheckapi.user.security.AuthenticatedUser;
+import com.medcheckapi.user.service.CheckInService;
+import com.medcheckapi.user.service.HoursLedgerService;
+import com.medcheckapi.user.service.SessionExportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/** Exportação de sessões: formato inválido vira 400 e o timeout longo vale só para o download. */
+class CheckInControllerExportTest {
+
+    private MockMvc mvc;
+    private SessionExportService sessionExport;
+
+    @BeforeEach
+    void setUp() {
+        sessionExport = mock(SessionExportService.class);
+        AppProperties props = new AppProperties();
+        props.getExport().setTimeoutMinutes(45);
+        CheckInController controller = new CheckInController(mock(CheckInService.class), mock(UserRepository.class),
+                mock(DisciplineRepository.class), sessionExport, mock(HoursLedgerService.class), props);
+        mvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+        AuthenticatedUser coordinator = new AuthenticatedUser(7L, "00000000000", "", Role.COORDENADOR, List.of(), 0);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(coordinator, null, coordinator.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Formato desconhecido: 400 com mensagem, sem iniciar o streaming")
+    void unknown_format_is_bad_request() throws Exception {
+        mvc.perform(get("/api/check/sessions/export")
+                        .param("start", "2025-03-01").param("end", "2025-03-31").param("format", "xml"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("Formato inválido")));
+    }
+
+    @Test
+    @DisplayName("Download usa o timeout assíncrono da exportação e transmite o corpo")
+    void export_gets_its_own_async_timeout() throws Exception {
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(2);
+            out.write("id,alunoId\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(sessionExport).export(any(), eq(SessionExportService.Format.CSV), any());
+
+        MvcResult started = mvc.perform(get("/api/check/sessions/export")
+                        .param("start", "2025-03-01").param("end", "2025-03-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(started.getRequest().getAsyncContext().getTimeout()).isEqualTo(TimeUnit.MINUTES.toMillis(45));
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", containsString("sessoes_2025-03-01_2025-03-31.csv")))
+                .andExpect(content().string("id,alunoId\n"));
+    }
+}
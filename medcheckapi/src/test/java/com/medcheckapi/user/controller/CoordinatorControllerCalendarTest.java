@@ -0,0 +1,101 @@
+package com.medcheckapi.user.controller;
+
+import com.medcheckapi.user.model.Discipline;
+import com.medcheckapi.user.model.Role;
+import com.medcheckapi.user.repository.CheckSessionRepository;
+import com.medcheckapi.user.repository.CoordinatorEvaluationRepository;
+import com.medcheckapi.user.repository.DisciplineRepository;
+import com.medcheckapi.user.repository.UserRepository;
+import com.medcheckapi.user.security.AuthenticatedUser;
+import com.medcheckapi.user.security.CustomUserDetailsService;
+import com.medcheckapi.user.service.CohortCalendarService;
+import com.medcheckapi.user.service.HotPathMetrics;
+import com.medcheckapi.user.service.HoursLedgerService;
+import com.medcheckapi.user.service.RosterQueryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/** Mapa de frequência da turma: coordenador só da disciplina a que está vinculado; ADMIN de qualquer uma. */
+class CoordinatorControllerCalendarTest {
+
+    private MockMvc mvc;
+    private CohortCalendarService cohortCalendar;
+
+    @BeforeEach
+    void setUp() {
+        DisciplineRepository disciplines = mock(DisciplineRepository.class);
+        Discipline disc = new Discipline();
+        disc.setId(3L);
+        disc.setCode("MED-I");
+        disc.setName("Clínica Médica I");
+        when(disciplines.findById(3L)).thenReturn(Optional.of(disc));
+        cohortCalendar = mock(CohortCalendarService.class);
+        when(cohortCalendar.month(anyLong(), eq(YearMonth.of(2025, 3)), anyInt(), anyInt()))
+                .thenReturn(new CohortCalendarService.CohortPage(List.of("2025-03-01"), List.of(), 0, 20, 0));
+        CoordinatorController controller = new CoordinatorController(mock(UserRepository.class), disciplines,
+                mock(CheckSessionRepository.class), mock(CoordinatorEvaluationRepository.class), mock(CustomUserDetailsService.class),
+                mock(RosterQueryService.class), cohortCalendar, mock(HoursLedgerService.class),
+                new HotPathMetrics(new SimpleMeterRegistry()), Clock.systemDefaultZone());
+        mvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void login(Role role, List<Long> disciplines) {
+        AuthenticatedUser user = new AuthenticatedUser(7L, "00000000000", "", role, disciplines, 0);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @Test
+    @DisplayName("Coordenador de outra disciplina: 403, sem montar a grade")
+    void unlinked_coordinator_is_forbidden() throws Exception {
+        login(Role.COORDENADOR, List.of(5L));
+
+        mvc.perform(get("/api/coord/disciplinas/3/calendar").param("year", "2025").param("month", "3"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.error").value("Coordenador não vinculado à disciplina"));
+        verify(cohortCalendar, never()).month(anyLong(), eq(YearMonth.of(2025, 3)), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Coordenador vinculado e ADMIN recebem a grade")
+    void linked_coordinator_and_admin_allowed() throws Exception {
+        login(Role.COORDENADOR, List.of(3L));
+        mvc.perform(get("/api/coord/disciplinas/3/calendar").param("year", "2025").param("month", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.discipline.code").value("MED-I"));
+
+        login(Role.ADMIN, List.of());
+        mvc.perform(get("/api/coord/disciplinas/3/calendar").param("year", "2025").param("month", "3"))
+                .andExpect(status().isOk());
+    }
+}
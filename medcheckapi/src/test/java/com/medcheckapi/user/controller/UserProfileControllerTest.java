@@ -3,6 +3,7 @@ package com.medcheckapi.user.controller;
 import com.medcheckapi.user.model.Role;
 import com.medcheckapi.user.model.User;
 import com.medcheckapi.user.repository.UserRepository;
+import com.medcheckapi.user.service.AvatarStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -14,12 +15,17 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -33,14 +39,24 @@ class UserProfileControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AvatarStore avatarStore;
+
     @TestConfiguration
     static class TestConfig {
         @Bean
         UserRepository userRepository() {
             return Mockito.mock(UserRepository.class);
         }
+
+        @Bean
+        AvatarStore avatarStore() {
+            return Mockito.mock(AvatarStore.class);
+        }
     }
 
+    private static final String HASH = "a".repeat(64);
+
     private User user;
 
     @BeforeEach
@@ -51,6 +67,7 @@ class UserProfileControllerTest {
         user.setCpf("12345678900");
         user.setRole(Role.ALUNO);
         user.setPhone("11999999999");
+        Mockito.reset(avatarStore);
         when(userRepository.findByCpf(anyString())).thenReturn(Optional.of(user));
     }
 
@@ -88,7 +105,7 @@ class UserProfileControllerTest {
     @Test
     @WithMockUser(username = "12345678900")
     void getPhoto_notFoundWhenNoAvatar() throws Exception {
-        user.setAvatar(null);
+        user.setAvatarHash(null);
         mockMvc.perform(get("/api/users/me/photo"))
                 .andExpect(status().isNotFound());
     }
@@ -98,32 +115,59 @@ class UserProfileControllerTest {
     void postPhoto_thenGetPhotoReturnsImage() throws Exception {
     byte[] img = "fakeimage".getBytes(StandardCharsets.UTF_8);
     when(userRepository.save(Mockito.any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+    when(avatarStore.put(any(byte[].class), eq("image/png"))).thenReturn(new AvatarStore.Stored(HASH, img.length, "image/png"));
+    AvatarStore.Variant original = new AvatarStore.Variant(HASH, AvatarStore.ORIGINAL, "image/png", img.length);
+    when(avatarStore.find(HASH, null)).thenReturn(original);
+    doAnswer(inv -> { inv.<java.io.OutputStream>getArgument(1).write(img); return null; })
+            .when(avatarStore).copy(eq(original), any());
 
     MockMultipartFile file = new MockMultipartFile("file", "photo.png", "image/png", img);
     mockMvc.perform(multipart("/api/users/me/photo")
             .file(file)
             .contentType(MediaType.MULTIPART_FORM_DATA))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.ok", is(true)));
-
-        user.setAvatar(img);
-        user.setAvatarContentType("image/png");
-
-        mockMvc.perform(get("/api/users/me/photo"))
+                .andExpect(jsonPath("$.ok", is(true)))
+                .andExpect(jsonPath("$.avatarHash", is(HASH)));
+        org.assertj.core.api.Assertions.assertThat(user.getAvatarHash()).isEqualTo(HASH);
+        org.assertj.core.api.Assertions.assertThat(user.getAvatarSize()).isEqualTo(img.length);
+
+        MvcResult started = mockMvc.perform(get("/api/users/me/photo"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
                 .andExpect(status().isOk())
-                .andExpect(header().string("Cache-Control", containsString("no-store")))
-                .andExpect(header().string("Content-Type", "image/png"));
+                .andExpect(header().string("Cache-Control", containsString("no-cache")))
+                .andExpect(header().string("ETag", original.etag()))
+                .andExpect(header().string("Content-Type", "image/png"))
+                .andExpect(content().bytes(img));
+    }
+
+    @Test
+    @WithMockUser(username = "12345678900")
+    void getPhoto_notModifiedWhenEtagMatches() throws Exception {
+        user.setAvatarHash(HASH);
+        AvatarStore.Variant thumb = new AvatarStore.Variant(HASH, 64, "image/jpeg", 1200);
+        when(avatarStore.find(HASH, 64)).thenReturn(thumb);
+
+        mockMvc.perform(get("/api/users/me/photo").param("size", "64").param("v", HASH)
+                        .header("If-None-Match", thumb.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Cache-Control", containsString("immutable")));
+        verify(avatarStore, Mockito.never()).copy(any(), any());
     }
 
     @Test
     @WithMockUser(username = "12345678900")
     void deletePhoto_removesAvatar() throws Exception {
-        user.setAvatar("x".getBytes(StandardCharsets.UTF_8));
+        user.setAvatarHash(HASH);
+        user.setAvatarSize(1);
         user.setAvatarContentType("image/jpeg");
         when(userRepository.save(Mockito.any(User.class))).thenAnswer(inv -> inv.getArgument(0));
 
         mockMvc.perform(delete("/api/users/me/photo"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.ok", is(true)));
+        org.assertj.core.api.Assertions.assertThat(user.hasAvatar()).isFalse();
+        verify(avatarStore).release(HASH);
     }
 }
@@ -0,0 +1,204 @@
+package com.medcheckapi.user.controller;
+
+import com.medcheckapi.user.model.Role;
+import com.medcheckapi.user.model.User;
+import com.medcheckapi.user.repository.CoordinatorEvaluationRepository;
+import com.medcheckapi.user.repository.DisciplineRepository;
+import com.medcheckapi.user.repository.UserRepository;
+import com.medcheckapi.user.service.AvatarStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Foto de perfil ponta a ponta sem subir contexto: controller em MockMvc standalone e {@link AvatarStore} real
+ * sobre H2 (modo MySQL). Cobre upload com miniaturas, validação de tamanho/tipo e cabeçalhos de cache.
+ */
+class UserProfilePhotoTest {
+
+    private JdbcTemplate jdbc;
+    private MockMvc mvc;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource db = new DriverManagerDataSource(
+                "jdbc:h2:mem:avatar" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, avatar_hash CHAR(64))");
+        jdbc.execute("""
+                CREATE TABLE avatar_blobs (hash CHAR(64) NOT NULL, variant SMALLINT NOT NULL, content_type VARCHAR(100) NOT NULL,
+                  byte_size INT NOT NULL, data BLOB NOT NULL, PRIMARY KEY (hash, variant))""");
+        jdbc.update("INSERT INTO users (id) VALUES (1)");
+
+        user = new User();
+        user.setId(1L);
+        user.setName("Test User");
+        user.setCpf("12345678900");
+        user.setRole(Role.ALUNO);
+        UserRepository users = mock(UserRepository.class);
+        when(users.findByCpf("12345678900")).thenReturn(Optional.of(user));
+        // save reflete a referência na tabela users, que o release consulta
+        when(users.save(any(User.class))).thenAnswer(inv -> {
+            User u = inv.getArgument(0);
+            jdbc.update("UPDATE users SET avatar_hash = ? WHERE id = ?", u.getAvatarHash(), u.getId());
+            return u;
+        });
+        UserProfileController controller = new UserProfileController(users, mock(DisciplineRepository.class),
+                mock(CoordinatorEvaluationRepository.class), new AvatarStore(new NamedParameterJdbcTemplate(db)));
+        mvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+        org.springframework.security.core.userdetails.User principal = new org.springframework.security.core.userdetails.User(
+                "12345678900", "", List.of(new SimpleGrantedAuthority("ROLE_ALUNO")));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private static byte[] png(int width, int height, int rgb) throws Exception {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) img.setRGB(x, y, rgb);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(java.security.MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    private List<Integer> variants(String hash) {
+        return jdbc.queryForList("SELECT variant FROM avatar_blobs WHERE hash = ? ORDER BY variant", Integer.class, hash);
+    }
+
+    private MvcResult upload(MockMultipartFile file) throws Exception {
+        return mvc.perform(multipart("/api/users/me/photo").file(file)).andReturn();
+    }
+
+    @Test
+    @DisplayName("Upload grava original e miniaturas pelo SHA-256; GET versionado devolve a miniatura com cache imutável")
+    void upload_then_get_thumbnail() throws Exception {
+        byte[] img = png(300, 200, 0x80FF0000);
+        String hash = sha256(img);
+
+        mvc.perform(multipart("/api/users/me/photo").file(new MockMultipartFile("file", "foto.png", "image/png", img)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ok").value(true))
+                .andExpect(jsonPath("$.avatarHash").value(hash));
+        assertThat(user.getAvatarHash()).isEqualTo(hash);
+        assertThat(user.getAvatarSize()).isEqualTo(img.length);
+        assertThat(user.getAvatarContentType()).isEqualTo("image/png");
+        assertThat(variants(hash)).containsExactly(AvatarStore.ORIGINAL, 64, 256);
+
+        MvcResult started = mvc.perform(get("/api/users/me/photo").param("size", "64").param("v", hash))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] thumb = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + hash + "-64\""))
+                .andExpect(header().string("Cache-Control", containsString("max-age=31536000")))
+                .andExpect(header().string("Cache-Control", containsString("immutable")))
+                .andExpect(header().string("Cache-Control", containsString("private")))
+                .andExpect(header().string("Content-Type", "image/png"))
+                .andReturn().getResponse().getContentAsByteArray();
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(thumb));
+        assertThat(Math.max(decoded.getWidth(), decoded.getHeight())).isEqualTo(64);
+    }
+
+    @Test
+    @DisplayName("Sem v: revalida a cada uso; If-None-Match igual responde 304 sem corpo")
+    void unversioned_revalidates_and_etag_matches() throws Exception {
+        byte[] img = png(40, 40, 0xFF00FF00);
+        String hash = sha256(img);
+        upload(new MockMultipartFile("file", "foto.png", "image/png", img));
+
+        MvcResult started = mvc.perform(get("/api/users/me/photo").param("size", "256"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Imagem menor que as miniaturas: o original serve para qualquer tamanho
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + hash + "-0\""))
+                .andExpect(header().string("Cache-Control", containsString("no-cache")))
+                .andExpect(header().string("Cache-Control", containsString("private")))
+                .andExpect(content().bytes(img));
+
+        mvc.perform(get("/api/users/me/photo").header("If-None-Match", "W/\"" + hash + "-0\""))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"" + hash + "-0\""));
+    }
+
+    @Test
+    @DisplayName("Arquivo vazio, acima de 5MB ou que não é imagem: 400 e nada gravado")
+    void size_and_type_validation() throws Exception {
+        mvc.perform(multipart("/api/users/me/photo").file(new MockMultipartFile("file", "vazio.png", "image/png", new byte[0])))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Arquivo vazio"));
+        mvc.perform(multipart("/api/users/me/photo").file(new MockMultipartFile("file", "grande.png", "image/png", new byte[5_000_001])))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("muito grande")));
+        mvc.perform(multipart("/api/users/me/photo").file(new MockMultipartFile("file", "nota.txt", "text/plain", "oi".getBytes())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Tipo não suportado"));
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM avatar_blobs", Integer.class)).isZero();
+        assertThat(user.hasAvatar()).isFalse();
+        mvc.perform(get("/api/users/me/photo")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Trocar a foto libera o hash anterior; remover apaga os blobs sem referência")
+    void replace_and_delete_release_blobs() throws Exception {
+        byte[] first = png(300, 300, 0xFF0000FF);
+        byte[] second = png(100, 100, 0xFFFFFF00);
+        upload(new MockMultipartFile("file", "a.png", "image/png", first));
+        upload(new MockMultipartFile("file", "b.png", "image/png", second));
+
+        assertThat(variants(sha256(first))).isEmpty();
+        assertThat(variants(sha256(second))).containsExactly(AvatarStore.ORIGINAL, 64);
+
+        mvc.perform(delete("/api/users/me/photo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ok").value(true));
+        assertThat(user.hasAvatar()).isFalse();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM avatar_blobs", Integer.class)).isZero();
+    }
+}
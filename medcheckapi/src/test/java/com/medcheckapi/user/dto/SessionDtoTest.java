@@ -0,0 +1,61 @@
+package com.medcheckapi.user.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionDtoTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("JSON da sessão mantém as chaves e formatos do mapa anterior")
+    void session_json_matches_legacy_map() throws Exception {
+        LocalDateTime in = LocalDateTime.of(2025, 3, 10, 7, 0);
+        LocalDateTime out = LocalDateTime.of(2025, 3, 10, 12, 5, 9);
+        SessionDto dto = new SessionDto(1L, 2L, 3L, 4L, "MED1", "Clínica", in, out, true, -9.97, -67.81, null, null);
+
+        JsonNode json = mapper.readTree(mapper.writeValueAsString(dto));
+        ZoneId acre = ZoneId.of("America/Rio_Branco");
+        assertThat(json.get("checkInTime").asText()).isEqualTo(in.atZone(acre).toOffsetDateTime().toString());
+        assertThat(json.get("checkOutTime").asText()).isEqualTo(out.atZone(acre).toOffsetDateTime().toString());
+        assertThat(json.get("worked").asText()).isEqualTo("05:05:09");
+        assertThat(json.get("discipline").get("code").asText()).isEqualTo("MED1");
+        assertThat(json.get("validated").asBoolean()).isTrue();
+        assertThat(json.has("checkOutLat")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Sessão aberta e sem disciplina: worked/checkOutTime nulos e sem chave discipline")
+    void open_session_without_discipline() throws Exception {
+        SessionDto dto = new SessionDto(1L, 2L, 3L, null, null, null,
+                LocalDateTime.of(2025, 3, 10, 7, 0), null, false, null, null, null, null);
+
+        JsonNode json = mapper.readTree(mapper.writeValueAsString(dto));
+        assertThat(json.has("discipline")).isFalse();
+        assertThat(json.get("checkOutTime").isNull()).isTrue();
+        assertThat(json.get("worked").isNull()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Plano noturno soma 24h e horários saem como toString()")
+    void plan_overnight_and_time_format() throws Exception {
+        PlanDto dto = new PlanDto(1L, LocalDate.of(2025, 3, 10), LocalTime.of(19, 0), LocalTime.of(7, 0),
+                "UTI", null, null, null, null, null);
+
+        JsonNode json = mapper.readTree(mapper.writeValueAsString(dto));
+        assertThat(json.get("plannedSeconds").asLong()).isEqualTo(12 * 3600L);
+        assertThat(json.get("date").asText()).isEqualTo("2025-03-10");
+        assertThat(json.get("startTime").asText()).isEqualTo("19:00");
+        assertThat(json.has("weekNumber")).isFalse();
+        assertThat(json.has("note")).isTrue();
+    }
+}
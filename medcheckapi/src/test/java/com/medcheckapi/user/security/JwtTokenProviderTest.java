@@ -1,6 +1,7 @@
 package com.medcheckapi.user.security;
 
 import com.medcheckapi.user.config.props.AppProperties;
+import com.medcheckapi.user.model.Role;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -42,4 +43,36 @@ class JwtTokenProviderTest {
         JwtTokenProvider provider = buildProvider();
         assertThat(provider.validateToken("abc.def.ghi")).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Token repetido é atendido pelo cache e token adulterado é rejeitado")
+    void cached_claims_and_tampered_token() {
+        JwtTokenProvider provider = buildProvider();
+        User principal = new User("12345678900", "pwd", java.util.List.of());
+        String token = provider.generateToken(new UsernamePasswordAuthenticationToken(principal, "pwd", principal.getAuthorities()));
+        var first = provider.validateAndGetClaims(token);
+        assertThat(first).isNotNull();
+        assertThat(provider.validateAndGetClaims(token)).isSameAs(first);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertThat(provider.validateAndGetClaims(tampered)).isNull();
+        assertThat(provider.validateToken(tampered)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Claims de papel/disciplinas só valem na versão atual do usuário")
+    void role_claims_respect_token_version() {
+        JwtTokenProvider provider = buildProvider();
+        AuthenticatedUser principal = new AuthenticatedUser(7L, "12345678900", "pwd", Role.PRECEPTOR, java.util.List.of(3L, 5L), 2);
+        String token = provider.generateToken(new UsernamePasswordAuthenticationToken(principal, "pwd", principal.getAuthorities()));
+        var claims = provider.validateAndGetClaims(token);
+
+        AuthenticatedUser fromToken = AuthenticatedUser.fromClaims(claims, principal);
+        assertThat(fromToken.getId()).isEqualTo(7L);
+        assertThat(fromToken.getRole()).isEqualTo(Role.PRECEPTOR);
+        assertThat(fromToken.isLinkedTo(5L)).isTrue();
+
+        // Papel alterado pelo ADMIN: versão incrementada, claims antigas são descartadas
+        AuthenticatedUser current = new AuthenticatedUser(7L, "12345678900", "pwd", Role.ALUNO, java.util.List.of(), 3);
+        assertThat(AuthenticatedUser.fromClaims(claims, current)).isSameAs(current);
+    }
+}
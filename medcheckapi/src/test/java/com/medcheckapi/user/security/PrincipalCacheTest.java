@@ -0,0 +1,114 @@
+package com.medcheckapi.user.security;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import com.medcheckapi.user.model.Role;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrincipalCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final AtomicInteger loads = new AtomicInteger();
+    // "Banco": papel atual do usuário, lido a cada carga
+    private volatile Role role = Role.ALUNO;
+    private final Function<String, UserDetails> loader = cpf -> {
+        loads.incrementAndGet();
+        return new AuthenticatedUser(1L, cpf, "", role, List.of(), 0);
+    };
+
+    private PrincipalCache cache(long ttlSeconds, int maxEntries) {
+        AppProperties props = new AppProperties();
+        props.getAuth().setPrincipalCacheTtlSeconds(ttlSeconds);
+        props.getAuth().setPrincipalCacheMaxEntries(maxEntries);
+        return new PrincipalCache(props, now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    @DisplayName("Miss carrega do banco; hit devolve o mesmo principal sem nova consulta")
+    void hit_and_miss() {
+        PrincipalCache cache = cache(300, 100);
+        UserDetails first = cache.get("111", loader);
+        UserDetails second = cache.get("111", loader);
+        cache.get("222", loader);
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Entrada expira no TTL; TTL zero desliga o cache")
+    void ttl_expiry() {
+        PrincipalCache cache = cache(300, 100);
+        cache.get("111", loader);
+        now.addAndGet(299_999);
+        cache.get("111", loader);
+        assertThat(loads.get()).isEqualTo(1);
+        now.addAndGet(1);
+        cache.get("111", loader);
+        assertThat(loads.get()).isEqualTo(2);
+
+        PrincipalCache off = cache(0, 100);
+        off.get("111", loader);
+        off.get("111", loader);
+        assertThat(loads.get()).isEqualTo(4);
+        assertThat(off.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Mudança de papel/perfil: evict faz a próxima requisição ver o estado novo")
+    void evict_on_role_change() {
+        PrincipalCache cache = cache(300, 100);
+        assertThat(((AuthenticatedUser) cache.get("111", loader)).getRole()).isEqualTo(Role.ALUNO);
+
+        role = Role.PRECEPTOR;
+        assertThat(((AuthenticatedUser) cache.get("111", loader)).getRole()).as("ainda em cache").isEqualTo(Role.ALUNO);
+        cache.evict("111");
+        assertThat(((AuthenticatedUser) cache.get("111", loader)).getRole()).isEqualTo(Role.PRECEPTOR);
+    }
+
+    @Test
+    @DisplayName("Evict em transação repete após o commit: principal antigo recarregado no meio é descartado")
+    void evict_repeats_after_commit() {
+        PrincipalCache cache = cache(300, 100);
+        cache.get("111", loader);
+        TransactionSynchronizationManager.initSynchronization();
+        cache.evict("111");
+        // Requisição concorrente lê o estado ainda não commitado (papel antigo) e recoloca no cache
+        cache.get("111", loader);
+        assertThat(cache.size()).isEqualTo(1);
+
+        role = Role.COORDENADOR;
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        syncs.forEach(TransactionSynchronization::afterCommit);
+        assertThat(cache.size()).isZero();
+        assertThat(((AuthenticatedUser) cache.get("111", loader)).getRole()).isEqualTo(Role.COORDENADOR);
+    }
+
+    @Test
+    @DisplayName("Cache cheio descarta expirados e abre espaço sem passar do limite")
+    void bounded_size() {
+        PrincipalCache cache = cache(300, 10);
+        for (int i = 0; i < 50; i++) cache.get("cpf" + i, loader);
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+
+        cache.evictAll();
+        assertThat(cache.size()).isZero();
+    }
+}
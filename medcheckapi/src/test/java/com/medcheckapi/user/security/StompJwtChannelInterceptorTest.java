@@ -0,0 +1,84 @@
+package com.medcheckapi.user.security;
+
+import com.medcheckapi.user.model.Role;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StompJwtChannelInterceptorTest {
+
+    private final StompJwtChannelInterceptor interceptor = new StompJwtChannelInterceptor(
+            Mockito.mock(JwtTokenProvider.class), Mockito.mock(CustomUserDetailsService.class));
+
+    private static UsernamePasswordAuthenticationToken auth(Long id, Role role, Long... disciplines) {
+        AuthenticatedUser u = new AuthenticatedUser(id, "cpf" + id, "", role, List.of(disciplines), 0);
+        return new UsernamePasswordAuthenticationToken(u, null, u.getAuthorities());
+    }
+
+    @Test
+    @DisplayName("Tópico do preceptor: só ele próprio, coordenador ou admin")
+    void preceptor_topic_access() {
+        assertThatCode(() -> interceptor.authorizeSubscribe("/topic/preceptor/7", auth(7L, Role.PRECEPTOR))).doesNotThrowAnyException();
+        assertThatCode(() -> interceptor.authorizeSubscribe("/app/preceptor/7/snapshot", auth(1L, Role.COORDENADOR))).doesNotThrowAnyException();
+        assertThatThrownBy(() -> interceptor.authorizeSubscribe("/topic/preceptor/7", auth(8L, Role.PRECEPTOR)))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> interceptor.authorizeSubscribe("/topic/preceptor/7", auth(3L, Role.ALUNO)))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> interceptor.authorizeSubscribe("/topic/preceptor/7", null))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    @DisplayName("Tópico da disciplina exige vínculo; chat público segue aberto")
+    void discipline_topic_requires_link() {
+        assertThatCode(() -> interceptor.authorizeSubscribe("/topic/discipline/5", auth(7L, Role.PRECEPTOR, 5L))).doesNotThrowAnyException();
+        assertThatThrownBy(() -> interceptor.authorizeSubscribe("/topic/discipline/5", auth(7L, Role.PRECEPTOR, 6L)))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> interceptor.authorizeSubscribe("/topic/discipline/5/../6", auth(1L, Role.ADMIN)))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatCode(() -> interceptor.authorizeSubscribe("/topic/public", null)).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("Curingas e tópicos desconhecidos em /topic/ são negados, mesmo para ADMIN")
+    void wildcard_and_unknown_topics_denied() {
+        for (String destination : List.of("/topic/preceptor/*", "/topic/discipline/**", "/topic/preceptor/?",
+                "/topic/preceptor/{id}", "/topic/**", "/topic/*", "/topic/public*", "/app/preceptor/*/snapshot")) {
+            assertThatThrownBy(() -> interceptor.authorizeSubscribe(destination, auth(1L, Role.ADMIN)))
+                    .as(destination).isInstanceOf(AccessDeniedException.class);
+        }
+        assertThatThrownBy(() -> interceptor.authorizeSubscribe("/topic/internal", auth(1L, Role.ADMIN)))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> interceptor.authorizeSubscribe("/topic/preceptorx/7", auth(7L, Role.PRECEPTOR)))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> interceptor.authorizeSubscribe(null, auth(1L, Role.ADMIN)))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    @DisplayName("SEND direto em qualquer /topic/ é negado; chat publica por /app")
+    void send_to_topic_denied() {
+        StompHeaderAccessor send = StompHeaderAccessor.create(StompCommand.SEND);
+        send.setDestination("/topic/public");
+        Message<byte[]> toTopic = MessageBuilder.createMessage(new byte[0], send.getMessageHeaders());
+        assertThatThrownBy(() -> interceptor.preSend(toTopic, Mockito.mock(MessageChannel.class)))
+                .isInstanceOf(AccessDeniedException.class);
+
+        StompHeaderAccessor chat = StompHeaderAccessor.create(StompCommand.SEND);
+        chat.setDestination("/app/chat.sendMessage");
+        Message<byte[]> toApp = MessageBuilder.createMessage(new byte[0], chat.getMessageHeaders());
+        assertThatCode(() -> interceptor.preSend(toApp, Mockito.mock(MessageChannel.class))).doesNotThrowAnyException();
+    }
+}
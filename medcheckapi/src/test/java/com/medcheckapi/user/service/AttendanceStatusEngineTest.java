@@ -0,0 +1,40 @@
+package com.medcheckapi.user.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+
+import static com.medcheckapi.user.service.AttendanceStatusEngine.Status.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttendanceStatusEngineTest {
+
+    private static final LocalTime S = LocalTime.of(7, 0);
+    private static final LocalTime E = LocalTime.of(13, 0);
+
+    @Test
+    @DisplayName("Lote avaliado num instante fixo: passado, hoje (janela e tolerância), futuro e justificativa")
+    void evaluates_batch_at_fixed_instant() {
+        // 12/03 é "hoje"; dias 10..14
+        AttendanceStatusEngine.Days days = new AttendanceStatusEngine.Days(LocalDate.of(2025, 3, 10),
+                new long[]{21600, 21600, 21600, 0, 21600},
+                new long[]{0, 3600, 0, 0, 0},
+                new boolean[]{false, false, false, false, true},
+                new LocalTime[]{S, S, S, null, S},
+                new LocalTime[]{E, E, E, null, E});
+
+        assertThat(AttendanceStatusEngine.evaluate(days, LocalDateTime.of(2025, 3, 12, 6, 59)))
+                .containsExactly(RED, YELLOW, BLUE, NONE, ORANGE);
+        // Dentro da tolerância de 1 minuto ainda é BLUE; depois, sem check-in, RED
+        assertThat(AttendanceStatusEngine.evaluate(days, LocalDateTime.of(2025, 3, 12, 7, 1))[2]).isEqualTo(BLUE);
+        assertThat(AttendanceStatusEngine.evaluate(days, LocalDateTime.of(2025, 3, 12, 7, 2))[2]).isEqualTo(RED);
+
+        // Instância lê o Clock injetado
+        Clock clock = Clock.fixed(LocalDateTime.of(2025, 3, 9, 12, 0).atZone(ZoneId.of("America/Rio_Branco")).toInstant(),
+                ZoneId.of("America/Rio_Branco"));
+        assertThat(new AttendanceStatusEngine(clock).evaluate(days)).containsExactly(BLUE, BLUE, BLUE, NONE, ORANGE);
+        assertThat(AttendanceStatusEngine.status(LocalDate.of(2025, 3, 9), LocalDateTime.of(2025, 3, 9, 14, 0),
+                21600, 21600, false, S, E)).isEqualTo(GREEN);
+    }
+}
@@ -0,0 +1,49 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CalendarMonthCacheTest {
+
+    @Test
+    @DisplayName("Mês fechado fica em cache até uma escrita nos dias dele; outras disciplinas não são afetadas")
+    void closed_month_is_cached_until_precise_eviction() {
+        AppProperties props = new AppProperties();
+        props.getCalendar().setMonthCacheMaxEntries(10);
+        CalendarMonthCache cache = new CalendarMonthCache(props, Clock.fixed(Instant.parse("2025-06-10T15:00:00Z"), ZoneId.of("America/Rio_Branco")));
+        AtomicInteger loads = new AtomicInteger();
+
+        CalendarMonthCache.Key all = new CalendarMonthCache.Key(1L, 2024, 3, null);
+        CalendarMonthCache.Key disc7 = new CalendarMonthCache.Key(1L, 2024, 3, 7L);
+        CalendarMonthCache.Key disc8 = new CalendarMonthCache.Key(1L, 2024, 3, 8L);
+        for (int i = 0; i < 2; i++) {
+            cache.get(all, () -> Map.of("n", loads.incrementAndGet()));
+            cache.get(disc7, () -> Map.of("n", loads.incrementAndGet()));
+            cache.get(disc8, () -> Map.of("n", loads.incrementAndGet()));
+        }
+        assertThat(loads).hasValue(3);
+
+        // Escrita na disciplina 7: invalida ela e a visão geral
+        cache.evict(1L, 7L, LocalDate.of(2024, 3, 15), LocalDate.of(2024, 3, 16));
+        assertThat(cache.size()).isEqualTo(1);
+        cache.evict(1L, 8L, LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 2));
+        assertThat(cache.size()).isEqualTo(1);
+
+        // Invalidação durante o cálculo: o resultado não é guardado
+        cache.get(all, () -> {
+            cache.evict(1L, null, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 1));
+            return Map.of("n", 0);
+        });
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,19 @@
+package com.medcheckapi.user.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CalendarSummaryServiceTest {
+
+    @Test
+    @DisplayName("Plano overnight soma 24h e plano sem horário não conta")
+    void planned_seconds_handles_overnight() {
+        assertThat(CalendarSummaryService.plannedSeconds(LocalTime.of(19, 0), LocalTime.of(7, 0))).isEqualTo(12 * 3600L);
+        assertThat(CalendarSummaryService.plannedSeconds(LocalTime.of(7, 0), LocalTime.of(13, 0))).isEqualTo(6 * 3600L);
+        assertThat(CalendarSummaryService.plannedSeconds(null, LocalTime.of(7, 0))).isZero();
+    }
+}
@@ -0,0 +1,183 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+
+/** Worker real sobre banco embarcado; o motor de códigos é mock (recordUses serve de ponto de bloqueio). */
+class CheckInGroupCommitterTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 10, 7, 0);
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbc;
+    private OpenSessionRegistry registry;
+    private CheckCodeEngine engine;
+    private CheckInGroupCommitter committer;
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    private CheckInGroupCommitter start(int maxBatch, long maxWaitMs, long timeoutMs, int queueCapacity) {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("""
+                CREATE TABLE check_sessions (id BIGINT AUTO_INCREMENT PRIMARY KEY, aluno_id BIGINT NOT NULL,
+                  preceptor_id BIGINT NOT NULL, discipline_id BIGINT, check_in_time TIMESTAMP NOT NULL,
+                  check_in_lat DECIMAL(10,7), check_in_lng DECIMAL(10,7), check_out_time TIMESTAMP, validated BOOLEAN)""");
+        registry = new OpenSessionRegistry(Mockito.mock(JdbcTemplate.class));
+        engine = Mockito.mock(CheckCodeEngine.class);
+        AppProperties props = new AppProperties();
+        props.getCheckIn().setMaxBatch(maxBatch);
+        props.getCheckIn().setMaxWaitMs(maxWaitMs);
+        props.getCheckIn().setTimeoutMs(timeoutMs);
+        props.getCheckIn().setQueueCapacity(queueCapacity);
+        committer = new CheckInGroupCommitter(jdbc, new TransactionTemplate(new DataSourceTransactionManager(db)), engine,
+                e -> registry.on((CheckSessionEvent) e), props);
+        committer.start();
+        return committer;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (committer != null) committer.stop();
+        pool.shutdownNow();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+        if (db != null) db.shutdown();
+    }
+
+    private static CheckInGroupCommitter.PendingCheckIn checkIn(long alunoId) {
+        return new CheckInGroupCommitter.PendingCheckIn(alunoId, 2L, 3L, T0, null, null, 99L);
+    }
+
+    private int rows() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM check_sessions", Integer.class);
+    }
+
+    // Segura o worker dentro da transação do primeiro lote até o latch abrir
+    private CountDownLatch blockFirstBatch(CountDownLatch entered) {
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(inv -> {
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).doNothing().when(engine).recordUses(anyMap(), any());
+        return release;
+    }
+
+    @Test
+    @DisplayName("Rajada simultânea vira um lote: um INSERT em lote e usos do código agregados")
+    @SuppressWarnings("unchecked")
+    void concurrent_check_ins_share_one_batch() throws Exception {
+        start(50, 300, 5000, 100);
+        CyclicBarrier go = new CyclicBarrier(5);
+        List<Future<Long>> ids = new ArrayList<>();
+        for (long aluno = 1; aluno <= 5; aluno++) {
+            long a = aluno;
+            ids.add(pool.submit(() -> { go.await(); return committer.submit(checkIn(a)); }));
+        }
+        List<Long> got = new ArrayList<>();
+        for (Future<Long> f : ids) got.add(f.get(10, TimeUnit.SECONDS));
+
+        assertThat(got).doesNotHaveDuplicates().hasSize(5);
+        assertThat(rows()).isEqualTo(5);
+        ArgumentCaptor<Map<Long, Integer>> uses = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(engine, Mockito.times(1)).recordUses(uses.capture(), Mockito.eq(T0));
+        assertThat(uses.getValue()).containsEntry(99L, 5);
+        assertThat(registry.isInService(3L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Mesmo aluno duas vezes no lote (duplo clique) ou já em serviço: \"Já em serviço\"")
+    void duplicate_inside_batch_and_already_open() throws Exception {
+        start(50, 300, 5000, 100);
+        CyclicBarrier go = new CyclicBarrier(2);
+        Future<Long> a = pool.submit(() -> { go.await(); return committer.submit(checkIn(7L)); });
+        Future<Long> b = pool.submit(() -> { go.await(); return committer.submit(checkIn(7L)); });
+        int ok = 0, conflict = 0;
+        for (Future<Long> f : List.of(a, b)) {
+            try {
+                f.get(10, TimeUnit.SECONDS);
+                ok++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).hasMessage("Já em serviço");
+                conflict++;
+            }
+        }
+        assertThat(ok).isEqualTo(1);
+        assertThat(conflict).isEqualTo(1);
+
+        // Lote seguinte: sessão já aberta no banco
+        assertThatThrownBy(() -> committer.submit(checkIn(7L))).hasMessage("Já em serviço");
+        assertThat(rows()).isEqualTo(1);
+
+        // Sessão aberta por outra instância (fora do registro local) também conta
+        jdbc.update("INSERT INTO check_sessions (aluno_id, preceptor_id, check_in_time, validated) VALUES (8, 2, ?, TRUE)", T0);
+        assertThatThrownBy(() -> committer.submit(checkIn(8L))).hasMessage("Já em serviço");
+    }
+
+    @Test
+    @DisplayName("Fila cheia: \"Sistema ocupado\" sem esperar")
+    void full_queue_rejects_immediately() throws Exception {
+        start(1, 0, 5000, 1);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = blockFirstBatch(entered);
+        Future<Long> first = pool.submit(() -> committer.submit(checkIn(1L)));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        // Worker preso no 1º lote; o 2º ocupa a única vaga da fila
+        Future<Long> second = pool.submit(() -> committer.submit(checkIn(2L)));
+        while (committer.queued() < 1) Thread.sleep(5);
+
+        assertThatThrownBy(() -> committer.submit(checkIn(3L))).hasMessage("Sistema ocupado, tente novamente");
+
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(second.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(rows()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Tempo esgotado na fila: item descartado (sem sessão fantasma); já em gravação: devolve o resultado real")
+    void timeout_never_leaves_phantom_session() throws Exception {
+        start(1, 0, 100, 100);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = blockFirstBatch(entered);
+        Future<Long> claimed = pool.submit(() -> committer.submit(checkIn(1L)));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Aluno 2 espera atrás do lote preso e desiste após 100ms
+        assertThatThrownBy(() -> committer.submit(checkIn(2L))).hasMessage("Tempo esgotado ao registrar check-in");
+        Thread.sleep(150); // aluno 1 também passou do timeout, mas o item dele já está sendo gravado
+
+        release.countDown();
+        assertThat(claimed.get(10, TimeUnit.SECONDS)).isNotNull();
+        // Próximo lote passa pelo item abandonado sem gravá-lo
+        assertThat(committer.submit(checkIn(3L))).isNotNull();
+        assertThat(jdbc.queryForList("SELECT aluno_id FROM check_sessions ORDER BY id", Long.class)).containsExactly(1L, 3L);
+        assertThat(registry.isInService(2L)).isFalse();
+    }
+}
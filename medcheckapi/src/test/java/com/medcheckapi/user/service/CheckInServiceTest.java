@@ -0,0 +1,130 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.model.CheckSession;
+import com.medcheckapi.user.model.Discipline;
+import com.medcheckapi.user.model.Role;
+import com.medcheckapi.user.model.User;
+import com.medcheckapi.user.repository.CheckCodeRepository;
+import com.medcheckapi.user.repository.CheckSessionRepository;
+import com.medcheckapi.user.repository.DisciplineRepository;
+import com.medcheckapi.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+
+/** Sessão aberta fora do registro local (outra instância, evento perdido): o banco decide. */
+class CheckInServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 10, 7, 0);
+
+    private final CheckSessionRepository sessionRepo = Mockito.mock(CheckSessionRepository.class);
+    private final UserRepository userRepo = Mockito.mock(UserRepository.class);
+    private final DisciplineRepository disciplineRepo = Mockito.mock(DisciplineRepository.class);
+    private final OpenSessionRegistry registry = new OpenSessionRegistry(Mockito.mock(JdbcTemplate.class));
+    private final User aluno = user(1L, Role.ALUNO);
+    private final User preceptor = user(2L, Role.PRECEPTOR);
+    private final Discipline discipline = new Discipline();
+    private CheckInService service;
+
+    private static User user(Long id, Role role) {
+        User u = new User();
+        u.setId(id);
+        u.setRole(role);
+        return u;
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        discipline.setId(3L);
+        Mockito.when(userRepo.getReferenceById(1L)).thenReturn(aluno);
+        Mockito.when(userRepo.findById(1L)).thenReturn(Optional.of(aluno));
+        Mockito.when(userRepo.findById(2L)).thenReturn(Optional.of(preceptor));
+        Mockito.when(disciplineRepo.findById(3L)).thenReturn(Optional.of(discipline));
+        discipline.setPreceptors(new java.util.HashSet<>(Set.of(preceptor)));
+        Clock clock = Clock.fixed(Instant.parse("2025-03-10T15:00:00Z"), ZoneId.of("America/Rio_Branco"));
+        ObjectProvider<CheckInGroupCommitter> noGroupCommit = Mockito.mock(ObjectProvider.class);
+        ApplicationEventPublisher events = e -> registry.on((CheckSessionEvent) e);
+        service = new CheckInService(Mockito.mock(CheckCodeRepository.class), sessionRepo, userRepo, disciplineRepo,
+                Mockito.mock(CheckCodeEngine.class), Mockito.mock(PlatformTransactionManager.class), noGroupCommit, registry,
+                events, clock, Mockito.mock(HoursLedgerService.class), Mockito.mock(SchedulerLock.class),
+                new HotPathMetrics(new SimpleMeterRegistry()));
+    }
+
+    private CheckSession openInDatabase(Long id) {
+        CheckSession cs = new CheckSession();
+        cs.setId(id);
+        cs.setAluno(aluno);
+        cs.setPreceptor(preceptor);
+        cs.setDiscipline(discipline);
+        cs.setCheckInTime(T0);
+        Mockito.when(sessionRepo.findFirstByAlunoAndCheckOutTimeIsNullOrderByCheckInTimeDesc(aluno)).thenReturn(Optional.of(cs));
+        return cs;
+    }
+
+    @Test
+    @DisplayName("Check-out encontra no banco a sessão que o registro não conhece")
+    void check_out_falls_back_to_database() {
+        CheckSession cs = openInDatabase(10L);
+        assertThat(registry.isInService(1L)).isFalse();
+
+        service.performCheckOut(1L, null, null);
+
+        assertThat(cs.getCheckOutTime()).isEqualTo(LocalDateTime.of(2025, 3, 10, 10, 0));
+        Mockito.verify(sessionRepo).save(cs);
+        assertThat(registry.isInService(1L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Sem sessão no registro nem no banco: \"Nenhum check-in ativo\"")
+    void check_out_without_open_session() {
+        assertThatThrownBy(() -> service.performCheckOut(1L, null, null)).hasMessage("Nenhum check-in ativo");
+    }
+
+    @Test
+    @DisplayName("Check-in recusa sessão aberta só no banco e corrige o registro")
+    void check_in_guard_uses_database() {
+        openInDatabase(10L);
+
+        assertThatThrownBy(() -> service.performCheckIn(1L, 2L, "ABC123", 3L, null, null)).hasMessage("Já em serviço");
+        assertThat(registry.find(1L)).map(OpenSessionRegistry.OpenSession::sessionId).contains(10L);
+        Mockito.verify(sessionRepo, Mockito.never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Registro defasado (sessão já fechada no banco) não bloqueia novo check-in")
+    void stale_registry_entry_is_dropped() {
+        registry.on(new CheckSessionEvent(CheckSessionEvent.Type.OPENED, 9L, 1L, 2L, 3L, T0.minusDays(1)));
+        CheckSession closed = new CheckSession();
+        closed.setId(9L);
+        closed.setCheckOutTime(T0.minusDays(1).plusHours(4));
+        Mockito.when(sessionRepo.findById(9L)).thenReturn(Optional.of(closed));
+        Mockito.when(sessionRepo.save(any())).thenAnswer(inv -> {
+            CheckSession cs = inv.getArgument(0);
+            cs.setId(11L);
+            return cs;
+        });
+
+        service.performCheckIn(1L, 2L, "ABC123", 3L, null, null);
+
+        assertThat(registry.find(1L)).map(OpenSessionRegistry.OpenSession::sessionId).contains(11L);
+        assertThat(registry.onShift(null, null)).extracting(OpenSessionRegistry.OpenSession::alunoId).containsExactly(1L);
+    }
+}
@@ -0,0 +1,90 @@
+package com.medcheckapi.user.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Grade da turma sobre banco embarcado: a turma vem da matrícula, os resumos entram por "left join". */
+class CohortCalendarServiceTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2025, 3);
+
+    private JdbcTemplate jdbc;
+    private CohortCalendarService service;
+
+    @BeforeEach
+    void setUp() {
+        // "day" é palavra reservada no H2; no MySQL não
+        DriverManagerDataSource db = new DriverManagerDataSource(
+                "jdbc:h2:mem:cohort" + UUID.randomUUID() + ";MODE=MySQL;NON_KEYWORDS=DAY;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(100), role VARCHAR(20), current_discipline_id BIGINT)");
+        jdbc.execute("""
+                CREATE TABLE calendar_day_summaries (aluno_id BIGINT, discipline_id BIGINT, day DATE,
+                  planned_seconds BIGINT DEFAULT 0, worked_seconds BIGINT DEFAULT 0, earliest_start TIME, latest_end TIME,
+                  justification_status VARCHAR(20), PRIMARY KEY (aluno_id, discipline_id, day))""");
+        jdbc.update("INSERT INTO users VALUES (1, 'Ana Souza', 'ALUNO', 1), (2, 'Bruno Lima', 'ALUNO', 1), "
+                + "(3, 'Carla Dias', 'ALUNO', 2), (4, 'Diego Rocha', 'ALUNO', 1), (5, 'Maria Ribeiro', 'PRECEPTOR', 1)");
+        // Ana: dia 3 planejado e cumprido; Carla trocou de disciplina mas tem resumo na 1 em março; Bruno e Diego sem linhas
+        jdbc.update("INSERT INTO calendar_day_summaries VALUES (1, 1, DATE '2025-03-03', 14400, 14400, TIME '08:00:00', TIME '12:00:00', NULL)");
+        jdbc.update("INSERT INTO calendar_day_summaries VALUES (3, 1, DATE '2025-03-04', 14400, 0, TIME '08:00:00', TIME '12:00:00', NULL)");
+        jdbc.update("INSERT INTO calendar_day_summaries VALUES (3, 2, DATE '2025-03-10', 14400, 0, TIME '08:00:00', TIME '12:00:00', NULL)");
+        Clock clock = Clock.fixed(Instant.parse("2025-04-01T12:00:00Z"), ZoneOffset.UTC);
+        service = new CohortCalendarService(new NamedParameterJdbcTemplate(db), new AttendanceStatusEngine(clock));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Test
+    @DisplayName("Aluno matriculado sem resumo no mês aparece na grade, zerado")
+    void enrolled_student_without_rows() {
+        CohortCalendarService.CohortPage page = service.month(1L, MARCH, 0, 10);
+
+        assertThat(page.totalItems()).isEqualTo(4);
+        assertThat(page.days()).hasSize(31);
+        assertThat(page.students()).extracting(m -> m.get("id")).containsExactly(1L, 2L, 3L, 4L);
+
+        Map<String, Object> bruno = page.students().get(1);
+        assertThat((long[]) bruno.get("plannedSeconds")).containsOnly(0L);
+        assertThat((long[]) bruno.get("workedSeconds")).containsOnly(0L);
+        assertThat((String[]) bruno.get("status")).containsOnly("NONE");
+
+        Map<String, Object> ana = page.students().get(0);
+        assertThat(((long[]) ana.get("plannedSeconds"))[2]).isEqualTo(14400L);
+        assertThat(((long[]) ana.get("workedSeconds"))[2]).isEqualTo(14400L);
+
+        // Carla: só a linha da disciplina 1 entra
+        Map<String, Object> carla = page.students().get(2);
+        assertThat(((long[]) carla.get("plannedSeconds"))[3]).isEqualTo(14400L);
+        assertThat(((long[]) carla.get("plannedSeconds"))[9]).isZero();
+    }
+
+    @Test
+    @DisplayName("Paginação por nome; página além do fim devolve vazio com o total da turma")
+    void paging() {
+        CohortCalendarService.CohortPage p1 = service.month(1L, MARCH, 1, 3);
+        assertThat(p1.students()).extracting(m -> m.get("id")).containsExactly(4L);
+        assertThat(p1.totalItems()).isEqualTo(4);
+        assertThat(p1.totalPages()).isEqualTo(2);
+
+        CohortCalendarService.CohortPage beyond = service.month(1L, MARCH, 5, 3);
+        assertThat(beyond.students()).isEmpty();
+        assertThat(beyond.totalItems()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,33 @@
+package com.medcheckapi.user.service;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HotPathMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final HotPathMetrics metrics = new HotPathMetrics(registry);
+
+    @Test
+    @DisplayName("Exceções de regra viram tags outcome fixas e são relançadas")
+    void maps_business_errors_to_outcome_tags() {
+        assertThat(metrics.timed("medcheck.checkin", Tags.of("mode", "direct"), () -> "ok")).isEqualTo("ok");
+        assertThatThrownBy(() -> metrics.timed("medcheck.checkin", Tags.of("mode", "direct"), () -> {
+            throw new IllegalStateException("Código inválido ou expirado");
+        })).hasMessage("Código inválido ou expirado");
+        assertThatThrownBy(() -> metrics.timed("medcheck.checkin", Tags.of("mode", "direct"), () -> {
+            throw new IllegalStateException("Já em serviço");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("medcheck.checkin").tag("outcome", "ok").timer().count()).isEqualTo(1);
+        assertThat(registry.get("medcheck.checkin").tag("outcome", "invalid_code").timer().count()).isEqualTo(1);
+        assertThat(registry.get("medcheck.checkin").tag("outcome", "already_in_service").timer().count()).isEqualTo(1);
+        assertThat(HotPathMetrics.outcome(new IllegalStateException("Disciplina informada não encontrada"))).isEqualTo("rejected");
+        assertThat(HotPathMetrics.outcome(new java.util.NoSuchElementException())).isEqualTo("error");
+    }
+}
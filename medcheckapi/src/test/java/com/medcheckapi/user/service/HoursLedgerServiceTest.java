@@ -0,0 +1,158 @@
+package com.medcheckapi.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/** Livro de horas sobre H2 (modo MySQL): soma no check-out, totais e reconstrução a partir das sessões. */
+class HoursLedgerServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 10, 7, 0);
+
+    private JdbcTemplate jdbc;
+    private DataSourceTransactionManager txManager;
+    private NamedParameterJdbcTemplate named;
+    private HoursLedgerService ledger;
+
+    @BeforeEach
+    void setUp() {
+        // "day" é palavra reservada no H2; no MySQL não
+        DriverManagerDataSource db = new DriverManagerDataSource(
+                "jdbc:h2:mem:ledger" + UUID.randomUUID() + ";MODE=MySQL;NON_KEYWORDS=DAY;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("CREATE TABLE disciplines (id BIGINT PRIMARY KEY, code VARCHAR(40), name VARCHAR(160), hours INT)");
+        jdbc.execute("""
+                CREATE TABLE check_sessions (id BIGINT PRIMARY KEY, aluno_id BIGINT, preceptor_id BIGINT, discipline_id BIGINT,
+                  check_in_time TIMESTAMP, check_out_time TIMESTAMP)""");
+        jdbc.execute("""
+                CREATE TABLE hours_ledger (aluno_id BIGINT, discipline_id BIGINT, preceptor_id BIGINT, day DATE,
+                  worked_seconds BIGINT DEFAULT 0, session_count INT DEFAULT 0,
+                  PRIMARY KEY (aluno_id, discipline_id, preceptor_id, day))""");
+        jdbc.execute("""
+                CREATE TABLE hours_totals (aluno_id BIGINT, discipline_id BIGINT, worked_seconds BIGINT DEFAULT 0,
+                  session_count INT DEFAULT 0, PRIMARY KEY (aluno_id, discipline_id))""");
+        jdbc.update("INSERT INTO disciplines VALUES (3, 'MED-I', 'Clínica Médica I', 120)");
+        txManager = new DataSourceTransactionManager(db);
+        named = new NamedParameterJdbcTemplate(db);
+        ledger = new HoursLedgerService(named, txManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private void session(long id, long aluno, long preceptor, Long discipline, LocalDateTime in, LocalDateTime out) {
+        jdbc.update("INSERT INTO check_sessions VALUES (?,?,?,?,?,?)", id, aluno, preceptor, discipline,
+                Timestamp.valueOf(in), out == null ? null : Timestamp.valueOf(out));
+    }
+
+    private List<Map<String, Object>> ledgerRows(long aluno) {
+        return jdbc.queryForList("SELECT discipline_id, preceptor_id, day, worked_seconds, session_count FROM hours_ledger "
+                + "WHERE aluno_id = ? ORDER BY discipline_id, preceptor_id, day", aluno);
+    }
+
+    private List<Map<String, Object>> totalRows(long aluno) {
+        return jdbc.queryForList("SELECT discipline_id, worked_seconds, session_count FROM hours_totals "
+                + "WHERE aluno_id = ? ORDER BY discipline_id", aluno);
+    }
+
+    @Test
+    @DisplayName("record: sessão noturna divide-se nos dias, soma ao total e sessão sem disciplina vai para 0")
+    void record_splits_days_and_accumulates() {
+        ledger.record(1L, 2L, 3L, T0, T0.plusHours(4));
+        ledger.record(1L, 2L, 3L, LocalDateTime.of(2025, 3, 10, 22, 0), LocalDateTime.of(2025, 3, 11, 2, 0));
+        ledger.record(1L, 2L, null, T0.plusDays(1), T0.plusDays(1).plusHours(1));
+
+        assertThat(ledgerRows(1L)).extracting(r -> r.get("DAY").toString(), r -> ((Number) r.get("WORKED_SECONDS")).longValue(),
+                        r -> ((Number) r.get("SESSION_COUNT")).intValue())
+                .containsExactly(
+                        tuple("2025-03-11", 3600L, 1),
+                        // 07:00-11:00 + 22:00-23:59:59 (regra do calendário: o dia fecha em 23:59:59)
+                        tuple("2025-03-10", 14400L + 7199L, 2),
+                        tuple("2025-03-11", 7200L, 1));
+
+        HoursLedgerService.DisciplineHours med = ledger.progress(1L).stream()
+                .filter(h -> h.disciplineId() == 3L).findFirst().orElseThrow();
+        assertThat(med.workedSeconds()).isEqualTo(14400L + 7199L + 7200L);
+        assertThat(med.sessions()).isEqualTo(2);
+        assertThat(med.requiredHours()).isEqualTo(120);
+        assertThat(ledger.totals(3L, List.of(1L, 99L))).containsExactly(Map.entry(1L, 28799L));
+        assertThat(ledger.totals(0L, List.of(1L))).containsExactly(Map.entry(1L, 3600L));
+        assertThat(ledger.totals(3L, List.of())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("rebuild: refaz livro e totais só com as sessões fechadas, igual ao somado por record")
+    void rebuild_matches_recorded() {
+        LocalDateTime nightIn = LocalDateTime.of(2025, 3, 10, 22, 0);
+        LocalDateTime nightOut = LocalDateTime.of(2025, 3, 11, 2, 0);
+        session(10, 1, 2, 3L, T0, T0.plusHours(4));
+        session(11, 1, 2, 3L, nightIn, nightOut);
+        session(12, 1, 5, null, T0.plusDays(2), T0.plusDays(2).plusHours(2));
+        session(13, 1, 2, 3L, T0.plusDays(3), null);
+        session(14, 7, 2, 3L, T0, T0.plusHours(1));
+        ledger.record(1L, 2L, 3L, T0, T0.plusHours(4));
+        ledger.record(1L, 2L, 3L, nightIn, nightOut);
+        ledger.record(1L, 5L, null, T0.plusDays(2), T0.plusDays(2).plusHours(2));
+        List<Map<String, Object>> recordedLedger = ledgerRows(1L);
+        List<Map<String, Object>> recordedTotals = totalRows(1L);
+
+        // Livro corrompido (ex.: soma em dobro) volta ao estado derivado das sessões
+        jdbc.update("UPDATE hours_totals SET worked_seconds = worked_seconds * 2 WHERE aluno_id = 1");
+        jdbc.update("INSERT INTO hours_ledger VALUES (1, 3, 2, DATE '2025-03-20', 999, 1)");
+        ledger.rebuild(1L);
+
+        assertThat(ledgerRows(1L)).isEqualTo(recordedLedger);
+        assertThat(totalRows(1L)).isEqualTo(recordedTotals);
+        // Outro aluno não é tocado
+        assertThat(totalRows(7L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Check-out manual no meio do auto-fechamento: UPDATE fecha menos sessões e o livro é refeito sem contar em dobro")
+    void rebuild_after_manual_checkout_races_auto_close() {
+        OpenSessionRegistry registry = new OpenSessionRegistry(jdbc);
+        SessionAutoCloser closer = new SessionAutoCloser(named, registry, e -> registry.on((CheckSessionEvent) e),
+                txManager, ledger, new HotPathMetrics(new SimpleMeterRegistry()), new SchedulerLock(named, txManager, "node-a"));
+        session(20, 1, 2, 3L, T0, null);
+        session(21, 4, 2, 3L, T0, null);
+        registry.on(new CheckSessionEvent(CheckSessionEvent.Type.OPENED, 20L, 1L, 2L, 3L, T0));
+        registry.on(new CheckSessionEvent(CheckSessionEvent.Type.OPENED, 21L, 4L, 2L, 3L, T0));
+        List<SessionAutoCloser.Deadline> due = List.of(
+                new SessionAutoCloser.Deadline(registry.find(1L).orElseThrow(), Instant.EPOCH),
+                new SessionAutoCloser.Deadline(registry.find(4L).orElseThrow(), Instant.EPOCH));
+
+        // Aluno 1 faz check-out manual (commit + record) antes do evento CLOSED chegar ao registro
+        LocalDateTime manualOut = T0.plusHours(5);
+        jdbc.update("UPDATE check_sessions SET check_out_time = ? WHERE id = 20", Timestamp.valueOf(manualOut));
+        ledger.record(1L, 2L, 3L, T0, manualOut);
+
+        closer.closeExpired(due);
+
+        assertThat(jdbc.queryForObject("SELECT check_out_time FROM check_sessions WHERE id = 20", Timestamp.class))
+                .isEqualTo(Timestamp.valueOf(manualOut));
+        assertThat(ledger.totals(3L, List.of(1L, 4L))).containsOnly(
+                Map.entry(1L, 5 * 3600L),
+                Map.entry(4L, SessionAutoCloser.MAX_SESSION_HOURS * 3600L));
+        assertThat(totalRows(1L)).singleElement().satisfies(r -> assertThat(((Number) r.get("SESSION_COUNT")).intValue()).isEqualTo(1));
+        assertThat(registry.isInService(1L)).isFalse();
+        assertThat(registry.isInService(4L)).isFalse();
+    }
+}
@@ -0,0 +1,46 @@
+package com.medcheckapi.user.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+class InMemoryCheckCodeEngineTest {
+
+    @Test
+    @DisplayName("Código é reaproveitado dentro da janela, validado sem banco e gravado em lote ao expirar")
+    void rotate_consume_and_flush() {
+        JdbcTemplate jdbc = Mockito.mock(JdbcTemplate.class);
+        LocalDateTime t0 = LocalDateTime.of(2025, 3, 10, 8, 0, 0);
+        ZoneId acre = ZoneId.of("America/Rio_Branco");
+        // flush lê o relógio injetado: 3 min depois de t0 o segundo código já expirou
+        InMemoryCheckCodeEngine engine = new InMemoryCheckCodeEngine(jdbc, Clock.fixed(t0.plusMinutes(3).atZone(acre).toInstant(), acre));
+
+        CheckCodeEngine.IssuedCode first = engine.currentCode(2L, t0);
+        assertThat(engine.currentCode(2L, t0.plusSeconds(30))).isEqualTo(first);
+
+        engine.consume(2L, first.code().toLowerCase(), t0.plusSeconds(40));
+        assertThatThrownBy(() -> engine.consume(2L, "XXXXXX", t0.plusSeconds(40)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> engine.consume(2L, first.code(), t0.plusSeconds(61)))
+                .isInstanceOf(IllegalStateException.class);
+        Mockito.verifyNoInteractions(jdbc);
+
+        // Nova janela: o código usado é retirado e entra no próximo lote
+        CheckCodeEngine.IssuedCode second = engine.currentCode(2L, t0.plusSeconds(61));
+        assertThat(second.generatedAt()).isEqualTo(t0.plusSeconds(61));
+        engine.flush();
+        Mockito.verify(jdbc).batchUpdate(anyString(), Mockito.<List<InMemoryCheckCodeEngine.Slot>>argThat(l -> l.size() == 1), eq(1), any());
+    }
+}
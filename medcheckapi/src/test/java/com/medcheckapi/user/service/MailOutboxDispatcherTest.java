@@ -0,0 +1,195 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.testsupport.FakeSmtpServer;
+import com.medcheckapi.user.config.props.AppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MailOutboxDispatcherTest {
+
+    // Relógio ajustável: o backoff é testado avançando o tempo em vez de dormir
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-03-10T12:00:00Z");
+        void advance(Duration d) { now = now.plus(d); }
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbc;
+    private FakeSmtpServer smtp;
+    private MutableClock clock;
+    private SimpleMeterRegistry registry;
+    private MailOutbox outbox;
+    private MailOutboxDispatcher dispatcher;
+    private SchedulerLock otherNode;
+
+    @BeforeEach
+    void setUp() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("""
+                CREATE TABLE mail_outbox (id BIGINT AUTO_INCREMENT PRIMARY KEY, recipient VARCHAR(160) NOT NULL,
+                  subject VARCHAR(200) NOT NULL, body CLOB, status VARCHAR(10) NOT NULL, attempts INT NOT NULL,
+                  next_attempt_at TIMESTAMP(3) NOT NULL, last_error VARCHAR(500), created_at TIMESTAMP(3) NOT NULL,
+                  sent_at TIMESTAMP(3))""");
+        jdbc.execute("""
+                CREATE TABLE scheduler_locks (name VARCHAR(64) PRIMARY KEY, locked_until TIMESTAMP(3) NOT NULL,
+                  locked_at TIMESTAMP(3) NOT NULL, locked_by VARCHAR(255) NOT NULL)""");
+        smtp = new FakeSmtpServer();
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(smtp.port());
+        AppProperties props = new AppProperties();
+        props.getMailOutbox().setBatchSize(10);
+        props.getMailOutbox().setMaxAttempts(3);
+        props.getMailOutbox().setInitialBackoffSeconds(30);
+        clock = new MutableClock();
+        registry = new SimpleMeterRegistry();
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(db);
+        outbox = new MailOutbox(named, clock);
+        // Lease real no mesmo banco: poll() passa pelo SchedulerLock como em produção
+        DataSourceTransactionManager txManager = new DataSourceTransactionManager(db);
+        dispatcher = new MailOutboxDispatcher(named, sender, props, registry, clock, new SchedulerLock(named, txManager, "node-a"));
+        otherNode = new SchedulerLock(named, txManager, "node-b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        smtp.close();
+        db.shutdown();
+    }
+
+    @Test
+    @DisplayName("Lote enviado numa única conexão SMTP; linhas marcadas SENT e corpo apagado")
+    void sends_batch_over_one_connection() {
+        outbox.enqueue("a@teste.com", "Reset A", "link A");
+        outbox.enqueue("b@teste.com", "Reset B", "link B");
+        outbox.enqueue("c@teste.com", "Reset C", "link C");
+        clock.advance(Duration.ofSeconds(2));
+
+        assertThat(dispatcher.dispatchOnce()).isEqualTo(3);
+        dispatcher.refreshDepth();
+
+        assertThat(smtp.messages()).hasSize(3);
+        assertThat(smtp.connections()).isEqualTo(1);
+        assertThat(smtp.messages()).anySatisfy(m -> {
+            assertThat(m.recipients()).containsExactly("b@teste.com");
+            assertThat(m.data()).contains("Subject: Reset B").contains("link B");
+        });
+        assertThat(jdbc.queryForList("SELECT status, body FROM mail_outbox"))
+                .allSatisfy(r -> assertThat(r).containsEntry("STATUS", "SENT").containsEntry("BODY", null));
+        assertThat(registry.get("mail.outbox.depth").gauge().value()).isZero();
+        assertThat(registry.get("mail.outbox.sent").counter().count()).isEqualTo(3);
+        assertThat(registry.get("mail.outbox.send").timer().count()).isEqualTo(1);
+        assertThat(registry.get("mail.outbox.delivery").timer().max(java.util.concurrent.TimeUnit.SECONDS)).isEqualTo(2.0);
+        // Nada mais a enviar
+        assertThat(dispatcher.dispatchOnce()).isZero();
+    }
+
+    @Test
+    @DisplayName("Falha temporária de um destinatário: os demais seguem, o falho volta após o backoff")
+    void retries_failed_recipient_with_backoff() {
+        smtp.rejectRecipient("b@teste.com");
+        outbox.enqueue("a@teste.com", "Reset A", "link A");
+        outbox.enqueue("b@teste.com", "Reset B", "link B");
+
+        dispatcher.dispatchOnce();
+        dispatcher.refreshDepth();
+        assertThat(smtp.messages()).extracting(FakeSmtpServer.Received::recipients).containsExactly(java.util.List.of("a@teste.com"));
+        Map<String, Object> b = jdbc.queryForMap("SELECT status, attempts, last_error FROM mail_outbox WHERE recipient = 'b@teste.com'");
+        assertThat(b).containsEntry("STATUS", "PENDING").containsEntry("ATTEMPTS", 1);
+        assertThat((String) b.get("LAST_ERROR")).isNotBlank();
+        assertThat(registry.get("mail.outbox.depth").gauge().value()).isEqualTo(1);
+
+        // Antes do backoff (30s) nada sai
+        smtp.acceptRecipient("b@teste.com");
+        clock.advance(Duration.ofSeconds(29));
+        assertThat(dispatcher.dispatchOnce()).isZero();
+
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(dispatcher.dispatchOnce()).isEqualTo(1);
+        assertThat(smtp.messages()).hasSize(2);
+        assertThat(jdbc.queryForObject("SELECT status FROM mail_outbox WHERE recipient = 'b@teste.com'", String.class)).isEqualTo("SENT");
+    }
+
+    @Test
+    @DisplayName("Tentativas esgotadas: FAILED, fora da fila")
+    void gives_up_after_max_attempts() {
+        smtp.rejectRecipient("x@teste.com");
+        outbox.enqueue("x@teste.com", "Reset X", "link X");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(dispatcher.dispatchOnce()).isEqualTo(1);
+            clock.advance(Duration.ofHours(1));
+        }
+        assertThat(dispatcher.dispatchOnce()).isZero();
+        assertThat(jdbc.queryForObject("SELECT status FROM mail_outbox", String.class)).isEqualTo("FAILED");
+        assertThat(registry.get("mail.outbox.failed").counter().count()).isEqualTo(1);
+        assertThat(registry.get("mail.outbox.retried").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Backoff exponencial limitado ao máximo")
+    void backoff_doubles_up_to_max() {
+        assertThat(dispatcher.backoff(1)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(dispatcher.backoff(2)).isEqualTo(Duration.ofSeconds(60));
+        assertThat(dispatcher.backoff(4)).isEqualTo(Duration.ofSeconds(240));
+        assertThat(dispatcher.backoff(40)).isEqualTo(Duration.ofHours(1));
+    }
+
+    @Test
+    @DisplayName("poll(): envia com o lease e o libera ao terminar (lockAtLeast zero)")
+    void poll_sends_under_lease_and_releases() {
+        outbox.enqueue("a@teste.com", "Reset A", "link A");
+        dispatcher.poll();
+        assertThat(smtp.messages()).hasSize(1);
+        assertThat(jdbc.queryForObject("SELECT locked_by FROM scheduler_locks WHERE name = 'mail-outbox'", String.class))
+                .isEqualTo("node-a");
+
+        // Lease liberado: outro nó (ou o próximo tick) pode pegar na hora
+        outbox.enqueue("b@teste.com", "Reset B", "link B");
+        dispatcher.poll();
+        assertThat(smtp.messages()).hasSize(2);
+        assertThat(registry.get("mail.outbox.depth").gauge().value()).isZero();
+        assertThat(otherNode.runExclusive("mail-outbox", Duration.ofMinutes(1), Duration.ZERO, () -> {})).isTrue();
+    }
+
+    @Test
+    @DisplayName("poll(): outro nó com o lease, esta instância pula o tick (mas atualiza a profundidade)")
+    void poll_skips_while_other_node_holds_lease() {
+        outbox.enqueue("a@teste.com", "Reset A", "link A");
+        assertThat(otherNode.tryAcquire("mail-outbox", Duration.ofMinutes(1))).isNotNull();
+
+        dispatcher.poll();
+        assertThat(smtp.messages()).isEmpty();
+        assertThat(registry.get("mail.outbox.depth").gauge().value()).isEqualTo(1);
+
+        // Lease de node-b vence (relógio do banco): o próximo tick envia
+        jdbc.update("UPDATE scheduler_locks SET locked_until = TIMESTAMPADD(MINUTE, -2, locked_until)");
+        dispatcher.poll();
+        assertThat(smtp.messages()).hasSize(1);
+        assertThat(jdbc.queryForObject("SELECT locked_by FROM scheduler_locks WHERE name = 'mail-outbox'", String.class))
+                .isEqualTo("node-a");
+    }
+}
@@ -0,0 +1,36 @@
+package com.medcheckapi.user.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenSessionRegistryTest {
+
+    @Test
+    @DisplayName("Check-in/check-out atualizam o registro; fechamento de sessão antiga não remove a atual")
+    void open_close_and_filters() {
+        OpenSessionRegistry registry = new OpenSessionRegistry(Mockito.mock(JdbcTemplate.class));
+        LocalDateTime t0 = LocalDateTime.of(2025, 3, 10, 7, 0);
+
+        registry.on(new CheckSessionEvent(CheckSessionEvent.Type.OPENED, 10L, 1L, 2L, 3L, t0));
+        registry.on(new CheckSessionEvent(CheckSessionEvent.Type.OPENED, 11L, 4L, 5L, 3L, t0.plusMinutes(5)));
+
+        assertThat(registry.isInService(1L)).isTrue();
+        assertThat(registry.isInService(1L, 2L, null)).isTrue();
+        assertThat(registry.isInService(1L, 5L, null)).isFalse();
+        assertThat(registry.onShift(null, 3L)).extracting(OpenSessionRegistry.OpenSession::alunoId).containsExactly(4L, 1L);
+        assertThat(registry.onShift(2L, null)).extracting(OpenSessionRegistry.OpenSession::alunoId).containsExactly(1L);
+        assertThat(registry.onShift(99L, null)).isEmpty();
+
+        registry.on(new CheckSessionEvent(CheckSessionEvent.Type.CLOSED, 9L, 1L, 2L, 3L, t0.minusDays(1)));
+        assertThat(registry.isInService(1L)).isTrue();
+        registry.on(new CheckSessionEvent(CheckSessionEvent.Type.CLOSED, 10L, 1L, 2L, 3L, t0));
+        assertThat(registry.isInService(1L)).isFalse();
+        assertThat(registry.size()).isEqualTo(1);
+    }
+}
@@ -4,12 +4,12 @@ import com.medcheckapi.user.model.PasswordResetToken;
 import com.medcheckapi.user.model.User;
 import com.medcheckapi.user.repository.PasswordResetTokenRepository;
 import com.medcheckapi.user.repository.UserRepository;
+import com.medcheckapi.user.security.PrincipalCache;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
-import org.springframework.mail.javamail.JavaMailSender;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -21,7 +21,7 @@ class PasswordResetServiceTest {
     void createAndSendToken_persiste() {
         UserRepository userRepository = Mockito.mock(UserRepository.class);
         PasswordResetTokenRepository tokenRepo = Mockito.mock(PasswordResetTokenRepository.class);
-        JavaMailSender mailSender = Mockito.mock(JavaMailSender.class);
+        MailOutbox mailOutbox = Mockito.mock(MailOutbox.class);
 
         User u = new User();
         u.setCpf("11122233344");
@@ -31,7 +31,7 @@ class PasswordResetServiceTest {
     Mockito.when(userRepository.findByInstitutionalEmailIgnoreCase("a@b.com")).thenReturn(java.util.Optional.of(u));
     PasswordEncoder encoder = Mockito.mock(PasswordEncoder.class);
 
-    PasswordResetService svc = new PasswordResetService(userRepository, tokenRepo, mailSender, encoder);
+    PasswordResetService svc = new PasswordResetService(userRepository, tokenRepo, mailOutbox, encoder, Mockito.mock(PrincipalCache.class));
         svc.createAndSendToken("a@b.com");
 
         ArgumentCaptor<PasswordResetToken> captor = ArgumentCaptor.forClass(PasswordResetToken.class);
@@ -42,6 +42,8 @@ class PasswordResetServiceTest {
     // Deve ser ~agora + expirationMinutes; apenas garante futuro (>= agora + 1 min de margem negativa)
     java.time.Instant now = java.time.Instant.now().minusSeconds(5); // pequena margem
     assertThat(saved.getExpiresAt()).isAfter(now);
+        // E-mail vai para a fila (enviado depois pelo MailOutboxDispatcher) com o link do token
+        Mockito.verify(mailOutbox).enqueue(Mockito.eq("a@b.com"), Mockito.anyString(), Mockito.contains(saved.getToken()));
     }
 
       @Test
@@ -49,9 +51,9 @@ class PasswordResetServiceTest {
       void resetPassword_expired() {
           UserRepository userRepository = Mockito.mock(UserRepository.class);
           PasswordResetTokenRepository tokenRepo = Mockito.mock(PasswordResetTokenRepository.class);
-          JavaMailSender mailSender = Mockito.mock(JavaMailSender.class);
+          MailOutbox mailOutbox = Mockito.mock(MailOutbox.class);
           PasswordEncoder encoder = Mockito.mock(PasswordEncoder.class);
-          PasswordResetService svc = new PasswordResetService(userRepository, tokenRepo, mailSender, encoder);
+          PasswordResetService svc = new PasswordResetService(userRepository, tokenRepo, mailOutbox, encoder, Mockito.mock(PrincipalCache.class));
           PasswordResetToken t = new PasswordResetToken();
           t.setToken("T1");
           t.setExpiresAt(java.time.Instant.now().minusSeconds(60));
@@ -67,9 +69,9 @@ class PasswordResetServiceTest {
       void resetPassword_used() {
           UserRepository userRepository = Mockito.mock(UserRepository.class);
           PasswordResetTokenRepository tokenRepo = Mockito.mock(PasswordResetTokenRepository.class);
-          JavaMailSender mailSender = Mockito.mock(JavaMailSender.class);
+          MailOutbox mailOutbox = Mockito.mock(MailOutbox.class);
           PasswordEncoder encoder = Mockito.mock(PasswordEncoder.class);
-          PasswordResetService svc = new PasswordResetService(userRepository, tokenRepo, mailSender, encoder);
+          PasswordResetService svc = new PasswordResetService(userRepository, tokenRepo, mailOutbox, encoder, Mockito.mock(PrincipalCache.class));
           PasswordResetToken t = new PasswordResetToken();
           t.setToken("T2");
           t.setExpiresAt(java.time.Instant.now().plusSeconds(600));
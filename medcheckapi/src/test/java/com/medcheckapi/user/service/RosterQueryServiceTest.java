@@ -0,0 +1,91 @@
+package com.medcheckapi.user.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/** Lista da disciplina sobre H2 (modo MySQL): "em serviço" e filtros de status lidos de check_sessions. */
+class RosterQueryServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 10, 7, 0);
+    private static final ZoneId ACRE = ZoneId.of("America/Rio_Branco");
+    // "Agora" fixo: 3h depois do check-in ainda aberto da Ana (sessão 101)
+    private static final LocalDateTime NOW = T0.plusDays(1).plusHours(3);
+
+    private JdbcTemplate jdbc;
+    private RosterQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource db = new DriverManagerDataSource(
+                "jdbc:h2:mem:roster" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("""
+                CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(100), cpf VARCHAR(20), institutional_email VARCHAR(100),
+                  phone VARCHAR(30), cpf_digits VARCHAR(20), phone_digits VARCHAR(30))""");
+        jdbc.execute("CREATE TABLE user_search_grams (gram VARCHAR(8), user_id BIGINT, PRIMARY KEY (gram, user_id))");
+        jdbc.execute("""
+                CREATE TABLE check_sessions (id BIGINT PRIMARY KEY, aluno_id BIGINT, preceptor_id BIGINT, discipline_id BIGINT,
+                  check_in_time TIMESTAMP, check_out_time TIMESTAMP)""");
+        jdbc.update("INSERT INTO users (id, name) VALUES (1, 'Ana Souza'), (2, 'Bruno Lima'), (3, 'Carla Dias'), (10, 'Maria Ribeiro')");
+        session(100, 1, 1, T0, T0.plusHours(4));
+        session(101, 1, 1, T0.plusDays(1), null);
+        session(102, 2, 1, T0, T0.plusHours(2));
+        // Carla está em serviço, mas em outra disciplina
+        session(103, 3, 1, T0, T0.plusHours(1));
+        session(104, 3, 2, T0.plusDays(1), null);
+        service = new RosterQueryService(new NamedParameterJdbcTemplate(db), new UserSearchIndex(jdbc),
+                Clock.fixed(NOW.atZone(ACRE).toInstant(), ACRE));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private void session(long id, long aluno, long discipline, LocalDateTime in, LocalDateTime out) {
+        jdbc.update("INSERT INTO check_sessions VALUES (?,?,10,?,?,?)", id, aluno, discipline,
+                Timestamp.valueOf(in), out == null ? null : Timestamp.valueOf(out));
+    }
+
+    private RosterQueryService.RosterPage page(boolean statusIn, boolean statusOut) {
+        return service.page(new RosterQueryService.RosterFilter(1L, T0.minusDays(1), T0.plusDays(5), null, null,
+                true, true, true, true, statusIn, statusOut), "name", false, 0, 10);
+    }
+
+    @Test
+    @DisplayName("Em serviço na disciplina vem de check_out_time IS NULL, em qualquer instância")
+    void in_service_from_database() {
+        assertThat(page(true, true).items()).extracting(m -> m.get("id"), m -> m.get("inService"))
+                .containsExactly(tuple(1L, true), tuple(2L, false), tuple(3L, false));
+        assertThat(page(true, false).items()).extracting(m -> m.get("id")).containsExactly(1L);
+        assertThat(page(false, true).items()).extracting(m -> m.get("id")).containsExactly(2L, 3L);
+        assertThat(page(false, false).items()).isEmpty();
+
+        // Check-out feito em outra instância: já sai do filtro
+        jdbc.update("UPDATE check_sessions SET check_out_time = ? WHERE id = 101", Timestamp.valueOf(T0.plusDays(1).plusHours(2)));
+        assertThat(page(true, false).items()).isEmpty();
+        assertThat(page(true, true).items()).allSatisfy(m -> assertThat(m.get("inService")).isEqualTo(false));
+    }
+
+    @Test
+    @DisplayName("Sessão aberta soma até o agora do relógio injetado")
+    void open_session_counts_until_clock_now() {
+        // Ana: 4h fechadas + 3h da sessão aberta; Bruno: 2h
+        assertThat(page(true, true).items()).extracting(m -> m.get("id"), m -> m.get("totalHours"))
+                .containsExactly(tuple(1L, 7L), tuple(2L, 2L), tuple(3L, 1L));
+    }
+}
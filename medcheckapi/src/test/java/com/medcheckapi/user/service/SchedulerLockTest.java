@@ -0,0 +1,138 @@
+package com.medcheckapi.user.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Várias instâncias (um SchedulerLock por "nó") disputando o mesmo banco embarcado. O relógio é o do banco:
+ * {@link #advance} simula a passagem do tempo recuando os instantes gravados.
+ */
+class SchedulerLockTest {
+
+    private static final int NODES = 3;
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbc;
+    private List<SchedulerLock> nodes;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("""
+                CREATE TABLE scheduler_locks (name VARCHAR(64) PRIMARY KEY, locked_until TIMESTAMP(3) NOT NULL,
+                  locked_at TIMESTAMP(3) NOT NULL, locked_by VARCHAR(255) NOT NULL)""");
+        DataSourceTransactionManager txManager = new DataSourceTransactionManager(db);
+        nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new SchedulerLock(new NamedParameterJdbcTemplate(db), txManager, "node-" + i));
+        }
+        pool = Executors.newFixedThreadPool(NODES);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.shutdownNow();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+        db.shutdown();
+    }
+
+    // Equivale a avançar o relógio do banco em d para todos os leases gravados
+    private void advance(Duration d) {
+        long ms = d.toMillis();
+        jdbc.update("UPDATE scheduler_locks SET locked_until = TIMESTAMPADD(MILLISECOND, ?, locked_until), "
+                + "locked_at = TIMESTAMPADD(MILLISECOND, ?, locked_at)", -ms, -ms);
+    }
+
+    @Test
+    @DisplayName("Nós disparando ao mesmo tempo: cada tick roda em exatamente um nó")
+    void each_tick_runs_on_exactly_one_node() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        for (int tick = 0; tick < 30; tick++) {
+            CyclicBarrier start = new CyclicBarrier(NODES);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (SchedulerLock node : nodes) {
+                results.add(pool.submit(() -> {
+                    start.await(5, TimeUnit.SECONDS);
+                    return node.runExclusive("job", Duration.ofMinutes(1), Duration.ofSeconds(4), runs::incrementAndGet);
+                }));
+            }
+            int winners = 0;
+            for (Future<Boolean> r : results) if (r.get(10, TimeUnit.SECONDS)) winners++;
+            assertThat(winners).as("tick %d", tick).isEqualTo(1);
+            assertThat(runs.get()).isEqualTo(tick + 1);
+            advance(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    @DisplayName("lockAtLeast segura o tick contra agendas defasadas")
+    void lock_at_least_blocks_staggered_nodes() {
+        AtomicInteger runs = new AtomicInteger();
+        assertThat(nodes.get(0).runExclusive("job", Duration.ofMinutes(1), Duration.ofSeconds(4), runs::incrementAndGet)).isTrue();
+        advance(Duration.ofSeconds(2));
+        assertThat(nodes.get(1).runExclusive("job", Duration.ofMinutes(1), Duration.ofSeconds(4), runs::incrementAndGet)).isFalse();
+        advance(Duration.ofSeconds(2));
+        assertThat(nodes.get(1).runExclusive("job", Duration.ofMinutes(1), Duration.ofSeconds(4), runs::incrementAndGet)).isTrue();
+        assertThat(runs.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Nó que cai com o lease: outro assume quando lockAtMost vence")
+    void failover_after_lock_at_most() {
+        // node-0 pega o lease e "cai" sem liberar
+        assertThat(nodes.get(0).tryAcquire("job", Duration.ofSeconds(30))).isNotNull();
+
+        advance(Duration.ofSeconds(10));
+        assertThat(nodes.get(1).runExclusive("job", Duration.ofSeconds(30), Duration.ZERO, () -> {})).isFalse();
+
+        advance(Duration.ofSeconds(20));
+        assertThat(nodes.get(1).runExclusive("job", Duration.ofSeconds(30), Duration.ZERO, () -> {})).isTrue();
+        assertThat(jdbc.queryForObject("SELECT locked_by FROM scheduler_locks WHERE name = 'job'", String.class))
+                .isEqualTo("node-1");
+    }
+
+    @Test
+    @DisplayName("Liberação atrasada não encurta o lease de quem assumiu")
+    void late_release_does_not_touch_new_owner() {
+        Timestamp t0 = nodes.get(0).tryAcquire("job", Duration.ofSeconds(30));
+        assertThat(t0).isNotNull();
+        advance(Duration.ofSeconds(30));
+        assertThat(nodes.get(1).tryAcquire("job", Duration.ofSeconds(30))).isNotNull();
+
+        // node-0 termina o job tarde e tenta liberar
+        nodes.get(0).release("job", t0, Duration.ZERO);
+        advance(Duration.ofSeconds(5));
+        assertThat(nodes.get(2).runExclusive("job", Duration.ofSeconds(30), Duration.ZERO, () -> {})).isFalse();
+    }
+
+    @Test
+    @DisplayName("Jobs diferentes têm leases independentes")
+    void jobs_are_independent() {
+        assertThat(nodes.get(0).tryAcquire("a", Duration.ofMinutes(1))).isNotNull();
+        assertThat(nodes.get(1).tryAcquire("b", Duration.ofMinutes(1))).isNotNull();
+        assertThat(nodes.get(2).tryAcquire("a", Duration.ofMinutes(1))).isNull();
+    }
+}
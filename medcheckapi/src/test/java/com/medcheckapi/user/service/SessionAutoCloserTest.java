@@ -0,0 +1,192 @@
+package com.medcheckapi.user.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Auto-fechamento sobre H2 (modo MySQL), com um closer por "nó" compartilhando o banco. Cada nó tem o próprio
+ * registro de sessões abertas, como em produção; o vencimento é pelo relógio do banco.
+ */
+class SessionAutoCloserTest {
+
+    private JdbcTemplate jdbc;
+    private NamedParameterJdbcTemplate named;
+    private DataSourceTransactionManager txManager;
+    private HoursLedgerService ledger;
+    private final List<CheckSessionEvent> published = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource db = new DriverManagerDataSource(
+                "jdbc:h2:mem:autoclose" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("""
+                CREATE TABLE check_sessions (id BIGINT PRIMARY KEY, aluno_id BIGINT, preceptor_id BIGINT, discipline_id BIGINT,
+                  check_in_time TIMESTAMP, check_out_time TIMESTAMP)""");
+        jdbc.execute("""
+                CREATE TABLE scheduler_locks (name VARCHAR(64) PRIMARY KEY, locked_until TIMESTAMP(3) NOT NULL,
+                  locked_at TIMESTAMP(3) NOT NULL, locked_by VARCHAR(255) NOT NULL)""");
+        named = new NamedParameterJdbcTemplate(db);
+        txManager = new DataSourceTransactionManager(db);
+        ledger = Mockito.mock(HoursLedgerService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private LocalDateTime dbNow() {
+        return jdbc.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class).toLocalDateTime();
+    }
+
+    private void session(long id, long aluno, LocalDateTime in) {
+        jdbc.update("INSERT INTO check_sessions VALUES (?,?,2,3,?,NULL)", id, aluno, Timestamp.valueOf(in));
+    }
+
+    private SessionAutoCloser node(String name, OpenSessionRegistry registry, SimpleMeterRegistry meters) {
+        // Eventos vão ao registro do nó (sem transação ativa) e ficam anotados para conferir quem publicou
+        ApplicationEventPublisher events = e -> {
+            published.add((CheckSessionEvent) e);
+            registry.on((CheckSessionEvent) e);
+        };
+        return new SessionAutoCloser(named, registry, events, txManager, ledger, new HotPathMetrics(meters),
+                new SchedulerLock(named, txManager, name));
+    }
+
+    private static SessionAutoCloser.Deadline due(OpenSessionRegistry registry, long aluno) {
+        return new SessionAutoCloser.Deadline(registry.find(aluno).orElseThrow(), Instant.EPOCH);
+    }
+
+    @Test
+    @DisplayName("Prazos vencidos fecham só as sessões ainda abertas, num único UPDATE")
+    void closes_only_sessions_still_open() {
+        OpenSessionRegistry registry = new OpenSessionRegistry(jdbc);
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        SessionAutoCloser closer = node("node-a", registry, meters);
+
+        LocalDateTime t0 = dbNow().minusHours(10);
+        session(10L, 1L, t0);
+        registry.on(new CheckSessionEvent(CheckSessionEvent.Type.OPENED, 10L, 1L, 2L, 3L, t0));
+        OpenSessionRegistry.OpenSession open = registry.find(1L).orElseThrow();
+        // Sessão 9 já fechada manualmente (não está no registro)
+        OpenSessionRegistry.OpenSession gone = new OpenSessionRegistry.OpenSession(9L, 4L, 2L, 3L, t0);
+
+        closer.closeExpired(List.of(new SessionAutoCloser.Deadline(open, Instant.EPOCH), new SessionAutoCloser.Deadline(gone, Instant.EPOCH)));
+
+        assertThat(jdbc.queryForObject("SELECT check_out_time FROM check_sessions WHERE id = 10", Timestamp.class))
+                .isEqualTo(Timestamp.valueOf(t0.plusHours(9)));
+        // Livro de horas recebe a sessão fechada com check-out = check-in + 9h
+        Mockito.verify(ledger).record(1L, 2L, 3L, t0, t0.plusHours(9));
+        assertThat(published).extracting(CheckSessionEvent::sessionId).containsExactly(10L);
+        assertThat(registry.isInService(1L)).isFalse();
+        assertThat(meters.get("medcheck.job.rows").tag("job", "session-auto-close").summary().totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Prazo vencido pelo relógio da instância mas não pelo do banco: sessão fica aberta para a varredura")
+    void database_clock_decides_expiry() {
+        OpenSessionRegistry registry = new OpenSessionRegistry(jdbc);
+        SessionAutoCloser closer = node("node-a", registry, new SimpleMeterRegistry());
+        LocalDateTime t0 = dbNow().minusHours(8);
+        session(10L, 1L, t0);
+        registry.on(new CheckSessionEvent(CheckSessionEvent.Type.OPENED, 10L, 1L, 2L, 3L, t0));
+
+        closer.closeExpired(List.of(due(registry, 1L)));
+
+        assertThat(jdbc.queryForObject("SELECT check_out_time FROM check_sessions WHERE id = 10", Timestamp.class)).isNull();
+        assertThat(published).isEmpty();
+        Mockito.verifyNoInteractions(ledger);
+    }
+
+    @Test
+    @DisplayName("Nó que abriu a sessão caiu: a varredura de outro nó fecha pelo banco, uma vez por lease")
+    void sweep_closes_sessions_of_dead_node() {
+        LocalDateTime now = dbNow();
+        session(10L, 1L, now.minusHours(12));
+        session(11L, 4L, now.minusHours(3));
+        // Registro vazio: o check-in foi em outra instância
+        OpenSessionRegistry survivorRegistry = new OpenSessionRegistry(jdbc);
+        SessionAutoCloser survivor = node("node-b", survivorRegistry, new SimpleMeterRegistry());
+        SessionAutoCloser other = node("node-c", new OpenSessionRegistry(jdbc), new SimpleMeterRegistry());
+
+        survivor.sweep();
+        other.sweep();
+
+        assertThat(jdbc.queryForObject("SELECT check_out_time FROM check_sessions WHERE id = 10", Timestamp.class))
+                .isEqualTo(Timestamp.valueOf(now.minusHours(12).plusHours(9)));
+        assertThat(jdbc.queryForObject("SELECT check_out_time FROM check_sessions WHERE id = 11", Timestamp.class)).isNull();
+        assertThat(published).extracting(CheckSessionEvent::sessionId).containsExactly(10L);
+        Mockito.verify(ledger).record(1L, 2L, 3L, now.minusHours(12), now.minusHours(3));
+        Mockito.verifyNoMoreInteractions(ledger);
+        assertThat(jdbc.queryForObject("SELECT locked_by FROM scheduler_locks WHERE name = 'session-auto-close'", String.class))
+                .isEqualTo("node-b");
+    }
+
+    @Test
+    @DisplayName("Dois nós com as mesmas sessões vencidas: cada sessão é fechada, somada e publicada uma única vez")
+    void two_nodes_same_deadlines_publish_once() throws Exception {
+        LocalDateTime t0 = dbNow().minusHours(10);
+        List<OpenSessionRegistry> registries = List.of(new OpenSessionRegistry(jdbc), new OpenSessionRegistry(jdbc));
+        for (long id = 1; id <= 20; id++) {
+            session(100 + id, id, t0);
+            for (OpenSessionRegistry r : registries) {
+                r.on(new CheckSessionEvent(CheckSessionEvent.Type.OPENED, 100 + id, id, 2L, 3L, t0));
+            }
+        }
+        List<SessionAutoCloser> closers = List.of(node("node-a", registries.get(0), new SimpleMeterRegistry()),
+                node("node-b", registries.get(1), new SimpleMeterRegistry()));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CyclicBarrier start = new CyclicBarrier(2);
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                OpenSessionRegistry registry = registries.get(i);
+                SessionAutoCloser closer = closers.get(i);
+                List<SessionAutoCloser.Deadline> due = new ArrayList<>();
+                for (long id = 1; id <= 20; id++) due.add(due(registry, id));
+                runs.add(pool.submit(() -> {
+                    start.await(5, TimeUnit.SECONDS);
+                    closer.closeExpired(due);
+                    return null;
+                }));
+            }
+            for (Future<?> f : runs) f.get(10, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM check_sessions WHERE check_out_time IS NULL", Integer.class)).isZero();
+        assertThat(published).extracting(CheckSessionEvent::sessionId).doesNotHaveDuplicates().hasSize(20);
+        Mockito.verify(ledger, Mockito.times(20)).record(Mockito.anyLong(), Mockito.eq(2L), Mockito.eq(3L),
+                Mockito.eq(t0), Mockito.eq(t0.plusHours(9)));
+        // O nó que perdeu a corrida também larga as sessões do próprio registro
+        for (OpenSessionRegistry r : registries) {
+            assertThat(r.onShift(null, null)).isEmpty();
+        }
+    }
+}
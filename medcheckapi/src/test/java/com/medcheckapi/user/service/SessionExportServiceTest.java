@@ -0,0 +1,91 @@
+package com.medcheckapi.user.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionExportServiceTest {
+
+    private EmbeddedDatabase db;
+    private SessionExportService service;
+
+    @BeforeEach
+    void setUp() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        JdbcTemplate jdbc = new JdbcTemplate(db);
+        jdbc.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(120), matricula VARCHAR(40))");
+        jdbc.execute("CREATE TABLE disciplines (id BIGINT PRIMARY KEY, code VARCHAR(40), name VARCHAR(160))");
+        jdbc.execute("""
+                CREATE TABLE check_sessions (id BIGINT PRIMARY KEY, aluno_id BIGINT, preceptor_id BIGINT, discipline_id BIGINT,
+                  check_in_time TIMESTAMP, check_out_time TIMESTAMP, check_in_lat DECIMAL(10,7), check_in_lng DECIMAL(10,7),
+                  check_out_lat DECIMAL(10,7), check_out_lng DECIMAL(10,7), validated BOOLEAN)""");
+        jdbc.update("INSERT INTO users VALUES (1, 'Silva, \"Ana\"', 'M1'), (2, 'Bruno', NULL), (9, 'Dra. Paula', NULL)");
+        jdbc.update("INSERT INTO disciplines VALUES (5, 'MED-I', 'Clínica Médica I')");
+        jdbc.update("INSERT INTO check_sessions VALUES (10, 1, 9, 5, '2025-03-10 07:00:00', '2025-03-10 12:30:00', -9.9700000, -67.8100000, NULL, NULL, TRUE)");
+        jdbc.update("INSERT INTO check_sessions VALUES (11, 2, 9, NULL, '2025-03-11 19:00:00', NULL, NULL, NULL, NULL, NULL, TRUE)");
+        jdbc.update("INSERT INTO check_sessions VALUES (12, 1, 9, 5, '2025-04-01 07:00:00', '2025-04-01 08:00:00', NULL, NULL, NULL, NULL, TRUE)");
+        service = new SessionExportService(db);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.shutdown();
+    }
+
+    @Test
+    @DisplayName("CSV: cabeçalho, período por data do check-in e campos com vírgula/aspas escapados")
+    void csv_export_escapes_and_filters_period() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long n = service.export(new SessionExportService.Filter(null, null, null, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31)),
+                SessionExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(n).isEqualTo(2);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("id,alunoId,alunoName,");
+        assertThat(lines[1]).isEqualTo("10,1,\"Silva, \"\"Ana\"\"\",M1,9,Dra. Paula,5,MED-I,Clínica Médica I,"
+                + "2025-03-10T07:00-05:00,2025-03-10T12:30-05:00,true,19800,-9.9700000,-67.8100000,,");
+        assertThat(lines[2]).isEqualTo("11,2,Bruno,,9,Dra. Paula,,,,2025-03-11T19:00-05:00,,true,,,,,");
+    }
+
+    @Test
+    @DisplayName("NDJSON: um objeto por linha, filtrado por aluno")
+    void ndjson_export_filters_by_aluno() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long n = service.export(new SessionExportService.Filter(1L, null, 5L, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31)),
+                SessionExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(n).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertThat(first.get("id").asLong()).isEqualTo(10);
+        assertThat(first.get("workedSeconds").asLong()).isEqualTo(19800);
+        assertThat(first.get("checkOutLat").isNull()).isTrue();
+        assertThat(new ObjectMapper().readTree(lines[1]).get("id").asLong()).isEqualTo(12);
+    }
+
+    @Test
+    @DisplayName("Formato: vazio = CSV, sem diferenciar maiúsculas; desconhecido é argumento inválido (400)")
+    void format_parse() {
+        assertThat(SessionExportService.Format.parse(null)).isEqualTo(SessionExportService.Format.CSV);
+        assertThat(SessionExportService.Format.parse(" NdJson ")).isEqualTo(SessionExportService.Format.NDJSON);
+        assertThatThrownBy(() -> SessionExportService.Format.parse("xml"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Formato inválido");
+    }
+}
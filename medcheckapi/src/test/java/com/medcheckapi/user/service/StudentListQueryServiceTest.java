@@ -0,0 +1,138 @@
+package com.medcheckapi.user.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/** Listagem de alunos por sessões sobre H2 (modo MySQL), com o índice de trigramas real (backfill da subida). */
+class StudentListQueryServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 12, 31, 23, 59, 59);
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 10, 7, 0);
+
+    private JdbcTemplate jdbc;
+    private StudentListQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource db = new DriverManagerDataSource(
+                "jdbc:h2:mem:students" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("""
+                CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(100), cpf VARCHAR(20), institutional_email VARCHAR(100),
+                  phone VARCHAR(30), cpf_digits VARCHAR(20), phone_digits VARCHAR(30))""");
+        jdbc.execute("CREATE TABLE user_search_grams (gram VARCHAR(8), user_id BIGINT, PRIMARY KEY (gram, user_id))");
+        jdbc.execute("""
+                CREATE TABLE check_sessions (id BIGINT PRIMARY KEY, aluno_id BIGINT, preceptor_id BIGINT, discipline_id BIGINT,
+                  check_in_time TIMESTAMP, check_out_time TIMESTAMP)""");
+        user(1, "Ana Souza", "111.222.333-44", "ana@ufac.br", "(68) 99911-0001");
+        user(2, "Bruno Lima", "222.333.444-55", "bruno@ufac.br", "(68) 99911-0002");
+        user(3, "Carla Souza Dias", "333.444.555-66", "carla@ufac.br", "(68) 99911-0003");
+        user(4, "Diego Rocha", "444.555.666-77", "diego@ufac.br", "(68) 99911-0004");
+        // Preceptor 10 na disciplina 1: Ana (2 sessões), Bruno, Carla; Diego só com o preceptor 20 e em 2024
+        session(100, 1, 10, 1, T0, T0.plusHours(4));
+        session(101, 1, 10, 1, T0.plusDays(1), null);
+        session(102, 2, 10, 1, T0, T0.plusHours(2));
+        session(103, 3, 10, 2, T0, null);
+        session(104, 4, 20, 1, T0, T0.plusHours(1));
+        session(105, 4, 10, 1, T0.minusYears(1), T0.minusYears(1).plusHours(1));
+        UserSearchIndex index = new UserSearchIndex(jdbc);
+        index.backfill();
+        service = new StudentListQueryService(new NamedParameterJdbcTemplate(db), index);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private void user(long id, String name, String cpf, String email, String phone) {
+        jdbc.update("INSERT INTO users (id, name, cpf, institutional_email, phone) VALUES (?,?,?,?,?)", id, name, cpf, email, phone);
+    }
+
+    private void session(long id, long aluno, long preceptor, long discipline, LocalDateTime in, LocalDateTime out) {
+        jdbc.update("INSERT INTO check_sessions VALUES (?,?,?,?,?,?)", id, aluno, preceptor, discipline,
+                Timestamp.valueOf(in), out == null ? null : Timestamp.valueOf(out));
+    }
+
+    private static StudentListQueryService.StudentFilter filter(Long preceptor, Long discipline, String q,
+                                                                 boolean statusIn, boolean statusOut) {
+        return new StudentListQueryService.StudentFilter(START, END, preceptor, discipline, q, UserSearchIndex.Fields.ALL,
+                statusIn, statusOut);
+    }
+
+    @Test
+    @DisplayName("Alunos distintos do preceptor no período, por nome, com total e página além do fim")
+    void distinct_students_paged() {
+        StudentListQueryService.StudentPage p0 = service.page(filter(10L, null, null, true, true), 0, 2);
+        assertThat(p0.items()).extracting(StudentListQueryService.StudentRow::id).containsExactly(1L, 2L);
+        assertThat(p0.totalItems()).isEqualTo(3);
+        assertThat(p0.totalPages()).isEqualTo(2);
+        assertThat(service.page(filter(10L, null, null, true, true), 1, 2).items())
+                .extracting(StudentListQueryService.StudentRow::name).containsExactly("Carla Souza Dias");
+
+        StudentListQueryService.StudentPage beyond = service.page(filter(10L, null, null, true, true), 5, 2);
+        assertThat(beyond.items()).isEmpty();
+        assertThat(beyond.totalItems()).isEqualTo(3);
+
+        // ADMIN por disciplina, qualquer preceptor
+        assertThat(service.page(filter(null, 1L, null, true, true), 0, 10).items())
+                .extracting(StudentListQueryService.StudentRow::id).containsExactly(1L, 2L, 4L);
+    }
+
+    @Test
+    @DisplayName("Busca pelo índice de trigramas embutida na consulta; termo curto cai só no LIKE")
+    void search_embedded_in_query() {
+        assertThat(service.page(filter(10L, null, "souza", true, true), 0, 10).items())
+                .extracting(StudentListQueryService.StudentRow::id).containsExactly(1L, 3L);
+        assertThat(service.page(filter(10L, null, "333.444", true, true), 0, 10).items())
+                .extracting(StudentListQueryService.StudentRow::id).containsExactly(2L, 3L);
+        assertThat(service.page(filter(10L, null, "br", true, true), 0, 10).totalItems()).isEqualTo(3);
+        assertThat(service.page(filter(10L, null, "inexistente", true, true), 0, 10).items()).isEmpty();
+        // Só nome: o e-mail "ana@..." não conta
+        StudentListQueryService.StudentFilter nameOnly = new StudentListQueryService.StudentFilter(START, END, null, null,
+                "ufac", new UserSearchIndex.Fields(true, false, false, false), true, true);
+        assertThat(service.page(nameOnly, 0, 10).items()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Filtros de status: em serviço, fora de serviço e nenhum marcado")
+    void status_filters() {
+        assertThat(service.page(filter(10L, null, null, true, false), 0, 10).items())
+                .extracting(StudentListQueryService.StudentRow::id).containsExactly(1L, 3L);
+        assertThat(service.page(filter(10L, null, null, false, true), 0, 10).items())
+                .extracting(StudentListQueryService.StudentRow::id).containsExactly(2L);
+        assertThat(service.page(filter(10L, 1L, null, true, false), 0, 10).items())
+                .extracting(StudentListQueryService.StudentRow::id).containsExactly(1L);
+        assertThat(service.page(filter(10L, null, null, false, false), 0, 10).items()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Em serviço vem do banco: check-in aberto em outra instância aparece, check-out feito lá some")
+    void in_service_reads_database() {
+        // Nenhum registro em memória envolvido: outra instância abriu a sessão do Bruno e fechou a da Ana
+        session(106, 2, 10, 1, T0.plusDays(2), null);
+        jdbc.update("UPDATE check_sessions SET check_out_time = ? WHERE id = 101", Timestamp.valueOf(T0.plusDays(1).plusHours(3)));
+
+        assertThat(service.page(filter(10L, null, null, true, true), 0, 10).items())
+                .extracting(StudentListQueryService.StudentRow::id, StudentListQueryService.StudentRow::inService)
+                .containsExactly(tuple(1L, false), tuple(2L, true), tuple(3L, true));
+        assertThat(service.page(filter(10L, null, null, true, false), 0, 10).items())
+                .extracting(StudentListQueryService.StudentRow::id).containsExactly(2L, 3L);
+        // inService do preceptor: sessão aberta com outro preceptor não conta
+        assertThat(service.page(filter(20L, null, null, true, true), 0, 10).items())
+                .extracting(StudentListQueryService.StudentRow::inService).containsExactly(false);
+    }
+}
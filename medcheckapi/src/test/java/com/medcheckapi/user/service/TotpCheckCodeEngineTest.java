@@ -0,0 +1,42 @@
+package com.medcheckapi.user.service;
+
+import com.medcheckapi.user.config.props.AppProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TotpCheckCodeEngineTest {
+
+    private TotpCheckCodeEngine engine(String secret) {
+        AppProperties props = new AppProperties();
+        props.setJwtSecret("TestSecretKey-For-JWT-0123456789ABCDEFGHIJKLMNOPQRSTUV");
+        props.getCheckCode().setSecret(secret);
+        return new TotpCheckCodeEngine(props);
+    }
+
+    @Test
+    @DisplayName("Código derivado é estável na janela e aceito também na janela seguinte")
+    void derive_and_validate_windows() {
+        TotpCheckCodeEngine engine = engine("segredo-teste");
+        LocalDateTime t0 = LocalDateTime.of(2025, 3, 10, 8, 0, 5);
+
+        CheckCodeEngine.IssuedCode issued = engine.currentCode(2L, t0);
+        assertThat(issued.code()).hasSize(6).matches("[ABCDEFGHJKLMNPQRSTUVWXYZ23456789]{6}");
+        assertThat(issued.generatedAt()).isEqualTo(LocalDateTime.of(2025, 3, 10, 8, 0, 0));
+        assertThat(engine.currentCode(2L, t0.plusSeconds(50)).code()).isEqualTo(issued.code());
+        // Outro preceptor / outro segredo => outro código
+        assertThat(engine.currentCode(3L, t0).code()).isNotEqualTo(issued.code());
+        assertThat(engine("outro").currentCode(2L, t0).code()).isNotEqualTo(issued.code());
+
+        assertThatCode(() -> engine.consume(2L, issued.code().toLowerCase(), t0.plusSeconds(30))).doesNotThrowAnyException();
+        assertThatCode(() -> engine.consume(2L, issued.code(), t0.plusSeconds(70))).doesNotThrowAnyException();
+        assertThatThrownBy(() -> engine.consume(2L, issued.code(), t0.plusSeconds(130)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(engine.usesCodeTable()).isFalse();
+    }
+}
@@ -0,0 +1,114 @@
+package com.medcheckapi.user.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Busca do ADMIN sobre banco embarcado, com o índice de trigramas real (backfill da subida). */
+class UserSearchServiceTest {
+
+    private EmbeddedDatabase db;
+    private UserSearchService service;
+
+    @BeforeEach
+    void setUp() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        JdbcTemplate jdbc = new JdbcTemplate(db);
+        jdbc.execute("CREATE TABLE disciplines (id BIGINT PRIMARY KEY, code VARCHAR(20), name VARCHAR(100))");
+        jdbc.execute("""
+                CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(100), cpf VARCHAR(20), institutional_email VARCHAR(100),
+                  phone VARCHAR(30), matricula VARCHAR(30), role VARCHAR(20), current_discipline_id BIGINT,
+                  cpf_digits VARCHAR(20), phone_digits VARCHAR(30))""");
+        jdbc.execute("CREATE TABLE discipline_preceptors (discipline_id BIGINT, preceptor_id BIGINT, PRIMARY KEY (discipline_id, preceptor_id))");
+        jdbc.execute("CREATE TABLE discipline_coordinators (discipline_id BIGINT, coordinator_id BIGINT, PRIMARY KEY (discipline_id, coordinator_id))");
+        jdbc.execute("CREATE TABLE user_search_grams (gram VARCHAR(8), user_id BIGINT, PRIMARY KEY (gram, user_id))");
+        jdbc.update("INSERT INTO disciplines VALUES (1, 'CM1', 'Clínica Médica'), (2, 'PED', 'Pediatria')");
+        user(jdbc, 1, "Ana Souza", "111.222.333-44", "ana@ufac.br", "(68) 99911-0001", "ALUNO", 1L);
+        user(jdbc, 2, "Bruno Lima", "222.333.444-55", "bruno@ufac.br", "(68) 99911-0002", "ALUNO", 1L);
+        user(jdbc, 3, "Carla Dias", "333.444.555-66", "maria.carla@ufac.br", "(68) 99911-0003", "ALUNO", 2L);
+        user(jdbc, 4, "Maria Ribeiro", "444.555.666-77", "dr.ribeiro@ufac.br", "(68) 98877-4455", "PRECEPTOR", null);
+        user(jdbc, 5, "Mário Alves", "555.666.777-88", "mario@ufac.br", "(68) 99911-0005", "ALUNO", 1L);
+        jdbc.update("INSERT INTO discipline_preceptors VALUES (1, 4)");
+        UserSearchIndex index = new UserSearchIndex(jdbc);
+        index.backfill();
+        service = new UserSearchService(new NamedParameterJdbcTemplate(db), index);
+    }
+
+    private static void user(JdbcTemplate jdbc, long id, String name, String cpf, String email, String phone, String role, Long disc) {
+        jdbc.update("INSERT INTO users (id, name, cpf, institutional_email, phone, matricula, role, current_discipline_id) VALUES (?,?,?,?,?,?,?,?)",
+                id, name, cpf, email, phone, "M" + id, role, disc);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.shutdown();
+    }
+
+    private static UserSearchService.UserFilter all(Long disc, String q) {
+        return new UserSearchService.UserFilter(disc, q, true, true, true, true);
+    }
+
+    @Test
+    @DisplayName("afterId: páginas por chave até nextCursor nulo, total constante")
+    void keyset_paging() {
+        UserSearchService.UserPage p1 = service.search(all(null, null), null, 0, 2);
+        assertThat(p1.items()).extracting(UserSearchService.UserSummary::id).containsExactly(1L, 2L);
+        assertThat(p1.nextCursor()).isEqualTo(2L);
+
+        UserSearchService.UserPage p2 = service.search(all(null, null), p1.nextCursor(), 0, 2);
+        assertThat(p2.items()).extracting(UserSearchService.UserSummary::id).containsExactly(3L, 4L);
+
+        UserSearchService.UserPage p3 = service.search(all(null, null), p2.nextCursor(), 0, 2);
+        assertThat(p3.items()).extracting(UserSearchService.UserSummary::id).containsExactly(5L);
+        assertThat(p3.nextCursor()).isNull();
+        assertThat(p1.totalItems()).isEqualTo(5).isEqualTo(p3.totalItems());
+
+        // Sem afterId: page/size com OFFSET (cliente atual)
+        assertThat(service.search(all(null, null), null, 1, 2).items()).extracting(UserSearchService.UserSummary::id).containsExactly(3L, 4L);
+    }
+
+    @Test
+    @DisplayName("Flags de campo: nome, e-mail, CPF e telefone só casam no campo escolhido")
+    void field_toggles() {
+        // "maria": nome do 4 e e-mail do 3
+        assertThat(ids(new UserSearchService.UserFilter(null, "maria", true, false, false, false))).containsExactly(4L);
+        assertThat(ids(new UserSearchService.UserFilter(null, "maria", false, true, false, false))).containsExactly(3L);
+        assertThat(ids(all(null, "maria"))).containsExactly(3L, 4L);
+        // Maiúsculas/minúsculas (acentos dependem do collation do MySQL, fora do alcance do H2)
+        assertThat(ids(new UserSearchService.UserFilter(null, "SOUZA", true, false, false, false))).containsExactly(1L);
+        // Dígitos: "111.22" só no CPF do 1; "8877" só no telefone do 4
+        assertThat(ids(new UserSearchService.UserFilter(null, "111.22", false, false, true, false))).containsExactly(1L);
+        assertThat(ids(new UserSearchService.UserFilter(null, "111.22", false, false, false, true))).isEmpty();
+        assertThat(ids(new UserSearchService.UserFilter(null, "8877", false, false, false, true))).containsExactly(4L);
+        assertThat(ids(new UserSearchService.UserFilter(null, "8877", false, false, true, false))).isEmpty();
+        // Nenhum campo marcado: nada
+        assertThat(ids(new UserSearchService.UserFilter(null, "ana", false, false, false, false))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Total conta todos os resultados do filtro (disciplina + texto), não só a página")
+    void total_counts_whole_filter() {
+        UserSearchService.UserPage page = service.search(all(1L, null), null, 0, 1);
+        // Alunos com disciplina atual 1 (1, 2, 5) + preceptor vinculado (4)
+        assertThat(page.totalItems()).isEqualTo(4);
+        assertThat(page.items()).hasSize(1);
+
+        UserSearchService.UserPage filtered = service.search(all(1L, "ufac.br"), 2L, 0, 10);
+        assertThat(filtered.totalItems()).isEqualTo(4);
+        assertThat(filtered.items()).extracting(UserSearchService.UserSummary::id).containsExactly(4L, 5L);
+        assertThat(filtered.items().get(1).toMap()).containsEntry("currentDiscipline",
+                java.util.Map.of("id", 1L, "code", "CM1", "name", "Clínica Médica"));
+    }
+
+    private java.util.List<Long> ids(UserSearchService.UserFilter f) {
+        return service.search(f, null, 0, 50).items().stream().map(UserSearchService.UserSummary::id).toList();
+    }
+}
@@ -0,0 +1,51 @@
+package com.medcheckapi.user.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkedTimeEngineTest {
+
+    @Test
+    @DisplayName("Sessão noturna é dividida na virada, recortada ao intervalo e arredondada ao minuto")
+    void splits_clips_and_rounds() {
+        WorkedTimeEngine e = WorkedTimeEngine.forRange(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+        // Cada dia vai até 23:59:59 (mesma regra do calendário)
+        e.add(LocalDateTime.of(2025, 3, 10, 22, 0), LocalDateTime.of(2025, 3, 11, 4, 30));
+        // Começa em fevereiro: só a parte de março conta
+        e.add(LocalDateTime.of(2025, 2, 28, 20, 0), LocalDateTime.of(2025, 3, 1, 2, 0));
+        // Passa do fim do intervalo: recorta em 31/03 23:59:59
+        e.add(LocalDateTime.of(2025, 3, 31, 23, 0), LocalDateTime.of(2025, 4, 1, 3, 0));
+        // Aberta não conta; 10 segundos viram 1 (qualquer trabalho muda o status)
+        e.add(LocalDateTime.of(2025, 3, 12, 8, 0), null);
+        e.add(LocalDateTime.of(2025, 3, 13, 8, 0), LocalDateTime.of(2025, 3, 13, 8, 0, 10));
+
+        long[] raw = e.raw();
+        assertThat(raw[9]).isEqualTo(2 * 3600L - 1);
+        assertThat(raw[10]).isEqualTo(4 * 3600L + 1800);
+        assertThat(raw[0]).isEqualTo(2 * 3600L);
+        assertThat(raw[30]).isEqualTo(3600L - 1);
+        assertThat(raw[11]).isZero();
+
+        long[] rounded = e.rounded();
+        assertThat(rounded[9]).isEqualTo(2 * 3600L);
+        assertThat(rounded[12]).isEqualTo(1);
+        assertThat(e.day(9)).isEqualTo(LocalDate.of(2025, 3, 10));
+    }
+
+    @Test
+    @DisplayName("split sem intervalo entrega uma fatia por dia")
+    void split_without_range() {
+        Map<Long, Long> byDay = new TreeMap<>();
+        WorkedTimeEngine.split(WorkedTimeEngine.epoch(LocalDateTime.of(2025, 3, 10, 22, 0)),
+                WorkedTimeEngine.epoch(LocalDateTime.of(2025, 3, 11, 4, 30)), (d, s) -> byDay.merge(d, s, Long::sum));
+        assertThat(byDay).containsEntry(LocalDate.of(2025, 3, 10).toEpochDay(), 2 * 3600L - 1)
+                .containsEntry(LocalDate.of(2025, 3, 11).toEpochDay(), 4 * 3600L + 1800);
+    }
+}
@@ -268,8 +268,8 @@ export class CoordinatorHomeComponent implements OnInit, OnDestroy {
     this.avatarObjectUrls.forEach(u=>{ try { URL.revokeObjectURL(u); } catch {} });
     this.avatarObjectUrls = [];
     this.items.forEach(a => {
-      a._noPhoto = true; a._avatarUrl=''; if (!a?.id) return; const ts = Date.now();
-      this.http.get(`/api/users/${a.id}/photo?t=${ts}`, { headers: this.authHeaders(), responseType: 'blob' }).subscribe({
+      a._noPhoto = true; a._avatarUrl=''; if (!a?.id) return;
+      this.http.get(`/api/users/${a.id}/photo?size=64`, { headers: this.authHeaders(), responseType: 'blob' }).subscribe({
         next: blob => {
           if (!blob || (blob as any).size === 0){ a._noPhoto = true; return; }
           const url = URL.createObjectURL(blob); a._avatarUrl = url; a._noPhoto = false; this.avatarObjectUrls.push(url);
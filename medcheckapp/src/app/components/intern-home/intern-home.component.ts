@@ -295,8 +295,7 @@ export class AlunoHomeComponent implements OnInit, OnDestroy {
   }
 
   private loadAvatar() {
-    const ts = Date.now();
-    this.http.get(`/api/users/me/photo?t=${ts}` as string, { headers: this.headers(), responseType: 'blob' }).subscribe({
+    this.http.get(`/api/users/me/photo?size=256` as string, { headers: this.headers(), responseType: 'blob' }).subscribe({
       next: blob => {
         this.clearAvatarUrl();
         const url = URL.createObjectURL(blob);
@@ -434,8 +434,8 @@ export class PreceptorHomeComponent implements OnInit, OnDestroy {
       a._noPhoto = true;
       a._avatarUrl = '';
       if (!a?.id) return;
-      const ts = Date.now();
-      this.http.get(`/api/users/${a.id}/photo?t=${ts}`, { headers: this.headers(), responseType: 'blob' }).subscribe({
+      // Miniatura; ETag + cache do navegador evitam baixar de novo a cada recarga
+      this.http.get(`/api/users/${a.id}/photo?size=64`, { headers: this.headers(), responseType: 'blob' }).subscribe({
         next: blob => {
           if (!blob || (blob as any).size === 0) { a._noPhoto = true; return; }
           const url = URL.createObjectURL(blob);
@@ -57,8 +57,8 @@ export class SettingsComponent implements OnDestroy {
   }
 
   private loadPhoto() {
-    const ts = Date.now();
-    this.http.get(`/api/users/me/photo?t=${ts}` as string, { headers: this.headers(), responseType: 'blob' }).subscribe({
+    // Sem timestamp: o servidor revalida por ETag (foto nova => ETag nova)
+    this.http.get(`/api/users/me/photo?size=256` as string, { headers: this.headers(), responseType: 'blob' }).subscribe({
       next: (blob) => {
         this.clearPhotoUrl();
         const url = URL.createObjectURL(blob);